@@ -47,6 +47,8 @@ abstract class AbstractBrowser implements Browser
    private final String          browserType;
    private final BrowserSettings settings;
    private final WebDriverWait   wait;
+   private final ConsoleHarvester consoleHarvester;
+   private final String          downloadDirectory;
    
    private String                iframe;
    private String                homeUrl;
@@ -55,7 +57,8 @@ abstract class AbstractBrowser implements Browser
 
    /**
     * constructs an instance of the class {link AbstractBrowser} based on the
-    * given settings
+    * given settings, for a driver which saves its downloads to the shared
+    * legacy location
     * 
     * @param settings
     *           the settings to apply
@@ -65,6 +68,25 @@ abstract class AbstractBrowser implements Browser
     *           the size of the banner
     */
    protected AbstractBrowser(String browserType, BrowserSettings settings, WebDriver driver, int bannerSize)
+   {
+      this(browserType, settings, driver, bannerSize, DownloadDirectory.LEGACY_LOCATION);
+   }
+
+   /**
+    * constructs an instance of the class {link AbstractBrowser} based on the
+    * given settings
+    * 
+    * @param settings
+    *           the settings to apply
+    * @param driver
+    *           the driver to use
+    * @param bannerSize
+    *           the size of the banner
+    * @param downloadDirectory
+    *           the directory the driver was configured to save downloads to
+    */
+   protected AbstractBrowser(String browserType, BrowserSettings settings, WebDriver driver, int bannerSize,
+         String downloadDirectory)
    {
       if (settings == null)
          throw new IllegalArgumentException("The browser settings must be supplied");
@@ -72,6 +94,8 @@ abstract class AbstractBrowser implements Browser
       this.driver = driver;
       this.browserType = browserType;
       this.wait = new WebDriverWait(getDriver(), 20);
+      this.consoleHarvester = new ConsoleHarvester(driver);
+      this.downloadDirectory = downloadDirectory;
       this.iframe = null;
    }
 
@@ -92,6 +116,12 @@ abstract class AbstractBrowser implements Browser
       return this.settings;
    }
 
+   @Override
+   public String getDownloadDirectory()
+   {
+      return this.downloadDirectory;
+   }
+
    /** 
     * Gets the browser version in the event we need it for logging purposes.
     * 
@@ -133,6 +163,27 @@ abstract class AbstractBrowser implements Browser
    {	   
 	   return (String)(((JavascriptExecutor)getDriver()).executeScript(script));
    }    
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Object executeJavaScriptReturnObject(final String script, final Object... arguments)
+   {
+      return ((JavascriptExecutor)getDriver()).executeScript(script, arguments);
+   }
+   
+   /**
+    * Loads a page, then has the console collector injected into it at once.
+    * 
+    * @param url
+    *           the complete URL of the page
+    */
+   private void navigateTo(final String url)
+   {
+      getDriver().get(url);
+      consoleHarvester.install();
+   }
    
    /**
     * Opens a Web Page URL. This method will block until the page is loaded
@@ -160,7 +211,7 @@ abstract class AbstractBrowser implements Browser
       */
       String completeUrl = settings.getBaseURL().replace(":80", "") + url;
 
-      getDriver().get(completeUrl);
+      navigateTo(completeUrl);
       int timeOut = 0;
       while (timeOut <= settings.getSmallTimeOut())
       {
@@ -200,7 +251,7 @@ abstract class AbstractBrowser implements Browser
        * So first remove ":80" for the completeUrl. 
       */
       String completeUrl = settings.getBaseURL().replace(":80", "") + url;
-      getDriver().get(completeUrl);
+      navigateTo(completeUrl);
    }
    
    
@@ -213,7 +264,7 @@ abstract class AbstractBrowser implements Browser
     */
    public boolean openUiByFullUrl(String completeUrl)
    {
-      getDriver().get(completeUrl);
+      navigateTo(completeUrl);
       int timeOut = 0;
       while (timeOut <= settings.getSmallTimeOut())
       {
@@ -243,7 +294,7 @@ abstract class AbstractBrowser implements Browser
    public String signinToPortal(final String sageId, final String password)
    {
       String baseUrl = settings.getBaseURL().replace(":80", "");
-      getDriver().get(baseUrl);
+      navigateTo(baseUrl);
       
       WebDriverWait wait_login = new WebDriverWait(this.getDriver(), 30);                  
       try
@@ -677,7 +728,9 @@ abstract class AbstractBrowser implements Browser
     */
    public boolean close()
    {
+      consoleHarvester.drain();
       getDriver().quit();
+      DownloadDirectory.deleteAsync(downloadDirectory);
       return true;
    }
 
@@ -1405,7 +1458,62 @@ abstract class AbstractBrowser implements Browser
    public boolean typeIntoCell(final String locator, final String value, final boolean tab)
    {
       WebElement element = findElement(locator);
-      boolean success = false;
+      if (!clearAndTypeIntoCell(element, locator, value))
+      {
+         return false;
+      }
+      
+      boolean success = getText(locator).equalsIgnoreCase(value); 
+      
+      if (tab)
+      {
+         element.sendKeys(Keys.TAB);
+      }
+      
+      return success;
+   }
+   
+   /**
+    * Enters text at the specified cell location and presses "tab", like
+    * {@link #typeIntoCell(String, String, boolean)}, but does not read the cell
+    * back: the caller checks the values of a whole batch of cells at once.
+    * 
+    * @param locator
+    *           The locator string can accept an xPath to the location or an
+    *           HTML id.
+    * @param value
+    *           What is to be typed in the field.
+    * @return <li><code>true</code> if the field was typed in.</li> <li>
+    *         <code>false</code> if the field could not be typed in, for instance
+    *         because it is disabled.</li>
+    * @throws org.openqa.selenium.NoSuchElementException
+    *            if unable to locate the element.
+    */
+   public boolean enterIntoCell(final String locator, final String value)
+   {
+      WebElement element = findElement(locator);
+      if (!clearAndTypeIntoCell(element, locator, value))
+      {
+         return false;
+      }
+      element.sendKeys(Keys.TAB);
+      return true;
+   }
+   
+   /**
+    * Clears the value of a cell and types the new one.
+    * 
+    * @param element
+    *           the input of the cell
+    * @param locator
+    *           the locator of the input
+    * @param value
+    *           What is to be typed in the field.
+    * @return <li><code>true</code> if the field was typed in.</li> <li>
+    *         <code>false</code> if the field could not be focused.</li>
+    */
+   private boolean clearAndTypeIntoCell(final WebElement element, final String locator, final String value)
+   {
       try
       {
          // Before input new value, need select existing value then delete 
@@ -1466,15 +1574,7 @@ abstract class AbstractBrowser implements Browser
       {
          return false;
       }
-      
-      success = getText(locator).equalsIgnoreCase(value); 
-      
-      if (tab)
-      {
-         element.sendKeys(Keys.TAB);
-      }
-      
-      return success;
+      return true;
    }
    
    /**
@@ -3030,6 +3130,14 @@ abstract class AbstractBrowser implements Browser
          {
             return true;
          }
+         // A JavaScript error matching the fail fast policy will not let the
+         // element appear, so stop waiting for it now rather than at timeout
+         ConsoleEntry failure = consoleHarvester.poll();
+         if (failure != null)
+         {
+            System.out.println("Stopped waiting for " + locator + " because of a browser error: " + failure);
+            return false;
+         }
          TimeDelay.doPause(interval);
       }
       return false;
@@ -3531,6 +3639,24 @@ abstract class AbstractBrowser implements Browser
       }      
    } 
    
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public List<ConsoleEntry> harvestConsole()
+   {
+      return consoleHarvester.drain();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void setConsoleFailFast(final ConsoleSeverity severity)
+   {
+      consoleHarvester.setFailFastSeverity(severity);
+   }
+
    /**
     * <p>
     * Waits for the loading Spinner imagine to be gone.
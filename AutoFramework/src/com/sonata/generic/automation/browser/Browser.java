@@ -4,6 +4,8 @@
 
 package com.sonata.generic.automation.browser;
 
+import java.util.List;
+
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
@@ -229,6 +231,21 @@ public interface Browser
     * 
     */
    String executeJavaScriptReturnString(final String script);
+
+   /**
+    * Executes a JavaScript with arguments and returns the value fetched by the
+    * JavaScript call, converted by the driver: numbers to Long or Double,
+    * arrays to List and objects to Map.
+    * 
+    * @param script
+    *           The java script to be executed, reading its arguments from
+    *           <code>arguments[0..n]</code>.
+    * @param arguments
+    *           The arguments passed to the script.
+    * 
+    * @return the value returned by the JavaScript call, may be null
+    */
+   Object executeJavaScriptReturnObject(final String script, final Object... arguments);
    
    /**
     * Click on an element, and wait for an element to disappear (not existing in
@@ -558,6 +575,24 @@ public interface Browser
    boolean typeIntoCell(final String locator, final String value, final boolean tab);
    
    
+   /**
+    * Enters text at the specified cell location and presses "tab", without
+    * reading the cell back.
+    * 
+    * @param locator
+    *           The locator string can accept an xPath to the location or an
+    *           HTML id.
+    * @param value
+    *           What is to be typed in the field.
+    * 
+    * @return <li><code>true</code> if the field was typed in.</li> <li>
+    *         <code>false</code> if the field could not be typed in.</li>
+    * @throws org.openqa.selenium.NoSuchElementException
+    *            if unable to locate the element.
+    */
+   boolean enterIntoCell(final String locator, final String value);
+   
+   
    /**
     * Types the specified value into this widget. This action will clear any
     * existing value from this widget before typing in the new value.
@@ -1476,6 +1511,15 @@ public interface Browser
     * @return the settings from this browser.
     */
    BrowserSettings getBrowserSettings();
+
+   /**
+    * gets the directory this browser session saves its downloads to. Each
+    * Chrome or FireFox session has its own directory, which is deleted when
+    * the browser is closed.
+    * 
+    * @return the absolute path of the download directory
+    */
+   String getDownloadDirectory();
    
    /**
     * returns the underlying web driver
@@ -1540,4 +1584,23 @@ public interface Browser
     *            The UI does not contain such a widget.
     */   
    boolean waitForUiReady(String locator);
+
+   /**
+    * Drains the console messages and JavaScript errors collected in the current
+    * page since the last drain, and writes them to the test log.
+    * 
+    * @return the drained messages, in the order they were raised
+    */
+   List<ConsoleEntry> harvestConsole();
+
+   /**
+    * Sets the lowest severity of a harvested browser console message which
+    * makes {@link #waitForElement(String)} give up immediately instead of
+    * waiting for the timeout.
+    * 
+    * @param severity
+    *           the severity, or <code>null</code> to always wait for the
+    *           timeout
+    */
+   void setConsoleFailFast(final ConsoleSeverity severity);
 }
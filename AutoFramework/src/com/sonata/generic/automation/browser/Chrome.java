@@ -25,24 +25,41 @@ class Chrome extends AbstractBrowser
     *           the {@link BrowserSettings} to apply, which must not be null
     */
    Chrome(BrowserSettings settings)
+   {
+      this(settings, DownloadDirectory.allocate());
+   }
+
+   /**
+    * Constructor for the Chrome Driver saving its downloads to the given
+    * directory.
+    * 
+    * @param settings
+    *           the {@link BrowserSettings} to apply, which must not be null
+    * @param downloadDirectory
+    *           the download directory of this session
+    */
+   private Chrome(BrowserSettings settings, String downloadDirectory)
    {
       //super(settings, new ChromeDriver(), 40);
-      super("CHROME", settings, new ChromeDriver(setChromCapabilities()), 40);
+      super("CHROME", settings, new ChromeDriver(setChromCapabilities(downloadDirectory)), 40, downloadDirectory);
    }
    
    /**
     * set the Capabilities used for creating a Chrome WebDriver.
     * 
+    * @param downloadDirectory
+    *           the directory to save the download files to
     * @return DesiredCapabilities
     *           the Capabilities used for creating a Chrome WebDriver.
     *           including where to save the download files, etc.
     */
-   static DesiredCapabilities setChromCapabilities()
+   static DesiredCapabilities setChromCapabilities(String downloadDirectory)
    {
       Map<String, Object> prefs = new HashMap<String, Object>();
       
       prefs.put("profile.default_content_settings.popups", 1);
-      prefs.put("download.default_directory", "C:\\dev\\tmpReport");
+      prefs.put("download.default_directory", downloadDirectory);
+      prefs.put("download.prompt_for_download", false);
          
       //System.setProperty("webdriver.chrome.logfile", "c:\\chromedriver\\chromedriver.log");
             
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * The <code>ConsoleEntry</code> class holds one message harvested from the
+ * browser, either from the injected console collector or from the WebDriver
+ * logs API. Instances are immutable.
+ */
+public final class ConsoleEntry
+{
+   /** Source of messages captured by the injected console wrapper */
+   public static final String SOURCE_CONSOLE   = "console";
+
+   /** Source of messages captured by the injected window.onerror handler */
+   public static final String SOURCE_ONERROR   = "onerror";
+
+   /** Source of messages read through the WebDriver logs API */
+   public static final String SOURCE_WEBDRIVER = "webdriver";
+
+   /** Source of resources failing to load, read through the WebDriver logs API */
+   public static final String SOURCE_NETWORK   = "network";
+
+   private final long            timestamp;
+   private final ConsoleSeverity severity;
+   private final String          source;
+   private final String          message;
+
+   /**
+    * Constructs an instance of the {@link ConsoleEntry} class.
+    *
+    * @param timestamp
+    *           the time the message was raised, in milliseconds since the epoch
+    * @param severity
+    *           the severity of the message
+    * @param source
+    *           where the message was harvested from
+    * @param message
+    *           the message text
+    */
+   public ConsoleEntry(final long timestamp, final ConsoleSeverity severity, final String source,
+         final String message)
+   {
+      this.timestamp = timestamp;
+      this.severity = severity == null ? ConsoleSeverity.INFO : severity;
+      this.source = source;
+      this.message = message == null ? "" : message;
+   }
+
+   /**
+    * @return the time the message was raised, in milliseconds since the epoch
+    */
+   public long getTimestamp()
+   {
+      return timestamp;
+   }
+
+   /**
+    * @return the severity of the message
+    */
+   public ConsoleSeverity getSeverity()
+   {
+      return severity;
+   }
+
+   /**
+    * @return where the message was harvested from, one of the SOURCE_ constants
+    */
+   public String getSource()
+   {
+      return source;
+   }
+
+   /**
+    * @return the message text
+    */
+   public String getMessage()
+   {
+      return message;
+   }
+
+   @Override
+   public String toString()
+   {
+      return new SimpleDateFormat("MM/dd/yyyy HH:mm:ss.SSS").format(new Date(timestamp)) + " [" + severity + "] ("
+            + source + ") " + message;
+   }
+}
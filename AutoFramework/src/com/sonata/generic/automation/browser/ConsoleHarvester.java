@@ -0,0 +1,430 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import com.sonata.generic.automation.library.LoggingHelper;
+
+/**
+ * The <code>ConsoleHarvester</code> class collects the browser console messages
+ * and JavaScript errors raised by the application under test.
+ * <p>
+ * When the driver supports the WebDriver logs API (Chrome), the messages are
+ * read from the browser log, which holds everything raised since the page
+ * started loading. Otherwise a small collector is injected into the page (or
+ * frame) right after each navigation, and again at each drain after the
+ * application changed page itself: it wraps
+ * <code>console.error/warn/info/log/debug</code> and chains a
+ * <code>window.onerror</code> handler, buffering the messages in the page.
+ * Messages raised before it is injected, while the page loads, are then
+ * missed. The messages are drained in batches, at most once per drain
+ * interval, and a message repeated in a batch is only written once.
+ * <p>
+ * The WebDriver is not thread safe, so the drain itself runs on the test
+ * thread, piggybacking on the pauses the wait loops already make. Formatting
+ * and writing the drained batches to the test log is handed off to a single
+ * background thread shared by all browsers, keeping file I/O off the test's
+ * critical path.
+ * <p>
+ * Settings:
+ * <ul>
+ * <li><code>com.sage.swt.automation.browser.consolefailfast</code> the lowest
+ * {@link ConsoleSeverity} which aborts the waits immediately; OFF by default,
+ * and when the value is not a severity</li>
+ * <li><code>com.sage.swt.automation.browser.consolefailfastnetwork</code>
+ * <code>true</code> to also abort the waits on resources failing to load,
+ * such as a missing image; <code>false</code> by default</li>
+ * <li><code>com.sage.swt.automation.browser.consolelog</code> the path (without
+ * the .log extension) of the file the messages are appended to; by default
+ * they are only printed to standard output</li>
+ * </ul>
+ */
+class ConsoleHarvester
+{
+   /** System property for the fail fast severity */
+   static final String                  FAIL_FAST_PROPERTY         = "com.sage.swt.automation.browser.consolefailfast";
+
+   /** System property for failing fast on network errors */
+   static final String                  FAIL_FAST_NETWORK_PROPERTY = "com.sage.swt.automation.browser.consolefailfastnetwork";
+
+   /** System property for the console log file */
+   static final String                  LOG_FILE_PROPERTY          = "com.sage.swt.automation.browser.consolelog";
+
+   /** Minimum number of milliseconds between two drains of the page buffer */
+   private static final int             DRAIN_INTERVAL             = 1000;
+
+   /** Text of the browser log messages about resources failing to load */
+   private static final String          NETWORK_ERROR              = "Failed to load resource";
+
+   /**
+    * Installs the collector if the page does not have one yet. The buffer is
+    * capped so a page spamming the console cannot grow without bound between
+    * two drains.
+    */
+   private static final String          INSTALL_SCRIPT             =
+         "var w = window;"
+       + "if (!w.__swtConsole) {"
+       + "  w.__swtConsole = [];"
+       + "  var push = function(l, m) {"
+       + "    if (w.__swtConsole.length < 500) w.__swtConsole.push({l: l, m: String(m), t: new Date().getTime()});"
+       + "  };"
+       + "  if (w.console) {"
+       + "    var levels = ['error', 'warn', 'info', 'log', 'debug'];"
+       + "    for (var i = 0; i < levels.length; i++) {"
+       + "      (function(l) {"
+       + "        var original = w.console[l];"
+       + "        w.console[l] = function() {"
+       + "          push(l, Array.prototype.slice.call(arguments).join(' '));"
+       + "          if (original) try { original.apply(w.console, arguments); } catch (e) {}"
+       + "        };"
+       + "      })(levels[i]);"
+       + "    }"
+       + "  }"
+       + "  var previous = w.onerror;"
+       + "  w.onerror = function(msg, url, line, col, err) {"
+       + "    push('onerror', msg + ' at ' + url + ':' + line + (err && err.stack ? '\\n' + err.stack : ''));"
+       + "    return previous ? previous.apply(w, arguments) : false;"
+       + "  };"
+       + "}";
+
+   /**
+    * Installs the collector if needed, then returns and empties the buffered
+    * messages.
+    */
+   private static final String          DRAIN_SCRIPT               = INSTALL_SCRIPT
+       + "var batch = w.__swtConsole;"
+       + "w.__swtConsole = [];"
+       + "return batch;";
+
+   /** The single background writer shared by all harvesters */
+   private static final ExecutorService WRITER             = Executors.newSingleThreadExecutor(new ThreadFactory()
+                                                           {
+                                                              @Override
+                                                              public Thread newThread(Runnable r)
+                                                              {
+                                                                 Thread thread = new Thread(r, "browser-console-writer");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                              }
+                                                           });
+
+   private final WebDriver              driver;
+   private final String                 logFile;
+   private ConsoleSeverity              failFastSeverity;
+   private boolean                      failFastOnNetwork;
+   private Boolean                      webDriverLogsSupported;
+   private long                         lastDrain;
+
+   /**
+    * Constructs an instance of the {@link ConsoleHarvester} class, reading the
+    * fail fast settings and log file from the system properties.
+    *
+    * @param driver
+    *           the driver of the browser session to harvest
+    */
+   ConsoleHarvester(final WebDriver driver)
+   {
+      this.driver = driver;
+      this.logFile = System.getProperty(LOG_FILE_PROPERTY);
+      this.failFastSeverity = readFailFastSeverity();
+      this.failFastOnNetwork = Boolean.getBoolean(FAIL_FAST_NETWORK_PROPERTY);
+      this.webDriverLogsSupported = null;
+      this.lastDrain = 0;
+   }
+
+   /**
+    * Sets the lowest severity which aborts the waits immediately.
+    *
+    * @param severity
+    *           the severity, or null to disable fail fast
+    */
+   void setFailFastSeverity(final ConsoleSeverity severity)
+   {
+      this.failFastSeverity = severity;
+   }
+
+   /**
+    * Sets whether resources failing to load abort the waits too, when their
+    * severity reaches the fail fast severity.
+    *
+    * @param failFastOnNetwork
+    *           <code>true</code> to abort the waits on network errors
+    */
+   void setFailFastOnNetwork(final boolean failFastOnNetwork)
+   {
+      this.failFastOnNetwork = failFastOnNetwork;
+   }
+
+   /**
+    * Injects the collector into the page just loaded, unless the messages are
+    * read from the browser log. Meant to be called after each navigation.
+    */
+   void install()
+   {
+      if (usesWebDriverLogs())
+      {
+         return;
+      }
+      try
+      {
+         ((JavascriptExecutor)driver).executeScript(INSTALL_SCRIPT);
+      }
+      catch (Exception e)
+      {
+         // No page, or an alert is open: the next drain installs it
+      }
+   }
+
+   /**
+    * Drains the pending messages if the drain interval has elapsed, and checks
+    * them against the fail fast severity. Meant to be called from the polling
+    * loops, where the test thread is idle anyway.
+    *
+    * @return the first drained entry at or above the fail fast severity, or null
+    *         if there is none or fail fast is disabled
+    */
+   ConsoleEntry poll()
+   {
+      if (System.currentTimeMillis() - lastDrain < DRAIN_INTERVAL)
+      {
+         return null;
+      }
+      return findFailure(drain());
+   }
+
+   /**
+    * Drains all the pending messages now, regardless of the drain interval.
+    *
+    * @return the drained entries, in the order they were collected, a message
+    *         repeated in the batch only once
+    */
+   List<ConsoleEntry> drain()
+   {
+      lastDrain = System.currentTimeMillis();
+      final List<ConsoleEntry> batch = new ArrayList<ConsoleEntry>();
+      if (!usesWebDriverLogs() || !drainWebDriverLogs(batch))
+      {
+         drainPageBuffer(batch);
+      }
+      final List<ConsoleEntry> entries = dedupe(batch);
+      if (!entries.isEmpty())
+      {
+         write(entries);
+      }
+      return entries;
+   }
+
+   /**
+    * Returns the first entry at or above the fail fast severity. Network
+    * errors only count if {@link #setFailFastOnNetwork(boolean)} is set.
+    *
+    * @param batch
+    *           the entries to check
+    * @return the first matching entry, or null
+    */
+   private ConsoleEntry findFailure(final List<ConsoleEntry> batch)
+   {
+      if (failFastSeverity == null)
+      {
+         return null;
+      }
+      for (ConsoleEntry entry : batch)
+      {
+         if (entry.getSeverity().isAtLeast(failFastSeverity)
+               && (failFastOnNetwork || !ConsoleEntry.SOURCE_NETWORK.equals(entry.getSource())))
+         {
+            return entry;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Keeps the first of the entries with the same severity, source and
+    * message, noting how many times it was repeated.
+    *
+    * @param batch
+    *           the drained entries
+    * @return the entries without repeats, in the same order
+    */
+   private static List<ConsoleEntry> dedupe(final List<ConsoleEntry> batch)
+   {
+      final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+      final Map<String, ConsoleEntry> firsts = new LinkedHashMap<String, ConsoleEntry>();
+      for (ConsoleEntry entry : batch)
+      {
+         final String key = entry.getSeverity() + "|" + entry.getSource() + "|" + entry.getMessage();
+         final Integer count = counts.get(key);
+         counts.put(key, count == null ? 1 : count + 1);
+         if (count == null)
+         {
+            firsts.put(key, entry);
+         }
+      }
+      final List<ConsoleEntry> entries = new ArrayList<ConsoleEntry>(firsts.size());
+      for (Map.Entry<String, ConsoleEntry> first : firsts.entrySet())
+      {
+         final ConsoleEntry entry = first.getValue();
+         final int count = counts.get(first.getKey());
+         entries.add(count == 1 ? entry : new ConsoleEntry(entry.getTimestamp(), entry.getSeverity(), entry
+               .getSource(), entry.getMessage() + " (repeated " + count + " times)"));
+      }
+      return entries;
+   }
+
+   /**
+    * Runs the drain script in the current page or frame.
+    *
+    * @param batch
+    *           the list to add the drained entries to
+    */
+   private void drainPageBuffer(final List<ConsoleEntry> batch)
+   {
+      final Object result;
+      try
+      {
+         result = ((JavascriptExecutor)driver).executeScript(DRAIN_SCRIPT);
+      }
+      catch (Exception e)
+      {
+         // No page yet, an alert is open or the window is gone: nothing to drain
+         return;
+      }
+      if (!(result instanceof List))
+      {
+         return;
+      }
+      for (Object item : (List<?>)result)
+      {
+         if (item instanceof Map)
+         {
+            final Map<?, ?> raw = (Map<?, ?>)item;
+            final String level = String.valueOf(raw.get("l"));
+            final Object time = raw.get("t");
+            batch.add(new ConsoleEntry(time instanceof Number ? ((Number)time).longValue() : System
+                  .currentTimeMillis(), ConsoleSeverity.fromName(level), "onerror".equals(level)
+                  ? ConsoleEntry.SOURCE_ONERROR : ConsoleEntry.SOURCE_CONSOLE, String.valueOf(raw.get("m"))));
+         }
+      }
+   }
+
+   /**
+    * Checks once whether the driver gives the browser log through the
+    * WebDriver logs API.
+    *
+    * @return <li><code>true</code> if the messages are read from the browser
+    *         log.</li> <li><code>false</code> if they are collected in the
+    *         page.</li>
+    */
+   private boolean usesWebDriverLogs()
+   {
+      if (webDriverLogsSupported == null)
+      {
+         try
+         {
+            webDriverLogsSupported = driver.manage().logs().getAvailableLogTypes().contains(LogType.BROWSER);
+         }
+         catch (Exception e)
+         {
+            webDriverLogsSupported = false;
+         }
+      }
+      return webDriverLogsSupported;
+   }
+
+   /**
+    * Reads the browser log through the WebDriver logs API. Resources failing to
+    * load are reported with the {@link ConsoleEntry#SOURCE_NETWORK} source.
+    *
+    * @param batch
+    *           the list to add the drained entries to
+    * @return <li><code>true</code> if the log was read.</li> <li>
+    *         <code>false</code> if the driver failed to give it, in which case
+    *         the page collector is used from then on.</li>
+    */
+   private boolean drainWebDriverLogs(final List<ConsoleEntry> batch)
+   {
+      try
+      {
+         for (LogEntry logEntry : driver.manage().logs().get(LogType.BROWSER))
+         {
+            final String message = logEntry.getMessage();
+            batch.add(new ConsoleEntry(logEntry.getTimestamp(), ConsoleSeverity.fromName(logEntry.getLevel()
+                  .getName()), message != null && message.contains(NETWORK_ERROR) ? ConsoleEntry.SOURCE_NETWORK
+                  : ConsoleEntry.SOURCE_WEBDRIVER, message));
+         }
+         return true;
+      }
+      catch (Exception e)
+      {
+         webDriverLogsSupported = false;
+         return false;
+      }
+   }
+
+   /**
+    * Reads the fail fast severity from its system property. A value which is
+    * not a severity is reported and fail fast is left off, rather than failing
+    * to open the browser.
+    *
+    * @return the severity, or null if fail fast is off
+    */
+   private static ConsoleSeverity readFailFastSeverity()
+   {
+      final String value = System.getProperty(FAIL_FAST_PROPERTY);
+      try
+      {
+         return ConsoleSeverity.parseSetting(value);
+      }
+      catch (IllegalArgumentException e)
+      {
+         System.out.println("Ignoring " + FAIL_FAST_PROPERTY + "=" + value
+               + ", not a browser console severity: fail fast is off.");
+         return null;
+      }
+   }
+
+   /**
+    * Hands a batch over to the background writer.
+    *
+    * @param batch
+    *           the entries to write
+    */
+   private void write(final List<ConsoleEntry> batch)
+   {
+      final List<ConsoleEntry> entries = Collections.unmodifiableList(new ArrayList<ConsoleEntry>(batch));
+      WRITER.execute(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            final StringBuilder text = new StringBuilder();
+            for (ConsoleEntry entry : entries)
+            {
+               text.append("Browser console: ").append(entry).append(System.getProperty("line.separator"));
+            }
+            System.out.print(text);
+            if (logFile != null)
+            {
+               // One append per batch rather than one per entry
+               LoggingHelper.writeResultToLog(logFile, text.toString().trim());
+            }
+         }
+      });
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import java.util.Locale;
+
+/**
+ * The <code>ConsoleSeverity</code> enumerates the severities of the messages
+ * harvested from the browser console, in increasing order of importance.
+ */
+public enum ConsoleSeverity
+{
+   /** console.debug, or FINE and below from the WebDriver logs */
+   DEBUG,
+
+   /** console.log and console.info, or INFO from the WebDriver logs */
+   INFO,
+
+   /** console.warn, or WARNING from the WebDriver logs */
+   WARNING,
+
+   /** console.error, window.onerror, or SEVERE from the WebDriver logs */
+   SEVERE;
+
+   /**
+    * Checks whether this severity is at least as important as the given one.
+    *
+    * @param threshold
+    *           the severity to compare against
+    * @return <li><code>true</code> if this severity is equal to or above the
+    *         threshold.</li> <li><code>false</code> otherwise.</li>
+    */
+   public boolean isAtLeast(final ConsoleSeverity threshold)
+   {
+      return threshold != null && this.compareTo(threshold) >= 0;
+   }
+
+   /**
+    * Maps a console method name ("log", "warn", "error", ...) or a
+    * java.util.logging level name ("SEVERE", "WARNING", ...) to a severity.
+    *
+    * @param name
+    *           the level name reported by the browser
+    * @return the matching severity, {@link #INFO} if the name is not known
+    */
+   public static ConsoleSeverity fromName(final String name)
+   {
+      if (name == null)
+      {
+         return INFO;
+      }
+      final String level = name.trim().toUpperCase(Locale.ENGLISH);
+      if (level.equals("ERROR") || level.equals("SEVERE") || level.equals("ONERROR"))
+      {
+         return SEVERE;
+      }
+      if (level.equals("WARN") || level.equals("WARNING"))
+      {
+         return WARNING;
+      }
+      if (level.equals("DEBUG") || level.equals("FINE") || level.equals("FINER") || level.equals("FINEST")
+            || level.equals("CONFIG"))
+      {
+         return DEBUG;
+      }
+      return INFO;
+   }
+
+   /**
+    * Parses a severity specified in a setting, ignoring case.
+    *
+    * @param value
+    *           the setting value, may be null
+    * @return the severity, or null if the value is null, empty or "OFF"
+    * @throws IllegalArgumentException
+    *            if the value does not name a severity
+    */
+   public static ConsoleSeverity parseSetting(final String value)
+   {
+      if (value == null || value.trim().length() == 0 || value.trim().equalsIgnoreCase("OFF"))
+      {
+         return null;
+      }
+      return ConsoleSeverity.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+   }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The <code>DownloadDirectory</code> class allocates the directory each browser
+ * session saves its downloads (the exported reports) to.
+ * <p>
+ * Every session gets its own directory under the download root, so report
+ * tests running in parallel never see, clean or pick up each other's files.
+ * The root defaults to the historical shared location and can be changed with
+ * the <code>com.sage.swt.automation.browser.downloaddir</code> system property.
+ */
+final class DownloadDirectory
+{
+   /** The location all the sessions used to share, kept as the default root */
+   static final String                  LEGACY_LOCATION   = "C:\\dev\\tmpReport";
+
+   /** System property for the root of the session directories */
+   static final String                  ROOT_PROPERTY     = "com.sage.swt.automation.browser.downloaddir";
+
+   /** Deletes the directories of the closed sessions in the background */
+   private static final ExecutorService CLEANER           = Executors.newSingleThreadExecutor(new ThreadFactory()
+                                                          {
+                                                             @Override
+                                                             public Thread newThread(Runnable r)
+                                                             {
+                                                                Thread thread = new Thread(r, "download-dir-cleaner");
+                                                                thread.setDaemon(true);
+                                                                return thread;
+                                                             }
+                                                          });
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private DownloadDirectory()
+   {
+   }
+
+   /**
+    * Creates a new, unique download directory for a browser session.
+    *
+    * @return the absolute path of the directory
+    * @throws IllegalStateException
+    *            if the directory cannot be created
+    */
+   static String allocate()
+   {
+      final String root = StringUtils.getFirstNonNull(System.getProperty(ROOT_PROPERTY), LEGACY_LOCATION);
+      try
+      {
+         final Path rootPath = Paths.get(root);
+         Files.createDirectories(rootPath);
+         return Files.createTempDirectory(rootPath, "session").toAbsolutePath().toString();
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Cannot create a download directory under " + root, e);
+      }
+   }
+
+   /**
+    * Deletes a session download directory in the background, so closing the
+    * browser does not wait for it. The shared legacy location is never
+    * deleted.
+    *
+    * @param directory
+    *           the directory to delete
+    */
+   static void deleteAsync(final String directory)
+   {
+      if (directory == null || new File(directory).equals(new File(LEGACY_LOCATION)))
+      {
+         return;
+      }
+      CLEANER.execute(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               FileUtils.deleteDirectory(new File(directory));
+            }
+            catch (IOException e)
+            {
+               // A file may still be locked by the browser process; the root
+               // is a temporary location, so a leftover is harmless
+               System.out.println("Couldn't delete the download directory " + directory);
+            }
+         }
+      });
+   }
+}
@@ -15,7 +15,6 @@ import org.openqa.selenium.firefox.FirefoxProfile;
  */
 class FireFox extends AbstractBrowser
 {
-   private static final String    EXPORT_TEMP_LOCATION      = "c:\\dev\\tmpReport\\";
    /**
     * Constructor for the FireFox Driver.
     * 
@@ -24,7 +23,22 @@ class FireFox extends AbstractBrowser
     */
    FireFox(BrowserSettings settings)
    {
-      super("FIREFOX", settings, new FirefoxDriver(getFireFoxDefaultProfile()), 40);
+      this(settings, DownloadDirectory.allocate());
+   }
+
+   /**
+    * Constructor for the FireFox Driver saving its downloads to the given
+    * directory.
+    * 
+    * @param settings
+    *           the {@link BrowserSettings} to apply, which must not be null
+    * @param downloadDirectory
+    *           the download directory of this session
+    */
+   private FireFox(BrowserSettings settings, String downloadDirectory)
+   {
+      super("FIREFOX", settings, new FirefoxDriver(getFireFoxDefaultProfile(downloadDirectory)), 40,
+            downloadDirectory);
    }
 
    /**
@@ -34,9 +48,11 @@ class FireFox extends AbstractBrowser
     * can turn on and off to the default profile and has no control over the
     * anonymous profile.
     * 
+    * @param downloadDirectory
+    *           the directory to save the download files to
     * @return the default Firefox profile if found, otherwise null.
     */
-   static FirefoxProfile getFireFoxDefaultProfile()
+   static FirefoxProfile getFireFoxDefaultProfile(String downloadDirectory)
    {
       String path = System.getenv("APPDATA") + "\\Mozilla\\Firefox\\Profiles\\";
 
@@ -52,7 +68,7 @@ class FireFox extends AbstractBrowser
                FirefoxProfile profile = new FirefoxProfile(new File(listOfFiles[i].getPath()));
                profile.setAcceptUntrustedCertificates(true);
                profile.setPreference("browser.download.folderList",2);
-               profile.setPreference("browser.download.dir",EXPORT_TEMP_LOCATION);
+               profile.setPreference("browser.download.dir",downloadDirectory);
                profile.setPreference("browser.helperApps.neverAsk.saveToDisk","text/download,application/x-xml,application/pdf");
                profile.setAcceptUntrustedCertificates(true);
                return profile;
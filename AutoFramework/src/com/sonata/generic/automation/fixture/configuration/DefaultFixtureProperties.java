@@ -60,7 +60,9 @@ public class DefaultFixtureProperties implements FixtureProperties
     *           The nested map of {@link FixtureWidget} objects for the widgets
     *           on the UI and its popup forms, with the outer map keyed by
     *           descriptive form name (or "" for the main form) and the inner
-    *           map keyed by descriptive descriptive widget names.
+    *           map keyed by descriptive descriptive widget names. The inner
+    *           maps may create their widgets on first access (see
+    *           {@link LazyFixtureWidgets}).
     * 
     * @throws IllegalArgumentException
     *            One or more arguments are null, or have invalid contents.
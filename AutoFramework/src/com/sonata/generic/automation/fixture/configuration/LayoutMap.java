@@ -0,0 +1,731 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * <p>
+ * The compiled form of a layout map: the UI, its forms and their widget trees,
+ * as read and validated from the fixture configuration data, but not yet bound
+ * to a browser.
+ * </p>
+ *
+ * <p>
+ * A layout map is immutable, so one instance can be shared by all the fixtures
+ * using the same configuration file (see {@link LayoutMapCache}), each of them
+ * only creating its own fixture widgets from it. It is serializable so it can
+ * be persisted between runs.
+ * </p>
+ */
+public final class LayoutMap implements Serializable
+{
+   private static final long            serialVersionUID = 1L;
+   private static final XMLInputFactory INPUT_FACTORY    = XMLInputFactory.newInstance();
+
+   private final String      uiName;
+   private final String      uiMenuName;
+   private final String      category;
+   private final String      application;
+   private final String      applicationfullname;
+   private final List<Form>  forms;
+
+   /**
+    * Constructs a layout map.
+    *
+    * @param uiName
+    *           The name of the UI.
+    * @param uiMenuName
+    *           The menu name of the UI.
+    * @param category
+    *           The category of the UI.
+    * @param application
+    *           The short name of the application.
+    * @param applicationfullname
+    *           The full name of the application.
+    * @param forms
+    *           The forms of the UI, the main one included.
+    */
+   private LayoutMap(final String uiName, final String uiMenuName, final String category, final String application,
+         final String applicationfullname, final List<Form> forms)
+   {
+      this.uiName = uiName;
+      this.uiMenuName = uiMenuName;
+      this.category = category;
+      this.application = application;
+      this.applicationfullname = applicationfullname;
+      this.forms = Collections.unmodifiableList(forms);
+   }
+
+   /**
+    * Compiles the fixture configuration data of a DOM document into a layout
+    * map, validating everything that does not depend on the widgets the
+    * fixture can create.
+    *
+    * @param configurationDoc
+    *           The DOM document containing the fixture configuration data.
+    *
+    * @return The layout map.
+    *
+    * @throws IllegalArgumentException
+    *            The configuration DOM document is null or does not contain
+    *            valid fixture configuration data.
+    */
+   public static LayoutMap compile(final Document configurationDoc)
+   {
+      if (null == configurationDoc)
+         throw new IllegalArgumentException("The configuration DOM document must be non-null.");
+
+      // The root element should be "ui" and it should have name and
+      // application attributes.
+      Element uiElem = configurationDoc.getDocumentElement();
+      if (null == uiElem)
+         throw new IllegalArgumentException("The configuration DOM document must contain a root element.");
+
+      checkUIElement(uiElem.getTagName());
+      String uiName = uiElem.getAttribute(ConfigurationConstants.Attributes.NAME);
+      String application = uiElem.getAttribute(ConfigurationConstants.Attributes.APPLICATION);
+      checkUIAttributes(uiName, application);
+
+      List<Form> forms = new ArrayList<Form>();
+      boolean foundMainForm = false; // until told otherwise
+
+      NodeList formNodes = uiElem.getElementsByTagName(ConfigurationConstants.Tags.FORM);
+      int formCount = formNodes.getLength();
+      for (int i = 0; i < formCount; i++)
+      {
+         Node formNode = formNodes.item(i);
+         if ((null == formNode) || !(formNode instanceof Element))
+            continue; // ignore non-elements (although there shouldn't be any with getElementsByTagName)
+
+         Element formElem = (Element)formNode;
+         String nameToUse = getFormName(formElem.getAttribute(ConfigurationConstants.Attributes.DEFINITION_ID),
+               formElem.getAttribute(ConfigurationConstants.Attributes.EXISTENCE_VALIDATION_WIDGET),
+               formElem.getAttribute(ConfigurationConstants.Attributes.TYPE),
+               formElem.getAttribute(ConfigurationConstants.Attributes.NAME), foundMainForm);
+         foundMainForm |= nameToUse.isEmpty();
+
+         forms.add(new Form(nameToUse, formElem.getAttribute(ConfigurationConstants.Attributes.DEFINITION_ID),
+               formElem.getAttribute(ConfigurationConstants.Attributes.EXISTENCE_VALIDATION_WIDGET),
+               compileWidgets(formElem.getChildNodes())));
+      }
+
+      checkMainFormFound(foundMainForm);
+      return new LayoutMap(uiName, uiElem.getAttribute(ConfigurationConstants.Attributes.MENUNAME),
+            uiElem.getAttribute(ConfigurationConstants.Attributes.CATEGORY), application,
+            uiElem.getAttribute(ConfigurationConstants.Attributes.APPLICATIONFULLNAME), forms);
+   }
+
+   /**
+    * <p>
+    * Reads the fixture configuration data of a stream into a layout map, in one
+    * pass and without building a DOM document. The layout map and the
+    * validation are the same as with {@link #compile(Document)}.
+    * </p>
+    *
+    * <p>
+    * NOTE: The stream is not closed.
+    * </p>
+    *
+    * @param in
+    *           The stream of the fixture configuration data.
+    *
+    * @return The layout map.
+    *
+    * @throws XMLStreamException
+    *            The stream is not well-formed XML.
+    * @throws IllegalArgumentException
+    *            The stream does not contain valid fixture configuration data.
+    */
+   public static LayoutMap read(final InputStream in) throws XMLStreamException
+   {
+      XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+      try
+      {
+         return read(reader);
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   /**
+    * Reads the fixture configuration data with a stream reader.
+    *
+    * @param reader
+    *           The stream reader, before the root element.
+    *
+    * @return The layout map.
+    *
+    * @throws XMLStreamException
+    *            The stream is not well-formed XML.
+    * @throws IllegalArgumentException
+    *            The stream does not contain valid fixture configuration data.
+    */
+   private static LayoutMap read(final XMLStreamReader reader) throws XMLStreamException
+   {
+      // Move to the root element
+      while (reader.hasNext() && (reader.next() != XMLStreamConstants.START_ELEMENT))
+      {
+         // skip the prolog
+      }
+      if (!reader.isStartElement())
+         throw new IllegalArgumentException("The configuration DOM document must contain a root element.");
+
+      checkUIElement(reader.getLocalName());
+      String uiName = getAttribute(reader, ConfigurationConstants.Attributes.NAME);
+      String uiMenuName = getAttribute(reader, ConfigurationConstants.Attributes.MENUNAME);
+      String category = getAttribute(reader, ConfigurationConstants.Attributes.CATEGORY);
+      String application = getAttribute(reader, ConfigurationConstants.Attributes.APPLICATION);
+      String applicationfullname = getAttribute(reader, ConfigurationConstants.Attributes.APPLICATIONFULLNAME);
+      checkUIAttributes(uiName, application);
+
+      List<Form> forms = new ArrayList<Form>();
+      boolean foundMainForm = false; // until told otherwise
+
+      // The open elements below the root one. Like the DOM compiler, forms
+      // are taken at any depth, widgets only as children of a form or widget.
+      // A form nested in another one is added before it, as it ends first,
+      // so the forms are added in place, in the order of their start tags.
+      Deque<Frame> open = new ArrayDeque<Frame>();
+      Deque<Integer> formSlots = new ArrayDeque<Integer>();
+      while (reader.hasNext())
+      {
+         int event = reader.next();
+         if (event == XMLStreamConstants.START_ELEMENT)
+         {
+            String tag = reader.getLocalName();
+            Frame parent = open.peek();
+            if (ConfigurationConstants.Tags.FORM.equals(tag))
+            {
+               String definitionID = getAttribute(reader, ConfigurationConstants.Attributes.DEFINITION_ID);
+               String existenceValidationWidgetName = getAttribute(reader,
+                     ConfigurationConstants.Attributes.EXISTENCE_VALIDATION_WIDGET);
+               String nameToUse = getFormName(definitionID, existenceValidationWidgetName,
+                     getAttribute(reader, ConfigurationConstants.Attributes.TYPE),
+                     getAttribute(reader, ConfigurationConstants.Attributes.NAME), foundMainForm);
+               foundMainForm |= nameToUse.isEmpty();
+               open.push(Frame.form(nameToUse, definitionID, existenceValidationWidgetName));
+               formSlots.push(forms.size());
+               forms.add(null);
+            }
+            else if (ConfigurationConstants.Tags.WIDGET.equals(tag) && (null != parent) && parent.takesWidgets())
+            {
+               String widgetName = getAttribute(reader, ConfigurationConstants.Attributes.NAME);
+               String widgetID = getAttribute(reader, ConfigurationConstants.Attributes.ID);
+               String widgetType = getAttribute(reader, ConfigurationConstants.Attributes.TYPE);
+               checkWidgetAttributes(widgetName, widgetID, widgetType);
+               open.push(Frame.widget(widgetName, widgetID, widgetType));
+            }
+            else
+            {
+               open.push(Frame.IGNORED);
+            }
+         }
+         else if ((event == XMLStreamConstants.END_ELEMENT) && !open.isEmpty())
+         {
+            Frame frame = open.pop();
+            if (frame.isForm())
+            {
+               forms.set(formSlots.pop(), frame.toForm());
+            }
+            else if (frame.isWidget())
+            {
+               open.peek().children.add(frame.toWidget());
+            }
+         }
+      }
+
+      checkMainFormFound(foundMainForm);
+      return new LayoutMap(uiName, uiMenuName, category, application, applicationfullname, forms);
+   }
+
+   /**
+    * Recursively compiles the widget elements among the specified child nodes.
+    *
+    * @param childNodes
+    *           The child nodes of a form or widget element.
+    *
+    * @return The widgets, in document order.
+    *
+    * @throws IllegalArgumentException
+    *            A widget element lacks its name, ID or type.
+    */
+   private static List<Widget> compileWidgets(final NodeList childNodes)
+   {
+      List<Widget> widgets = new ArrayList<Widget>();
+      int childCount = childNodes.getLength();
+      for (int i = 0; i < childCount; i++)
+      {
+         Node childNode = childNodes.item(i);
+         if ((null == childNode) || !(childNode instanceof Element)
+               || !ConfigurationConstants.Tags.WIDGET.equals(childNode.getNodeName()))
+            continue; // ignore everything that isn't a widget element.
+
+         Element widgetElem = (Element)childNode;
+         String widgetName = widgetElem.getAttribute(ConfigurationConstants.Attributes.NAME);
+         String widgetID = widgetElem.getAttribute(ConfigurationConstants.Attributes.ID);
+         String widgetType = widgetElem.getAttribute(ConfigurationConstants.Attributes.TYPE);
+         checkWidgetAttributes(widgetName, widgetID, widgetType);
+
+         widgets.add(new Widget(widgetName, widgetID, widgetType, compileWidgets(widgetElem.getChildNodes())));
+      }
+      return widgets;
+   }
+
+   /**
+    * @param reader
+    *           The stream reader, on a start element.
+    * @param name
+    *           The name of an attribute.
+    *
+    * @return The value of the attribute, "" if it is missing (like with DOM).
+    */
+   private static String getAttribute(final XMLStreamReader reader, final String name)
+   {
+      String value = reader.getAttributeValue(null, name);
+      return (null == value) ? "" : value;
+   }
+
+   /**
+    * @param tagName
+    *           The tag name of the root element.
+    *
+    * @throws IllegalArgumentException
+    *            The root element is not the "ui" element.
+    */
+   private static void checkUIElement(final String tagName)
+   {
+      if ((null == tagName) || !tagName.equals(ConfigurationConstants.Tags.UI))
+         throw new IllegalArgumentException("The configuration DOM document must contain a root '"
+               + ConfigurationConstants.Tags.UI + "' element.");
+   }
+
+   /**
+    * @param uiName
+    *           The name attribute of the "ui" element.
+    * @param application
+    *           The application attribute of the "ui" element.
+    *
+    * @throws IllegalArgumentException
+    *            One of the attributes is null.
+    */
+   private static void checkUIAttributes(final String uiName, final String application)
+   {
+      if (null == uiName)
+         throw new IllegalArgumentException("The '" + ConfigurationConstants.Tags.UI + "' element must contain a '"
+               + ConfigurationConstants.Attributes.NAME + "' attribute with a non-empty value.");
+      if (null == application)
+         throw new IllegalArgumentException("The '" + ConfigurationConstants.Tags.UI + "' element must contain a '"
+               + ConfigurationConstants.Attributes.APPLICATION + "' attribute with a non-empty value.");
+   }
+
+   /**
+    * Validates the attributes of a "form" element and gets the form name to
+    * use.
+    *
+    * @param definitionID
+    *           The definition ID attribute.
+    * @param existenceValidationWidgetName
+    *           The existence validation widget attribute.
+    * @param type
+    *           The type attribute.
+    * @param name
+    *           The name attribute.
+    * @param foundMainForm
+    *           Whether the main form was found before this one.
+    *
+    * @return "" for the main form, the name for a popup form.
+    *
+    * @throws IllegalArgumentException
+    *            The attributes are invalid, or this is a second main form.
+    */
+   private static String getFormName(final String definitionID, final String existenceValidationWidgetName,
+         final String type, final String name, final boolean foundMainForm)
+   {
+      if ((null == definitionID) || definitionID.isEmpty())
+         throw new IllegalArgumentException("All '" + ConfigurationConstants.Tags.FORM + "' elements must have '"
+               + ConfigurationConstants.Attributes.DEFINITION_ID + "' attributes with non-empty values.");
+
+      if ((null == existenceValidationWidgetName) || existenceValidationWidgetName.isEmpty())
+         throw new IllegalArgumentException("The '" + ConfigurationConstants.Tags.FORM
+               + "' element must contain an '" + ConfigurationConstants.Attributes.EXISTENCE_VALIDATION_WIDGET
+               + "' attribute with a non-empty value.");
+
+      if (ConfigurationConstants.FormType.MAIN.equals(type))
+      {
+         if (foundMainForm)
+            throw new IllegalArgumentException("There can only be one '" + ConfigurationConstants.Tags.FORM
+                  + "' element whose '" + ConfigurationConstants.Attributes.TYPE + "' attribute has a value of '"
+                  + ConfigurationConstants.FormType.MAIN + "'.");
+
+         // The main form uses "" as its name (ignoring its "name" attribute
+         // altogether).
+         return "";
+      }
+      else if (ConfigurationConstants.FormType.POPUP.equals(type))
+      {
+         if ((null == name) || name.isEmpty())
+            throw new IllegalArgumentException("Each '" + ConfigurationConstants.Tags.FORM + "' element whose '"
+                  + ConfigurationConstants.Attributes.TYPE + "' is '" + ConfigurationConstants.FormType.POPUP
+                  + "' must have a '" + ConfigurationConstants.Attributes.NAME + "' attribute with a non-empty value.");
+         return name;
+      }
+      else
+      {
+         throw new IllegalArgumentException("Each '" + ConfigurationConstants.Tags.FORM + "' elements must have a '"
+               + ConfigurationConstants.Attributes.TYPE + "' attribute whose value is either '"
+               + ConfigurationConstants.FormType.MAIN + "' or '" + ConfigurationConstants.FormType.POPUP + "'.");
+      }
+   }
+
+   /**
+    * @param foundMainForm
+    *           Whether a main form was found.
+    *
+    * @throws IllegalArgumentException
+    *            No main form was found.
+    */
+   private static void checkMainFormFound(final boolean foundMainForm)
+   {
+      if (!foundMainForm)
+         throw new IllegalArgumentException("There must be one '" + ConfigurationConstants.Tags.FORM
+               + "' element whose '" + ConfigurationConstants.Attributes.TYPE + "' attribute has a value of '"
+               + ConfigurationConstants.FormType.MAIN + "'");
+   }
+
+   /**
+    * @param widgetName
+    *           The name attribute of a "widget" element.
+    * @param widgetID
+    *           The ID attribute.
+    * @param widgetType
+    *           The type attribute.
+    *
+    * @throws IllegalArgumentException
+    *            One of the attributes is empty.
+    */
+   private static void checkWidgetAttributes(final String widgetName, final String widgetID, final String widgetType)
+   {
+      if ((null == widgetName) || widgetName.isEmpty())
+         throw new IllegalArgumentException("All '" + ConfigurationConstants.Tags.WIDGET + "' elements must have '"
+               + ConfigurationConstants.Attributes.NAME + "' attributes with non-empty values.");
+      if ((null == widgetID) || widgetID.isEmpty())
+         throw new IllegalArgumentException("All '" + ConfigurationConstants.Tags.WIDGET + "' elements must have '"
+               + ConfigurationConstants.Attributes.ID + "' attributes with non-empty values.");
+      if ((null == widgetType) || widgetType.isEmpty())
+         throw new IllegalArgumentException("All '" + ConfigurationConstants.Tags.WIDGET + "' elements must have '"
+               + ConfigurationConstants.Attributes.TYPE + "' attributes with non-empty values.");
+   }
+
+   /**
+    * @return The name of the UI.
+    */
+   public String getUIName()
+   {
+      return uiName;
+   }
+
+   /**
+    * @return The menu name of the UI.
+    */
+   public String getUiMenuName()
+   {
+      return uiMenuName;
+   }
+
+   /**
+    * @return The category of the UI.
+    */
+   public String getCategory()
+   {
+      return category;
+   }
+
+   /**
+    * @return The short name of the application.
+    */
+   public String getApplication()
+   {
+      return application;
+   }
+
+   /**
+    * @return The full name of the application.
+    */
+   public String getApplicationfullname()
+   {
+      return applicationfullname;
+   }
+
+   /**
+    * @return The forms of the UI, in document order.
+    */
+   public List<Form> getForms()
+   {
+      return forms;
+   }
+
+   /**
+    * A form of a layout map.
+    */
+   public static final class Form implements Serializable
+   {
+      private static final long  serialVersionUID = 1L;
+
+      private final String       name;
+      private final String       definitionID;
+      private final String       existenceValidationWidgetName;
+      private final List<Widget> widgets;
+
+      /**
+       * Constructs a form.
+       *
+       * @param name
+       *           The name of the form, "" for the main form.
+       * @param definitionID
+       *           The definition ID of the form.
+       * @param existenceValidationWidgetName
+       *           The name of the widget whose existence indicates that the
+       *           form is opened.
+       * @param widgets
+       *           The top-level widgets of the form.
+       */
+      Form(final String name, final String definitionID, final String existenceValidationWidgetName,
+            final List<Widget> widgets)
+      {
+         this.name = name;
+         this.definitionID = definitionID;
+         this.existenceValidationWidgetName = existenceValidationWidgetName;
+         this.widgets = Collections.unmodifiableList(widgets);
+      }
+
+      /**
+       * @return The name of the form, "" for the main form.
+       */
+      public String getName()
+      {
+         return name;
+      }
+
+      /**
+       * @return The definition ID of the form.
+       */
+      public String getDefinitionID()
+      {
+         return definitionID;
+      }
+
+      /**
+       * @return The name of the existence validation widget of the form.
+       */
+      public String getExistenceValidationWidgetName()
+      {
+         return existenceValidationWidgetName;
+      }
+
+      /**
+       * @return The top-level widgets of the form, in document order.
+       */
+      public List<Widget> getWidgets()
+      {
+         return widgets;
+      }
+   }
+
+   /**
+    * A widget of a layout map, with its child widgets.
+    */
+   public static final class Widget implements Serializable
+   {
+      private static final long  serialVersionUID = 1L;
+
+      private final String       name;
+      private final String       id;
+      private final String       type;
+      private final List<Widget> children;
+
+      /**
+       * Constructs a widget.
+       *
+       * @param name
+       *           The descriptive name of the widget.
+       * @param id
+       *           The widget ID used in its automation locator.
+       * @param type
+       *           The type of the widget.
+       * @param children
+       *           The child widgets.
+       */
+      Widget(final String name, final String id, final String type, final List<Widget> children)
+      {
+         this.name = name;
+         this.id = id;
+         this.type = type;
+         this.children = Collections.unmodifiableList(children);
+      }
+
+      /**
+       * @return The descriptive name of the widget.
+       */
+      public String getName()
+      {
+         return name;
+      }
+
+      /**
+       * @return The widget ID used in its automation locator.
+       */
+      public String getID()
+      {
+         return id;
+      }
+
+      /**
+       * @return The type of the widget.
+       */
+      public String getType()
+      {
+         return type;
+      }
+
+      /**
+       * @return The child widgets, in document order.
+       */
+      public List<Widget> getChildren()
+      {
+         return children;
+      }
+   }
+
+   /**
+    * An element open while reading a stream: a form or widget being read, or
+    * an ignored element.
+    */
+   private static final class Frame
+   {
+      /** Any element which is neither a form nor a widget */
+      static final Frame         IGNORED = new Frame(null, null, null, null, null);
+
+      private final String       name;
+      private final String       id;
+      private final String       type;
+      private final String       existenceValidationWidgetName;
+      private final List<Widget> children;
+
+      /**
+       * Constructs a frame.
+       *
+       * @param name
+       *           The name of the form or widget.
+       * @param id
+       *           The definition ID of the form, or the ID of the widget.
+       * @param type
+       *           The type of the widget, null for a form.
+       * @param existenceValidationWidgetName
+       *           The existence validation widget of the form, null for a
+       *           widget.
+       * @param children
+       *           The widgets read in the element, null for an ignored one.
+       */
+      private Frame(final String name, final String id, final String type, final String existenceValidationWidgetName,
+            final List<Widget> children)
+      {
+         this.name = name;
+         this.id = id;
+         this.type = type;
+         this.existenceValidationWidgetName = existenceValidationWidgetName;
+         this.children = children;
+      }
+
+      /**
+       * @param name
+       *           The name of the form, "" for the main form.
+       * @param definitionID
+       *           The definition ID of the form.
+       * @param existenceValidationWidgetName
+       *           The existence validation widget of the form.
+       * @return The frame of a form.
+       */
+      static Frame form(final String name, final String definitionID, final String existenceValidationWidgetName)
+      {
+         return new Frame(name, definitionID, null, existenceValidationWidgetName, new ArrayList<Widget>());
+      }
+
+      /**
+       * @param name
+       *           The name of the widget.
+       * @param id
+       *           The ID of the widget.
+       * @param type
+       *           The type of the widget.
+       * @return The frame of a widget.
+       */
+      static Frame widget(final String name, final String id, final String type)
+      {
+         return new Frame(name, id, type, null, new ArrayList<Widget>());
+      }
+
+      /**
+       * @return <li><code>true</code> if the widget elements in the element
+       *         are read.</li> <li><code>false</code> if they are ignored.</li>
+       */
+      boolean takesWidgets()
+      {
+         return null != children;
+      }
+
+      /**
+       * @return <li><code>true</code> if the element is a form.</li> <li>
+       *         <code>false</code> otherwise.</li>
+       */
+      boolean isForm()
+      {
+         return null != existenceValidationWidgetName;
+      }
+
+      /**
+       * @return <li><code>true</code> if the element is a widget.</li> <li>
+       *         <code>false</code> otherwise.</li>
+       */
+      boolean isWidget()
+      {
+         return null != type;
+      }
+
+      /**
+       * @return The form read.
+       */
+      Form toForm()
+      {
+         return new Form(name, id, existenceValidationWidgetName, children);
+      }
+
+      /**
+       * @return The widget read.
+       */
+      Widget toWidget()
+      {
+         return new Widget(name, id, type, children);
+      }
+   }
+}
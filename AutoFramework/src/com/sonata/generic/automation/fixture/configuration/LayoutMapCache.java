@@ -0,0 +1,406 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * <p>
+ * Process-wide cache of the compiled {@link LayoutMap} of each layout map file,
+ * so the fixtures of a suite using the same file do not parse and validate it
+ * again. An entry is keyed by the canonical path of the file, and is only used
+ * while the file keeps the same last modified time and length.
+ * </p>
+ *
+ * <p>
+ * When the {@link #DIRECTORY_PROPERTY} system property names a directory, the
+ * compiled layout maps are also persisted there in binary form, so the next
+ * run can skip the XML parsing too. A persisted map which cannot be read is
+ * ignored and compiled again.
+ * </p>
+ *
+ * <p>
+ * When {@link LayoutMapWatcher} is enabled, the changed files are also
+ * compiled again as soon as they are saved (see {@link #reload(File)}).
+ * </p>
+ */
+final class LayoutMapCache
+{
+   /** System property naming the directory where compiled maps are persisted */
+   static final String                    DIRECTORY_PROPERTY = "com.sage.swt.automation.fixture.layoutmapcache";
+
+   private static final String            EXTENSION          = ".lmc";
+   private static final Map<String, Entry> ENTRIES           = new HashMap<String, Entry>();
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private LayoutMapCache()
+   {
+   }
+
+   /**
+    * Gets the compiled layout map of a file, compiling it if it is not cached
+    * or has changed since.
+    *
+    * @param configurationFile
+    *           The existing layout map file.
+    *
+    * @return The compiled layout map.
+    *
+    * @throws IllegalArgumentException
+    *            The file could not be parsed, or does not contain valid fixture
+    *            configuration data.
+    */
+   static synchronized LayoutMap get(final File configurationFile)
+   {
+      final String path = getCanonicalPath(configurationFile);
+      final long lastModified = configurationFile.lastModified();
+      final long length = configurationFile.length();
+
+      Entry entry = ENTRIES.get(path);
+      if ((null == entry) || !entry.isFor(lastModified, length))
+      {
+         entry = readPersisted(path, lastModified, length);
+         if (null == entry)
+         {
+            entry = new Entry(lastModified, length, compile(configurationFile));
+            writePersisted(path, entry);
+         }
+         ENTRIES.put(path, entry);
+         LayoutMapWatcher.watch(path);
+      }
+      return entry.layoutMap;
+   }
+
+   /**
+    * Compiles a changed layout map file again and swaps it into the cache.
+    * The compilation is done outside of the lock, so the fixtures keep using
+    * the previous layout map meanwhile. If the file cannot be compiled (for
+    * instance while it is still being written), the entry is dropped and the
+    * next {@link #get(File)} reports the error.
+    *
+    * @param configurationFile
+    *           The changed layout map file.
+    *
+    * @return <li><code>true</code> if the new layout map is cached.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   static boolean reload(final File configurationFile)
+   {
+      final String path = getCanonicalPath(configurationFile);
+      final long lastModified = configurationFile.lastModified();
+      final long length = configurationFile.length();
+      Entry entry;
+      try
+      {
+         entry = new Entry(lastModified, length, compile(configurationFile));
+      }
+      catch (IllegalArgumentException e)
+      {
+         synchronized (LayoutMapCache.class)
+         {
+            ENTRIES.remove(path);
+         }
+         System.out.println("Unable to reload the layout map '" + path + "': " + e.getMessage());
+         return false;
+      }
+
+      synchronized (LayoutMapCache.class)
+      {
+         ENTRIES.put(path, entry);
+      }
+      writePersisted(path, entry);
+      return true;
+   }
+
+   /**
+    * Drops the cached layout maps, the persisted ones are kept.
+    */
+   static synchronized void clear()
+   {
+      ENTRIES.clear();
+   }
+
+   /**
+    * Reads and compiles a layout map file, with the streaming reader.
+    *
+    * @param configurationFile
+    *           The layout map file.
+    *
+    * @return The compiled layout map.
+    *
+    * @throws IllegalArgumentException
+    *            The file could not be parsed, or does not contain valid fixture
+    *            configuration data.
+    */
+   static LayoutMap compile(final File configurationFile)
+   {
+      InputStream in = null;
+      try
+      {
+         in = new BufferedInputStream(new FileInputStream(configurationFile));
+         return LayoutMap.read(in);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalArgumentException("The configuration file '" + configurationFile.getPath()
+               + "' could not be read.", e);
+      }
+      catch (XMLStreamException e)
+      {
+         throw new IllegalArgumentException("The configuration file '" + configurationFile.getPath()
+               + "' could not be parsed.", e);
+      }
+      finally
+      {
+         close(in);
+      }
+   }
+
+   /**
+    * Reads the persisted layout map of a file, if persisting is enabled.
+    *
+    * @param path
+    *           The canonical path of the layout map file.
+    * @param lastModified
+    *           The current last modified time of the file.
+    * @param length
+    *           The current length of the file.
+    *
+    * @return The persisted entry, or null if there is none for the current
+    *         version of the file.
+    */
+   private static Entry readPersisted(final String path, final long lastModified, final long length)
+   {
+      final File persisted = getPersistedFile(path);
+      if ((null == persisted) || !persisted.isFile())
+         return null;
+
+      ObjectInputStream in = null;
+      try
+      {
+         in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(persisted)));
+         if (!path.equals(in.readUTF()) || (in.readLong() != lastModified) || (in.readLong() != length))
+            return null;
+         return new Entry(lastModified, length, (LayoutMap)in.readObject());
+      }
+      catch (Exception e)
+      {
+         // Written by another version or damaged, it will be written again
+         return null;
+      }
+      finally
+      {
+         close(in);
+      }
+   }
+
+   /**
+    * Persists the layout map of a file, if persisting is enabled. A failure
+    * is only logged, the map stays cached in memory.
+    *
+    * @param path
+    *           The canonical path of the layout map file.
+    * @param entry
+    *           The entry to persist.
+    */
+   private static void writePersisted(final String path, final Entry entry)
+   {
+      final File persisted = getPersistedFile(path);
+      if (null == persisted)
+         return;
+
+      try
+      {
+         write(persisted, path, entry);
+      }
+      catch (IOException e)
+      {
+         System.out.println("Unable to persist the compiled layout map of '" + path + "': " + e.getMessage());
+      }
+   }
+
+   /**
+    * Persists the compiled layout map of a file into a directory, where
+    * {@link #get(File)} finds it when the {@link #DIRECTORY_PROPERTY} system
+    * property names that directory.
+    *
+    * @param directory
+    *           The directory of the persisted layout maps.
+    * @param configurationFile
+    *           The layout map file.
+    * @param layoutMap
+    *           Its compiled layout map.
+    *
+    * @return The file written.
+    *
+    * @throws IOException
+    *            The file could not be written.
+    */
+   static File persist(final File directory, final File configurationFile, final LayoutMap layoutMap)
+         throws IOException
+   {
+      final String path = getCanonicalPath(configurationFile);
+      final File persisted = getPersistedFile(directory, path);
+      write(persisted, path, new Entry(configurationFile.lastModified(), configurationFile.length(), layoutMap));
+      return persisted;
+   }
+
+   /**
+    * Writes a persisted layout map.
+    *
+    * @param persisted
+    *           The file to write.
+    * @param path
+    *           The canonical path of the layout map file.
+    * @param entry
+    *           The entry to persist.
+    *
+    * @throws IOException
+    *            The file could not be written.
+    */
+   private static void write(final File persisted, final String path, final Entry entry) throws IOException
+   {
+      ObjectOutputStream out = null;
+      try
+      {
+         persisted.getParentFile().mkdirs();
+         out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(persisted)));
+         out.writeUTF(path);
+         out.writeLong(entry.lastModified);
+         out.writeLong(entry.length);
+         out.writeObject(entry.layoutMap);
+      }
+      finally
+      {
+         close(out);
+      }
+   }
+
+   /**
+    * @param path
+    *           The canonical path of the layout map file.
+    *
+    * @return The file where its compiled layout map is persisted, or null if
+    *         persisting is not enabled.
+    */
+   static File getPersistedFile(final String path)
+   {
+      final String directory = System.getProperty(DIRECTORY_PROPERTY);
+      if ((null == directory) || directory.isEmpty())
+         return null;
+
+      return getPersistedFile(new File(directory), path);
+   }
+
+   /**
+    * @param directory
+    *           The directory of the persisted layout maps.
+    * @param path
+    *           The canonical path of the layout map file.
+    *
+    * @return The file where its compiled layout map is persisted.
+    */
+   private static File getPersistedFile(final File directory, final String path)
+   {
+      // The name keeps the file name readable, the hash tells apart the files
+      // with the same name in different directories
+      final String name = new File(path).getName().replaceAll("[^A-Za-z0-9._-]", "_");
+      return new File(directory, name + "_" + Integer.toHexString(path.hashCode()) + EXTENSION);
+   }
+
+   /**
+    * @param file
+    *           A file.
+    *
+    * @return Its canonical path, or its absolute path if it cannot be resolved.
+    */
+   private static String getCanonicalPath(final File file)
+   {
+      try
+      {
+         return file.getCanonicalPath();
+      }
+      catch (IOException e)
+      {
+         return file.getAbsolutePath();
+      }
+   }
+
+   /**
+    * Closes a stream, ignoring the failures.
+    *
+    * @param stream
+    *           The stream, or null.
+    */
+   private static void close(final Closeable stream)
+   {
+      if (null == stream)
+         return;
+      try
+      {
+         stream.close();
+      }
+      catch (IOException e)
+      {
+         // Nothing more to do
+      }
+   }
+
+   /**
+    * A compiled layout map, with the version of the file it was compiled from.
+    */
+   private static final class Entry
+   {
+      private final long      lastModified;
+      private final long      length;
+      private final LayoutMap layoutMap;
+
+      /**
+       * Constructs an entry.
+       *
+       * @param lastModified
+       *           The last modified time of the file.
+       * @param length
+       *           The length of the file.
+       * @param layoutMap
+       *           The compiled layout map.
+       */
+      Entry(final long lastModified, final long length, final LayoutMap layoutMap)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.layoutMap = layoutMap;
+      }
+
+      /**
+       * @param otherLastModified
+       *           The current last modified time of the file.
+       * @param otherLength
+       *           The current length of the file.
+       *
+       * @return <li><code>true</code> if the entry was compiled from this
+       *         version of the file.</li> <li><code>false</code> otherwise.</li>
+       */
+      boolean isFor(final long otherLastModified, final long otherLength)
+      {
+         return (lastModified == otherLastModified) && (length == otherLength);
+      }
+   }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.sonata.generic.automation.fixture.widget.DefaultFixtureWidgetFactory;
+
+/**
+ * <p>
+ * Build step which precompiles and validates all the layout maps of a
+ * directory, so a broken layout map fails the build instead of a test run.
+ * For each layout map (an XML file whose root element is "ui", the other XML
+ * files of the directory are skipped) it:
+ * </p>
+ * <ul>
+ * <li>compiles it, with the same validation as the fixture;</li>
+ * <li>checks that all its widget types are supported for FitNesse tests, that
+ * the widget names of each form are unique, and that the existence validation
+ * widget of each form is a supported widget of the form;</li>
+ * <li>persists the compiled layout map in the output directory, in the format
+ * of {@link LayoutMapCache}.</li>
+ * </ul>
+ * <p>
+ * It also writes the index of all the widgets of all the layout maps in
+ * {@link #INDEX_FILE_NAME} in the output directory. Fixtures start from the
+ * precompiled layout maps when the {@link LayoutMapCache#DIRECTORY_PROPERTY}
+ * system property names the output directory and the layout maps are found at
+ * the same paths.
+ * </p>
+ *
+ * <p>
+ * Usage: <code>LayoutMapCompiler layoutMapDirectory outputDirectory</code>.
+ * The Maven profile "layoutmaps" runs it during the build.
+ * </p>
+ */
+public final class LayoutMapCompiler
+{
+   /** Name of the widget index written in the output directory */
+   public static final String           INDEX_FILE_NAME = "widget-index.csv";
+
+   private static final XMLInputFactory INPUT_FACTORY   = XMLInputFactory.newInstance();
+
+   private final File                   outputDirectory;
+   private final List<String>           errors          = new ArrayList<String>();
+   private final List<String>           index           = new ArrayList<String>();
+   private int                          compiledCount;
+
+   /**
+    * Constructs a compiler.
+    *
+    * @param outputDirectory
+    *           The directory where the compiled layout maps and the widget
+    *           index are written.
+    */
+   public LayoutMapCompiler(final File outputDirectory)
+   {
+      if (null == outputDirectory)
+         throw new IllegalArgumentException("The output directory must be non-null.");
+
+      this.outputDirectory = outputDirectory;
+   }
+
+   /**
+    * Precompiles and validates the layout maps of a directory.
+    *
+    * @param args
+    *           The directory of the layout maps (searched recursively) and
+    *           the output directory.
+    *
+    * @throws IOException
+    *            The output could not be written.
+    * @throws IllegalStateException
+    *            One or more layout maps are invalid.
+    */
+   public static void main(final String[] args) throws IOException
+   {
+      if (args.length != 2)
+         throw new IllegalArgumentException("Usage: LayoutMapCompiler layoutMapDirectory outputDirectory");
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(new File(args[1]));
+      List<String> errors = compiler.compile(new File(args[0]));
+      System.out.println("Compiled " + compiler.getCompiledCount() + " layout map(s) into " + args[1]);
+      if (!errors.isEmpty())
+      {
+         for (String error : errors)
+         {
+            System.out.println("ERROR: " + error);
+         }
+         throw new IllegalStateException(errors.size() + " error(s) in the layout maps of " + args[0]);
+      }
+   }
+
+   /**
+    * Precompiles and validates the layout maps of a directory and its
+    * subdirectories, then writes the widget index.
+    *
+    * @param layoutMapDirectory
+    *           The directory of the layout maps.
+    *
+    * @return The errors found, empty if all the layout maps are valid.
+    *
+    * @throws IOException
+    *            The output could not be written.
+    */
+   public List<String> compile(final File layoutMapDirectory) throws IOException
+   {
+      if ((null == layoutMapDirectory) || !layoutMapDirectory.isDirectory())
+         throw new IllegalArgumentException("'" + layoutMapDirectory + "' is not a directory.");
+
+      index.clear();
+      index.add("layoutMap,form,widget,id,type,parent");
+      compileDirectory(layoutMapDirectory);
+      writeIndex();
+      return new ArrayList<String>(errors);
+   }
+
+   /**
+    * @return The number of layout maps compiled without error.
+    */
+   public int getCompiledCount()
+   {
+      return compiledCount;
+   }
+
+   /**
+    * Compiles the layout maps of a directory and its subdirectories, in name
+    * order.
+    *
+    * @param directory
+    *           The directory.
+    *
+    * @throws IOException
+    *            The output could not be written.
+    */
+   private void compileDirectory(final File directory) throws IOException
+   {
+      File[] files = directory.listFiles();
+      if (null == files)
+         return;
+
+      Arrays.sort(files);
+      for (File file : files)
+      {
+         if (file.isDirectory())
+            compileDirectory(file);
+         else if (file.getName().toLowerCase().endsWith(".xml") && isLayoutMap(file))
+            compileFile(file);
+      }
+   }
+
+   /**
+    * Compiles, validates, persists and indexes one layout map.
+    *
+    * @param file
+    *           The layout map file.
+    *
+    * @throws IOException
+    *            The output could not be written.
+    */
+   private void compileFile(final File file) throws IOException
+   {
+      LayoutMap layoutMap;
+      try
+      {
+         layoutMap = LayoutMapCache.compile(file);
+      }
+      catch (IllegalArgumentException e)
+      {
+         errors.add(file.getPath() + ": " + getMessages(e));
+         return;
+      }
+
+      List<String> mapErrors = validate(layoutMap);
+      for (String error : mapErrors)
+      {
+         errors.add(file.getPath() + ": " + error);
+      }
+      if (mapErrors.isEmpty())
+      {
+         LayoutMapCache.persist(outputDirectory, file, layoutMap);
+         compiledCount++;
+      }
+
+      for (LayoutMap.Form form : layoutMap.getForms())
+      {
+         addToIndex(file.getPath(), form.getName(), null, form.getWidgets());
+      }
+   }
+
+   /**
+    * Validates what the fixture would only find out once a browser is up:
+    * the widget types, the widget names unique in each form and the existence
+    * validation widgets.
+    *
+    * @param layoutMap
+    *           The compiled layout map.
+    *
+    * @return The errors found, empty if the layout map is valid.
+    */
+   static List<String> validate(final LayoutMap layoutMap)
+   {
+      List<String> mapErrors = new ArrayList<String>();
+      for (LayoutMap.Form form : layoutMap.getForms())
+      {
+         String formName = form.getName().isEmpty() ? "main form" : "form '" + form.getName() + "'";
+         checkTypes(formName, form.getWidgets(), mapErrors);
+         checkNames(formName, form.getWidgets(), new HashSet<String>(), mapErrors);
+
+         LayoutMap.Widget existenceValidationWidget = find(form.getWidgets(), form.getExistenceValidationWidgetName());
+         if (null == existenceValidationWidget)
+            mapErrors.add(formName + ": the existence validation widget '"
+                  + form.getExistenceValidationWidgetName() + "' is not a widget of the form");
+         else if (!DefaultFixtureWidgetFactory.isSupportedWidgetType(existenceValidationWidget.getType()))
+            mapErrors.add(formName + ": the existence validation widget '"
+                  + form.getExistenceValidationWidgetName() + "' is of an unsupported type");
+      }
+      return mapErrors;
+   }
+
+   /**
+    * Checks that the widgets and the widgets nested in them are of supported
+    * types.
+    *
+    * @param formName
+    *           The name of the form, for the errors.
+    * @param widgets
+    *           The widgets.
+    * @param mapErrors
+    *           The errors found.
+    */
+   private static void checkTypes(final String formName, final List<LayoutMap.Widget> widgets,
+         final List<String> mapErrors)
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         if (!DefaultFixtureWidgetFactory.isSupportedWidgetType(widget.getType()))
+            mapErrors.add(formName + ": widget '" + widget.getName() + "' is of type '" + widget.getType()
+                  + "' which is not supported for FitNesse tests");
+         checkTypes(formName, widget.getChildren(), mapErrors);
+      }
+   }
+
+   /**
+    * Checks that the widgets and the widgets nested in them have names unique
+    * in their form, as the fixture requires when it loads the form.
+    *
+    * @param formName
+    *           The name of the form, for the errors.
+    * @param widgets
+    *           The widgets.
+    * @param names
+    *           The names of the widgets of the form checked so far.
+    * @param mapErrors
+    *           The errors found.
+    */
+   private static void checkNames(final String formName, final List<LayoutMap.Widget> widgets,
+         final Set<String> names, final List<String> mapErrors)
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         if (!names.add(widget.getName()))
+            mapErrors.add(formName + ": more than one widget is named '" + widget.getName() + "'");
+         checkNames(formName, widget.getChildren(), names, mapErrors);
+      }
+   }
+
+   /**
+    * @param widgets
+    *           The widgets to search, with the widgets nested in them.
+    * @param name
+    *           The name of a widget.
+    *
+    * @return The widget with this name, or null if there is none.
+    */
+   private static LayoutMap.Widget find(final List<LayoutMap.Widget> widgets, final String name)
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         if (widget.getName().equals(name))
+            return widget;
+         LayoutMap.Widget found = find(widget.getChildren(), name);
+         if (null != found)
+            return found;
+      }
+      return null;
+   }
+
+   /**
+    * Adds widgets, and the widgets nested in them, to the index.
+    *
+    * @param path
+    *           The path of the layout map.
+    * @param formName
+    *           The name of the form, "" for the main form.
+    * @param parent
+    *           The widget the widgets are nested in, or null.
+    * @param widgets
+    *           The widgets.
+    */
+   private void addToIndex(final String path, final String formName, final LayoutMap.Widget parent,
+         final List<LayoutMap.Widget> widgets)
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         index.add(quote(path) + "," + quote(formName) + "," + quote(widget.getName()) + ","
+               + quote(widget.getID()) + "," + quote(widget.getType()) + ","
+               + quote((null == parent) ? "" : parent.getName()));
+         addToIndex(path, formName, widget, widget.getChildren());
+      }
+   }
+
+   /**
+    * Writes the widget index.
+    *
+    * @throws IOException
+    *            The index could not be written.
+    */
+   private void writeIndex() throws IOException
+   {
+      outputDirectory.mkdirs();
+      PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(outputDirectory,
+            INDEX_FILE_NAME)), "UTF-8"));
+      try
+      {
+         for (String line : index)
+         {
+            out.println(line);
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   /**
+    * @param file
+    *           An XML file.
+    *
+    * @return <li><code>true</code> if its root element is "ui".</li> <li>
+    *         <code>false</code> otherwise, or if its root element cannot be
+    *         read: it is not a layout map, and is skipped.</li>
+    */
+   private boolean isLayoutMap(final File file)
+   {
+      InputStream in = null;
+      XMLStreamReader reader = null;
+      try
+      {
+         in = new BufferedInputStream(new FileInputStream(file));
+         reader = INPUT_FACTORY.createXMLStreamReader(in);
+         reader.nextTag();
+         return ConfigurationConstants.Tags.UI.equals(reader.getLocalName());
+      }
+      catch (XMLStreamException e)
+      {
+         return false;
+      }
+      catch (IOException e)
+      {
+         return false;
+      }
+      finally
+      {
+         close(reader, in);
+      }
+   }
+
+   /**
+    * Closes a reader and its stream, ignoring the failures.
+    *
+    * @param reader
+    *           The reader, or null.
+    * @param in
+    *           The stream, or null.
+    */
+   private static void close(final XMLStreamReader reader, final InputStream in)
+   {
+      try
+      {
+         if (null != reader)
+            reader.close();
+         if (null != in)
+            in.close();
+      }
+      catch (XMLStreamException e)
+      {
+         // Nothing more to do
+      }
+      catch (IOException e)
+      {
+         // Nothing more to do
+      }
+   }
+
+   /**
+    * @param e
+    *           An exception.
+    *
+    * @return Its message, followed by the messages of its causes.
+    */
+   private static String getMessages(final Throwable e)
+   {
+      StringBuilder messages = new StringBuilder(String.valueOf(e.getMessage()));
+      for (Throwable cause = e.getCause(); null != cause; cause = cause.getCause())
+      {
+         messages.append(": ").append(cause.getMessage());
+      }
+      return messages.toString();
+   }
+
+   /**
+    * @param value
+    *           A value of the index.
+    *
+    * @return The value quoted for CSV if needed.
+    */
+   private static String quote(final String value)
+   {
+      if ((value.indexOf(',') < 0) && (value.indexOf('"') < 0) && (value.indexOf('\n') < 0))
+         return value;
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+   }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Opt-in watcher of the layout map files, for long-running FitNesse sessions.
+ * When the {@link #WATCH_PROPERTY} system property is "true", the directory of
+ * each layout map compiled by {@link LayoutMapCache} is watched, and a layout
+ * map file which changes is compiled again in the background and swapped into
+ * the cache. A change is seen even when the file keeps its last modified time
+ * and length.
+ * </p>
+ *
+ * <p>
+ * The fixtures check {@link #getReloadCount()} to parse their layout map
+ * again. The fixture widgets they already hold are not changed: a swap only
+ * affects the widgets looked up afterwards.
+ * </p>
+ */
+public final class LayoutMapWatcher
+{
+   /** System property enabling the watcher, "true" to enable it */
+   public static final String              WATCH_PROPERTY = "com.sage.swt.automation.fixture.layoutmapwatch";
+
+   private static final Map<Path, Set<String>> WATCHED_FILES  = new HashMap<Path, Set<String>>();
+   private static WatchService             watchService;
+   private static volatile long            reloadCount;
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private LayoutMapWatcher()
+   {
+   }
+
+   /**
+    * @return <li><code>true</code> if the {@link #WATCH_PROPERTY} system
+    *         property enables the watcher.</li> <li><code>false</code>
+    *         otherwise.</li>
+    */
+   public static boolean isEnabled()
+   {
+      return Boolean.parseBoolean(System.getProperty(WATCH_PROPERTY));
+   }
+
+   /**
+    * @return The number of layout maps compiled again since the start, after
+    *         a change of their file.
+    */
+   public static long getReloadCount()
+   {
+      return reloadCount;
+   }
+
+   /**
+    * Watches a layout map file, if the watcher is enabled. Watching a file
+    * twice has no effect. A failure to watch is only logged, the cache then
+    * relies on the last modified time and length of the file.
+    *
+    * @param path
+    *           The canonical path of the layout map file.
+    */
+   static synchronized void watch(final String path)
+   {
+      if (!isEnabled())
+         return;
+
+      File file = new File(path);
+      Path directory = file.getParentFile().toPath();
+      Set<String> names = WATCHED_FILES.get(directory);
+      if (null == names)
+      {
+         try
+         {
+            if (null == watchService)
+            {
+               watchService = FileSystems.getDefault().newWatchService();
+               Thread thread = new Thread(new Runnable()
+               {
+                  @Override
+                  public void run()
+                  {
+                     processEvents();
+                  }
+               }, "LayoutMapWatcher");
+               thread.setDaemon(true);
+               thread.start();
+            }
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                  StandardWatchEventKinds.ENTRY_MODIFY);
+         }
+         catch (IOException e)
+         {
+            System.out.println("Unable to watch the layout maps of '" + directory + "': " + e.getMessage());
+            return;
+         }
+         names = new HashSet<String>();
+         WATCHED_FILES.put(directory, names);
+      }
+      names.add(file.getName());
+   }
+
+   /**
+    * Stops watching all the files, for tests.
+    */
+   static synchronized void stop()
+   {
+      WATCHED_FILES.clear();
+      if (null != watchService)
+      {
+         try
+         {
+            watchService.close();
+         }
+         catch (IOException e)
+         {
+            // Nothing more to do
+         }
+         watchService = null;
+      }
+   }
+
+   /**
+    * Reloads the watched layout maps whose file changed, until the watcher is
+    * stopped.
+    */
+   private static void processEvents()
+   {
+      WatchService service;
+      synchronized (LayoutMapWatcher.class)
+      {
+         service = watchService;
+      }
+
+      try
+      {
+         while (true)
+         {
+            WatchKey key = service.take();
+            Path directory = (Path)key.watchable();
+            Set<String> changed = new HashSet<String>();
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+               if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                  changed.addAll(getWatchedFiles(directory));
+               else
+                  changed.add(((Path)event.context()).getFileName().toString());
+            }
+            key.reset();
+
+            changed.retainAll(getWatchedFiles(directory));
+            for (String name : changed)
+            {
+               if (LayoutMapCache.reload(directory.resolve(name).toFile()))
+               {
+                  reloadCount++;
+               }
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         // Stopped
+      }
+      catch (ClosedWatchServiceException e)
+      {
+         // Stopped
+      }
+   }
+
+   /**
+    * @param directory
+    *           A watched directory.
+    *
+    * @return The names of the layout map files watched in the directory.
+    */
+   private static synchronized Set<String> getWatchedFiles(final Path directory)
+   {
+      Set<String> names = WATCHED_FILES.get(directory);
+      return (null == names) ? new HashSet<String>() : new HashSet<String>(names);
+   }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sonata.generic.automation.fixture.widget.FixtureWidget;
+import com.sonata.generic.automation.fixture.widget.FixtureWidgetFactory;
+import com.sonata.generic.automation.fixture.widget.ModifiableFixtureWidget;
+
+/**
+ * <p>
+ * The fixture widgets of a form, keyed by descriptive widget name, created the
+ * first time they are looked up. The map only holds the compiled widgets of
+ * the layout map until then, so the cost of a fixture grows with the widgets
+ * its test actually uses rather than with the size of the layout map.
+ * </p>
+ *
+ * <p>
+ * The widgets are created one top-level widget at a time, together with all
+ * the widgets nested in it, so the parent-child relationships of a widget
+ * created are always complete. Once created, a widget is kept.
+ * </p>
+ *
+ * <p>
+ * The map is read-only. Like the fixture using it, it is not thread-safe.
+ * </p>
+ */
+final class LazyFixtureWidgets extends AbstractMap<String, FixtureWidget>
+{
+   private final FixtureWidgetFactory          factory;
+   private final String                        idBase;
+   private final Map<String, LayoutMap.Widget> topLevelWidgetByName = new HashMap<String, LayoutMap.Widget>();
+   private final Set<LayoutMap.Widget>         createdTopLevelWidgets = new HashSet<LayoutMap.Widget>();
+   private final Map<String, FixtureWidget>    fixtureWidgets       = new HashMap<String, FixtureWidget>();
+   private final List<LayoutMap.Widget>        widgets;
+
+   /**
+    * Constructs the lazy fixture widgets of a form.
+    *
+    * @param factory
+    *           The factory used to create the fixture widgets.
+    * @param idBase
+    *           The form-wide ID base (prefix) used in automation locators for
+    *           widgets belonging to the form.
+    * @param widgets
+    *           The compiled top-level widgets of the form.
+    *
+    * @throws IllegalArgumentException
+    *            The form contains two widgets with the same name.
+    */
+   LazyFixtureWidgets(final FixtureWidgetFactory factory, final String idBase, final List<LayoutMap.Widget> widgets)
+   {
+      this.factory = factory;
+      this.idBase = idBase;
+      this.widgets = widgets;
+      for (LayoutMap.Widget widget : widgets)
+      {
+         index(widget, widget);
+      }
+   }
+
+   /**
+    * Records the top-level widget of a widget and of the widgets nested in it.
+    *
+    * @param topLevelWidget
+    *           The top-level widget.
+    * @param widget
+    *           The widget.
+    *
+    * @throws IllegalArgumentException
+    *            The form contains two widgets with the same name.
+    */
+   private void index(final LayoutMap.Widget topLevelWidget, final LayoutMap.Widget widget)
+   {
+      if (null != topLevelWidgetByName.put(widget.getName(), topLevelWidget))
+         throw new IllegalArgumentException("The form can only contain one '" + ConfigurationConstants.Tags.WIDGET
+               + "' element whose '" + ConfigurationConstants.Attributes.NAME + "' attribute has the value of '"
+               + widget.getName() + "'.");
+
+      for (LayoutMap.Widget child : widget.getChildren())
+      {
+         index(topLevelWidget, child);
+      }
+   }
+
+   /**
+    * Gets the fixture widget with the specified name, creating it (and the
+    * other widgets of its top-level widget) on first access.
+    *
+    * @param key
+    *           The descriptive widget name.
+    *
+    * @return The fixture widget, or null if there is no widget of a supported
+    *         type with that name on the form.
+    */
+   @Override
+   public FixtureWidget get(final Object key)
+   {
+      LayoutMap.Widget topLevelWidget = topLevelWidgetByName.get(key);
+      if (null == topLevelWidget)
+         return null;
+
+      create(topLevelWidget);
+      return fixtureWidgets.get(key);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean containsKey(final Object key)
+   {
+      return null != get(key);
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * NOTE: This creates all the widgets of the form.
+    * </p>
+    */
+   @Override
+   public Set<Map.Entry<String, FixtureWidget>> entrySet()
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         create(widget);
+      }
+      return Collections.unmodifiableMap(fixtureWidgets).entrySet();
+   }
+
+   /**
+    * @return The number of fixture widgets created so far.
+    */
+   int getCreatedCount()
+   {
+      return fixtureWidgets.size();
+   }
+
+   /**
+    * Creates the fixture widgets of a top-level widget, unless done already.
+    *
+    * @param topLevelWidget
+    *           The top-level widget.
+    */
+   private void create(final LayoutMap.Widget topLevelWidget)
+   {
+      if (createdTopLevelWidgets.add(topLevelWidget))
+      {
+         populateWidgets(null, Collections.singletonList(topLevelWidget));
+      }
+   }
+
+   /**
+    * Recursively creates fixture widgets, setting parent-child widget
+    * relationships as needed.
+    *
+    * @param parentWidget
+    *           The parent {@link ModifiableFixtureWidget} whose child widgets
+    *           are being processed, or null when processing a top-level widget
+    *           of the form.
+    * @param children
+    *           The compiled child widgets of the parent widget.
+    */
+   private void populateWidgets(final ModifiableFixtureWidget parentWidget, final List<LayoutMap.Widget> children)
+   {
+      for (LayoutMap.Widget widget : children)
+      {
+         // If the type of widget is not (yet) supported for FitNesse tests,
+         // the factory will log a message and return null.
+         ModifiableFixtureWidget fixtureWidget = factory.createFixtureWidget(widget.getName(), widget.getID(),
+               widget.getType(), idBase);
+         if (null == fixtureWidget)
+         {
+            // Even though this element isn't supported for Fitnesse tests,
+            // work through any child widgets within this element - they will
+            // just use our parent element as their parent element.
+            populateWidgets(parentWidget, widget.getChildren());
+         }
+         else
+         {
+            // If the widget is a child widget, set parent-child relationships.
+            if (null != parentWidget)
+            {
+               parentWidget.addChild(widget.getName(), fixtureWidget);
+               fixtureWidget.setParent(parentWidget);
+            }
+
+            fixtureWidgets.put(widget.getName(), fixtureWidget);
+            populateWidgets(fixtureWidget, widget.getChildren());
+         }
+      }
+   }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of a run of {@link DataDrivenRunner}: the result of each row, in
+ * the order of the rows, and the totals.
+ */
+public final class DataDrivenResult
+{
+   private final List<RowResult> rowResults;
+   private final long            elapsedMillis;
+
+   /**
+    * Constructs the results of a run.
+    *
+    * @param rowResults
+    *           The results of the rows.
+    * @param elapsedMillis
+    *           The time taken by the whole run.
+    */
+   DataDrivenResult(final List<RowResult> rowResults, final long elapsedMillis)
+   {
+      this.rowResults = Collections.unmodifiableList(rowResults);
+      this.elapsedMillis = elapsedMillis;
+   }
+
+   /**
+    * @return The results of the rows, in the order of the rows.
+    */
+   public List<RowResult> getRowResults()
+   {
+      return rowResults;
+   }
+
+   /**
+    * @return The time taken by the whole run, in milliseconds.
+    */
+   public long getElapsedMillis()
+   {
+      return elapsedMillis;
+   }
+
+   /**
+    * @return The sum of the times taken by the rows, in milliseconds; divided
+    *         by {@link #getElapsedMillis()} it tells how well the rows ran in
+    *         parallel.
+    */
+   public long getRowMillis()
+   {
+      long total = 0;
+      for (RowResult rowResult : rowResults)
+      {
+         total += rowResult.getElapsedMillis();
+      }
+      return total;
+   }
+
+   /**
+    * @return The number of rows which failed.
+    */
+   public int getFailedCount()
+   {
+      int failed = 0;
+      for (RowResult rowResult : rowResults)
+      {
+         if (!rowResult.isPassed())
+            failed++;
+      }
+      return failed;
+   }
+
+   /**
+    * @return <li><code>true</code> if all the rows passed.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean isSuccessful()
+   {
+      return 0 == getFailedCount();
+   }
+
+   /**
+    * @return A summary of the run, followed by one line per row.
+    */
+   @Override
+   public String toString()
+   {
+      StringBuilder report = new StringBuilder();
+      report.append(rowResults.size() - getFailedCount()).append(" of ").append(rowResults.size())
+            .append(" rows passed in ").append(elapsedMillis).append(" ms (").append(getRowMillis())
+            .append(" ms of row time)");
+      for (RowResult rowResult : rowResults)
+      {
+         report.append(System.getProperty("line.separator")).append(rowResult);
+      }
+      return report.toString();
+   }
+
+   /**
+    * The result of a row.
+    */
+   public static final class RowResult
+   {
+      private final DataRow   row;
+      private final Throwable failure;
+      private final long      elapsedMillis;
+
+      /**
+       * Constructs the result of a row.
+       *
+       * @param row
+       *           The row.
+       * @param failure
+       *           Why the row failed, or null if it passed.
+       * @param elapsedMillis
+       *           The time taken by the row, the creation of its session
+       *           included.
+       */
+      RowResult(final DataRow row, final Throwable failure, final long elapsedMillis)
+      {
+         this.row = row;
+         this.failure = failure;
+         this.elapsedMillis = elapsedMillis;
+      }
+
+      /**
+       * @return The row.
+       */
+      public DataRow getRow()
+      {
+         return row;
+      }
+
+      /**
+       * @return <li><code>true</code> if the row passed.</li> <li>
+       *         <code>false</code> otherwise.</li>
+       */
+      public boolean isPassed()
+      {
+         return null == failure;
+      }
+
+      /**
+       * @return Why the row failed, or null if it passed.
+       */
+      public Throwable getFailure()
+      {
+         return failure;
+      }
+
+      /**
+       * @return The time taken by the row, in milliseconds.
+       */
+      public long getElapsedMillis()
+      {
+         return elapsedMillis;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public String toString()
+      {
+         return row.getName() + ": " + (isPassed() ? "passed" : "FAILED (" + failure + ")") + " in "
+               + elapsedMillis + " ms";
+      }
+   }
+}
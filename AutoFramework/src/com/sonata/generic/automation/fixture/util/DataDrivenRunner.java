@@ -0,0 +1,274 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.sonata.generic.automation.fixture.GenericWebFixture;
+
+/**
+ * <p>
+ * Runs a data-driven test once per {@link DataRow}, spreading the rows over a
+ * pool of sessions (typically {@link GenericWebFixture} instances, each with
+ * its own browser) which run in parallel. A session is only used by one row at
+ * a time, so the test needs no locking as long as the rows do not share
+ * anything else.
+ * </p>
+ *
+ * <p>
+ * A row which fails leaves its session in an unknown state: the session is
+ * closed and the next row gets a new one. The results of the rows are
+ * gathered in a {@link DataDrivenResult}, in the order of the rows.
+ * </p>
+ *
+ * <pre>
+ * DataDrivenRunner&lt;GenericWebFixture&gt; runner = new DataDrivenRunner&lt;GenericWebFixture&gt;(
+ *       new DataDrivenRunner.FixtureSessions(layoutMap, &quot;browser is Chrome&quot;), 4);
+ * DataDrivenResult result = runner.run(test, DataRow.fromExcel(new ExcelFileBuilder(file, 0)));
+ * assertTrue(result.toString(), result.isSuccessful());
+ * </pre>
+ *
+ * @param <S>
+ *           The type of the sessions.
+ */
+public final class DataDrivenRunner<S>
+{
+   private final SessionFactory<S> factory;
+   private final int               sessionCount;
+
+   /**
+    * Creates and closes the sessions of a runner. The methods are called from
+    * the threads of the runner.
+    *
+    * @param <S>
+    *           The type of the sessions.
+    */
+   public interface SessionFactory<S>
+   {
+      /**
+       * @return A new session.
+       *
+       * @throws Exception
+       *            The session could not be created; the row it was created
+       *            for fails.
+       */
+      S create() throws Exception;
+
+      /**
+       * Closes a session. A failure is ignored.
+       *
+       * @param session
+       *           The session.
+       */
+      void close(S session);
+   }
+
+   /**
+    * The data-driven test, run once per row.
+    *
+    * @param <S>
+    *           The type of the sessions.
+    */
+   public interface RowTest<S>
+   {
+      /**
+       * Runs the test for a row.
+       *
+       * @param session
+       *           The session, used by no other row meanwhile.
+       * @param row
+       *           The row.
+       *
+       * @throws Exception
+       *            The test failed, as does an {@link AssertionError}.
+       */
+      void run(S session, DataRow row) throws Exception;
+   }
+
+   /**
+    * Sessions which are {@link GenericWebFixture} instances, each with its own
+    * browser, closed with {@code close("force")}.
+    */
+   public static final class FixtureSessions implements SessionFactory<GenericWebFixture>
+   {
+      private final String configurationPath;
+      private final String browserSettings;
+
+      /**
+       * Constructs the factory.
+       *
+       * @param configurationPath
+       *           The path to the layout map of the fixtures.
+       * @param browserSettings
+       *           The settings of the browsers, as for
+       *           {@link GenericWebFixture#GenericWebFixture(String, String)}.
+       */
+      public FixtureSessions(final String configurationPath, final String browserSettings)
+      {
+         this.configurationPath = configurationPath;
+         this.browserSettings = browserSettings;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public GenericWebFixture create()
+      {
+         return new GenericWebFixture(configurationPath, browserSettings);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void close(final GenericWebFixture session)
+      {
+         session.close("force");
+      }
+   }
+
+   /**
+    * Constructs a runner.
+    *
+    * @param factory
+    *           The factory of the sessions.
+    * @param sessionCount
+    *           The number of sessions, so of rows run at the same time.
+    *
+    * @throws IllegalArgumentException
+    *            The factory is null or the number of sessions is not positive.
+    */
+   public DataDrivenRunner(final SessionFactory<S> factory, final int sessionCount)
+   {
+      if (null == factory)
+         throw new IllegalArgumentException("The session factory must be non-null.");
+      if (sessionCount < 1)
+         throw new IllegalArgumentException("The number of sessions must be positive.");
+
+      this.factory = factory;
+      this.sessionCount = sessionCount;
+   }
+
+   /**
+    * Runs a test for each row and waits for all of them. The sessions are
+    * closed before returning.
+    *
+    * @param test
+    *           The test.
+    * @param rows
+    *           The rows.
+    *
+    * @return The results of the rows.
+    *
+    * @throws InterruptedException
+    *            The thread was interrupted while waiting; the rows not started
+    *            yet are cancelled.
+    */
+   public DataDrivenResult run(final RowTest<S> test, final List<DataRow> rows) throws InterruptedException
+   {
+      final ConcurrentLinkedQueue<S> idleSessions = new ConcurrentLinkedQueue<S>();
+      final long start = System.nanoTime();
+      final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(sessionCount, rows.size())));
+      try
+      {
+         List<Future<DataDrivenResult.RowResult>> futures = new ArrayList<Future<DataDrivenResult.RowResult>>();
+         for (final DataRow row : rows)
+         {
+            futures.add(executor.submit(new Callable<DataDrivenResult.RowResult>()
+            {
+               @Override
+               public DataDrivenResult.RowResult call()
+               {
+                  return runRow(test, row, idleSessions);
+               }
+            }));
+         }
+
+         List<DataDrivenResult.RowResult> results = new ArrayList<DataDrivenResult.RowResult>();
+         for (Future<DataDrivenResult.RowResult> future : futures)
+         {
+            try
+            {
+               results.add(future.get());
+            }
+            catch (ExecutionException e)
+            {
+               // runRow catches everything, this is a bug of the runner
+               throw new IllegalStateException(e.getCause());
+            }
+         }
+         return new DataDrivenResult(results, (System.nanoTime() - start) / 1000000);
+      }
+      finally
+      {
+         executor.shutdownNow();
+         executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         for (S session : idleSessions)
+         {
+            close(session);
+         }
+      }
+   }
+
+   /**
+    * Runs the test for a row in an idle session, or a new one.
+    *
+    * @param test
+    *           The test.
+    * @param row
+    *           The row.
+    * @param idleSessions
+    *           The sessions not used by a row.
+    *
+    * @return The result of the row.
+    */
+   private DataDrivenResult.RowResult runRow(final RowTest<S> test, final DataRow row,
+         final ConcurrentLinkedQueue<S> idleSessions)
+   {
+      final long start = System.nanoTime();
+      S session = idleSessions.poll();
+      try
+      {
+         if (null == session)
+            session = factory.create();
+         test.run(session, row);
+         idleSessions.add(session);
+         return new DataDrivenResult.RowResult(row, null, (System.nanoTime() - start) / 1000000);
+      }
+      catch (Throwable e)
+      {
+         if (null != session)
+            close(session);
+         return new DataDrivenResult.RowResult(row, e, (System.nanoTime() - start) / 1000000);
+      }
+   }
+
+   /**
+    * Closes a session, ignoring the failures.
+    *
+    * @param session
+    *           The session.
+    */
+   private void close(final S session)
+   {
+      try
+      {
+         factory.close(session);
+      }
+      catch (RuntimeException e)
+      {
+         // Nothing more to do
+      }
+   }
+}
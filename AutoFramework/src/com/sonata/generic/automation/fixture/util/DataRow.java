@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import com.sonata.generic.automation.library.CSVHelper;
+
+/**
+ * <p>
+ * One case of data-driven test data: a name and the values of its elements.
+ * The rows of a data source are created with:
+ * </p>
+ * <ul>
+ * <li>{@link #fromExcel(ExcelFileBuilder)}: one row per column of the sheet
+ * after the first, named by the first row;</li>
+ * <li>{@link #fromTestData(File)}: one row per "TestData" element, named by
+ * its index;</li>
+ * <li>{@link #fromCSV(String)}: one row per line after the header line, named
+ * "row N" from 1.</li>
+ * </ul>
+ * <p>
+ * A row is immutable, so the rows can be run in parallel (see
+ * {@link DataDrivenRunner}).
+ * </p>
+ */
+public final class DataRow
+{
+   private final String              name;
+   private final Map<String, String> values;
+
+   /**
+    * Constructs a row.
+    *
+    * @param name
+    *           The name of the row, used in the results.
+    * @param values
+    *           The values, by element name.
+    */
+   public DataRow(final String name, final Map<String, String> values)
+   {
+      if (null == name)
+         throw new IllegalArgumentException("The row name must be non-null.");
+      if (null == values)
+         throw new IllegalArgumentException("The row values must be non-null.");
+
+      this.name = name;
+      this.values = Collections.unmodifiableMap(new LinkedHashMap<String, String>(values));
+   }
+
+   /**
+    * @return The name of the row.
+    */
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * Get the value of an element.
+    *
+    * @param elementName
+    *           The element name, suggest same as the widget name in LayOutMap.
+    *
+    * @return The value of the element.
+    *
+    * @throws IllegalArgumentException
+    *            Occurred when the element can't be found.
+    */
+   public String get(final String elementName)
+   {
+      String value = values.get(elementName);
+      if (null == value)
+         throw new IllegalArgumentException("Can't find element '" + elementName + "' in row '" + name + "'");
+      return value;
+   }
+
+   /**
+    * @return The values of the row, by element name.
+    */
+   public Map<String, String> getValues()
+   {
+      return values;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return name;
+   }
+
+   /**
+    * Gets the rows of an Excel sheet, where the first column holds the element
+    * names and each other column a case.
+    *
+    * @param builder
+    *           The builder of the sheet, with the values it set.
+    *
+    * @return One row per column after the first.
+    */
+   public static List<DataRow> fromExcel(final ExcelFileBuilder builder)
+   {
+      String[][] data = builder.getAllData();
+      List<DataRow> rows = new ArrayList<DataRow>();
+      int colNum = (0 == data.length) ? 0 : data[0].length;
+      for (int j = 1; j < colNum; j++)
+      {
+         Map<String, String> values = new LinkedHashMap<String, String>();
+         for (int i = 1; i < data.length; i++)
+         {
+            if (!values.containsKey(data[i][0]))
+            {
+               values.put(data[i][0], data[i][j]);
+            }
+         }
+         rows.add(new DataRow(data[0][j].isEmpty() ? "column " + j : data[0][j], values));
+      }
+      return rows;
+   }
+
+   /**
+    * Gets the rows of the "TestData" elements of an XML file.
+    *
+    * @param file
+    *           The XML file.
+    *
+    * @return One row per "TestData" element with an index, in the order of
+    *         the file.
+    *
+    * @throws IOException
+    *            The file could not be read or is not well-formed XML.
+    */
+   public static List<DataRow> fromTestData(final File file) throws IOException
+   {
+      InputStream in = new BufferedInputStream(new FileInputStream(file));
+      try
+      {
+         return fromTestData(TestDataIndex.read(in));
+      }
+      catch (XMLStreamException e)
+      {
+         throw new IOException("The file '" + file.getPath() + "' could not be parsed.", e);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Gets the rows of the test data of an index.
+    *
+    * @param index
+    *           The index of the test data.
+    *
+    * @return One row per test data, in the order of the file.
+    */
+   public static List<DataRow> fromTestData(final TestDataIndex index)
+   {
+      List<DataRow> rows = new ArrayList<DataRow>();
+      for (String testDataIdx : index.getIndexes())
+      {
+         rows.add(new DataRow(testDataIdx, index.getValues(testDataIdx)));
+      }
+      return rows;
+   }
+
+   /**
+    * Gets the rows of a CSV file, whose first line holds the element names.
+    *
+    * @param cSVFile
+    *           Path of CSV file
+    *
+    * @return One row per line after the first.
+    *
+    * @throws IOException
+    *            The file could not be read.
+    */
+   public static List<DataRow> fromCSV(final String cSVFile) throws IOException
+   {
+      List<String[]> lines = CSVHelper.readCSV(cSVFile);
+      List<DataRow> rows = new ArrayList<DataRow>();
+      for (int i = 1; i < lines.size(); i++)
+      {
+         Map<String, String> values = new LinkedHashMap<String, String>();
+         String[] header = lines.get(0);
+         String[] line = lines.get(i);
+         for (int j = 0; j < header.length; j++)
+         {
+            values.put(header[j], (j < line.length) ? line[j] : "");
+         }
+         rows.add(new DataRow("row " + i, values));
+      }
+      return rows;
+   }
+}
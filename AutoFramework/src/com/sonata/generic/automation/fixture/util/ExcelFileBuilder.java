@@ -10,6 +10,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.poi.hssf.usermodel.HSSFCell;
 import org.apache.poi.hssf.usermodel.HSSFCellStyle;
@@ -29,54 +31,46 @@ import org.apache.poi.ss.usermodel.FormulaEvaluator;
  * The <code>ExcelFileBuilder</code> provide interfaces to interact with excel file
  * to access the configuration or test data, and write back to file for validation or 
  * other cases' reference.
+ * <p>
+ * The sheets are shared through {@link TestDataStore}: the values set with
+ * {@link #setData(String, int, String)} are only seen by this builder.
+ * </p>
  */
 public class ExcelFileBuilder
 {
    private static String PATH = new File("").getAbsolutePath();
    private int rowNum = 0;
    private int colNum = 0;
-   private String[][] data;
+   private TestDataStore.Sheet sheet;
+   private final Map<Integer, String[]> changedRows = new HashMap<Integer, String[]>();
    
    /**
     * Open the excel file, read and put the data to a cache for later access.
     * @param file 
-    *            The excel(.xls) file where the configuration or test data is saved.
+    *            The excel(.xls or .xlsx) file where the configuration or test data is saved,
+    *            relative to the current directory.
     * @param sheetIdx 
     *            The index of the excel sheet, begin from "0".           
-    * @throws IllegalStateException
-    *            The document builder could not be created with to satisfy the
-    *            default configuration.
     */
    public ExcelFileBuilder(final String file, final int sheetIdx)
    {
-      try
-      {
-         String fullFilePath = PATH + "//" + file; 
-         
-         FileInputStream excel = new FileInputStream(new File(fullFilePath));
-         HSSFWorkbook workbook = new HSSFWorkbook(excel);
-         HSSFSheet ws = workbook.getSheetAt(sheetIdx);
-         FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-          
-         rowNum = ws.getLastRowNum() + 1;
-         colNum = ws.getRow(0).getLastCellNum();
-         
-         data = new String[rowNum][colNum];
+      this(new File(PATH + "//" + file), sheetIdx);
+   }
 
-         for (int i=0; i<rowNum; i++)
-         {
-            HSSFRow row = ws.getRow(i);
-            for (int j=0; j<colNum; j++)
-            {
-                HSSFCell cell = row.getCell(j);
-                String value = cellToString(cell, evaluator);
-                data[i][j] = value;
-            }
-         }
-         excel.close();
-      }catch (FileNotFoundException e)
+   /**
+    * Open the excel file, read and put the data to a cache for later access.
+    * @param file 
+    *            The excel(.xls or .xlsx) file where the configuration or test data is saved.
+    * @param sheetIdx 
+    *            The index of the excel sheet, begin from "0".           
+    */
+   public ExcelFileBuilder(final File file, final int sheetIdx)
+   {
+      try
       {
-         e.printStackTrace();
+         sheet = TestDataStore.get(file, sheetIdx);
+         rowNum = sheet.getRowCount();
+         colNum = sheet.getColumnCount();
       }catch (IOException e)
       {
          e.printStackTrace();
@@ -143,14 +137,24 @@ public class ExcelFileBuilder
     */
    public String getData(final String elementName, final int columnIdx)
    {
+      return getValue(getRowIndex(elementName), columnIdx);
+   }
+   
+   /**
+    * Get a copy of all the data of the sheet, the first row included.
+    * 
+    * @return one array of values per row of the sheet, empty if the file
+    *         could not be read
+    */
+   public String[][] getAllData()
+   {
+      String[][] copy = new String[rowNum][];
       for (int i=0; i<rowNum; i++)
       {
-         if (data[i][0].equals(elementName))
-         {
-            return data[i][columnIdx];
-         }
+         String[] changedRow = changedRows.get(i);
+         copy[i] = (changedRow == null) ? sheet.getRow(i) : changedRow.clone();
       }
-      throw new IllegalArgumentException("Can't find element '" + elementName + "'");
+      return copy;
    }
    
    /**
@@ -167,15 +171,49 @@ public class ExcelFileBuilder
     */
    public void setData(final String elementName, final int columnIdx, final String value)
    {
-      for (int i=0; i<rowNum; i++)
+      int rowIdx = getRowIndex(elementName);
+      String[] changedRow = changedRows.get(rowIdx);
+      if (changedRow == null)
       {
-         if (data[i][0].equals(elementName))
-         {
-            data[i][columnIdx] = value;
-            return;
-         }
+         // Copy on write, the shared sheet is never changed
+         changedRow = sheet.getRow(rowIdx);
+         changedRows.put(rowIdx, changedRow);
       }
-      throw new IllegalArgumentException("Can't find element '" + elementName + "'");
+      changedRow[columnIdx] = value;
+   }
+   
+   /**
+    * Get the row of an element.
+    * 
+    * @param elementName
+    *           The element name in the first column.
+    * @return The index of the first row of the element.
+    * @throws IllegalArgumentException
+    *            Occurred when the element can't be found.
+    */
+   private int getRowIndex(final String elementName)
+   {
+      int rowIdx = (sheet == null) ? -1 : sheet.getRowIndex(elementName);
+      if (rowIdx < 0)
+      {
+         throw new IllegalArgumentException("Can't find element '" + elementName + "'");
+      }
+      return rowIdx;
+   }
+   
+   /**
+    * Get the value of a cell, as set by this builder if it was.
+    * 
+    * @param rowIdx
+    *           The row index.
+    * @param columnIdx
+    *           The column index.
+    * @return The value of the cell.
+    */
+   private String getValue(final int rowIdx, final int columnIdx)
+   {
+      String[] changedRow = changedRows.get(rowIdx);
+      return (changedRow == null) ? sheet.getValue(rowIdx, columnIdx) : changedRow[columnIdx];
    }
    
    /**
@@ -217,14 +255,14 @@ public class ExcelFileBuilder
             {
                 HSSFCell cell = row.getCell(j);
                 String value = cellToString(cell, evaluator); 
-                if (!data[i][j].equals(value))
+                if (!getValue(i, j).equals(value))
                 {
                    if(cell == null)
                    {
                       cell = row.createCell(j);
                    }
                    cell.setCellStyle(style);
-                   cell.setCellValue(data[i][j]);
+                   cell.setCellValue(getValue(i, j));
                 }
             }
          }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>
+ * Index of the test data of an XML file: for each "TestData" element with an
+ * "index" attribute, the text of the elements it contains, by element name.
+ * The file is read in one pass with a streaming reader, so a lookup is a map
+ * access instead of a search through a DOM document.
+ * </p>
+ *
+ * <p>
+ * The values are the ones {@link XMLDocumentBuilder#getData(String, int)} reads
+ * from the DOM: the "TestData" elements are taken at any depth and the first
+ * one with an index wins; an element is taken at any depth below it, and its
+ * value is its whole text content; an element found several times has no
+ * value.
+ * </p>
+ */
+public final class TestDataIndex
+{
+   private static final String                           TEST_DATA     = "TestData";
+   private static final String                           INDEX         = "index";
+   private static final XMLInputFactory                  INPUT_FACTORY = XMLInputFactory.newInstance();
+
+   /** Marks an element found several times in the same test data */
+   private static final String                           DUPLICATE     = new String("duplicate");
+
+   private final Map<String, Map<String, String>>        testData;
+
+   /**
+    * Constructs an index.
+    *
+    * @param testData
+    *           The values by element name, by test data index.
+    */
+   private TestDataIndex(final Map<String, Map<String, String>> testData)
+   {
+      this.testData = testData;
+   }
+
+   /**
+    * Reads the test data of a stream.
+    *
+    * <p>
+    * NOTE: The stream is not closed.
+    * </p>
+    *
+    * @param in
+    *           The stream of the XML file.
+    *
+    * @return The index of the test data.
+    *
+    * @throws XMLStreamException
+    *            The stream is not well-formed XML.
+    */
+   public static TestDataIndex read(final InputStream in) throws XMLStreamException
+   {
+      final Map<String, Map<String, String>> testData = new LinkedHashMap<String, Map<String, String>>();
+      final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+      try
+      {
+         // The test data being read (null outside of one or for an index
+         // already read), its depth, and the elements open inside it with
+         // their text so far.
+         Map<String, String> current = null;
+         int currentDepth = 0;
+         int depth = 0;
+         final List<String> openNames = new ArrayList<String>();
+         final List<StringBuilder> openTexts = new ArrayList<StringBuilder>();
+
+         while (reader.hasNext())
+         {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+               depth++;
+               if (currentDepth > 0)
+               {
+                  openNames.add(reader.getLocalName());
+                  openTexts.add(new StringBuilder());
+               }
+               else if (TEST_DATA.equals(reader.getLocalName()))
+               {
+                  final String index = reader.getAttributeValue(null, INDEX);
+                  currentDepth = depth;
+                  current = null;
+                  if ((null != index) && !testData.containsKey(index))
+                  {
+                     current = new LinkedHashMap<String, String>();
+                     testData.put(index, current);
+                  }
+               }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+               if (depth == currentDepth)
+               {
+                  currentDepth = 0;
+                  current = null;
+               }
+               else if (currentDepth > 0)
+               {
+                  final int last = openNames.size() - 1;
+                  final String name = openNames.remove(last);
+                  final String text = openTexts.remove(last).toString();
+                  if (null != current)
+                  {
+                     current.put(name, current.containsKey(name) ? DUPLICATE : text);
+                  }
+               }
+               depth--;
+            }
+            else if ((currentDepth > 0)
+                  && ((event == XMLStreamConstants.CHARACTERS) || (event == XMLStreamConstants.CDATA)
+                        || (event == XMLStreamConstants.SPACE)))
+            {
+               // The text content of an element includes the one of the
+               // elements inside it
+               for (StringBuilder text : openTexts)
+               {
+                  text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+               }
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      return new TestDataIndex(testData);
+   }
+
+   /**
+    * Gets the text of an element of a test data.
+    *
+    * @param elementName
+    *           The name of the element.
+    * @param testDataIdx
+    *           The index of the test data.
+    *
+    * @return The text of the element, "" if the test data or the element does
+    *         not exist, or if the element exists several times.
+    */
+   public String get(final String elementName, final int testDataIdx)
+   {
+      final Map<String, String> values = testData.get(String.valueOf(testDataIdx));
+      if (null == values)
+         return "";
+      final String value = values.get(elementName);
+      return ((null == value) || (DUPLICATE == value)) ? "" : value;
+   }
+
+   /**
+    * @param testDataIdx
+    *           The index of the test data.
+    *
+    * @return <li><code>true</code> if the test data exists.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean contains(final int testDataIdx)
+   {
+      return testData.containsKey(String.valueOf(testDataIdx));
+   }
+
+   /**
+    * @return The indexes of the test data, in the order of the file.
+    */
+   public List<String> getIndexes()
+   {
+      return new ArrayList<String>(testData.keySet());
+   }
+
+   /**
+    * Gets the elements of a test data which have a value.
+    *
+    * @param testDataIdx
+    *           The index of the test data.
+    *
+    * @return The text of the elements, by element name; empty if the test
+    *         data does not exist.
+    */
+   public Map<String, String> getValues(final String testDataIdx)
+   {
+      final Map<String, String> values = testData.get(testDataIdx);
+      if (null == values)
+         return Collections.emptyMap();
+
+      final Map<String, String> result = new LinkedHashMap<String, String>();
+      for (Map.Entry<String, String> value : values.entrySet())
+      {
+         if (DUPLICATE != value.getValue())
+         {
+            result.put(value.getKey(), value.getValue());
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Sets the text of an element of a test data, as it was set in the DOM.
+    *
+    * @param elementName
+    *           The name of the element.
+    * @param testDataIdx
+    *           The index of the test data.
+    * @param value
+    *           The text of the element.
+    */
+   void put(final String elementName, final int testDataIdx, final String value)
+   {
+      final Map<String, String> values = testData.get(String.valueOf(testDataIdx));
+      if (null != values)
+      {
+         values.put(elementName, value);
+      }
+   }
+}
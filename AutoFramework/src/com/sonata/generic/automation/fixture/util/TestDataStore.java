@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+
+/**
+ * <p>
+ * Process-wide cache of the test data sheets of Excel files, so the test
+ * classes using the same sheet do not read the file again. An entry is keyed
+ * by the canonical path of the file and the sheet index, and is only used
+ * while the file keeps the same last modified time and length.
+ * </p>
+ *
+ * <p>
+ * A cached {@link Sheet} is immutable and can be shared by tests running in
+ * parallel; {@link ExcelFileBuilder} keeps the values set by a test in its own
+ * overlay. Excel 2007 (.xlsx) files are read with a streaming reader (see
+ * {@link XlsxSheetReader}), other files as .xls files.
+ * </p>
+ */
+public final class TestDataStore
+{
+   private static final Map<String, Entry> ENTRIES = new HashMap<String, Entry>();
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private TestDataStore()
+   {
+   }
+
+   /**
+    * Gets a sheet of an Excel file, reading it if it is not cached or the file
+    * has changed since.
+    *
+    * @param file
+    *           The Excel (.xls or .xlsx) file.
+    * @param sheetIdx
+    *           The index of the sheet, begin from "0".
+    *
+    * @return The values of the sheet.
+    *
+    * @throws IOException
+    *            The file could not be read.
+    * @throws IllegalArgumentException
+    *            The sheet does not exist, or contains a value of an
+    *            unsupported type.
+    */
+   public static Sheet get(final File file, final int sheetIdx) throws IOException
+   {
+      final String key = file.getCanonicalPath() + "#" + sheetIdx;
+      final long lastModified = file.lastModified();
+      final long length = file.length();
+
+      synchronized (ENTRIES)
+      {
+         Entry entry = ENTRIES.get(key);
+         if ((null != entry) && (entry.lastModified == lastModified) && (entry.length == length))
+            return entry.sheet;
+      }
+
+      // Read outside of the lock, a test waiting for another sheet is not
+      // held up by a large one
+      Sheet sheet = new Sheet(read(file, sheetIdx));
+      synchronized (ENTRIES)
+      {
+         ENTRIES.put(key, new Entry(lastModified, length, sheet));
+      }
+      return sheet;
+   }
+
+   /**
+    * Drops the cached sheets.
+    */
+   public static void clear()
+   {
+      synchronized (ENTRIES)
+      {
+         ENTRIES.clear();
+      }
+   }
+
+   /**
+    * Reads the values of a sheet.
+    *
+    * @param file
+    *           The Excel file.
+    * @param sheetIdx
+    *           The index of the sheet.
+    *
+    * @return The values, one array per row with as many values as the first
+    *         row has cells.
+    */
+   private static String[][] read(final File file, final int sheetIdx) throws IOException
+   {
+      if (file.getName().toLowerCase().endsWith(".xlsx"))
+         return XlsxSheetReader.read(file, sheetIdx);
+
+      InputStream excel = new FileInputStream(file);
+      try
+      {
+         HSSFWorkbook workbook = new HSSFWorkbook(excel);
+         HSSFSheet ws = workbook.getSheetAt(sheetIdx);
+         FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+
+         int rowNum = ws.getLastRowNum() + 1;
+         int colNum = ws.getRow(0).getLastCellNum();
+         String[][] data = new String[rowNum][colNum];
+         for (int i = 0; i < rowNum; i++)
+         {
+            HSSFRow row = ws.getRow(i);
+            for (int j = 0; j < colNum; j++)
+            {
+               data[i][j] = (null == row) ? "" : ExcelFileBuilder.cellToString(row.getCell(j), evaluator);
+            }
+         }
+         return data;
+      }
+      finally
+      {
+         excel.close();
+      }
+   }
+
+   /**
+    * The values of a sheet, with the rows indexed by the element name of their
+    * first column. The values are interned, as the same ones tend to repeat
+    * across the rows and the sheets.
+    */
+   public static final class Sheet
+   {
+      private final String[][]           data;
+      private final int                  colNum;
+      private final Map<String, Integer> rowByElementName = new HashMap<String, Integer>();
+
+      /**
+       * Constructs a sheet.
+       *
+       * @param data
+       *           The values, one array per row; taken over by the sheet.
+       */
+      Sheet(final String[][] data)
+      {
+         this.data = data;
+         this.colNum = (0 == data.length) ? 0 : data[0].length;
+         for (int i = 0; i < data.length; i++)
+         {
+            for (int j = 0; j < data[i].length; j++)
+            {
+               data[i][j] = data[i][j].intern();
+            }
+            // The first row of an element name wins, as it did for a scan
+            if ((data[i].length > 0) && !rowByElementName.containsKey(data[i][0]))
+            {
+               rowByElementName.put(data[i][0], i);
+            }
+         }
+      }
+
+      /**
+       * @return The number of rows, the first one included.
+       */
+      public int getRowCount()
+      {
+         return data.length;
+      }
+
+      /**
+       * @return The number of columns, the one of the element names included.
+       */
+      public int getColumnCount()
+      {
+         return colNum;
+      }
+
+      /**
+       * @param elementName
+       *           An element name.
+       *
+       * @return The index of the first row whose first column is the element
+       *         name, or -1 if there is none.
+       */
+      public int getRowIndex(final String elementName)
+      {
+         Integer rowIdx = rowByElementName.get(elementName);
+         return (null == rowIdx) ? -1 : rowIdx;
+      }
+
+      /**
+       * @param rowIdx
+       *           The index of the row.
+       * @param columnIdx
+       *           The index of the column.
+       *
+       * @return The value of the cell.
+       */
+      public String getValue(final int rowIdx, final int columnIdx)
+      {
+         return data[rowIdx][columnIdx];
+      }
+
+      /**
+       * @param rowIdx
+       *           The index of the row.
+       *
+       * @return A copy of the values of the row.
+       */
+      public String[] getRow(final int rowIdx)
+      {
+         return data[rowIdx].clone();
+      }
+   }
+
+   /**
+    * A cached sheet, with the version of the file it was read from.
+    */
+   private static final class Entry
+   {
+      private final long  lastModified;
+      private final long  length;
+      private final Sheet sheet;
+
+      /**
+       * Constructs an entry.
+       *
+       * @param lastModified
+       *           The last modified time of the file.
+       * @param length
+       *           The length of the file.
+       * @param sheet
+       *           The sheet.
+       */
+      Entry(final long lastModified, final long length, final Sheet sheet)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.sheet = sheet;
+      }
+   }
+}
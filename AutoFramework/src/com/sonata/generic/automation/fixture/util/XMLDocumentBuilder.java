@@ -4,15 +4,18 @@
 
 package com.sonata.generic.automation.fixture.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -43,6 +46,8 @@ public class XMLDocumentBuilder
 {
    private DocumentBuilder builder;
    private Document doc;
+   private File dataFile;
+   private TestDataIndex testDataIndex;
    
    private static String PATH = new File("").getAbsolutePath();
 
@@ -67,7 +72,9 @@ public class XMLDocumentBuilder
    }
    
    /**
-    * Constructs a new document builder that will return a parsed document
+    * Constructs a new document builder that will return a parsed document.
+    * The test data are indexed with a streaming reader; the DOM document is
+    * only parsed once the data are changed.
     * 
     * @param file
     *           The xml file to parse. It's a relative path based on project root path.      
@@ -75,19 +82,61 @@ public class XMLDocumentBuilder
    public XMLDocumentBuilder(final String file)
    {   
       String fullFilePath = PATH + "//" + file; 
+      dataFile = new File(fullFilePath);
 
+      InputStream in = null;
       try {    
-         builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-         File fXmlFile = new File(fullFilePath);
-         doc = builder.parse(fXmlFile);
-         doc.getDocumentElement().normalize();
-      } catch (ParserConfigurationException e1) {
-         e1.printStackTrace();
-      } catch (SAXException e) {
+         in = new BufferedInputStream(new FileInputStream(dataFile));
+         testDataIndex = TestDataIndex.read(in);
+      } catch (XMLStreamException e) {
          e.printStackTrace();
       } catch (IOException e) {      
          e.printStackTrace();
-      }   
+      } finally {
+         closeQuietly(in);
+      }
+   }
+   
+   /**
+    * Gets the DOM document of the test data file, parsing it the first time.
+    * 
+    * @return The DOM document, or null if it could not be parsed.
+    */
+   private Document getDocument()
+   {
+      if (doc == null && dataFile != null)
+      {
+         try {    
+            builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            doc = builder.parse(dataFile);
+            doc.getDocumentElement().normalize();
+         } catch (ParserConfigurationException e1) {
+            e1.printStackTrace();
+         } catch (SAXException e) {
+            e.printStackTrace();
+         } catch (IOException e) {      
+            e.printStackTrace();
+         }   
+      }
+      return doc;
+   }
+   
+   /**
+    * Closes a stream, ignoring the failures.
+    * 
+    * @param in
+    *           The stream, or null.
+    */
+   private static void closeQuietly(final InputStream in)
+   {
+      if (in != null)
+      {
+         try {
+            in.close();
+         } catch (IOException e) {
+            // Nothing more to do
+         }
+      }
    }
    
    /**
@@ -103,6 +152,11 @@ public class XMLDocumentBuilder
    
    public String getData(final String elementName, final int TestDataIdx)
    {
+      if (testDataIndex != null)
+         return testDataIndex.get(elementName, TestDataIdx);
+      if (getDocument() == null)
+         return "";
+
       NodeList nList = doc.getDocumentElement().getElementsByTagName("TestData");
       
       for (int i=0; i<nList.getLength(); i++) 
@@ -169,6 +223,9 @@ public class XMLDocumentBuilder
    
    public boolean setData(final String elementName, final int TestDataIdx, final String value)
    {
+      if (getDocument() == null)
+         return false;
+
       NodeList nList = doc.getDocumentElement().getElementsByTagName("TestData");
       for (int i=0; i<nList.getLength(); i++) 
       {
@@ -180,7 +237,12 @@ public class XMLDocumentBuilder
             if (eParent.getNodeName().equals("TestData") && eParent.hasAttribute("index")) 
             {
                if (eParent.getAttribute("index").equals(String.valueOf(TestDataIdx))) 
-                  return setXMLElementText(eParent, elementName, value);
+               {
+                  boolean updated = setXMLElementText(eParent, elementName, value);
+                  if (updated && testDataIndex != null)
+                     testDataIndex.put(elementName, TestDataIdx, value);
+                  return updated;
+               }
             }
          }           
       }
@@ -243,7 +305,7 @@ public class XMLDocumentBuilder
       {
          TransformerFactory transformerFactory = TransformerFactory.newInstance();
          Transformer transformer = transformerFactory.newTransformer();
-         DOMSource source = new DOMSource(doc);
+         DOMSource source = new DOMSource(getDocument());
          StreamResult result = new StreamResult(new File(fullFilePath));
          transformer.transform(source, result);
 
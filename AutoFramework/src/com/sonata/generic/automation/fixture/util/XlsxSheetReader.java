@@ -0,0 +1,407 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * <p>
+ * Reads the values of a sheet of an Excel 2007 (.xlsx) file with a streaming
+ * reader, so a large data sheet is never held as a workbook object model:
+ * only the shared strings, the cell formats and the values are kept.
+ * </p>
+ *
+ * <p>
+ * The values are the ones {@link ExcelFileBuilder#cellToString} gives for an
+ * .xls file: the cached result of a formula, "true" or "false" for a boolean,
+ * "MM/dd/yyyy" for a date and the decimal form of a double for a number.
+ * </p>
+ */
+final class XlsxSheetReader
+{
+   private static final String          RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+   private static final String          WORKBOOK         = "xl/workbook.xml";
+   private static final String          WORKBOOK_RELS    = "xl/_rels/workbook.xml.rels";
+   private static final String          SHARED_STRINGS   = "xl/sharedStrings.xml";
+   private static final String          STYLES           = "xl/styles.xml";
+   private static final XMLInputFactory INPUT_FACTORY    = XMLInputFactory.newInstance();
+
+   private final ZipFile                zip;
+   private final List<String>           sharedStrings    = new ArrayList<String>();
+   private final List<Boolean>          dateStyles       = new ArrayList<Boolean>();
+   private boolean                      date1904;
+
+   /**
+    * Constructs a reader.
+    *
+    * @param zip
+    *           The .xlsx file.
+    */
+   private XlsxSheetReader(final ZipFile zip)
+   {
+      this.zip = zip;
+   }
+
+   /**
+    * Reads the values of a sheet.
+    *
+    * @param file
+    *           The .xlsx file.
+    * @param sheetIdx
+    *           The index of the sheet, begin from "0".
+    *
+    * @return The values of the sheet, one array per row with as many values as
+    *         the first row has cells.
+    *
+    * @throws IOException
+    *            The file could not be read, or is not a valid .xlsx file.
+    * @throws IllegalArgumentException
+    *            The sheet does not exist, or contains an error value.
+    */
+   static String[][] read(final File file, final int sheetIdx) throws IOException
+   {
+      ZipFile zip = new ZipFile(file);
+      try
+      {
+         XlsxSheetReader reader = new XlsxSheetReader(zip);
+         String sheetPath = reader.readWorkbook(sheetIdx);
+         reader.readSharedStrings();
+         reader.readStyles();
+         return reader.readSheet(sheetPath);
+      }
+      catch (XMLStreamException e)
+      {
+         throw new IOException("The file '" + file.getPath() + "' is not a valid .xlsx file.", e);
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Reads the workbook part: the date system and the part of a sheet.
+    *
+    * @param sheetIdx
+    *           The index of the sheet.
+    *
+    * @return The path of the part of the sheet in the file.
+    */
+   private String readWorkbook(final int sheetIdx) throws IOException, XMLStreamException
+   {
+      String relationshipId = null;
+      int sheetCount = 0;
+      XMLStreamReader reader = open(WORKBOOK);
+      try
+      {
+         while (reader.hasNext())
+         {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT)
+               continue;
+            if ("workbookPr".equals(reader.getLocalName()))
+            {
+               String value = reader.getAttributeValue(null, "date1904");
+               date1904 = "1".equals(value) || "true".equals(value);
+            }
+            else if ("sheet".equals(reader.getLocalName()) && (sheetCount++ == sheetIdx))
+            {
+               relationshipId = reader.getAttributeValue(RELATIONSHIPS_NS, "id");
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      if (null == relationshipId)
+         throw new IllegalArgumentException("Sheet index (" + sheetIdx + ") is out of range (0.."
+               + (sheetCount - 1) + ")");
+
+      reader = open(WORKBOOK_RELS);
+      try
+      {
+         while (reader.hasNext())
+         {
+            if ((reader.next() == XMLStreamConstants.START_ELEMENT)
+                  && relationshipId.equals(reader.getAttributeValue(null, "Id")))
+            {
+               String target = reader.getAttributeValue(null, "Target");
+               return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      throw new IOException("The part of sheet " + sheetIdx + " could not be found.");
+   }
+
+   /**
+    * Reads the shared strings part, if any. The phonetic runs are not part of
+    * a string.
+    */
+   private void readSharedStrings() throws IOException, XMLStreamException
+   {
+      if (null == zip.getEntry(SHARED_STRINGS))
+         return;
+
+      XMLStreamReader reader = open(SHARED_STRINGS);
+      try
+      {
+         StringBuilder text = new StringBuilder();
+         boolean inPhonetic = false;
+         while (reader.hasNext())
+         {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+               if ("si".equals(reader.getLocalName()))
+                  text.setLength(0);
+               else if ("rPh".equals(reader.getLocalName()))
+                  inPhonetic = true;
+               else if ("t".equals(reader.getLocalName()) && !inPhonetic)
+                  text.append(reader.getElementText());
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+               if ("si".equals(reader.getLocalName()))
+                  sharedStrings.add(text.toString());
+               else if ("rPh".equals(reader.getLocalName()))
+                  inPhonetic = false;
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   /**
+    * Reads the styles part, if any, to know which cell formats are dates.
+    */
+   private void readStyles() throws IOException, XMLStreamException
+   {
+      if (null == zip.getEntry(STYLES))
+         return;
+
+      Map<Integer, String> formats = new HashMap<Integer, String>();
+      XMLStreamReader reader = open(STYLES);
+      try
+      {
+         boolean inCellFormats = false;
+         while (reader.hasNext())
+         {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+               if ("numFmt".equals(reader.getLocalName()))
+               {
+                  formats.put(Integer.valueOf(reader.getAttributeValue(null, "numFmtId")),
+                        reader.getAttributeValue(null, "formatCode"));
+               }
+               else if ("cellXfs".equals(reader.getLocalName()))
+               {
+                  inCellFormats = true;
+               }
+               else if (inCellFormats && "xf".equals(reader.getLocalName()))
+               {
+                  String id = reader.getAttributeValue(null, "numFmtId");
+                  int formatId = (null == id) ? 0 : Integer.parseInt(id);
+                  String format = formats.containsKey(formatId) ? formats.get(formatId) : BuiltinFormats
+                        .getBuiltinFormat(formatId);
+                  dateStyles.add(DateUtil.isADateFormat(formatId, format));
+               }
+            }
+            else if ((event == XMLStreamConstants.END_ELEMENT) && "cellXfs".equals(reader.getLocalName()))
+            {
+               inCellFormats = false;
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   /**
+    * Reads the values of the sheet part.
+    *
+    * @param sheetPath
+    *           The path of the part.
+    *
+    * @return The values, one array per row.
+    */
+   private String[][] readSheet(final String sheetPath) throws IOException, XMLStreamException
+   {
+      List<List<String>> rows = new ArrayList<List<String>>();
+      XMLStreamReader reader = open(sheetPath);
+      try
+      {
+         List<String> row = null;
+         int rowIdx = -1;
+         while (reader.hasNext())
+         {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT)
+               continue;
+            if ("row".equals(reader.getLocalName()))
+            {
+               String r = reader.getAttributeValue(null, "r");
+               rowIdx = (null == r) ? rowIdx + 1 : Integer.parseInt(r) - 1;
+               while (rows.size() <= rowIdx)
+                  rows.add(new ArrayList<String>());
+               row = rows.get(rowIdx);
+            }
+            else if ("c".equals(reader.getLocalName()) && (null != row))
+            {
+               String r = reader.getAttributeValue(null, "r");
+               int colIdx = (null == r) ? row.size() : getColumnIndex(r);
+               while (row.size() < colIdx)
+                  row.add("");
+               row.add(readCell(reader));
+            }
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+
+      int colNum = rows.isEmpty() ? 0 : rows.get(0).size();
+      String[][] data = new String[rows.size()][colNum];
+      for (int i = 0; i < data.length; i++)
+      {
+         List<String> row = rows.get(i);
+         for (int j = 0; j < colNum; j++)
+         {
+            data[i][j] = (j < row.size()) ? row.get(j) : "";
+         }
+      }
+      return data;
+   }
+
+   /**
+    * Reads the value of the current "c" element.
+    *
+    * @param reader
+    *           The reader, on the start of the element; it ends on its end.
+    *
+    * @return The value of the cell.
+    */
+   private String readCell(final XMLStreamReader reader) throws XMLStreamException
+   {
+      String type = reader.getAttributeValue(null, "t");
+      String style = reader.getAttributeValue(null, "s");
+      String value = null;
+      StringBuilder inline = new StringBuilder();
+      int depth = 1;
+      while (depth > 0)
+      {
+         int event = reader.next();
+         if (event == XMLStreamConstants.START_ELEMENT)
+         {
+            if ("v".equals(reader.getLocalName()))
+               value = reader.getElementText();
+            else if ("t".equals(reader.getLocalName()))
+               inline.append(reader.getElementText());
+            else
+               depth++;
+         }
+         else if (event == XMLStreamConstants.END_ELEMENT)
+         {
+            depth--;
+         }
+      }
+
+      if ("inlineStr".equals(type))
+         return inline.toString();
+      if ((null == value) || value.isEmpty())
+         return "";
+      if ("s".equals(type))
+         return sharedStrings.get(Integer.parseInt(value));
+      if ("b".equals(type))
+         return String.valueOf("1".equals(value));
+      if ("str".equals(type))
+         return value;
+      if ("e".equals(type))
+         throw new IllegalArgumentException("The data type is not supported.");
+
+      double number = Double.parseDouble(value);
+      int styleIdx = (null == style) ? 0 : Integer.parseInt(style);
+      if ((styleIdx < dateStyles.size()) && dateStyles.get(styleIdx) && DateUtil.isValidExcelDate(number))
+         return new SimpleDateFormat("MM/dd/yyyy").format(DateUtil.getJavaDate(number, date1904));
+      return String.valueOf(number);
+   }
+
+   /**
+    * @param reference
+    *           A cell reference, for example "AB12".
+    *
+    * @return The index of its column, begin from "0".
+    */
+   static int getColumnIndex(final String reference)
+   {
+      int index = 0;
+      for (int i = 0; (i < reference.length()) && Character.isLetter(reference.charAt(i)); i++)
+      {
+         index = (index * 26) + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+      }
+      return index - 1;
+   }
+
+   /**
+    * Opens a part of the file.
+    *
+    * @param name
+    *           The path of the part.
+    *
+    * @return A reader of the part, closing the part when closed.
+    */
+   private XMLStreamReader open(final String name) throws IOException, XMLStreamException
+   {
+      ZipEntry entry = zip.getEntry(name);
+      if (null == entry)
+         throw new IOException("The part '" + name + "' is missing.");
+
+      final InputStream in = new BufferedInputStream(zip.getInputStream(entry));
+      return new StreamReaderDelegate(INPUT_FACTORY.createXMLStreamReader(in))
+      {
+         @Override
+         public void close() throws XMLStreamException
+         {
+            super.close();
+            try
+            {
+               in.close();
+            }
+            catch (IOException e)
+            {
+               // Nothing more to do
+            }
+         }
+      };
+   }
+}
@@ -5,6 +5,7 @@
 package com.sonata.generic.automation.fixture.widget;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.sonata.generic.automation.browser.Browser;
@@ -497,6 +498,30 @@ public abstract class AbstractFixtureWidget implements ModifiableFixtureWidget
       throw new IllegalArgumentException(buildActionExceptionMessage("getCellRowIdxByValue"));
    }
    
+   /**
+    * {@inheritDoc}
+    */
+   public int getCellRowIdxByValues(final int[] columnIdxs, final String[] values, final String matchMode)
+   {
+      throw new IllegalArgumentException(buildActionExceptionMessage("getCellRowIdxByValues"));
+   }
+   
+   /**
+    * {@inheritDoc}
+    */
+   public List<String[]> readRows(final String[] columnNames)
+   {
+      throw new IllegalArgumentException(buildActionExceptionMessage("readRows"));
+   }
+   
+   /**
+    * {@inheritDoc}
+    */
+   public List<CellEditResult> editCells(final List<CellEdit> edits)
+   {
+      throw new IllegalArgumentException(buildActionExceptionMessage("editCells"));
+   }
+   
    /**
     * {@inheritDoc}
     */
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.widget;
+
+/**
+ * The <code>CellEdit</code> class describes one edit of a cell of a table, to
+ * be applied with other edits by {@link FixtureWidget#editCells(java.util.List)}.
+ * Instances are immutable.
+ */
+public final class CellEdit
+{
+   /**
+    * The <code>Kind</code> enumerates how the value is entered in the cell.
+    */
+   public static enum Kind
+   {
+      /** Typed into the text box of the cell */
+      TYPE,
+
+      /** Selected from the comboBox of the cell */
+      SELECT
+   }
+
+   private final int    rowIndex;
+   private final int    columnIdx;
+   private final String value;
+   private final Kind   kind;
+
+   /**
+    * Constructs an instance of the {@link CellEdit} class.
+    *
+    * @param rowIndex
+    *           the 1-based index of the row
+    * @param columnIdx
+    *           the 1-based index of the column
+    * @param value
+    *           the value to enter
+    * @param kind
+    *           how the value is entered
+    */
+   public CellEdit(final int rowIndex, final int columnIdx, final String value, final Kind kind)
+   {
+      this.rowIndex = rowIndex;
+      this.columnIdx = columnIdx;
+      this.value = value;
+      this.kind = kind;
+   }
+
+   /**
+    * Creates an edit typing a value into a cell.
+    *
+    * @param rowIndex
+    *           the 1-based index of the row
+    * @param columnIdx
+    *           the 1-based index of the column
+    * @param value
+    *           the value to type
+    * @return the edit
+    */
+   public static CellEdit type(final int rowIndex, final int columnIdx, final String value)
+   {
+      return new CellEdit(rowIndex, columnIdx, value, Kind.TYPE);
+   }
+
+   /**
+    * Creates an edit selecting a value from the comboBox of a cell.
+    *
+    * @param rowIndex
+    *           the 1-based index of the row
+    * @param columnIdx
+    *           the 1-based index of the column
+    * @param value
+    *           the option to select
+    * @return the edit
+    */
+   public static CellEdit select(final int rowIndex, final int columnIdx, final String value)
+   {
+      return new CellEdit(rowIndex, columnIdx, value, Kind.SELECT);
+   }
+
+   /**
+    * @return the 1-based index of the row
+    */
+   public int getRowIndex()
+   {
+      return rowIndex;
+   }
+
+   /**
+    * @return the 1-based index of the column
+    */
+   public int getColumnIdx()
+   {
+      return columnIdx;
+   }
+
+   /**
+    * @return the value to enter
+    */
+   public String getValue()
+   {
+      return value;
+   }
+
+   /**
+    * @return how the value is entered
+    */
+   public Kind getKind()
+   {
+      return kind;
+   }
+
+   @Override
+   public String toString()
+   {
+      return kind + " '" + value + "' at (" + rowIndex + ", " + columnIdx + ")";
+   }
+}
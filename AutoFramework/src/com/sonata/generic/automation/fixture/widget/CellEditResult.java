@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.widget;
+
+/**
+ * The <code>CellEditResult</code> class holds what the table shows in a cell
+ * once a batch of {@link CellEdit}s is applied. Instances are immutable.
+ */
+public final class CellEditResult
+{
+   /**
+    * The <code>Status</code> enumerates what became of the value entered.
+    */
+   public static enum Status
+   {
+      /** The cell shows the value entered */
+      ACCEPTED,
+
+      /** The cell shows another value, which the application put instead */
+      REWRITTEN,
+
+      /** The cell kept its previous value, or could not be read */
+      REJECTED
+   }
+
+   private final CellEdit edit;
+   private final String   text;
+   private final Status   status;
+   private final String   failure;
+
+   /**
+    * Constructs an instance of the {@link CellEditResult} class.
+    *
+    * @param edit
+    *           the edit
+    * @param text
+    *           the text shown in the cell after the batch, null if the cell
+    *           could not be read
+    * @param status
+    *           what became of the value entered
+    * @param failure
+    *           why the value could not be entered, null if it was
+    */
+   CellEditResult(final CellEdit edit, final String text, final Status status, final String failure)
+   {
+      this.edit = edit;
+      this.text = text;
+      this.status = status;
+      this.failure = failure;
+   }
+
+   /**
+    * Works out what became of a value entered in a cell, from the texts of the
+    * cell before and after the batch only: an application rewriting the value,
+    * such as a masked input showing "1,000" for "1000", is not taken for a
+    * rejection.
+    *
+    * @param edit
+    *           the edit
+    * @param before
+    *           the text of the cell before the batch, null if unknown
+    * @param after
+    *           the text of the cell after the batch, null if unknown
+    * @param failure
+    *           why the value could not be entered, null if it was
+    * @return the result
+    */
+   static CellEditResult of(final CellEdit edit, final String before, final String after, final String failure)
+   {
+      final Status status;
+      if (after != null && after.trim().equalsIgnoreCase(edit.getValue().trim()))
+      {
+         status = Status.ACCEPTED;
+      }
+      else if (after == null || after.equals(before))
+      {
+         status = Status.REJECTED;
+      }
+      else
+      {
+         status = Status.REWRITTEN;
+      }
+      return new CellEditResult(edit, after, status, failure);
+   }
+
+   /**
+    * @return the edit
+    */
+   public CellEdit getEdit()
+   {
+      return edit;
+   }
+
+   /**
+    * @return the text shown in the cell after the batch, null if the cell could
+    *         not be read
+    */
+   public String getText()
+   {
+      return text;
+   }
+
+   /**
+    * @return why the value could not be entered, null if it was
+    */
+   public String getFailure()
+   {
+      return failure;
+   }
+
+   /**
+    * @return what became of the value entered
+    */
+   public Status getStatus()
+   {
+      return status;
+   }
+
+   /**
+    * @return <li><code>true</code> if the cell shows the value entered.</li>
+    *         <li><code>false</code> otherwise.</li>
+    */
+   public boolean isAccepted()
+   {
+      return status == Status.ACCEPTED;
+   }
+
+   @Override
+   public String toString()
+   {
+      return edit + " " + status.name().toLowerCase() + (status == Status.ACCEPTED ? "" : ", shows '" + text + "'")
+            + (failure == null || status == Status.ACCEPTED ? "" : " (" + failure + ")");
+   }
+}
@@ -110,6 +110,21 @@ public final class DefaultFixtureWidgetFactory implements FixtureWidgetFactory
          this.browser = browserFactory.createSpecifiedBrowser(browserSettings);
    }
 
+   /**
+    * Tells whether fixture widgets can be created for a widget type, so the
+    * layout maps can be validated without a browser.
+    * 
+    * @param widgetType
+    *           The type of the widget, as found in the layout map.
+    * 
+    * @return <li><code>true</code> if the type is supported for FitNesse
+    *         tests.</li> <li><code>false</code> otherwise.</li>
+    */
+   public static boolean isSupportedWidgetType(final String widgetType)
+   {
+      return CREATORS_BY_TYPE.containsKey(widgetType);
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -4,7 +4,10 @@
 
 package com.sonata.generic.automation.fixture.widget;
 
+import java.util.List;
+
 import com.sonata.generic.automation.browser.Browser;
+import com.sonata.generic.automation.widgets.ColumnHeaders;
 import com.sonata.generic.automation.widgets.OnePageTable;
 import com.sonata.generic.automation.widgets.Widget;
 
@@ -243,6 +246,15 @@ public final class FixtureOnePageTable extends AbstractFixtureWidget
       return table.getCellRowIdxByValue(columnIdx, value);
    }
    
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public List<String[]> readRows(final String[] columnNames)
+   {
+      return table.readRows(ColumnHeaders.indexesOf(table, columnNames));
+   }
+   
    /**
     * {@inheritDoc}
     */
@@ -4,8 +4,15 @@
 
 package com.sonata.generic.automation.fixture.widget;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.sonata.generic.automation.browser.Browser;
+import com.sonata.generic.automation.widgets.ColumnHeaders;
+import com.sonata.generic.automation.widgets.MatchMode;
 import com.sonata.generic.automation.widgets.Table;
+import com.sonata.generic.automation.widgets.TableSearchResult;
+import com.sonata.generic.automation.widgets.TableSnapshot;
 import com.sonata.generic.automation.widgets.Widget;
 
 /**
@@ -131,6 +138,7 @@ public final class FixtureTable extends AbstractFixtureWidget
    @Override
    public boolean clickCell(final int rowIndex, final int columnIdx)
    {
+      table.invalidateSnapshot();
       return table.getField(rowIndex, columnIdx).click();
    }
    
@@ -154,6 +162,8 @@ public final class FixtureTable extends AbstractFixtureWidget
       // Just use clickCell(), sometimes it will lose focus on certain browser
       // Just use click() of javascript, it will clear the previous cell's content if which is not tab out
       // Use both clickCell() and click() of javascript to make sure the cell is reliably activated.
+      // The cell is about to be edited, so the values indexed by the searches may change
+      table.invalidateIndex();
       this.clickCell(rowIndex, columnIdx);
       
       int rowIdxInJavaScript = rowIndex -1;
@@ -244,12 +254,113 @@ public final class FixtureTable extends AbstractFixtureWidget
       return table.getCellRowIdxByValue(columnIdx, value);
    }
    
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getCellRowIdxByValues(final int[] columnIdxs, final String[] values, final String matchMode)
+   {
+      TableSearchResult result = table.findRow(columnIdxs, values, MatchMode.fromName(matchMode));
+      System.out.println("Search in table " + this.getLocator() + ": " + result);
+      return result.getRow();
+   }
+   
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public List<String[]> readRows(final String[] columnNames)
+   {
+      return table.readRows(ColumnHeaders.indexesOf(table, columnNames));
+   }
+   
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public List<CellEditResult> editCells(final List<CellEdit> edits)
+   {
+      TableSnapshot before = this.getSnapshot();
+      String[] failures = new String[edits.size()];
+      for (int i = 0; i < edits.size(); i++)
+      {
+         failures[i] = this.applyEdit(edits.get(i));
+      }
+      
+      // Validate all the edits with one read of the page
+      table.invalidateSnapshot();
+      TableSnapshot after = this.getSnapshot();
+      List<CellEditResult> results = new ArrayList<CellEditResult>(edits.size());
+      for (int i = 0; i < edits.size(); i++)
+      {
+         CellEdit edit = edits.get(i);
+         results.add(CellEditResult.of(edit, getSnapshotText(before, edit), getSnapshotText(after, edit), failures[i]));
+      }
+      return results;
+   }
+   
+   /**
+    * Enters the value of an edit in its cell, without reading the cell back.
+    * 
+    * @param edit
+    *           the edit
+    * @return null if the value was entered, otherwise why it could not be
+    */
+   private String applyEdit(final CellEdit edit)
+   {
+      int rowIndex = edit.getRowIndex();
+      int columnIdx = edit.getColumnIdx();
+      try
+      {
+         if (!this.clickCellByJavaScript(rowIndex, columnIdx))
+         {
+            return "the cell could not be clicked";
+         }
+         
+         if (edit.getKind() == CellEdit.Kind.SELECT)
+         {
+            return table.getComboBoxField(rowIndex, columnIdx).selectComboBox(edit.getValue(), false) ? null
+                  : "the option could not be selected";
+         }
+         return table.getTextBoxField(rowIndex, columnIdx).enterIntoCell(edit.getValue()) ? null
+               : "the cell could not be typed in";
+      }
+      catch (RuntimeException e)
+      {
+         return e.getMessage();
+      }
+   }
+   
+   /**
+    * @param snapshot
+    *           a snapshot of the page, may be null
+    * @param edit
+    *           an edit
+    * @return the text of the cell of the edit, or null if it is not in the
+    *         snapshot
+    */
+   private static String getSnapshotText(final TableSnapshot snapshot, final CellEdit edit)
+   {
+      if (snapshot == null || !snapshot.hasCell(edit.getRowIndex(), edit.getColumnIdx()))
+      {
+         return null;
+      }
+      return snapshot.getText(edit.getRowIndex(), edit.getColumnIdx());
+   }
+   
    /**
     * {@inheritDoc}
     */
    @Override
    public String getCellText(final String columnName, final int rowIndex)
    {
+      TableSnapshot snapshot = this.getSnapshot();
+      int columnIdx = table.getIndexOfColumn(columnName);
+      if (snapshot != null && snapshot.hasCell(rowIndex, columnIdx))
+      {
+         return snapshot.getText(rowIndex, columnIdx);
+      }
+      
       if(table.getField(columnName, rowIndex) != null)
       {
          return table.getField(columnName, rowIndex).getText();
@@ -265,6 +376,12 @@ public final class FixtureTable extends AbstractFixtureWidget
    @Override
    public String getCellText(final int rowIndex, final int columnIdx)
    {
+      TableSnapshot snapshot = this.getSnapshot();
+      if (snapshot != null && snapshot.hasCell(rowIndex, columnIdx))
+      {
+         return snapshot.getText(rowIndex, columnIdx);
+      }
+      
       if(table.getField(rowIndex, columnIdx) != null )
       {
          return table.getField(rowIndex, columnIdx).getText();
@@ -408,8 +525,36 @@ public final class FixtureTable extends AbstractFixtureWidget
    @Override
    public boolean isCellDataPresent(final int columnIndex, final int rowIndex)
    {
+      // Same as Table.isCellDataPresent, the row index is zero based here
+      TableSnapshot snapshot = this.getSnapshot();
+      if (snapshot != null && snapshot.hasCell(rowIndex + 1, columnIndex))
+      {
+         String text = snapshot.getText(rowIndex + 1, columnIndex);
+         return !text.equals("");
+      }
       return table.isCellDataPresent(columnIndex, rowIndex);
    }
+   
+   /**
+    * Gets the snapshot of the current page of the table, which serves the
+    * reads until an action on the table invalidates it.
+    * 
+    * @return the snapshot, or null if it cannot be read, in which case the
+    *         cells are read one by one
+    */
+   private TableSnapshot getSnapshot()
+   {
+      try
+      {
+         return table.getSnapshot();
+      }
+      catch (RuntimeException e)
+      {
+         // e.g. a script error or an alert in the way
+         System.out.println(e.getMessage());
+         return null;
+      }
+   }
  
    
    /**
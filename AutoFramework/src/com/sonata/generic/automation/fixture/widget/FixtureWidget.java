@@ -4,6 +4,7 @@
 
 package com.sonata.generic.automation.fixture.widget;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -306,6 +307,44 @@ public interface FixtureWidget
     */
    int getCellRowIdxByValue(final int columnIdx, final String value);
    
+   /**
+    * Returns the row index of the first row whose key columns match the given
+    * values, searching all the pages and leaving the table on the page found.
+    * 
+    * @param columnIdxs
+    *           the indexes of the key columns
+    * @param values
+    *           the searched values, one per key column
+    * @param matchMode
+    *           exact, prefix or contains; exact if null or empty
+    * 
+    * @return the row index, or -1 if no row matches
+    */
+   int getCellRowIdxByValues(final int[] columnIdxs, final String[] values, final String matchMode);
+   
+   /**
+    * Reads the text of the given columns on all the rows of all the pages of
+    * this widget, as a dataset to compare with an expected one.
+    * 
+    * @param columnNames
+    *           the headings, or the ids, of the columns to read
+    * 
+    * @return one array of texts per row, the texts in the order of the columns
+    */
+   List<String[]> readRows(final String[] columnNames);
+   
+   /**
+    * Applies edits to cells of this widget in the given order, then reads the
+    * widget once to tell which values were kept, rewritten or rejected by the
+    * application. The cells are not read back one by one.
+    * 
+    * @param edits
+    *           the edits
+    * 
+    * @return one result per edit, in the same order
+    */
+   List<CellEditResult> editCells(final List<CellEdit> edits);
+   
    /**
     * Gets the text of the specified cell in this widget, or returns null if the
     * cell cannot be located or is invisible.
@@ -0,0 +1,928 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Compares an expected and an actual CSV file of any size, such as two exports
+ * of a report, and gives the rows added, removed and changed as a
+ * {@link CSVDiff}. The values are compared after trimming. Two modes are
+ * supported:
+ * </p>
+ * <ul>
+ * <li>positional, without key columns: row N of the expected file is compared
+ * with row N of the actual one. The files are read in chunks of rows, and the
+ * chunks are compared in parallel.</li>
+ * <li>keyed, with key columns: the rows are paired by the values of the key
+ * columns, whatever their order. The rows of the actual file are held in a hash
+ * table; when they would not fit in the memory limit, both files are first
+ * split into partitions of keys on disk, and the partitions are compared in
+ * parallel.</li>
+ * </ul>
+ * <p>
+ * The memory used is bounded whatever the size of the files: only chunks (or
+ * partitions) of rows are in memory at a time, and only the first differences
+ * are kept.
+ * </p>
+ */
+public final class CSVCompare
+{
+   /** Default number of rows of a chunk in the positional mode */
+   public static final int   DEFAULT_CHUNK_ROWS   = 5000;
+
+   /** Default number of bytes the rows held in memory may take */
+   public static final long  DEFAULT_MEMORY_LIMIT = 64L * 1024 * 1024;
+
+   /** Approximate number of bytes a byte of a CSV file takes once parsed */
+   private static final int  MEMORY_PER_BYTE      = 6;
+
+   /** Most partitions the files are split into */
+   private static final int  MAX_PARTITIONS       = 512;
+
+   /** Separates the values of the keys */
+   private static final char SEPARATOR            = '\u0000';
+
+   private String[]          keyColumns           = new String[0];
+   private String[]          ignoredColumns       = new String[0];
+   private boolean           header               = true;
+   private boolean           ignoreCase;
+   private boolean           ignoreDatesAndTimes;
+   private int               threads              = Runtime.getRuntime().availableProcessors();
+   private int               chunkRows            = DEFAULT_CHUNK_ROWS;
+   private long              memoryLimit          = DEFAULT_MEMORY_LIMIT;
+   private int               maxKept              = CSVDiff.DEFAULT_MAX_KEPT;
+   private File              spillDirectory;
+
+   /**
+    * @param keyColumns
+    *           the names of the key columns; none to compare the rows by
+    *           position
+    */
+   public void setKeyColumns(final String... keyColumns)
+   {
+      this.keyColumns = keyColumns.clone();
+   }
+
+   /**
+    * @param ignoredColumns
+    *           the names of the columns not compared
+    */
+   public void setIgnoredColumns(final String... ignoredColumns)
+   {
+      this.ignoredColumns = ignoredColumns.clone();
+   }
+
+   /**
+    * @param header
+    *           whether the first row of the files holds the names of the
+    *           columns (the default). Without header, the columns are named by
+    *           their number, from 1.
+    */
+   public void setHeader(final boolean header)
+   {
+      this.header = header;
+   }
+
+   /**
+    * @param ignoreCase
+    *           whether the values other than the keys are compared ignoring
+    *           case
+    */
+   public void setIgnoreCase(final boolean ignoreCase)
+   {
+      this.ignoreCase = ignoreCase;
+   }
+
+   /**
+    * @param ignoreDatesAndTimes
+    *           whether the expected values holding a / or a : are skipped, as
+    *           {@link CSVHelper#compareTwoCSVFile(String, String)} does
+    */
+   public void setIgnoreDatesAndTimes(final boolean ignoreDatesAndTimes)
+   {
+      this.ignoreDatesAndTimes = ignoreDatesAndTimes;
+   }
+
+   /**
+    * @param threads
+    *           the number of threads comparing the rows, by default the number
+    *           of processors
+    */
+   public void setThreads(final int threads)
+   {
+      this.threads = Math.max(1, threads);
+   }
+
+   /**
+    * @param chunkRows
+    *           the number of rows of a chunk in the positional mode
+    */
+   public void setChunkRows(final int chunkRows)
+   {
+      this.chunkRows = Math.max(1, chunkRows);
+   }
+
+   /**
+    * @param memoryLimit
+    *           the approximate number of bytes the rows held in memory may
+    *           take, beyond which the keyed mode splits the files on disk
+    */
+   public void setMemoryLimit(final long memoryLimit)
+   {
+      this.memoryLimit = memoryLimit;
+   }
+
+   /**
+    * @param maxKept
+    *           the number of differences kept in the diff; the others are
+    *           only counted
+    */
+   public void setMaxKept(final int maxKept)
+   {
+      this.maxKept = maxKept;
+   }
+
+   /**
+    * @param spillDirectory
+    *           the directory of the partitions of the keyed mode, by default
+    *           the temporary directory
+    */
+   public void setSpillDirectory(final File spillDirectory)
+   {
+      this.spillDirectory = spillDirectory;
+   }
+
+   /**
+    * Compares two CSV files, opened as {@link CSVReader#open(String)} does.
+    *
+    * @param expectedFile
+    *           Path of expected CSV file
+    * @param actualFile
+    *           Path of actual CSV file
+    * @return the differences
+    * @throws IOException
+    *            if a file cannot be read, or the partitions cannot be written
+    * @throws IllegalArgumentException
+    *            if a key or ignored column is not in the expected file
+    */
+   public CSVDiff compare(final String expectedFile, final String actualFile) throws IOException
+   {
+      final CSVDiff diff = new CSVDiff(maxKept);
+      final CSVReader expected = CSVReader.open(expectedFile);
+      try
+      {
+         final CSVReader actual = CSVReader.open(actualFile);
+         try
+         {
+            String[] columns = null;
+            String[] actualColumns = null;
+            if (header)
+            {
+               columns = readHeader(expected);
+               actualColumns = readHeader(actual);
+            }
+            final Columns layout = new Columns(columns, resolve(columns, keyColumns), ignoredColumns);
+            if (header)
+            {
+               compareCells(layout, 0, null, columns, actualColumns, diff);
+            }
+            if (layout.keys.length == 0)
+            {
+               comparePositional(layout, expected, actual, diff);
+            }
+            else
+            {
+               final long size = new File(actualFile).length() * MEMORY_PER_BYTE;
+               if (size <= memoryLimit)
+               {
+                  compareKeyed(layout, expected, actual, diff);
+               }
+               else
+               {
+                  compareSpilled(layout, expected, actual, diff,
+                        (int)Math.min(MAX_PARTITIONS, (size / Math.max(1, memoryLimit / threads)) + 1));
+               }
+            }
+         }
+         finally
+         {
+            actual.close();
+         }
+      }
+      finally
+      {
+         expected.close();
+      }
+      return diff;
+   }
+
+   /**
+    * Compares the rows by position, one chunk of rows after the other. While
+    * the chunks already read are compared by the pool, the next chunk of the
+    * expected file is read by this thread, and that of the actual file by
+    * another one.
+    *
+    * @param layout
+    *           the columns
+    * @param expected
+    *           the expected file, after its header
+    * @param actual
+    *           the actual file, after its header
+    * @param diff
+    *           the differences found
+    */
+   private void comparePositional(final Columns layout, final CSVReader expected, final CSVReader actual,
+         final CSVDiff diff) throws IOException
+   {
+      final ExecutorService reader = Executors.newSingleThreadExecutor();
+      final ExecutorService pool = Executors.newFixedThreadPool(threads);
+      final Queue<Future<CSVDiff>> pending = new ArrayDeque<Future<CSVDiff>>();
+      try
+      {
+         long row = 0;
+         while (true)
+         {
+            final Future<List<String[]>> actualChunk = reader.submit(new Callable<List<String[]>>()
+            {
+               @Override
+               public List<String[]> call() throws IOException
+               {
+                  return readChunk(actual);
+               }
+            });
+            final List<String[]> expectedRows = readChunk(expected);
+            final List<String[]> actualRows = get(actualChunk);
+            if (expectedRows.isEmpty() && actualRows.isEmpty())
+            {
+               break;
+            }
+
+            final long first = row + 1;
+            row += Math.max(expectedRows.size(), actualRows.size());
+            pending.add(pool.submit(new Callable<CSVDiff>()
+            {
+               @Override
+               public CSVDiff call()
+               {
+                  final CSVDiff part = new CSVDiff(maxKept);
+                  compareChunk(layout, first, expectedRows, actualRows, part);
+                  return part;
+               }
+            }));
+            // Bounds the chunks in memory
+            if (pending.size() > threads)
+            {
+               diff.addAll(get(pending.remove()));
+            }
+         }
+         while (!pending.isEmpty())
+         {
+            diff.addAll(get(pending.remove()));
+         }
+      }
+      finally
+      {
+         reader.shutdownNow();
+         pool.shutdownNow();
+      }
+   }
+
+   /**
+    * Compares a chunk of rows by position.
+    *
+    * @param layout
+    *           the columns
+    * @param first
+    *           the number of the first row of the chunk
+    * @param expected
+    *           the expected rows
+    * @param actual
+    *           the actual rows
+    * @param diff
+    *           the differences found
+    */
+   private void compareChunk(final Columns layout, final long first, final List<String[]> expected,
+         final List<String[]> actual, final CSVDiff diff)
+   {
+      for (int i = 0; i < expected.size(); i++)
+      {
+         if (i >= actual.size())
+         {
+            diff.add(new CSVDiff.Difference(CSVDiff.Type.REMOVED, first + i, null, null, format(expected.get(i)), null));
+         }
+         else
+         {
+            diff.countRow(compareCells(layout, first + i, null, expected.get(i), actual.get(i), diff));
+         }
+      }
+      for (int i = expected.size(); i < actual.size(); i++)
+      {
+         diff.add(new CSVDiff.Difference(CSVDiff.Type.ADDED, first + i, null, null, null, format(actual.get(i))));
+      }
+   }
+
+   /**
+    * Compares the rows paired by their keys, the actual rows held in memory.
+    *
+    * @param layout
+    *           the columns
+    * @param expected
+    *           the expected file, after its header
+    * @param actual
+    *           the actual file, after its header
+    * @param diff
+    *           the differences found
+    */
+   private void compareKeyed(final Columns layout, final CSVReader expected, final CSVReader actual,
+         final CSVDiff diff) throws IOException
+   {
+      final Map<String, Queue<KeyedRow>> actualByKey = new LinkedHashMap<String, Queue<KeyedRow>>();
+      long row = 0;
+      while (actual.next())
+      {
+         final String[] values = actual.getRecord();
+         addActual(actualByKey, layout.key(values), new KeyedRow(++row, values));
+      }
+
+      row = 0;
+      while (expected.next())
+      {
+         final String[] values = expected.getRecord();
+         compareExpected(layout, actualByKey, ++row, values, diff);
+      }
+      reportAdded(layout, actualByKey, diff);
+   }
+
+   /**
+    * Compares the rows paired by their keys, both files split on disk into
+    * partitions of keys first.
+    *
+    * @param layout
+    *           the columns
+    * @param expected
+    *           the expected file, after its header
+    * @param actual
+    *           the actual file, after its header
+    * @param diff
+    *           the differences found
+    * @param partitions
+    *           the number of partitions
+    */
+   private void compareSpilled(final Columns layout, final CSVReader expected, final CSVReader actual,
+         final CSVDiff diff, final int partitions) throws IOException
+   {
+      final File directory = File.createTempFile("csvcompare", "", spillDirectory);
+      if (!directory.delete() || !directory.mkdir())
+      {
+         throw new IOException("Unable to create the directory " + directory);
+      }
+      final ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try
+      {
+         final File[] expectedParts = split(layout, expected, directory, "expected", partitions);
+         final File[] actualParts = split(layout, actual, directory, "actual", partitions);
+
+         final List<Future<CSVDiff>> results = new ArrayList<Future<CSVDiff>>();
+         for (int p = 0; p < partitions; p++)
+         {
+            final File expectedPart = expectedParts[p];
+            final File actualPart = actualParts[p];
+            results.add(pool.submit(new Callable<CSVDiff>()
+            {
+               @Override
+               public CSVDiff call() throws IOException
+               {
+                  final CSVDiff part = new CSVDiff(maxKept);
+                  comparePartition(layout, expectedPart, actualPart, part);
+                  return part;
+               }
+            }));
+         }
+         for (Future<CSVDiff> result : results)
+         {
+            diff.addAll(get(result));
+         }
+      }
+      finally
+      {
+         pool.shutdownNow();
+         final File[] files = directory.listFiles();
+         for (int i = 0; files != null && i < files.length; i++)
+         {
+            files[i].delete();
+         }
+         directory.delete();
+      }
+   }
+
+   /**
+    * Compares a partition of keys. Each row of a partition file is preceded by
+    * its number in the CSV file.
+    *
+    * @param layout
+    *           the columns
+    * @param expectedPart
+    *           the partition of the expected file
+    * @param actualPart
+    *           the partition of the actual file
+    * @param diff
+    *           the differences found
+    */
+   private void comparePartition(final Columns layout, final File expectedPart, final File actualPart,
+         final CSVDiff diff) throws IOException
+   {
+      final Map<String, Queue<KeyedRow>> actualByKey = new LinkedHashMap<String, Queue<KeyedRow>>();
+      CSVReader reader = CSVReader.open(actualPart.getPath(), "UTF-8");
+      try
+      {
+         while (reader.next())
+         {
+            final String[] values = withoutNumber(reader);
+            addActual(actualByKey, layout.key(values),
+                  new KeyedRow(Long.parseLong(reader.get(0)), values));
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+
+      reader = CSVReader.open(expectedPart.getPath(), "UTF-8");
+      try
+      {
+         while (reader.next())
+         {
+            compareExpected(layout, actualByKey, Long.parseLong(reader.get(0)), withoutNumber(reader), diff);
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      reportAdded(layout, actualByKey, diff);
+   }
+
+   /**
+    * Splits the rows of a file into partitions of keys.
+    *
+    * @param layout
+    *           the columns
+    * @param in
+    *           the file, after its header
+    * @param directory
+    *           the directory of the partitions
+    * @param prefix
+    *           the prefix of the names of the partitions
+    * @param partitions
+    *           the number of partitions
+    * @return the partition files
+    */
+   private static File[] split(final Columns layout, final CSVReader in, final File directory, final String prefix,
+         final int partitions) throws IOException
+   {
+      final File[] files = new File[partitions];
+      final Writer[] out = new Writer[partitions];
+      try
+      {
+         for (int p = 0; p < partitions; p++)
+         {
+            files[p] = new File(directory, prefix + p + ".csv");
+            out[p] = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(files[p]), "UTF-8"), 8192);
+         }
+         long row = 0;
+         while (in.next())
+         {
+            final String[] values = in.getRecord();
+            final Writer part = out[(layout.key(values).hashCode() & Integer.MAX_VALUE) % partitions];
+            part.write(Long.toString(++row));
+            for (String value : values)
+            {
+               part.write(",\"");
+               part.write(value.replace("\"", "\"\""));
+               part.write('"');
+            }
+            part.write("\r\n");
+         }
+      }
+      finally
+      {
+         for (Writer part : out)
+         {
+            if (part != null)
+            {
+               part.close();
+            }
+         }
+      }
+      return files;
+   }
+
+   /**
+    * Adds an actual row to the table of the rows by key, after the rows of the
+    * same key already read.
+    *
+    * @param actualByKey
+    *           the actual rows by key, in the order of the file
+    * @param key
+    *           the key of the row
+    * @param row
+    *           the row
+    */
+   private static void addActual(final Map<String, Queue<KeyedRow>> actualByKey, final String key,
+         final KeyedRow row)
+   {
+      Queue<KeyedRow> rows = actualByKey.get(key);
+      if (rows == null)
+      {
+         rows = new ArrayDeque<KeyedRow>(1);
+         actualByKey.put(key, rows);
+      }
+      rows.add(row);
+   }
+
+   /**
+    * Compares an expected row with the first actual row of the same key not
+    * yet paired, which is removed from the table. The rows of a key repeated
+    * in both files are so paired in the order of the files.
+    *
+    * @param layout
+    *           the columns
+    * @param actualByKey
+    *           the actual rows by key
+    * @param row
+    *           the number of the expected row
+    * @param values
+    *           the expected row
+    * @param diff
+    *           the differences found
+    */
+   private void compareExpected(final Columns layout, final Map<String, Queue<KeyedRow>> actualByKey,
+         final long row, final String[] values, final CSVDiff diff)
+   {
+      final String key = layout.key(values);
+      final Queue<KeyedRow> rows = actualByKey.get(key);
+      final KeyedRow match = (rows == null) ? null : rows.poll();
+      if (rows != null && rows.isEmpty())
+      {
+         actualByKey.remove(key);
+      }
+      if (match == null)
+      {
+         diff.add(new CSVDiff.Difference(CSVDiff.Type.REMOVED, row, layout.formatKey(values), null, format(values),
+               null));
+      }
+      else
+      {
+         diff.countRow(compareCells(layout, row, layout.formatKey(values), values, match.values, diff));
+      }
+   }
+
+   /**
+    * Reports the actual rows left in the table as added.
+    *
+    * @param layout
+    *           the columns
+    * @param actualByKey
+    *           the actual rows by key
+    * @param diff
+    *           the differences found
+    */
+   private static void reportAdded(final Columns layout, final Map<String, Queue<KeyedRow>> actualByKey,
+         final CSVDiff diff)
+   {
+      for (Queue<KeyedRow> rows : actualByKey.values())
+      {
+         for (KeyedRow row : rows)
+         {
+            diff.add(new CSVDiff.Difference(CSVDiff.Type.ADDED, row.row, layout.formatKey(row.values), null, null,
+                  format(row.values)));
+         }
+      }
+   }
+
+   /**
+    * Compares the cells of two paired rows.
+    *
+    * @param layout
+    *           the columns
+    * @param row
+    *           the number of the expected row
+    * @param key
+    *           the formatted key of the rows, or null
+    * @param expected
+    *           the expected row
+    * @param actual
+    *           the actual row
+    * @param diff
+    *           the differences found
+    * @return <li><code>True </code>if cells were changed</li> <li>
+    *         <code>False </code>otherwise</li>
+    */
+   private boolean compareCells(final Columns layout, final long row, final String key, final String[] expected,
+         final String[] actual, final CSVDiff diff)
+   {
+      boolean changed = false;
+      final int count = Math.max(expected.length, actual.length);
+      for (int c = 0; c < count; c++)
+      {
+         if (layout.isIgnored(c))
+         {
+            continue;
+         }
+         final String expectedValue = cell(expected, c);
+         if (ignoreDatesAndTimes && (expectedValue.indexOf('/') >= 0 || expectedValue.indexOf(':') >= 0))
+         {
+            continue;
+         }
+         final String actualValue = cell(actual, c);
+         if (ignoreCase ? !expectedValue.equalsIgnoreCase(actualValue) : !expectedValue.equals(actualValue))
+         {
+            diff.add(new CSVDiff.Difference(CSVDiff.Type.CHANGED, row, key, layout.name(c), expectedValue,
+                  actualValue));
+            changed = true;
+         }
+      }
+      return changed;
+   }
+
+   /**
+    * @param in
+    *           a file
+    * @return the next rows of the file, none at its end
+    */
+   private List<String[]> readChunk(final CSVReader in) throws IOException
+   {
+      final List<String[]> rows = new ArrayList<String[]>(chunkRows);
+      while (rows.size() < chunkRows && in.next())
+      {
+         rows.add(in.getRecord());
+      }
+      return rows;
+   }
+
+   /**
+    * @param in
+    *           a partition file
+    * @return the values of the current row, without its number
+    */
+   private static String[] withoutNumber(final CSVReader in)
+   {
+      final String[] values = new String[in.getFieldCount() - 1];
+      for (int i = 0; i < values.length; i++)
+      {
+         values[i] = in.get(i + 1);
+      }
+      return values;
+   }
+
+   /**
+    * Waits for the result of a task.
+    *
+    * @param future
+    *           the task
+    * @return its result
+    * @throws IOException
+    *            if the task failed to read or write a file, or the thread was
+    *            interrupted
+    */
+   private static <T> T get(final Future<T> future) throws IOException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while comparing the CSV files.");
+      }
+      catch (ExecutionException e)
+      {
+         final Throwable cause = e.getCause();
+         if (cause instanceof IOException)
+         {
+            throw (IOException)cause;
+         }
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException)cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error)cause;
+         }
+         throw new IllegalStateException(cause);
+      }
+   }
+
+   /**
+    * @param columns
+    *           the names of the columns, or null without header
+    * @param names
+    *           names of columns
+    * @return the indexes of the columns
+    * @throws IllegalArgumentException
+    *            if a column is not found
+    */
+   private static int[] resolve(final String[] columns, final String[] names)
+   {
+      final int[] indexes = new int[names.length];
+      for (int i = 0; i < names.length; i++)
+      {
+         final String name = names[i].trim();
+         if (columns != null)
+         {
+            indexes[i] = Arrays.asList(columns).indexOf(name);
+         }
+         else if (name.matches("[0-9]+"))
+         {
+            indexes[i] = Integer.parseInt(name) - 1;
+         }
+         else
+         {
+            indexes[i] = -1;
+         }
+         if (indexes[i] < 0)
+         {
+            throw new IllegalArgumentException("The expected file has no column " + names[i]);
+         }
+      }
+      return indexes;
+   }
+
+   /**
+    * @param in
+    *           a file
+    * @return the trimmed names of the columns, none if the file is empty
+    */
+   private static String[] readHeader(final CSVReader in) throws IOException
+   {
+      final String[] columns = in.readHeader();
+      return (columns == null) ? new String[0] : trim(columns);
+   }
+
+   /**
+    * @param values
+    *           values, trimmed in place
+    * @return the values
+    */
+   private static String[] trim(final String[] values)
+   {
+      for (int i = 0; i < values.length; i++)
+      {
+         values[i] = values[i].trim();
+      }
+      return values;
+   }
+
+   /**
+    * @param row
+    *           a row
+    * @param column
+    *           the index of a column
+    * @return the trimmed value of the cell, empty if missing
+    */
+   private static String cell(final String[] row, final int column)
+   {
+      return (column < row.length) ? row[column].trim() : "";
+   }
+
+   /**
+    * @param values
+    *           the values of a row
+    * @return the values formatted for the report
+    */
+   private static String format(final String[] values)
+   {
+      return Arrays.toString(trim(values.clone()));
+   }
+
+   /**
+    * The names of the columns, the indexes of the key columns and those of the
+    * ignored ones.
+    */
+   private static final class Columns
+   {
+      private final String[]  names;
+      private final int[]     keys;
+      private final boolean[] ignored;
+
+      /**
+       * @param names
+       *           the names of the columns, or null without header
+       * @param keys
+       *           the indexes of the key columns
+       * @param ignoredColumns
+       *           the names of the ignored columns
+       */
+      private Columns(final String[] names, final int[] keys, final String[] ignoredColumns)
+      {
+         this.names = names;
+         this.keys = keys;
+         final int[] indexes = resolve(names, ignoredColumns);
+         int size = 0;
+         for (int index : indexes)
+         {
+            size = Math.max(size, index + 1);
+         }
+         this.ignored = new boolean[size];
+         for (int index : indexes)
+         {
+            ignored[index] = true;
+         }
+      }
+
+      /**
+       * @param column
+       *           the index of a column
+       * @return whether the column is not compared
+       */
+      private boolean isIgnored(final int column)
+      {
+         return column < ignored.length && ignored[column];
+      }
+
+      /**
+       * @param column
+       *           the index of a column
+       * @return its name, or its number without header
+       */
+      private String name(final int column)
+      {
+         return (names != null && column < names.length) ? names[column] : Integer.toString(column + 1);
+      }
+
+      /**
+       * @param row
+       *           a row
+       * @return the key of the row
+       */
+      private String key(final String[] row)
+      {
+         final StringBuilder key = new StringBuilder();
+         for (int column : keys)
+         {
+            key.append(cell(row, column)).append(SEPARATOR);
+         }
+         return key.toString();
+      }
+
+      /**
+       * @param row
+       *           a row
+       * @return the key of the row formatted for the report
+       */
+      private String formatKey(final String[] row)
+      {
+         final String[] values = new String[keys.length];
+         for (int i = 0; i < keys.length; i++)
+         {
+            values[i] = cell(row, keys[i]);
+         }
+         return Arrays.toString(values);
+      }
+   }
+
+   /**
+    * An actual row and its number.
+    */
+   private static final class KeyedRow
+   {
+      private final long     row;
+      private final String[] values;
+
+      /**
+       * @param row
+       *           the number of the row
+       * @param values
+       *           the values of the row
+       */
+      private KeyedRow(final long row, final String[] values)
+      {
+         this.row = row;
+         this.values = values;
+      }
+   }
+}
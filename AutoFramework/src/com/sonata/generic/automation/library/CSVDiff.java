@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The <code>CSVDiff</code> class holds the differences found by
+ * {@link CSVCompare} between an expected and an actual CSV file. All the
+ * differences are counted, but only the first ones are kept, so that comparing
+ * files with millions of different rows does not fill the memory.
+ */
+public final class CSVDiff
+{
+   /** Default number of differences kept */
+   public static final int    DEFAULT_MAX_KEPT = 1000;
+
+   /** Number of differences listed in the report, the others are counted */
+   private static final int   MAX_REPORTED     = 20;
+
+   /**
+    * The <code>Type</code> enumerates the kinds of differences.
+    */
+   public static enum Type
+   {
+      /** A row of the actual file is not in the expected one */
+      ADDED,
+
+      /** A row of the expected file is not in the actual one */
+      REMOVED,
+
+      /** A cell of a row of both files has different values */
+      CHANGED
+   }
+
+   /**
+    * A difference between the files.
+    */
+   public static final class Difference
+   {
+      private final Type   type;
+      private final long   row;
+      private final String key;
+      private final String column;
+      private final String expected;
+      private final String actual;
+
+      /**
+       * Constructs a difference.
+       *
+       * @param type
+       *           the kind of difference
+       * @param row
+       *           the number of the row, 0 for the header
+       * @param key
+       *           the values of the key columns, or null if the rows are
+       *           compared by position
+       * @param column
+       *           the name of the changed column, or null
+       * @param expected
+       *           the expected value, or the values of the removed row
+       * @param actual
+       *           the actual value, or the values of the added row
+       */
+      Difference(final Type type, final long row, final String key, final String column, final String expected,
+            final String actual)
+      {
+         this.type = type;
+         this.row = row;
+         this.key = key;
+         this.column = column;
+         this.expected = expected;
+         this.actual = actual;
+      }
+
+      /**
+       * @return the kind of difference
+       */
+      public Type getType()
+      {
+         return type;
+      }
+
+      /**
+       * @return the number of the row in the expected file, or in the actual
+       *         file for an added row: 1 for the first row after the header, 0
+       *         for the header itself
+       */
+      public long getRow()
+      {
+         return row;
+      }
+
+      /**
+       * @return the values of the key columns, or null if the rows were
+       *         compared by position
+       */
+      public String getKey()
+      {
+         return key;
+      }
+
+      /**
+       * @return the name of the changed column, null if a row was added or
+       *         removed
+       */
+      public String getColumn()
+      {
+         return column;
+      }
+
+      /**
+       * @return the expected value, the values of the removed row, or null
+       */
+      public String getExpected()
+      {
+         return expected;
+      }
+
+      /**
+       * @return the actual value, the values of the added row, or null
+       */
+      public String getActual()
+      {
+         return actual;
+      }
+
+      @Override
+      public String toString()
+      {
+         final String where = (key != null) ? "key " + key : (row == 0) ? "header" : "row " + row;
+         switch (type)
+         {
+            case ADDED:
+               return (key != null) ? "unexpected " + where : where + " unexpected " + actual;
+            case REMOVED:
+               return (key != null) ? "missing " + where : where + " missing " + expected;
+            default:
+               return where + " [" + column + "] expected '" + expected + "' but was '" + actual + "'";
+         }
+      }
+   }
+
+   private final int              maxKept;
+   private final List<Difference> differences = new ArrayList<Difference>();
+   private long                   differenceCount;
+   private long                   comparedRows;
+   private long                   addedRows;
+   private long                   removedRows;
+   private long                   changedRows;
+
+   /**
+    * Constructs an empty diff.
+    *
+    * @param maxKept
+    *           the number of differences kept
+    */
+   CSVDiff(final int maxKept)
+   {
+      this.maxKept = maxKept;
+   }
+
+   /**
+    * Records a difference.
+    *
+    * @param difference
+    *           the difference
+    */
+   void add(final Difference difference)
+   {
+      differenceCount++;
+      if (difference.getType() == Type.ADDED)
+      {
+         addedRows++;
+      }
+      else if (difference.getType() == Type.REMOVED)
+      {
+         removedRows++;
+      }
+      if (differences.size() < maxKept)
+      {
+         differences.add(difference);
+      }
+   }
+
+   /**
+    * Records that a row of the expected file was compared.
+    *
+    * @param changed
+    *           whether cells of the row were changed
+    */
+   void countRow(final boolean changed)
+   {
+      comparedRows++;
+      if (changed)
+      {
+         changedRows++;
+      }
+   }
+
+   /**
+    * Adds the differences of a part of the files, compared after the parts
+    * already added.
+    *
+    * @param part
+    *           the differences of the part
+    */
+   void addAll(final CSVDiff part)
+   {
+      for (int i = 0; i < part.differences.size() && differences.size() < maxKept; i++)
+      {
+         differences.add(part.differences.get(i));
+      }
+      differenceCount += part.differenceCount;
+      comparedRows += part.comparedRows;
+      addedRows += part.addedRows;
+      removedRows += part.removedRows;
+      changedRows += part.changedRows;
+   }
+
+   /**
+    * @return <li><code>True </code>if the files are the same</li> <li>
+    *         <code>False </code>otherwise</li>
+    */
+   public boolean isMatch()
+   {
+      return differenceCount == 0;
+   }
+
+   /**
+    * @return the first differences, in the order of the files
+    */
+   public List<Difference> getDifferences()
+   {
+      return Collections.unmodifiableList(differences);
+   }
+
+   /**
+    * @return the number of differences, kept or not
+    */
+   public long getDifferenceCount()
+   {
+      return differenceCount;
+   }
+
+   /**
+    * @return the number of rows of the expected file compared
+    */
+   public long getComparedRows()
+   {
+      return comparedRows;
+   }
+
+   /**
+    * @return the number of rows only in the actual file
+    */
+   public long getAddedRows()
+   {
+      return addedRows;
+   }
+
+   /**
+    * @return the number of rows only in the expected file
+    */
+   public long getRemovedRows()
+   {
+      return removedRows;
+   }
+
+   /**
+    * @return the number of rows in both files with changed cells
+    */
+   public long getChangedRows()
+   {
+      return changedRows;
+   }
+
+   /**
+    * Builds a compact report of the differences, listing the first ones and
+    * counting the others.
+    *
+    * @return <code>OK</code> if the files are the same, otherwise the report
+    */
+   public String getReport()
+   {
+      if (isMatch())
+      {
+         return "OK";
+      }
+      final StringBuilder report = new StringBuilder();
+      report.append(differenceCount).append(" difference(s) in ").append(comparedRows).append(" row(s) (")
+            .append(addedRows).append(" added, ").append(removedRows).append(" removed, ").append(changedRows)
+            .append(" changed): ");
+      final int listed = Math.min(differences.size(), MAX_REPORTED);
+      for (int i = 0; i < listed; i++)
+      {
+         if (i > 0)
+         {
+            report.append("; ");
+         }
+         report.append(differences.get(i));
+      }
+      if (differenceCount > listed)
+      {
+         report.append("; and ").append(differenceCount - listed).append(" more");
+      }
+      return report.toString();
+   }
+
+   @Override
+   public String toString()
+   {
+      return getReport();
+   }
+}
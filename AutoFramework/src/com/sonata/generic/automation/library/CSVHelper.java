@@ -4,15 +4,15 @@
 
 package com.sonata.generic.automation.library;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * CSVHelper class to implement the methods that interact with Comma-Separated
- * Value(CSV) Files.
+ * Value(CSV) Files. The files are read with a {@link CSVReader}.
  * 
  */
 public final class CSVHelper
@@ -43,93 +43,14 @@ public final class CSVHelper
    private static boolean checkValuesInCSV(final String cSVFile, final String columnName, final String operator,
          final Date firstValue, final Date secondValue)
    {
-      String strLine;
-      int columnNameIndexInCSV = 1;
-      int count = 0;
-      try
-      {
-         FileInputStream fileStream = new FileInputStream(cSVFile);
-         DataInputStream input = new DataInputStream(fileStream);
-
-         BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-         String[] columnNamesInCSV = null;
-         boolean firstRow = true;
-         while ((strLine = reader.readLine()) != null)
-         {
-            String[] rowValues = strLine.split(",");
-            // Get the column names from CSV file.
-            if (firstRow)
-            {
-               columnNamesInCSV = rowValues;
-               firstRow = false;
-               // Get the index of the given column name.
-               for (int rowIndex = 0; rowIndex <= rowValues.length - 1; rowIndex++)
-               {
-                  if (trimDoubleQuotes(columnNamesInCSV[rowIndex]).equals(columnName))
-                  {
-                     columnNameIndexInCSV = rowIndex;
-                  }
-               }
-            }
-            else
-            {
-               count++;
-               // if the values have comma(,) then rearrange the values.
-               if (columnNamesInCSV.length != rowValues.length)
-               {
-                  String[] newRowValues = new String[columnNamesInCSV.length];
-                  int newRowIndex = 0;
-                  for (int rowIndex = 0; rowIndex <= rowValues.length - 1; rowIndex++)
-                  {
-                     // Concatenate the values starts with double quote
-                     // upto ends with double quotes
-                     if (rowValues[rowIndex].startsWith("\"") && !rowValues[rowIndex].endsWith("\""))
-                     {
-                        // column value contain comma
-                        int index = 1;
-                        while (!rowValues[rowIndex + index].endsWith("\""))
-                        {
-                           index++;
-                        }
-                        // Concatenate the strings
-                        String tempString = "";
-                        for (int i = 0; i < index + 1; i++)
-                        {
-                           tempString = tempString + rowValues[rowIndex + i];
-                        }
-                        newRowValues[rowIndex] = tempString;
-                        // increase the rowIndex
-                        rowIndex = rowIndex + index;
-                        newRowIndex++;
-                     }
-                     else
-                     {
-                        // column value does not contain comma
-                        newRowValues[newRowIndex] = rowValues[rowIndex];
-                        newRowIndex++;
-                     }
-                  }
-                  // store the new values to the variable rowValues
-                  rowValues = newRowValues;
-               }
-               // Get the value from the row and convert to date object
-               String strDate = trimDoubleQuotes(rowValues[columnNameIndexInCSV]);
-               Date expectedDate = DateHelper.getDate(strDate, "yyyy-MM-dd");
-               // Check the value is equal
-               compare(expectedDate, operator, firstValue, secondValue);
-            }
-         }
-         // Close the input stream
-         reader.close();
-         input.close();
-
-      }
-      catch (Exception e)
+      final CSVQuery query = new CSVQuery();
+      final CSVQuery.Check check = operator.equals("Between") ? query.between(columnName, firstValue, secondValue)
+            : query.is(columnName, firstValue);
+      if (!run(query, cSVFile))
       {
-         e.printStackTrace();
          return false;
       }
-      System.out.println(count + " - records is compared Successfully");
+      System.out.println(check.getRowCount() + " - records is compared Successfully");
       return true;
    }
 
@@ -152,138 +73,46 @@ public final class CSVHelper
    private static boolean checkValuesInCSV(final String cSVFile, final String columnName, final String operator,
          final String firstValue, final String secondValue)
    {
-      String strLine;
-      int columnNameIndexInCSV = 1;
-      int count = 0;
-      try
-      {
-         FileInputStream fileStream = new FileInputStream(cSVFile);
-         DataInputStream input = new DataInputStream(fileStream);
-
-         BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-         String[] columnNamesInCSV = null;
-         boolean firstRow = true;
-         while ((strLine = reader.readLine()) != null)
-         {
-            String[] rowValues = strLine.split(",");
-            // Get the column names from CSV file.
-            if (firstRow)
-            {
-               columnNamesInCSV = rowValues;
-               firstRow = false;
-               // Get the index of the given column name.
-               for (int rowIndex = 0; rowIndex <= rowValues.length - 1; rowIndex++)
-               {
-                  if (trimDoubleQuotes(columnNamesInCSV[rowIndex]).equals(columnName))
-                  {
-                     columnNameIndexInCSV = rowIndex;
-                  }
-               }
-            }
-            else
-            {
-               count++;
-               // if the values have comma(,) then rearrange the values.
-               if (columnNamesInCSV.length != rowValues.length)
-               {
-                  String[] newRowValues = new String[columnNamesInCSV.length];
-                  int newRowIndex = 0;
-                  for (int rowIndex = 0; rowIndex <= rowValues.length - 1; rowIndex++)
-                  {
-                     // Concatenate the values starts with double quote
-                     // upto ends with double quotes
-                     if (rowValues[rowIndex].startsWith("\"") && !rowValues[rowIndex].endsWith("\""))
-                     {
-                        // column value contain comma
-                        int index = 1;
-                        while (!rowValues[rowIndex + index].endsWith("\""))
-                        {
-                           index++;
-                        }
-                        // Concatenate the strings
-                        String tempString = "";
-                        for (int i = 0; i < index + 1; i++)
-                        {
-                           tempString = tempString + rowValues[rowIndex + i];
-                        }
-                        newRowValues[rowIndex] = tempString;
-                        // increase the rowIndex
-                        rowIndex = rowIndex + index;
-                        newRowIndex++;
-                     }
-                     else
-                     {
-                        // column value does not contain comma
-                        newRowValues[newRowIndex] = rowValues[rowIndex];
-                        newRowIndex++;
-                     }
-                  }
-                  // store the new values to the variable rowValues
-                  rowValues = newRowValues;
-               }
-               // Get the value from the row
-               String strRowValue = trimDoubleQuotes(rowValues[columnNameIndexInCSV]);
-               // Check the value is equal
-               if (operator.equals("Is"))
-               {
-                  if (!strRowValue.equals(firstValue))
-                  {
-                     return false;
-                  }
-               }
-            }
-         }
-         // Close the input stream
-         reader.close();
-         input.close();
-
-      }
-      catch (Exception e)
+      final CSVQuery query = new CSVQuery();
+      if (operator.equals("Is"))
       {
-         e.printStackTrace();
-         return false;
+         query.is(columnName, firstValue);
       }
-      return true;
+      return run(query, cSVFile);
    }
 
    /**
-    * Compare the date values between the given date.
-    * 
-    * @param expectedDate
-    *           expected Date value
-    * @param operator
-    *           operator string value.
-    * @param firstValue
-    *           first Value which user wants to query "from".
-    * @param secondValue
-    *           second Value which user wants to query "to".
+    * Runs the checks of a query on the given file, and prints the failures.
     * 
-    * @return <li><code>True </code>if CSV files contains date as expected date</li>
-    *         <li>
+    * @param query
+    *           the checks
+    * @param cSVFile
+    *           Path of CSV file
+    * @return <li><code>True </code>if all the checks passed</li> <li>
     *         <code>False </code>otherwise</li>
     */
-   private static boolean compare(final Date expectedDate, final String operator, final Date firstValue,
-         final Date secondValue)
+   private static boolean run(final CSVQuery query, final String cSVFile)
    {
-      if (operator.equals("Is"))
+      try
       {
-         if (!expectedDate.equals(firstValue))
+         if (query.run(cSVFile))
          {
-            return false;
+            return true;
          }
       }
-      else if (operator.equals("Between"))
+      catch (IOException e)
+      {
+         e.printStackTrace();
+         return false;
+      }
+      for (CSVQuery.Check check : query.getChecks())
       {
-         if (!(expectedDate.after(firstValue) && expectedDate.before(secondValue)))
+         if (!check.isPassed())
          {
-            if (!(expectedDate.equals(firstValue) || expectedDate.equals(secondValue)))
-            {
-               return false;
-            }
+            System.out.println(check.getReport());
          }
       }
-      return true;
-
+      return false;
    }
 
    /**
@@ -341,24 +170,6 @@ public final class CSVHelper
       return checkValuesInCSV(cSVFile, columnName, "Is", isColumnValue, null);
    }
 
-   /**
-    * Trim the double quotes from the given string.
-    * 
-    * @param text
-    *           the string to be trimmed.
-    * @return the trimmed string
-    */
-   private static String trimDoubleQuotes(final String text)
-   {
-      int len = text.length();
-      if (!text.isEmpty() && text.substring(0, 1).equals("\"") && text.substring(len - 1, len).equals("\""))
-      {
-         return text.substring(1, len - 1);
-      }
-      return text;
-
-   }
-
    /**
     * Reads the given file and check for count exist for all fields and also
     * checks for Sum and Avg.
@@ -372,74 +183,11 @@ public final class CSVHelper
     */
    public static boolean checkCountExistInCSV(final String cSVFile)
    {
-      String strLine;
-      boolean isAvgAvailable = false;
-      boolean isSumAvailable = false;
-      try
-      {
-         FileInputStream fileStream = new FileInputStream(cSVFile);
-         DataInputStream input = new DataInputStream(fileStream);
-
-         BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-         String[] columnNames = null;
-         boolean firstRow = true;
-         while ((strLine = reader.readLine()) != null)
-         {
-            String[] rowValues = strLine.split(",");
-            if (firstRow)
-            {
-               columnNames = rowValues;
-               firstRow = false;
-            }
-            if (rowValues[0].contains("Count"))
-            {
-               for (int i = 1; i <= rowValues.length - 1; i++)
-               {
-                  // Checks for Count should not have " (Double quotes)
-                  if (rowValues[i].contains("\""))
-                  {
-                     System.out.println("Count has double quote \" for" + columnNames[i]);
-                     return false;
-                  }
-                  // Checks for Count must exist for all fields
-                  if (rowValues[i].isEmpty())
-                  {
-                     System.out.println("Count does not exist for" + columnNames[i]);
-                     return false;
-                  }
-               }
-            }
-            if (rowValues[0].contains("Avg"))
-            {
-               isAvgAvailable = true;
-            }
-            if (rowValues[0].contains("Sum"))
-            {
-               isSumAvailable = true;
-            }
-         }
-         // Close the input stream
-         reader.close();
-         input.close();
-
-      }
-      catch (Exception e)
-      {
-         e.printStackTrace();
-      }
-      if (!isSumAvailable)
-      {
-         // Checks for Sum exists in the given CSV Files
-         System.out.println("Sum does not exist");
-         return false;
-      }
-      if (!isAvgAvailable)
-      {
-         // Checks for Avg exists in the given CSV Files
-         System.out.println("Avg does not exist");
-         return false;
-      }
-      return true;
+      final CSVQuery query = new CSVQuery();
+      query.summaryValues("Count");
+      query.summaryExists("Sum");
+      query.summaryExists("Avg");
+      return run(query, cSVFile);
    }
 
    /**
@@ -459,88 +207,18 @@ public final class CSVHelper
    public static boolean checkSummaryValuesInCSV(final String cSVFile, final String[] summaryTypes,
          final String[] verifyColNameAndValue, final String[] filterColNameAndValue)
    {
-      String strLine;
-      int success = 0;
-      try
+      final CSVQuery query = new CSVQuery();
+      for (int summaryIndex = 0; summaryIndex <= summaryTypes.length - 1; summaryIndex++)
       {
-         FileInputStream fileStream = new FileInputStream(cSVFile);
-         DataInputStream input = new DataInputStream(fileStream);
-
-         BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-         String[] columnNames = null;
-         boolean firstRow = true;
-         boolean checkSummary = false;
-         while ((strLine = reader.readLine()) != null)
+         String value = (verifyColNameAndValue[summaryIndex + 1] == null) ? ""
+               : verifyColNameAndValue[summaryIndex + 1];
+         CSVQuery.Check check = query.summary(summaryTypes[summaryIndex], verifyColNameAndValue[0], value);
+         if (filterColNameAndValue != null)
          {
-            String[] rowValues = strLine.split(",");
-            if (firstRow)
-            {
-               columnNames = rowValues;
-               firstRow = false;
-            }
-            if (filterColNameAndValue != null && !checkSummary)
-            {
-               for (int rowIndex = 1; rowIndex <= rowValues.length - 1; rowIndex++)
-               {
-                  if (trimDoubleQuotes(columnNames[rowIndex]).equals(filterColNameAndValue[0]))
-                  {
-                     if (trimDoubleQuotes(rowValues[rowIndex]).equals(filterColNameAndValue[1]))
-                     {
-                        checkSummary = true;
-                        break;
-                     }
-                  }
-               }
-            }
-            for (int summaryIndex = 0; summaryIndex <= summaryTypes.length - 1; summaryIndex++)
-            {
-               if (rowValues[0].contains(summaryTypes[summaryIndex])
-                     && (checkSummary || (filterColNameAndValue == null)))
-               {
-                  for (int i = 1; i <= rowValues.length - 1; i++)
-                  {
-                     if (trimDoubleQuotes(columnNames[i]).equals(verifyColNameAndValue[0]))
-                     {
-                        System.out
-                              .println(summaryTypes[summaryIndex] + " is " + rowValues[i] + " in " + columnNames[i]);
-                        String value = (verifyColNameAndValue[summaryIndex + 1] == null) ? ""
-                              : verifyColNameAndValue[summaryIndex + 1];
-
-                        if (value.equals(trimDoubleQuotes(rowValues[i])))
-                        {
-                           success++;
-                           if (success == summaryTypes.length)
-                           {
-                              return true;
-                           }
-                        }
-                        else
-                        {
-                           System.out.println("Error: " + summaryTypes[summaryIndex] + " is "
-                                 + verifyColNameAndValue[summaryIndex + 1] + " in " + columnNames[i]);
-                           return false;
-                        }
-                     }
-                  }
-               }
-            }
+            check.after(filterColNameAndValue[0], filterColNameAndValue[1]);
          }
-         // Close the input stream
-         reader.close();
-         input.close();
-
-      }
-      catch (Exception e)
-      {
-         e.printStackTrace();
-         return false;
-      }
-      if (success != summaryTypes.length)
-      {
-         System.out.println("Given summary is not Matched with CSV");
-         return false;
       }
-      return true;
+      return run(query, cSVFile);
    }
 
    /**
@@ -556,86 +234,47 @@ public final class CSVHelper
     */
    public static boolean compareTwoCSVFile(final String expectedFile, final String actualFile)
    {
-      String[] rowValuesOfExpectedFile = null;
-      String[] rowValuesOfactualFile = null;
-      String strLineExpectedFile = null;
-      String strLineActualFile = null;
-     
+      CSVReader expected = null;
+      CSVReader actual = null;
       try
       {
-
-         FileInputStream fileStream1 = new FileInputStream(expectedFile);
-         DataInputStream input1 = new DataInputStream(fileStream1);
-         BufferedReader reader1 = new BufferedReader(new InputStreamReader(input1));
-
-         FileInputStream fileStream2 = new FileInputStream(actualFile);
-         DataInputStream input2 = new DataInputStream(fileStream2);
-         BufferedReader reader2 = new BufferedReader(new InputStreamReader(input2));
+         expected = CSVReader.openCached(expectedFile);
+         actual = CSVReader.openCached(actualFile);
          int rowCount = 0;
          boolean flag = false;
-         while (((strLineExpectedFile = reader1.readLine()) != null)
-               && ((strLineActualFile = reader2.readLine()) != null))
+         while (expected.next() && actual.next())
          {
             int columnReportGenerationDate = 0;
 
-            rowValuesOfExpectedFile = strLineExpectedFile.split(",");
-            rowValuesOfactualFile = strLineActualFile.split(",");
-
             // ignore the report generation date which is the 1st column of the 1st row
             // sometimes it is the 2nd column (ie. PO credit details report)
 
-            if (rowValuesOfExpectedFile[0] == "")
-            
+            if (expected.field(0).length() == 0)
             {
                columnReportGenerationDate = 1;
             }
 
-            for (int i = columnReportGenerationDate + 1; i <= rowValuesOfExpectedFile.length - 1; i++)
+            for (int i = columnReportGenerationDate + 1; i <= expected.getFieldCount() - 1; i++)
             {
-             
                //  The below code will ignore date and time which is in any column 
-               if (!(rowValuesOfExpectedFile[i].contains("/")))
+               if (expected.fieldContains(i, "/") || expected.fieldContains(i, ":"))
                {
-                  if (!(rowValuesOfExpectedFile[i].contains(":")))
-                  {
-               
-               if (!(rowValuesOfExpectedFile[i].equalsIgnoreCase(rowValuesOfactualFile[i])))
+                  continue;
+               }
+               if (i >= actual.getFieldCount() || !expected.fieldEqualsIgnoreCase(i, actual.field(i)))
                {
                   System.out.println("There is difference in Row:" + rowCount);
-                  System.out.println("Expected File:" + rowValuesOfExpectedFile[i]);
-                  System.out.println("Actual File:" + rowValuesOfactualFile[i]);
-                  flag = false;
-                  input1.close();
-                  reader1.close();
-                  fileStream1.close();
-                  
-                  input2.close();
-                  reader2.close();
-                  fileStream2.close();
+                  System.out.println("Expected File:" + expected.get(i));
+                  System.out.println("Actual File:" + ((i < actual.getFieldCount()) ? actual.get(i) : ""));
                   return false;
                }
-               else
-               {
-                  flag = true;
-               }
-              }
+               flag = true;
             }
-         }
             System.out.println("Row: " + rowCount
                   + " Compared successfully.  Report generation date column has been ignored.");
 
             rowCount++;
          }
-
-         // Close the input stream
-         input1.close();
-         reader1.close();
-         fileStream1.close();
-         
-         input2.close();
-         reader2.close();
-         fileStream2.close();
-         
          return flag;
       }
       catch (Exception e)
@@ -643,6 +282,83 @@ public final class CSVHelper
          e.printStackTrace();
          return false;
       }
+      finally
+      {
+         close(expected);
+         close(actual);
+      }
+   }
+
+   /**
+    * Reads all the rows of the given file, header included. The values are
+    * unquoted: a value between double quotes may hold commas and line breaks,
+    * and two double quotes in it stand for one.
+    * 
+    * @param cSVFile
+    *           Path of CSV file
+    * @return one array of values per record of the file
+    * @throws IOException
+    *            if the file cannot be read
+    */
+   public static List<String[]> readCSV(final String cSVFile) throws IOException
+   {
+      final List<String[]> rows = new ArrayList<String[]>();
+      final CSVReader reader = CSVReader.openCached(cSVFile);
+      try
+      {
+         while (reader.next())
+         {
+            rows.add(reader.getRecord());
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      return rows;
+   }
+
+   /**
+    * Splits a line of a CSV file into its unquoted values.
+    * 
+    * @param line
+    *           the line
+    * @return the values
+    */
+   public static String[] parseLine(final String line)
+   {
+      final CSVReader reader = new CSVReader(new StringReader(line));
+      try
+      {
+         return reader.next() ? reader.getRecord() : new String[] {""};
+      }
+      catch (IOException e)
+      {
+         // A string is always read
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Closes the given reader, ignoring the failures.
+    * 
+    * @param reader
+    *           the reader, or null
+    */
+   private static void close(final CSVReader reader)
+   {
+      if (reader == null)
+      {
+         return;
+      }
+      try
+      {
+         reader.close();
+      }
+      catch (IOException e)
+      {
+         e.printStackTrace();
+      }
    }
 
 }
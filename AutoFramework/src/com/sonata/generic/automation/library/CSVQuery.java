@@ -0,0 +1,1032 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>
+ * Checks the rows of a CSV file, such as the export of a report, against many
+ * conditions in one reading of the file. The checks are registered first, then
+ * {@link #run(String)} reads the file once and evaluates all of them; each
+ * check gives its result and the rows which failed it.
+ * </p>
+ *
+ * <pre>
+ * CSVQuery query = new CSVQuery();
+ * CSVQuery.Check date = query.between(&quot;Date&quot;, fromDate, toDate);
+ * CSVQuery.Aggregate total = query.sum(&quot;Amount&quot;).where(&quot;Type&quot;, &quot;Invoice&quot;).expect(&quot;1,250.00&quot;);
+ * query.summaryExists(&quot;Sum&quot;);
+ * if (!query.run(cSVFile))
+ *    System.out.println(query.getReport());
+ * </pre>
+ *
+ * <p>
+ * The first row of the file holds the names of the columns. A check can be
+ * limited to the rows with a given value in a column with
+ * {@link Check#where(String, String)}, or to the rows from the first one with
+ * a given value with {@link Check#after(String, String)}. The summary rows of
+ * a report are those whose first value contains the summary type (Count, Sum,
+ * Avg...).
+ * </p>
+ */
+public final class CSVQuery
+{
+   /** Number of failures kept per check, the others are counted */
+   private static final int    MAX_FAILURES = 20;
+
+   /** Format of the dates of the files */
+   private static final String DATE_FORMAT  = "yyyy-MM-dd";
+
+   private final List<Check>   checks       = new ArrayList<Check>();
+
+   /**
+    * A row which failed a check.
+    */
+   public static final class Failure
+   {
+      private final long   row;
+      private final String value;
+      private final String message;
+
+      /**
+       * @param row
+       *           the number of the row, from 1 after the header, or 0 if the
+       *           failure is not about a row
+       * @param value
+       *           the value checked, or null
+       * @param message
+       *           the description of the failure
+       */
+      Failure(final long row, final String value, final String message)
+      {
+         this.row = row;
+         this.value = value;
+         this.message = message;
+      }
+
+      /**
+       * @return the number of the row, from 1 after the header, or 0 if the
+       *         failure is not about a row
+       */
+      public long getRow()
+      {
+         return row;
+      }
+
+      /**
+       * @return the value checked, or null
+       */
+      public String getValue()
+      {
+         return value;
+      }
+
+      /**
+       * @return the description of the failure
+       */
+      public String getMessage()
+      {
+         return message;
+      }
+
+      @Override
+      public String toString()
+      {
+         return (row == 0) ? message : "row " + row + ": " + message;
+      }
+   }
+
+   /**
+    * A check of the rows of the file.
+    */
+   public abstract static class Check
+   {
+      private final String        description;
+      private String              whereColumn;
+      private String              whereValue;
+      private String              afterColumn;
+      private String              afterValue;
+      private int                 whereIndex;
+      private int                 afterIndex;
+      private boolean             started;
+      private boolean             disabled;
+      private long                rowCount;
+      private long                failureCount;
+      private final List<Failure> failures = new ArrayList<Failure>();
+
+      /**
+       * @param description
+       *           the description of the check in the report
+       */
+      Check(final String description)
+      {
+         this.description = description;
+      }
+
+      /**
+       * Limits the check to the rows with a value in a column.
+       *
+       * @param column
+       *           the name of the column
+       * @param value
+       *           the value
+       * @return this check
+       */
+      public Check where(final String column, final String value)
+      {
+         whereColumn = column;
+         whereValue = value;
+         return this;
+      }
+
+      /**
+       * Limits the check to the rows from the first one with a value in a
+       * column, that one included.
+       *
+       * @param column
+       *           the name of the column
+       * @param value
+       *           the value
+       * @return this check
+       */
+      public Check after(final String column, final String value)
+      {
+         afterColumn = column;
+         afterValue = value;
+         return this;
+      }
+
+      /**
+       * @return <li><code>True </code>if no row failed the check</li> <li>
+       *         <code>False </code>otherwise</li>
+       */
+      public boolean isPassed()
+      {
+         return failureCount == 0;
+      }
+
+      /**
+       * @return the number of rows checked
+       */
+      public long getRowCount()
+      {
+         return rowCount;
+      }
+
+      /**
+       * @return the number of failures, kept or not
+       */
+      public long getFailureCount()
+      {
+         return failureCount;
+      }
+
+      /**
+       * @return the first failures, in the order of the rows
+       */
+      public List<Failure> getFailures()
+      {
+         return Collections.unmodifiableList(failures);
+      }
+
+      /**
+       * @return the description of the check and, if it failed, of its first
+       *         failures
+       */
+      public String getReport()
+      {
+         final StringBuilder report = new StringBuilder(description);
+         if (isPassed())
+         {
+            return report.append(": OK").toString();
+         }
+         report.append(": ").append(failureCount).append(" failure(s)");
+         for (Failure failure : failures)
+         {
+            report.append("; ").append(failure);
+         }
+         if (failureCount > failures.size())
+         {
+            report.append("; and ").append(failureCount - failures.size()).append(" more");
+         }
+         return report.toString();
+      }
+
+      @Override
+      public String toString()
+      {
+         return getReport();
+      }
+
+      /**
+       * Prepares the check for a file.
+       *
+       * @param reader
+       *           the file, its header read
+       */
+      final void start(final CSVReader reader)
+      {
+         started = (afterColumn == null);
+         disabled = false;
+         rowCount = 0;
+         failureCount = 0;
+         failures.clear();
+         whereIndex = (whereColumn == null) ? -1 : column(reader, whereColumn);
+         afterIndex = (afterColumn == null) ? -1 : column(reader, afterColumn);
+         resolve(reader);
+      }
+
+      /**
+       * Checks the current row, if the check applies to it.
+       *
+       * @param reader
+       *           the file
+       * @param row
+       *           the number of the row
+       */
+      final void offer(final CSVReader reader, final long row)
+      {
+         if (disabled)
+         {
+            return;
+         }
+         if (!started)
+         {
+            started = fieldEquals(reader, afterIndex, afterValue);
+            if (!started)
+            {
+               return;
+            }
+         }
+         if (whereIndex >= 0 && !fieldEquals(reader, whereIndex, whereValue))
+         {
+            return;
+         }
+         rowCount++;
+         accept(reader, row);
+      }
+
+      /**
+       * Ends the check, once all the rows are read, unless a column was
+       * missing.
+       */
+      final void end()
+      {
+         if (!disabled)
+         {
+            finish();
+         }
+      }
+
+      /**
+       * Resolves the columns of the check.
+       *
+       * @param reader
+       *           the file, its header read
+       */
+      abstract void resolve(CSVReader reader);
+
+      /**
+       * Checks a row.
+       *
+       * @param reader
+       *           the file
+       * @param row
+       *           the number of the row
+       */
+      abstract void accept(CSVReader reader, long row);
+
+      /**
+       * Ends the check, once all the rows are read.
+       */
+      void finish()
+      {
+      }
+
+      /**
+       * @param reader
+       *           the file, its header read
+       * @param name
+       *           the name of a column
+       * @return the index of the column, -1 if it does not exist, in which
+       *         case the check fails and is skipped
+       */
+      final int column(final CSVReader reader, final String name)
+      {
+         final int index = reader.getColumnIndex(name);
+         if (index < 0)
+         {
+            fail(0, null, "The file has no column " + name);
+            disabled = true;
+         }
+         return index;
+      }
+
+      /**
+       * Records a failure.
+       *
+       * @param row
+       *           the number of the row, or 0
+       * @param value
+       *           the value checked, or null
+       * @param message
+       *           the description of the failure
+       */
+      final void fail(final long row, final String value, final String message)
+      {
+         failureCount++;
+         if (failures.size() < MAX_FAILURES)
+         {
+            failures.add(new Failure(row, value, message));
+         }
+      }
+   }
+
+   /**
+    * A check of the value of a column in all the rows.
+    */
+   private abstract static class ValueCheck extends Check
+   {
+      private final String column;
+      private int          index;
+
+      /**
+       * @param description
+       *           the description of the check
+       * @param column
+       *           the name of the column
+       */
+      ValueCheck(final String description, final String column)
+      {
+         super(description);
+         this.column = column;
+      }
+
+      @Override
+      void resolve(final CSVReader reader)
+      {
+         index = column(reader, column);
+      }
+
+      @Override
+      final void accept(final CSVReader reader, final long row)
+      {
+         if (index >= reader.getFieldCount())
+         {
+            fail(row, null, "no value in " + column);
+         }
+         else
+         {
+            accept(reader, index, row);
+         }
+      }
+
+      /**
+       * Checks the value of a row.
+       *
+       * @param reader
+       *           the file
+       * @param field
+       *           the index of the value
+       * @param row
+       *           the number of the row
+       */
+      abstract void accept(CSVReader reader, int field, long row);
+   }
+
+   /**
+    * A check of the dates of a column.
+    */
+   private static final class DateCheck extends ValueCheck
+   {
+      private final SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+      private final Date             from;
+      private final Date             to;
+
+      /**
+       * @param column
+       *           the name of the column
+       * @param from
+       *           the first date
+       * @param to
+       *           the last date, the same as the first one for an Is check
+       */
+      DateCheck(final String column, final Date from, final Date to)
+      {
+         super(from.equals(to) ? column + " is " + formatDate(from) : column + " between " + formatDate(from)
+               + " and " + formatDate(to), column);
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      void accept(final CSVReader reader, final int field, final long row)
+      {
+         final String value = reader.get(field);
+         final Date date;
+         try
+         {
+            date = format.parse(value);
+         }
+         catch (ParseException e)
+         {
+            fail(row, value, "'" + value + "' is not a date");
+            return;
+         }
+         if (date.before(from) || date.after(to))
+         {
+            fail(row, value, "'" + value + "' is out of range");
+         }
+      }
+   }
+
+   /**
+    * An aggregate of the values of a column: Count counts the values which
+    * are not empty, the others compute on the numbers, empty values skipped.
+    * The numbers may hold thousands separators, and be negative between
+    * parentheses.
+    */
+   public static final class Aggregate extends ValueCheck
+   {
+      /**
+       * The <code>Type</code> enumerates the aggregates.
+       */
+      public static enum Type
+      {
+         /** Number of values */
+         COUNT,
+
+         /** Sum of the values */
+         SUM,
+
+         /** Average of the values */
+         AVG,
+
+         /** Smallest value */
+         MIN,
+
+         /** Largest value */
+         MAX
+      }
+
+      private final Type type;
+      private BigDecimal expected;
+      private long       count;
+      private BigDecimal value;
+
+      /**
+       * @param type
+       *           the aggregate
+       * @param column
+       *           the name of the column
+       */
+      Aggregate(final Type type, final String column)
+      {
+         super(type + " of " + column, column);
+         this.type = type;
+      }
+
+      /**
+       * Sets the value the aggregate must have.
+       *
+       * @param expectedValue
+       *           the value
+       * @return this aggregate
+       * @throws NumberFormatException
+       *            if the value is not a number
+       */
+      public Aggregate expect(final String expectedValue)
+      {
+         expected = parseNumber(expectedValue);
+         return this;
+      }
+
+      @Override
+      public Aggregate where(final String column, final String value)
+      {
+         super.where(column, value);
+         return this;
+      }
+
+      @Override
+      public Aggregate after(final String column, final String value)
+      {
+         super.after(column, value);
+         return this;
+      }
+
+      /**
+       * @return the value of the aggregate, null if there was no value to
+       *         compute it from
+       */
+      public BigDecimal getValue()
+      {
+         if (type == Type.COUNT)
+         {
+            return BigDecimal.valueOf(count);
+         }
+         if (type == Type.AVG && value != null)
+         {
+            return value.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+         }
+         return value;
+      }
+
+      @Override
+      void resolve(final CSVReader reader)
+      {
+         super.resolve(reader);
+         count = 0;
+         value = null;
+      }
+
+      @Override
+      void accept(final CSVReader reader, final int field, final long row)
+      {
+         final CharSequence text = reader.field(field);
+         if (text.length() == 0)
+         {
+            return;
+         }
+         if (type == Type.COUNT)
+         {
+            count++;
+            return;
+         }
+
+         final BigDecimal number;
+         try
+         {
+            number = parseNumber(text.toString());
+         }
+         catch (NumberFormatException e)
+         {
+            fail(row, text.toString(), "'" + text + "' is not a number");
+            return;
+         }
+         count++;
+         if (value == null)
+         {
+            value = number;
+         }
+         else if (type == Type.MIN)
+         {
+            value = value.min(number);
+         }
+         else if (type == Type.MAX)
+         {
+            value = value.max(number);
+         }
+         else
+         {
+            value = value.add(number);
+         }
+      }
+
+      @Override
+      void finish()
+      {
+         if (expected == null)
+         {
+            return;
+         }
+         final BigDecimal actual = getValue();
+         if (actual == null || actual.compareTo(expected) != 0)
+         {
+            fail(0, (actual == null) ? null : actual.toPlainString(), type + " is "
+                  + ((actual == null) ? "none" : actual.toPlainString()) + ", expected " + expected.toPlainString());
+         }
+      }
+
+   }
+
+   /**
+    * A check of the value of a column in the first summary row of a type.
+    */
+   private static final class SummaryCheck extends Check
+   {
+      private final String type;
+      private final String column;
+      private final String value;
+      private int          index;
+      private boolean      found;
+
+      /**
+       * @param type
+       *           the summary type
+       * @param column
+       *           the name of the column
+       * @param value
+       *           the value
+       */
+      SummaryCheck(final String type, final String column, final String value)
+      {
+         super(type + " of " + column + " is " + value);
+         this.type = type;
+         this.column = column;
+         this.value = value;
+      }
+
+      @Override
+      void resolve(final CSVReader reader)
+      {
+         found = false;
+         index = column(reader, column);
+      }
+
+      @Override
+      void accept(final CSVReader reader, final long row)
+      {
+         if (found || !reader.fieldContains(0, type))
+         {
+            return;
+         }
+         found = true;
+         final String actual = (index < reader.getFieldCount()) ? reader.get(index) : "";
+         if (!actual.equals(value))
+         {
+            fail(row, actual, type + " is " + actual + " in " + column);
+         }
+      }
+
+      @Override
+      void finish()
+      {
+         if (!found)
+         {
+            fail(0, null, type + " does not exist");
+         }
+      }
+   }
+
+   /**
+    * A check that the summary rows of a type exist, or have an unquoted value
+    * in every column.
+    */
+   private static final class SummaryRowCheck extends Check
+   {
+      private final String  type;
+      private final boolean values;
+      private String[]      columns;
+      private boolean       found;
+
+      /**
+       * @param type
+       *           the summary type
+       * @param values
+       *           true to check the values of the rows, false to check that
+       *           a row exists
+       */
+      SummaryRowCheck(final String type, final boolean values)
+      {
+         super(values ? type + " exists for all fields" : type + " exists");
+         this.type = type;
+         this.values = values;
+      }
+
+      @Override
+      void resolve(final CSVReader reader)
+      {
+         columns = reader.getHeader();
+         found = false;
+      }
+
+      @Override
+      void accept(final CSVReader reader, final long row)
+      {
+         if (!reader.fieldContains(0, type))
+         {
+            return;
+         }
+         found = true;
+         for (int i = 1; values && i < reader.getFieldCount(); i++)
+         {
+            final String name = (i < columns.length) ? columns[i] : Integer.toString(i + 1);
+            if (reader.isQuoted(i))
+            {
+               fail(row, reader.get(i), type + " has double quote \" for " + name);
+            }
+            else if (reader.field(i).length() == 0)
+            {
+               fail(row, "", type + " does not exist for " + name);
+            }
+         }
+      }
+
+      @Override
+      void finish()
+      {
+         if (!values && !found)
+         {
+            fail(0, null, type + " does not exist");
+         }
+      }
+   }
+
+   /**
+    * Registers a check that all the rows have a value in a column.
+    *
+    * @param column
+    *           the name of the column
+    * @param value
+    *           the value
+    * @return the check
+    */
+   public Check is(final String column, final String value)
+   {
+      return add(new ValueCheck(column + " is " + value, column)
+      {
+         @Override
+         void accept(final CSVReader reader, final int field, final long row)
+         {
+            if (!reader.fieldEquals(field, value))
+            {
+               fail(row, reader.get(field), "'" + reader.get(field) + "' is not '" + value + "'");
+            }
+         }
+      });
+   }
+
+   /**
+    * Registers a check that all the rows have a date (yyyy-MM-dd) in a column.
+    *
+    * @param column
+    *           the name of the column
+    * @param value
+    *           the date
+    * @return the check
+    */
+   public Check is(final String column, final Date value)
+   {
+      return add(new DateCheck(column, value, value));
+   }
+
+   /**
+    * Registers a check that all the rows have a date (yyyy-MM-dd) in a column
+    * between two dates, included.
+    *
+    * @param column
+    *           the name of the column
+    * @param from
+    *           the first date
+    * @param to
+    *           the last date
+    * @return the check
+    */
+   public Check between(final String column, final Date from, final Date to)
+   {
+      return add(new DateCheck(column, from, to));
+   }
+
+   /**
+    * Registers the count of the values of a column which are not empty.
+    *
+    * @param column
+    *           the name of the column
+    * @return the aggregate
+    */
+   public Aggregate count(final String column)
+   {
+      return add(new Aggregate(Aggregate.Type.COUNT, column));
+   }
+
+   /**
+    * Registers the sum of the values of a column.
+    *
+    * @param column
+    *           the name of the column
+    * @return the aggregate
+    */
+   public Aggregate sum(final String column)
+   {
+      return add(new Aggregate(Aggregate.Type.SUM, column));
+   }
+
+   /**
+    * Registers the average of the values of a column.
+    *
+    * @param column
+    *           the name of the column
+    * @return the aggregate
+    */
+   public Aggregate avg(final String column)
+   {
+      return add(new Aggregate(Aggregate.Type.AVG, column));
+   }
+
+   /**
+    * Registers the smallest of the values of a column.
+    *
+    * @param column
+    *           the name of the column
+    * @return the aggregate
+    */
+   public Aggregate min(final String column)
+   {
+      return add(new Aggregate(Aggregate.Type.MIN, column));
+   }
+
+   /**
+    * Registers the largest of the values of a column.
+    *
+    * @param column
+    *           the name of the column
+    * @return the aggregate
+    */
+   public Aggregate max(final String column)
+   {
+      return add(new Aggregate(Aggregate.Type.MAX, column));
+   }
+
+   /**
+    * Registers a check of the value of a column in the first summary row of a
+    * type.
+    *
+    * @param type
+    *           the summary type, such as Sum
+    * @param column
+    *           the name of the column
+    * @param value
+    *           the value
+    * @return the check
+    */
+   public Check summary(final String type, final String column, final String value)
+   {
+      return add(new SummaryCheck(type, column, value));
+   }
+
+   /**
+    * Registers a check that a summary row of a type exists.
+    *
+    * @param type
+    *           the summary type, such as Sum
+    * @return the check
+    */
+   public Check summaryExists(final String type)
+   {
+      return add(new SummaryRowCheck(type, false));
+   }
+
+   /**
+    * Registers a check that the summary rows of a type have a value, not
+    * between double quotes, in every column.
+    *
+    * @param type
+    *           the summary type, such as Count
+    * @return the check
+    */
+   public Check summaryValues(final String type)
+   {
+      return add(new SummaryRowCheck(type, true));
+   }
+
+   /**
+    * @return the checks, in the order they were registered
+    */
+   public List<Check> getChecks()
+   {
+      return Collections.unmodifiableList(checks);
+   }
+
+   /**
+    * Reads a CSV file, opened as {@link CSVReader#openCached(String)} does, and
+    * evaluates all the checks.
+    *
+    * @param cSVFile
+    *           Path of CSV file
+    * @return <li><code>True </code>if all the checks passed</li> <li>
+    *         <code>False </code>otherwise</li>
+    * @throws IOException
+    *            if the file cannot be read
+    */
+   public boolean run(final String cSVFile) throws IOException
+   {
+      final CSVReader reader = CSVReader.openCached(cSVFile);
+      try
+      {
+         if (reader.readHeader() == null)
+         {
+            throw new IOException("The file " + cSVFile + " is empty.");
+         }
+         for (Check check : checks)
+         {
+            check.start(reader);
+         }
+         long row = 0;
+         while (reader.next())
+         {
+            row++;
+            for (Check check : checks)
+            {
+               check.offer(reader, row);
+            }
+         }
+         for (Check check : checks)
+         {
+            check.end();
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      return isPassed();
+   }
+
+   /**
+    * @return <li><code>True </code>if all the checks passed</li> <li>
+    *         <code>False </code>otherwise</li>
+    */
+   public boolean isPassed()
+   {
+      for (Check check : checks)
+      {
+         if (!check.isPassed())
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return the reports of the checks, one per line
+    */
+   public String getReport()
+   {
+      final StringBuilder report = new StringBuilder();
+      for (Check check : checks)
+      {
+         if (report.length() > 0)
+         {
+            report.append(System.getProperty("line.separator"));
+         }
+         report.append(check.getReport());
+      }
+      return report.toString();
+   }
+
+   /**
+    * @param check
+    *           a check
+    * @return the check, registered
+    */
+   private <C extends Check> C add(final C check)
+   {
+      checks.add(check);
+      return check;
+   }
+
+   /**
+    * @param reader
+    *           the file
+    * @param field
+    *           the index of a value
+    * @param value
+    *           a value
+    * @return whether the current row has the value
+    */
+   private static boolean fieldEquals(final CSVReader reader, final int field, final String value)
+   {
+      return field < reader.getFieldCount() && reader.fieldEquals(field, value);
+   }
+
+   /**
+    * @param text
+    *           a number, with thousands separators, negative between
+    *           parentheses
+    * @return the number
+    * @throws NumberFormatException
+    *            if the text is not a number
+    */
+   private static BigDecimal parseNumber(final String text)
+   {
+      String number = text.trim().replace(",", "");
+      if (number.startsWith("(") && number.endsWith(")"))
+      {
+         number = "-" + number.substring(1, number.length() - 1);
+      }
+      return new BigDecimal(number);
+   }
+
+   /**
+    * @param date
+    *           a date
+    * @return the date formatted as in the files
+    */
+   private static String formatDate(final Date date)
+   {
+      return new SimpleDateFormat(DATE_FORMAT).format(date);
+   }
+}
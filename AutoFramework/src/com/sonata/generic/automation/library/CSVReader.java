@@ -0,0 +1,814 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Reads the records of a Comma-Separated Value (CSV) file one at a time, as
+ * described by RFC 4180: a value between double quotes may hold commas and
+ * line breaks, and two double quotes in it stand for one. Lines separate
+ * records whether they end with CR LF, LF or CR; blank lines are skipped, and
+ * a byte order mark at the start of the file is ignored.
+ * </p>
+ *
+ * <p>
+ * The reader is built to go through large exports without creating objects
+ * for each value: the characters of the current record are kept in one buffer
+ * reused from record to record, and a value is only turned into a
+ * <code>String</code> when {@link #get(int)} is called. The <code>field</code>
+ * methods compare a value in place, and {@link #field(int)} gives a view on it
+ * which follows the reader from record to record. A reader is not thread-safe.
+ * </p>
+ *
+ * <p>
+ * A file checked again and again can be opened with {@link #openCached(String)}
+ * instead: its records are then tokenized once, kept in the
+ * {@link ParsedFileCache}, and read from memory by each reader.
+ * </p>
+ */
+public final class CSVReader implements Closeable
+{
+   private static final int BUFFER_SIZE = 64 * 1024;
+   private static final int EOF         = -1;
+
+   private static final ContentParser CONTENT_PARSER = new ContentParser();
+
+   private final Reader              in;
+   private final char[]              buffer;
+   private final Content             content;
+   private int                       contentRecord;
+   private int                       position;
+   private int                       limit;
+
+   private char[]                    record  = new char[256];
+   private int                       length;
+   private int[]                     starts  = new int[16];
+   private int[]                     ends    = new int[16];
+   private boolean[]                 quoted  = new boolean[16];
+   private FieldView[]               views   = new FieldView[16];
+   private int                       fieldCount;
+   private long                      recordNumber;
+
+   private String[]                  header;
+   private final Map<String, Integer> columns = new HashMap<String, Integer>();
+
+   /**
+    * Constructs a reader.
+    *
+    * @param in
+    *           The characters of the CSV file, closed with the reader.
+    */
+   public CSVReader(final Reader in)
+   {
+      this.in = in;
+      this.buffer = new char[BUFFER_SIZE];
+      this.content = null;
+   }
+
+   /**
+    * Constructs a reader on tokenized records.
+    *
+    * @param content
+    *           The records, shared with other readers.
+    */
+   private CSVReader(final Content content)
+   {
+      this.in = null;
+      this.buffer = null;
+      this.content = content;
+   }
+
+   /**
+    * Opens a CSV file encoded in the platform default charset, as the exports
+    * of the applications under test are, or in UTF-8 if it starts with a UTF-8
+    * byte order mark.
+    *
+    * @param cSVFile
+    *           Path of CSV file
+    *
+    * @return The reader, to be closed.
+    *
+    * @throws IOException
+    *            The file cannot be opened.
+    */
+   public static CSVReader open(final String cSVFile) throws IOException
+   {
+      return open(cSVFile, null);
+   }
+
+   /**
+    * Opens a CSV file encoded in a given charset.
+    *
+    * @param cSVFile
+    *           Path of CSV file
+    * @param charsetName
+    *           The name of the charset, or null to choose it as
+    *           {@link #open(String)} does.
+    *
+    * @return The reader, to be closed.
+    *
+    * @throws IOException
+    *            The file cannot be opened, or the charset is not supported.
+    */
+   public static CSVReader open(final String cSVFile, final String charsetName) throws IOException
+   {
+      final InputStream in = new BufferedInputStream(new FileInputStream(cSVFile));
+      try
+      {
+         String charset = charsetName;
+         if (null == charset)
+         {
+            in.mark(3);
+            final boolean utf8 = (0xEF == in.read()) && (0xBB == in.read()) && (0xBF == in.read());
+            in.reset();
+            charset = utf8 ? "UTF-8" : Charset.defaultCharset().name();
+         }
+         return new CSVReader(new InputStreamReader(in, charset));
+      }
+      catch (IOException e)
+      {
+         in.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Opens a CSV file as {@link #open(String)} does, reading it from the
+    * {@link ParsedFileCache#getDefault() default cache} when it has not changed
+    * since it was last read. A file too large to be cached is streamed as
+    * {@link #open(String)} does.
+    *
+    * @param cSVFile
+    *           Path of CSV file
+    *
+    * @return The reader, to be closed.
+    *
+    * @throws IOException
+    *            The file cannot be opened.
+    */
+   public static CSVReader openCached(final String cSVFile) throws IOException
+   {
+      final File file = new File(cSVFile);
+      final ParsedFileCache cache = ParsedFileCache.getDefault();
+      if (Content.weigh(file.length(), 0, 0) > cache.getMaxBytes())
+         return open(cSVFile);
+      return new CSVReader(cache.get(file, CONTENT_PARSER));
+   }
+
+   /**
+    * Reads the next record, which is then the current one.
+    *
+    * @return <li><code>true</code> if a record was read</li> <li>
+    *         <code>false</code> at the end of the file</li>
+    *
+    * @throws IOException
+    *            The file cannot be read.
+    */
+   public boolean next() throws IOException
+   {
+      if (null != content)
+         return nextContent();
+
+      fieldCount = 0;
+      length = 0;
+      int c = read();
+      if ((0 == recordNumber) && ('\uFEFF' == c))
+         c = read();
+      while (('\r' == c) || ('\n' == c))
+         c = read();
+      if (EOF == c)
+         return false;
+
+      recordNumber++;
+      while (true)
+      {
+         beginField();
+         if ('"' == c)
+         {
+            quoted[fieldCount - 1] = true;
+            c = readQuoted();
+         }
+         // Whatever follows a closing quote is kept as it is
+         while ((EOF != c) && (',' != c) && ('\r' != c) && ('\n' != c))
+         {
+            append((char)c);
+            c = read();
+         }
+         ends[fieldCount - 1] = length;
+         if (',' != c)
+            break;
+         c = read();
+      }
+      if (('\r' == c) && ('\n' == peek()))
+         position++;
+      return true;
+   }
+
+   /**
+    * Reads the first record as the header of the file, giving the index of
+    * each column name. The header stays the current record.
+    *
+    * @return The column names, or null if the file is empty.
+    *
+    * @throws IOException
+    *            The file cannot be read.
+    */
+   public String[] readHeader() throws IOException
+   {
+      if (!next())
+         return null;
+
+      header = getRecord();
+      columns.clear();
+      for (int i = header.length - 1; i >= 0; i--)
+         columns.put(header[i], i);
+      return header;
+   }
+
+   /**
+    * @return The column names read by {@link #readHeader()}, or null.
+    */
+   public String[] getHeader()
+   {
+      return header;
+   }
+
+   /**
+    * @param columnName
+    *           A column name.
+    *
+    * @return The index of the first column of that name in the header, -1 if
+    *         there is none.
+    */
+   public int getColumnIndex(final String columnName)
+   {
+      final Integer index = columns.get(columnName);
+      return (null == index) ? -1 : index;
+   }
+
+   /**
+    * @return The number of the current record, from 1, blank lines not
+    *         counted.
+    */
+   public long getRecordNumber()
+   {
+      return recordNumber;
+   }
+
+   /**
+    * @return The number of values of the current record.
+    */
+   public int getFieldCount()
+   {
+      return fieldCount;
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    *
+    * @return The unquoted value.
+    */
+   public String get(final int field)
+   {
+      checkField(field);
+      return new String(record, starts[field], ends[field] - starts[field]);
+   }
+
+   /**
+    * @return The unquoted values of the current record.
+    */
+   public String[] getRecord()
+   {
+      final String[] values = new String[fieldCount];
+      for (int i = 0; i < fieldCount; i++)
+         values[i] = get(i);
+      return values;
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    *
+    * @return A view on the unquoted value. The view always shows the value of
+    *         that index in the current record: call <code>toString()</code> to
+    *         keep it.
+    */
+   public CharSequence field(final int field)
+   {
+      checkField(field);
+      if (field >= views.length)
+         views = grow(views, field + 1);
+      if (null == views[field])
+         views[field] = new FieldView(field);
+      return views[field];
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    *
+    * @return <li><code>true</code> if the value was between double quotes</li>
+    *         <li><code>false</code> otherwise</li>
+    */
+   public boolean isQuoted(final int field)
+   {
+      checkField(field);
+      return quoted[field];
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    * @param text
+    *           The text to compare with.
+    *
+    * @return <li><code>true</code> if the unquoted value is the text</li> <li>
+    *         <code>false</code> otherwise</li>
+    */
+   public boolean fieldEquals(final int field, final CharSequence text)
+   {
+      checkField(field);
+      final int start = starts[field];
+      if ((ends[field] - start) != text.length())
+         return false;
+
+      for (int i = 0; i < text.length(); i++)
+      {
+         if (record[start + i] != text.charAt(i))
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    * @param text
+    *           The text to compare with.
+    *
+    * @return <li><code>true</code> if the unquoted value is the text, ignoring
+    *         case as <code>String.equalsIgnoreCase</code> does</li> <li>
+    *         <code>false</code> otherwise</li>
+    */
+   public boolean fieldEqualsIgnoreCase(final int field, final CharSequence text)
+   {
+      checkField(field);
+      final int start = starts[field];
+      if ((ends[field] - start) != text.length())
+         return false;
+
+      for (int i = 0; i < text.length(); i++)
+      {
+         final char a = record[start + i];
+         final char b = text.charAt(i);
+         if ((a != b) && (Character.toUpperCase(a) != Character.toUpperCase(b))
+               && (Character.toLowerCase(a) != Character.toLowerCase(b)))
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    * @param text
+    *           The text to look for.
+    *
+    * @return <li><code>true</code> if the unquoted value contains the text</li>
+    *         <li><code>false</code> otherwise</li>
+    */
+   public boolean fieldContains(final int field, final String text)
+   {
+      checkField(field);
+      final int last = ends[field] - text.length();
+      for (int start = starts[field]; start <= last; start++)
+      {
+         int i = 0;
+         while ((i < text.length()) && (record[start + i] == text.charAt(i)))
+            i++;
+         if (i == text.length())
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (null != in)
+         in.close();
+   }
+
+   /**
+    * Moves to the next tokenized record.
+    *
+    * @return <li><code>true</code> if there was one</li> <li>
+    *         <code>false</code> after the last one</li>
+    */
+   private boolean nextContent()
+   {
+      if (contentRecord == content.records)
+      {
+         fieldCount = 0;
+         return false;
+      }
+
+      final int first = content.firstFields[contentRecord];
+      fieldCount = content.firstFields[contentRecord + 1] - first;
+      if (fieldCount > starts.length)
+      {
+         starts = new int[fieldCount];
+         ends = new int[fieldCount];
+         quoted = new boolean[fieldCount];
+      }
+      System.arraycopy(content.starts, first, starts, 0, fieldCount);
+      System.arraycopy(content.ends, first, ends, 0, fieldCount);
+      System.arraycopy(content.quoted, first, quoted, 0, fieldCount);
+      record = content.chars;
+      contentRecord++;
+      recordNumber++;
+      return true;
+   }
+
+   /**
+    * @param field
+    *           The index of a value of the current record.
+    *
+    * @throws IndexOutOfBoundsException
+    *            The current record has no value of that index.
+    */
+   private void checkField(final int field)
+   {
+      if ((field < 0) || (field >= fieldCount))
+         throw new IndexOutOfBoundsException("Record " + recordNumber + " has no value " + field + " (" + fieldCount
+               + " values).");
+   }
+
+   /**
+    * Starts a value at the end of the current record.
+    */
+   private void beginField()
+   {
+      if (fieldCount == starts.length)
+      {
+         final int size = fieldCount * 2;
+         starts = grow(starts, size);
+         ends = grow(ends, size);
+         quoted = grow(quoted, size);
+      }
+      starts[fieldCount] = length;
+      quoted[fieldCount] = false;
+      fieldCount++;
+   }
+
+   /**
+    * Reads a quoted value, its opening quote read.
+    *
+    * @return The character after the closing quote, or EOF.
+    */
+   private int readQuoted() throws IOException
+   {
+      while (true)
+      {
+         int c = read();
+         if (EOF == c)
+            return c;
+         if ('"' == c)
+         {
+            c = read();
+            if ('"' != c)
+               return c;
+         }
+         append((char)c);
+      }
+   }
+
+   /**
+    * Appends a character to the current record.
+    *
+    * @param c
+    *           The character.
+    */
+   private void append(final char c)
+   {
+      if (length == record.length)
+      {
+         final char[] larger = new char[length * 2];
+         System.arraycopy(record, 0, larger, 0, length);
+         record = larger;
+      }
+      record[length++] = c;
+   }
+
+   /**
+    * @return The next character, or EOF.
+    */
+   private int read() throws IOException
+   {
+      if ((position == limit) && !fill())
+         return EOF;
+      return buffer[position++];
+   }
+
+   /**
+    * @return The next character, left to be read, or EOF.
+    */
+   private int peek() throws IOException
+   {
+      if ((position == limit) && !fill())
+         return EOF;
+      return buffer[position];
+   }
+
+   /**
+    * Fills the buffer.
+    *
+    * @return <li><code>true</code> if characters were read</li> <li>
+    *         <code>false</code> at the end of the file</li>
+    */
+   private boolean fill() throws IOException
+   {
+      int read;
+      do
+      {
+         read = in.read(buffer, 0, buffer.length);
+      }
+      while (0 == read);
+      position = 0;
+      limit = Math.max(read, 0);
+      return read > 0;
+   }
+
+   private static int[] grow(final int[] array, final int size)
+   {
+      final int[] larger = new int[size];
+      System.arraycopy(array, 0, larger, 0, array.length);
+      return larger;
+   }
+
+   private static boolean[] grow(final boolean[] array, final int size)
+   {
+      final boolean[] larger = new boolean[size];
+      System.arraycopy(array, 0, larger, 0, array.length);
+      return larger;
+   }
+
+   private static FieldView[] grow(final FieldView[] array, final int size)
+   {
+      final FieldView[] larger = new FieldView[Math.max(size, array.length * 2)];
+      System.arraycopy(array, 0, larger, 0, array.length);
+      return larger;
+   }
+
+   /**
+    * Tokenizes the CSV files kept in the cache.
+    */
+   private static final class ContentParser implements ParsedFileCache.Parser<Content>
+   {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public Content parse(final File file) throws IOException
+      {
+         return Content.read(file);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long weigh(final Content value, final long fileLength)
+      {
+         return value.weigh();
+      }
+   }
+
+   /**
+    * The records of a file, tokenized once: the characters of all the values
+    * end to end, and the bounds of each value. Never changed once read, so
+    * readers in several threads can share it.
+    */
+   private static final class Content
+   {
+      private final char[]    chars;
+      private final int       records;
+      private final int[]     firstFields;
+      private final int[]     starts;
+      private final int[]     ends;
+      private final boolean[] quoted;
+
+      /**
+       * Constructs the content.
+       *
+       * @param chars
+       *           The characters of the values.
+       * @param records
+       *           The number of records.
+       * @param firstFields
+       *           The index of the first value of each record, and the number
+       *           of values after the last one.
+       * @param starts
+       *           The start of each value in the characters.
+       * @param ends
+       *           The end of each value in the characters.
+       * @param quoted
+       *           Whether each value was between double quotes.
+       */
+      private Content(final char[] chars, final int records, final int[] firstFields, final int[] starts,
+            final int[] ends, final boolean[] quoted)
+      {
+         this.chars = chars;
+         this.records = records;
+         this.firstFields = firstFields;
+         this.starts = starts;
+         this.ends = ends;
+         this.quoted = quoted;
+      }
+
+      /**
+       * Tokenizes a file.
+       *
+       * @param file
+       *           The CSV file.
+       *
+       * @return The records.
+       */
+      static Content read(final File file) throws IOException
+      {
+         final CSVReader reader = open(file.getPath());
+         try
+         {
+            // A file of one-byte characters has as many characters as bytes
+            char[] chars = new char[(int)Math.min(file.length(), Integer.MAX_VALUE - 8)];
+            int length = 0;
+            int records = 0;
+            int[] firstFields = new int[64];
+            int fields = 0;
+            int[] starts = new int[256];
+            int[] ends = new int[256];
+            boolean[] quoted = new boolean[256];
+            while (reader.next())
+            {
+               if (records + 1 >= firstFields.length)
+                  firstFields = grow(firstFields, firstFields.length * 2);
+               if (fields + reader.fieldCount > starts.length)
+               {
+                  final int size = Math.max(starts.length * 2, fields + reader.fieldCount);
+                  starts = grow(starts, size);
+                  ends = grow(ends, size);
+                  quoted = grow(quoted, size);
+               }
+               if (length + reader.length > chars.length)
+               {
+                  final char[] larger = new char[Math.max(chars.length * 2, length + reader.length)];
+                  System.arraycopy(chars, 0, larger, 0, length);
+                  chars = larger;
+               }
+
+               firstFields[records++] = fields;
+               for (int i = 0; i < reader.fieldCount; i++, fields++)
+               {
+                  starts[fields] = length + reader.starts[i];
+                  ends[fields] = length + reader.ends[i];
+                  quoted[fields] = reader.quoted[i];
+               }
+               System.arraycopy(reader.record, 0, chars, length, reader.length);
+               length += reader.length;
+            }
+            firstFields[records] = fields;
+            return new Content(trim(chars, length), records, trim(firstFields, records + 1), trim(starts, fields),
+                  trim(ends, fields), trim(quoted, fields));
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+
+      /**
+       * @return The approximate number of bytes retained.
+       */
+      long weigh()
+      {
+         return weigh(chars.length, records, starts.length);
+      }
+
+      /**
+       * @param chars
+       *           A number of characters.
+       * @param records
+       *           A number of records.
+       * @param fields
+       *           A number of values.
+       *
+       * @return The approximate number of bytes retained by content of that
+       *         size.
+       */
+      static long weigh(final long chars, final long records, final long fields)
+      {
+         return 2 * chars + 4 * records + 9 * fields + 128;
+      }
+   }
+
+   private static char[] trim(final char[] array, final int size)
+   {
+      if (array.length == size)
+         return array;
+      final char[] trimmed = new char[size];
+      System.arraycopy(array, 0, trimmed, 0, size);
+      return trimmed;
+   }
+
+   private static int[] trim(final int[] array, final int size)
+   {
+      if (array.length == size)
+         return array;
+      final int[] trimmed = new int[size];
+      System.arraycopy(array, 0, trimmed, 0, size);
+      return trimmed;
+   }
+
+   private static boolean[] trim(final boolean[] array, final int size)
+   {
+      if (array.length == size)
+         return array;
+      final boolean[] trimmed = new boolean[size];
+      System.arraycopy(array, 0, trimmed, 0, size);
+      return trimmed;
+   }
+
+   /**
+    * A view on the value of an index in the current record.
+    */
+   private final class FieldView implements CharSequence
+   {
+      private final int field;
+
+      /**
+       * @param field
+       *           The index of the value.
+       */
+      private FieldView(final int field)
+      {
+         this.field = field;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public int length()
+      {
+         checkField(field);
+         return ends[field] - starts[field];
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public char charAt(final int index)
+      {
+         if ((index < 0) || (index >= length()))
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+         return record[starts[field] + index];
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public CharSequence subSequence(final int start, final int end)
+      {
+         return toString().substring(start, end);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public String toString()
+      {
+         return get(field);
+      }
+   }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Dataset compare class to implement the comparison of two tables of values,
+ * such as the rows read from a grid and the rows of an expected CSV or Excel
+ * file.
+ * <p>
+ * Both datasets hold the same columns, in the same order. The values are
+ * compared after trimming. Three modes are supported:
+ * <ul>
+ * <li>ORDERED: row N of the expected dataset is compared with row N of the
+ * actual one</li>
+ * <li>KEYED: the rows are paired by the values of the key columns, whatever
+ * their order, and the other columns of each pair are compared</li>
+ * <li>UNORDERED: the datasets must hold the same rows, whatever their order</li>
+ * </ul>
+ */
+public final class DatasetCompare
+{
+   /**
+    * The <code>Mode</code> enumerates the ways the rows of the datasets are
+    * paired.
+    */
+   public static enum Mode
+   {
+      /** Row N with row N */
+      ORDERED,
+
+      /** By the values of the key columns */
+      KEYED,
+
+      /** Same rows in any order */
+      UNORDERED;
+
+      /**
+       * Returns the mode with a given name, ignoring case. A null or empty name
+       * means KEYED if there are key columns, ORDERED otherwise.
+       *
+       * @param name
+       *           the name of the mode
+       * @param hasKeys
+       *           whether key columns were given
+       * @return the mode
+       * @throws IllegalArgumentException
+       *            if the name is not a mode
+       */
+      public static Mode fromName(final String name, final boolean hasKeys)
+      {
+         if (name == null || name.trim().isEmpty())
+         {
+            return hasKeys ? KEYED : ORDERED;
+         }
+         try
+         {
+            return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+         }
+         catch (IllegalArgumentException e)
+         {
+            throw new IllegalArgumentException("The compare mode must be ordered, keyed or unordered, not " + name);
+         }
+      }
+   }
+
+   /** Separates the values of a row in the keys of the maps */
+   private static final char SEPARATOR = '\u0000';
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private DatasetCompare()
+   {
+   }
+
+   /**
+    * Compares two datasets.
+    *
+    * @param columns
+    *           the names of the columns, used in the report
+    * @param expected
+    *           the expected rows
+    * @param actual
+    *           the actual rows
+    * @param keyColumns
+    *           the indexes (starting at 0) of the key columns, used by the
+    *           KEYED mode
+    * @param mode
+    *           how the rows are paired
+    * @return the differences
+    * @throws IllegalArgumentException
+    *            the KEYED mode is used without key columns
+    */
+   public static DatasetDiff compare(final String[] columns, final List<String[]> expected,
+         final List<String[]> actual, final int[] keyColumns, final Mode mode)
+   {
+      final DatasetDiff diff = new DatasetDiff();
+      switch (mode)
+      {
+         case KEYED:
+            if (keyColumns == null || keyColumns.length == 0)
+            {
+               throw new IllegalArgumentException("The keyed compare needs at least one key column.");
+            }
+            compareKeyed(columns, expected, actual, keyColumns, diff);
+            break;
+         case UNORDERED:
+            compareUnordered(expected, actual, diff);
+            break;
+         default:
+            compareOrdered(columns, expected, actual, diff);
+            break;
+      }
+      return diff;
+   }
+
+   /**
+    * Compares the rows in order.
+    *
+    * @param columns
+    *           the names of the columns
+    * @param expected
+    *           the expected rows
+    * @param actual
+    *           the actual rows
+    * @param diff
+    *           the differences found
+    */
+   private static void compareOrdered(final String[] columns, final List<String[]> expected,
+         final List<String[]> actual, final DatasetDiff diff)
+   {
+      for (int i = 0; i < expected.size(); i++)
+      {
+         diff.countRow();
+         if (i >= actual.size())
+         {
+            diff.add("row " + (i + 1) + " missing " + format(expected.get(i)));
+         }
+         else
+         {
+            compareCells("row " + (i + 1), columns, expected.get(i), actual.get(i), diff);
+         }
+      }
+      for (int i = expected.size(); i < actual.size(); i++)
+      {
+         diff.add("row " + (i + 1) + " unexpected " + format(actual.get(i)));
+      }
+   }
+
+   /**
+    * Compares the rows paired by their keys. The rows of a key repeated in
+    * both datasets are paired in their order; the extra rows of a key are
+    * reported as missing or unexpected.
+    *
+    * @param columns
+    *           the names of the columns
+    * @param expected
+    *           the expected rows
+    * @param actual
+    *           the actual rows
+    * @param keyColumns
+    *           the indexes of the key columns
+    * @param diff
+    *           the differences found
+    */
+   private static void compareKeyed(final String[] columns, final List<String[]> expected,
+         final List<String[]> actual, final int[] keyColumns, final DatasetDiff diff)
+   {
+      final Map<String, Queue<String[]>> actualByKey = new LinkedHashMap<String, Queue<String[]>>();
+      for (String[] row : actual)
+      {
+         final String key = key(row, keyColumns);
+         Queue<String[]> rows = actualByKey.get(key);
+         if (rows == null)
+         {
+            rows = new ArrayDeque<String[]>(1);
+            actualByKey.put(key, rows);
+         }
+         rows.add(row);
+      }
+
+      for (String[] row : expected)
+      {
+         diff.countRow();
+         final String[] keyValues = values(row, keyColumns);
+         final String key = key(row, keyColumns);
+         final Queue<String[]> rows = actualByKey.get(key);
+         final String[] match = (rows == null) ? null : rows.poll();
+         if (rows != null && rows.isEmpty())
+         {
+            actualByKey.remove(key);
+         }
+         if (match == null)
+         {
+            diff.add("missing key " + format(keyValues));
+         }
+         else
+         {
+            compareCells("key " + format(keyValues), columns, row, match, diff);
+         }
+      }
+
+      for (Queue<String[]> rows : actualByKey.values())
+      {
+         for (String[] row : rows)
+         {
+            diff.add("unexpected key " + format(values(row, keyColumns)));
+         }
+      }
+   }
+
+   /**
+    * Compares the rows as multisets.
+    *
+    * @param expected
+    *           the expected rows
+    * @param actual
+    *           the actual rows
+    * @param diff
+    *           the differences found
+    */
+   private static void compareUnordered(final List<String[]> expected, final List<String[]> actual,
+         final DatasetDiff diff)
+   {
+      final Map<String, Integer> counts = new HashMap<String, Integer>();
+      final Map<String, String[]> samples = new LinkedHashMap<String, String[]>();
+      for (String[] row : actual)
+      {
+         final String key = key(row, null);
+         final Integer count = counts.get(key);
+         counts.put(key, count == null ? 1 : count + 1);
+         samples.put(key, row);
+      }
+
+      for (String[] row : expected)
+      {
+         diff.countRow();
+         final String key = key(row, null);
+         final Integer count = counts.get(key);
+         if (count == null || count == 0)
+         {
+            diff.add("missing " + format(row));
+         }
+         else
+         {
+            counts.put(key, count - 1);
+         }
+      }
+
+      for (Iterator<Map.Entry<String, String[]>> i = samples.entrySet().iterator(); i.hasNext();)
+      {
+         final Map.Entry<String, String[]> entry = i.next();
+         for (int extra = counts.get(entry.getKey()); extra > 0; extra--)
+         {
+            diff.add("unexpected " + format(entry.getValue()));
+         }
+      }
+   }
+
+   /**
+    * Compares the cells of two paired rows.
+    *
+    * @param where
+    *           the description of the row in the report
+    * @param columns
+    *           the names of the columns
+    * @param expected
+    *           the expected row
+    * @param actual
+    *           the actual row
+    * @param diff
+    *           the differences found
+    */
+   private static void compareCells(final String where, final String[] columns, final String[] expected,
+         final String[] actual, final DatasetDiff diff)
+   {
+      final int count = Math.max(expected.length, actual.length);
+      for (int c = 0; c < count; c++)
+      {
+         final String expectedValue = cell(expected, c);
+         final String actualValue = cell(actual, c);
+         if (!expectedValue.equals(actualValue))
+         {
+            final String column = (columns != null && c < columns.length) ? columns[c] : Integer.toString(c + 1);
+            diff.add(where + " [" + column + "] expected '" + expectedValue + "' but was '" + actualValue + "'");
+         }
+      }
+   }
+
+   /**
+    * @param row
+    *           a row
+    * @param column
+    *           the index of a column
+    * @return the trimmed value of the cell, empty if missing
+    */
+   private static String cell(final String[] row, final int column)
+   {
+      return (column < row.length && row[column] != null) ? row[column].trim() : "";
+   }
+
+   /**
+    * @param row
+    *           a row
+    * @param columns
+    *           the indexes of the columns
+    * @return the trimmed values of the columns
+    */
+   private static String[] values(final String[] row, final int[] columns)
+   {
+      final String[] values = new String[columns.length];
+      for (int i = 0; i < columns.length; i++)
+      {
+         values[i] = cell(row, columns[i]);
+      }
+      return values;
+   }
+
+   /**
+    * @param row
+    *           a row
+    * @param columns
+    *           the indexes of the key columns, or null for all of them
+    * @return the key of the row
+    */
+   private static String key(final String[] row, final int[] columns)
+   {
+      final StringBuilder key = new StringBuilder();
+      if (columns == null)
+      {
+         for (int c = 0; c < row.length; c++)
+         {
+            key.append(cell(row, c)).append(SEPARATOR);
+         }
+      }
+      else
+      {
+         for (int column : columns)
+         {
+            key.append(cell(row, column)).append(SEPARATOR);
+         }
+      }
+      return key.toString();
+   }
+
+   /**
+    * @param values
+    *           the values of a row
+    * @return the values formatted for the report
+    */
+   private static String format(final String[] values)
+   {
+      final List<String> trimmed = new ArrayList<String>(values.length);
+      for (int c = 0; c < values.length; c++)
+      {
+         trimmed.add(cell(values, c));
+      }
+      return Arrays.toString(trimmed.toArray());
+   }
+}
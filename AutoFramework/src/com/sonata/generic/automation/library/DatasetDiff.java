@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The <code>DatasetDiff</code> class holds the differences found by
+ * {@link DatasetCompare} between an expected and an actual dataset.
+ */
+public final class DatasetDiff
+{
+   /** Number of differences listed in the report, the others are counted */
+   private static final int   MAX_REPORTED = 20;
+
+   private final List<String> differences  = new ArrayList<String>();
+   private int                comparedRows;
+
+   /**
+    * Records a difference.
+    *
+    * @param difference
+    *           the description of the difference
+    */
+   void add(final String difference)
+   {
+      differences.add(difference);
+   }
+
+   /**
+    * Records that a row was compared.
+    */
+   void countRow()
+   {
+      comparedRows++;
+   }
+
+   /**
+    * @return <li><code>True </code>if the datasets are the same</li> <li>
+    *         <code>False </code>otherwise</li>
+    */
+   public boolean isMatch()
+   {
+      return differences.isEmpty();
+   }
+
+   /**
+    * @return the descriptions of the differences, in the order they were found
+    */
+   public List<String> getDifferences()
+   {
+      return Collections.unmodifiableList(differences);
+   }
+
+   /**
+    * @return the number of expected rows compared
+    */
+   public int getComparedRows()
+   {
+      return comparedRows;
+   }
+
+   /**
+    * Builds a compact report of the differences, listing the first ones and
+    * counting the others.
+    *
+    * @return <code>OK</code> if the datasets are the same, otherwise the report
+    */
+   public String getReport()
+   {
+      if (isMatch())
+      {
+         return "OK";
+      }
+      final StringBuilder report = new StringBuilder();
+      report.append(differences.size()).append(" difference(s) in ").append(comparedRows).append(" row(s): ");
+      for (int i = 0; i < differences.size() && i < MAX_REPORTED; i++)
+      {
+         if (i > 0)
+         {
+            report.append("; ");
+         }
+         report.append(differences.get(i));
+      }
+      if (differences.size() > MAX_REPORTED)
+      {
+         report.append("; and ").append(differences.size() - MAX_REPORTED).append(" more");
+      }
+      return report.toString();
+   }
+
+   @Override
+   public String toString()
+   {
+      return getReport();
+   }
+}
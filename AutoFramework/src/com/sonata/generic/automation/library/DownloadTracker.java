@@ -0,0 +1,591 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download Tracker.
+ *
+ * Detects when a file downloaded by the browser is complete, based on the NIO
+ * {@link WatchService} rather than polling the download directory.
+ *
+ * A single watch service and watcher thread serve every directory being
+ * waited on, so many downloads can be tracked at the same time in different
+ * directories (one per browser session). The watcher thread only forwards the
+ * create, modify and rename (delete + create) events to the threads waiting on
+ * that directory; each waiting thread decides on its own when a file is
+ * complete:
+ * <ul>
+ * <li>the file has one of the expected final extensions, so browser temporary
+ * files such as <code>90F1.tmp</code> or <code>report.csv.crdownload</code> are
+ * never returned</li>
+ * <li>the file is new or changed since the {@link Snapshot} of the directory
+ * taken before the action starting the download</li>
+ * <li>the file is not empty</li>
+ * <li>its size did not change and no event was received for it during the
+ * stability period</li>
+ * </ul>
+ */
+public final class DownloadTracker
+{
+   /** Extensions of the exported reports */
+   public static final String[]         REPORT_EXTENSIONS  = {"pdf", "csv", "xml"};
+
+   /**
+    * Time in milliseconds a file must stay unchanged to be considered complete.
+    */
+   private static final long            STABLE_PERIOD      = 300;
+
+   /** Extensions used by the browsers while a download is in progress */
+   private static final String[]        PARTIAL_EXTENSIONS = {"tmp", "crdownload", "part", "partial", "download"};
+
+   private static final DownloadTracker INSTANCE           = new DownloadTracker();
+
+   private final Object                 lock               = new Object();
+   private final Map<Path, Registration> registrations     = new HashMap<Path, Registration>();
+   private WatchService                 watchService;
+
+   /**
+    * The constructor was made private, use {@link #getInstance()}.
+    */
+   private DownloadTracker()
+   {
+   }
+
+   /**
+    * Returns the tracker shared by all the browser sessions of the process.
+    *
+    * @return the download tracker
+    */
+   public static DownloadTracker getInstance()
+   {
+      return INSTANCE;
+   }
+
+   /**
+    * Takes a snapshot of a download directory, to be taken before the action
+    * starting the download. The directory is created if needed.
+    *
+    * @param fileDir
+    *           the download directory
+    * @return the files of the directory, with their sizes and modification
+    *         times
+    * @throws IOException
+    *            if the directory cannot be created or read
+    */
+   public Snapshot snapshot(final String fileDir) throws IOException
+   {
+      final Path dir = Paths.get(fileDir).toAbsolutePath().normalize();
+      Files.createDirectories(dir);
+      final Map<Path, FileState> files = new HashMap<Path, FileState>();
+      for (Path path : listFiles(dir))
+      {
+         files.put(path, FileState.of(path));
+      }
+      return new Snapshot(dir, files);
+   }
+
+   /**
+    * Waits for a download to complete in a directory and returns it as soon as
+    * it is complete.
+    *
+    * The files created or changed since the snapshot are candidates, including
+    * those completed before this call, so a download which started or ended
+    * before the wait is not missed; the files left unchanged are not.
+    *
+    * @param before
+    *           the snapshot of the download directory taken before the action
+    *           starting the download
+    * @param extensions
+    *           the accepted final extensions, without the dot, ignoring case
+    * @param timeout
+    *           the amount of time in milliseconds to wait before giving up
+    *
+    * @return <li><code>the downloaded file</code></li> <li><code>null</code> if
+    *         no download completed within the timeout or the waiting thread
+    *         was interrupted</li>
+    * @throws IOException
+    *            if the directory cannot be watched or read
+    */
+   public File waitForDownload(final Snapshot before, final String[] extensions, final long timeout)
+         throws IOException
+   {
+      final Path dir = before.dir;
+      final long deadline = System.currentTimeMillis() + timeout;
+      Files.createDirectories(dir);
+      final Waiter waiter = register(dir);
+
+      try
+      {
+         final Map<Path, Candidate> candidates = new HashMap<Path, Candidate>();
+         addCandidates(candidates, listFiles(dir));
+
+         while (true)
+         {
+            final long now = System.currentTimeMillis();
+            final File completed = findCompleted(before, candidates, extensions, now);
+            if (completed != null)
+            {
+               return completed;
+            }
+            if (now >= deadline)
+            {
+               return null;
+            }
+
+            // Sleep until the next event, or until a candidate may have become stable
+            final long wait = candidates.isEmpty() ? deadline - now : Math.min(STABLE_PERIOD, deadline - now);
+            Path changed = waiter.changes.poll(wait, TimeUnit.MILLISECONDS);
+            while (changed != null)
+            {
+               if (changed.equals(dir))
+               {
+                  // Events were lost: every file of the directory may have changed
+                  addCandidates(candidates, listFiles(dir));
+               }
+               else
+               {
+                  addCandidates(candidates, Collections.singletonList(changed));
+               }
+               changed = waiter.changes.poll();
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         return null;
+      }
+      finally
+      {
+         unregister(dir, waiter);
+      }
+   }
+
+   /**
+    * Adds changed files to the candidates, or records a new change for those
+    * already candidates.
+    *
+    * @param candidates
+    *           the files seen in the directory
+    * @param changed
+    *           the changed files
+    */
+   private static void addCandidates(final Map<Path, Candidate> candidates, final List<Path> changed)
+   {
+      for (Path path : changed)
+      {
+         final Candidate candidate = candidates.get(path);
+         if (candidate == null)
+         {
+            candidates.put(path, new Candidate());
+         }
+         else
+         {
+            candidate.touch();
+         }
+      }
+   }
+
+   /**
+    * Checks the candidates and returns the first one that is complete.
+    * Candidates which disappeared (renamed temporary files) or are unchanged
+    * since the snapshot are dropped; a later change adds them again.
+    *
+    * @param before
+    *           the snapshot of the directory
+    * @param candidates
+    *           the files seen in the directory
+    * @param extensions
+    *           the accepted final extensions
+    * @param now
+    *           the current time
+    * @return the completed file, or null if none is complete yet
+    */
+   private static File findCompleted(final Snapshot before, final Map<Path, Candidate> candidates,
+         final String[] extensions, final long now)
+   {
+      final Iterator<Map.Entry<Path, Candidate>> iterator = candidates.entrySet().iterator();
+      while (iterator.hasNext())
+      {
+         final Map.Entry<Path, Candidate> entry = iterator.next();
+         final Path path = entry.getKey();
+         if (!hasFinalExtension(path, extensions))
+         {
+            // Keep waiting for the rename; the final name comes as a new event
+            iterator.remove();
+            continue;
+         }
+         final FileState state;
+         try
+         {
+            state = FileState.of(path);
+         }
+         catch (IOException e)
+         {
+            iterator.remove();
+            continue;
+         }
+         if (state.equals(before.files.get(path)))
+         {
+            // There before the action and not changed since
+            iterator.remove();
+            continue;
+         }
+         if (entry.getValue().isStable(state.size, now))
+         {
+            return path.toFile();
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Checks whether a file has one of the accepted final extensions.
+    *
+    * @param path
+    *           the file
+    * @param extensions
+    *           the accepted extensions
+    * @return <li><code>True</code> if the extension is accepted</li> <li>
+    *         <code>False</code> otherwise</li>
+    */
+   private static boolean hasFinalExtension(final Path path, final String[] extensions)
+   {
+      final String name = path.getFileName().toString().toLowerCase(Locale.ENGLISH);
+      for (String partial : PARTIAL_EXTENSIONS)
+      {
+         if (name.endsWith("." + partial))
+         {
+            return false;
+         }
+      }
+      for (String extension : extensions)
+      {
+         if (name.endsWith("." + extension.toLowerCase(Locale.ENGLISH)))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Lists the regular files of a directory.
+    *
+    * @param dir
+    *           the directory
+    * @return the files
+    * @throws IOException
+    *            if the directory cannot be read
+    */
+   private static List<Path> listFiles(final Path dir) throws IOException
+   {
+      final List<Path> files = new ArrayList<Path>();
+      final DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+      try
+      {
+         for (Path path : stream)
+         {
+            if (Files.isRegularFile(path))
+            {
+               files.add(path);
+            }
+         }
+      }
+      finally
+      {
+         stream.close();
+      }
+      return files;
+   }
+
+   /**
+    * Registers a waiter on a directory, starting to watch the directory if it
+    * is the first waiter.
+    *
+    * @param dir
+    *           the directory
+    * @return the waiter receiving the changed paths
+    * @throws IOException
+    *            if the directory cannot be watched
+    */
+   private Waiter register(final Path dir) throws IOException
+   {
+      synchronized (lock)
+      {
+         if (watchService == null)
+         {
+            watchService = FileSystems.getDefault().newWatchService();
+            final Thread watcher = new Thread(new Runnable()
+            {
+               @Override
+               public void run()
+               {
+                  dispatchEvents();
+               }
+            }, "download-tracker");
+            watcher.setDaemon(true);
+            watcher.start();
+         }
+         Registration registration = registrations.get(dir);
+         if (registration == null)
+         {
+            registration = new Registration(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+            registrations.put(dir, registration);
+         }
+         final Waiter waiter = new Waiter();
+         registration.waiters.add(waiter);
+         return waiter;
+      }
+   }
+
+   /**
+    * Removes a waiter, and stops watching the directory if it was the last one.
+    *
+    * @param dir
+    *           the directory
+    * @param waiter
+    *           the waiter to remove
+    */
+   private void unregister(final Path dir, final Waiter waiter)
+   {
+      synchronized (lock)
+      {
+         final Registration registration = registrations.get(dir);
+         if (registration == null)
+         {
+            return;
+         }
+         registration.waiters.remove(waiter);
+         if (registration.waiters.isEmpty())
+         {
+            registration.key.cancel();
+            registrations.remove(dir);
+         }
+      }
+   }
+
+   /**
+    * The watcher thread loop: forwards each event to the waiters of its
+    * directory. An overflow means events were lost: the directory itself is
+    * forwarded, and the waiters list it again.
+    */
+   private void dispatchEvents()
+   {
+      while (true)
+      {
+         final WatchKey key;
+         try
+         {
+            key = watchService.take();
+         }
+         catch (InterruptedException e)
+         {
+            return;
+         }
+         catch (ClosedWatchServiceException e)
+         {
+            return;
+         }
+
+         final Path dir = (Path)key.watchable();
+         final List<Path> changed = new ArrayList<Path>();
+         for (WatchEvent<?> event : key.pollEvents())
+         {
+            if (event.kind() == OVERFLOW)
+            {
+               changed.add(dir);
+            }
+            else if (event.kind() != ENTRY_DELETE)
+            {
+               // A delete is either a cleanup or the first half of a rename; the
+               // waiter drops candidates which no longer exist on its own
+               changed.add(dir.resolve((Path)event.context()));
+            }
+         }
+         key.reset();
+
+         synchronized (lock)
+         {
+            final Registration registration = registrations.get(dir);
+            if (registration != null)
+            {
+               for (Waiter waiter : registration.waiters)
+               {
+                  waiter.changes.addAll(changed);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * The files of a download directory before an action, as returned by
+    * {@link DownloadTracker#snapshot(String)}.
+    */
+   public static final class Snapshot
+   {
+      private final Path                 dir;
+      private final Map<Path, FileState> files;
+
+      /**
+       * @param dir
+       *           the directory
+       * @param files
+       *           the state of its files
+       */
+      private Snapshot(final Path dir, final Map<Path, FileState> files)
+      {
+         this.dir = dir;
+         this.files = files;
+      }
+
+      /**
+       * Returns the snapshot of an empty directory, so every file of the
+       * directory is a candidate: for callers which cleaned the directory
+       * themselves before the action.
+       *
+       * @param fileDir
+       *           the download directory
+       * @return the snapshot
+       */
+      public static Snapshot empty(final String fileDir)
+      {
+         return new Snapshot(Paths.get(fileDir).toAbsolutePath().normalize(), Collections.<Path, FileState> emptyMap());
+      }
+   }
+
+   /** The size and modification time of a file. */
+   private static final class FileState
+   {
+      private final long size;
+      private final long lastModified;
+
+      /**
+       * @param size
+       *           the size of the file
+       * @param lastModified
+       *           the modification time of the file
+       */
+      private FileState(final long size, final long lastModified)
+      {
+         this.size = size;
+         this.lastModified = lastModified;
+      }
+
+      /**
+       * @param path
+       *           a file
+       * @return its current state
+       * @throws IOException
+       *            if the file cannot be read, e.g. it was renamed
+       */
+      private static FileState of(final Path path) throws IOException
+      {
+         return new FileState(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         if (!(other instanceof FileState))
+         {
+            return false;
+         }
+         final FileState state = (FileState)other;
+         return size == state.size && lastModified == state.lastModified;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return (int)(size ^ lastModified);
+      }
+   }
+
+   /** A watched directory and the threads waiting on it. */
+   private static final class Registration
+   {
+      private final WatchKey     key;
+      private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+      /**
+       * @param key
+       *           the watch key of the directory
+       */
+      private Registration(final WatchKey key)
+      {
+         this.key = key;
+      }
+   }
+
+   /** The changed paths forwarded to one waiting thread. */
+   private static final class Waiter
+   {
+      private final BlockingQueue<Path> changes = new LinkedBlockingQueue<Path>();
+   }
+
+   /** The size history of a file seen while waiting. */
+   private static final class Candidate
+   {
+      private long lastSize   = -1;
+      private long lastChange = System.currentTimeMillis();
+
+      /** Records that an event was received for the file. */
+      private void touch()
+      {
+         lastChange = System.currentTimeMillis();
+      }
+
+      /**
+       * Records the current size and checks whether the file is complete.
+       *
+       * @param size
+       *           the current size of the file
+       * @param now
+       *           the current time
+       * @return <li><code>True</code> if the file is not empty and did not
+       *         change during the stability period</li> <li><code>False</code>
+       *         otherwise</li>
+       */
+      private boolean isStable(final long size, final long now)
+      {
+         if (size != lastSize)
+         {
+            lastSize = size;
+            lastChange = now;
+            return false;
+         }
+         return size > 0 && now - lastChange >= STABLE_PERIOD;
+      }
+   }
+}
@@ -16,6 +16,7 @@ import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.util.CellReference;
 
 /**
@@ -26,6 +27,8 @@ import org.apache.poi.ss.util.CellReference;
  */
 public final class ExcelHelper {
 
+	private static final WorkbookParser WORKBOOK_PARSER = new WorkbookParser();
+
 	/**
 	 * The constructor was made private so it can never be instantiated.
 	 */
@@ -45,20 +48,23 @@ public final class ExcelHelper {
 	public static double getSummationResult(final String excelFile,
 			final String summationCellLocation) {
 
-		InputStream myxls;
 		HSSFWorkbook wb;
 		double summationResult = 0;
 		try {
-			myxls = new FileInputStream(excelFile);
-			wb = new HSSFWorkbook(myxls);
-			CellReference cellReference = new CellReference(
-					summationCellLocation);
-			HSSFSheet sheet = wb.getSheetAt(0);
-			HSSFRow row = sheet.getRow(cellReference.getRow());
-			HSSFCell cell = row.getCell((int) cellReference.getCol());
-			HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
-			if (evaluator.evaluateInCell(cell).getCellType() == HSSFCell.CELL_TYPE_NUMERIC) {
-				summationResult = cell.getNumericCellValue();
+			wb = readWorkbook(excelFile);
+			synchronized (wb) {
+				CellReference cellReference = new CellReference(
+						summationCellLocation);
+				HSSFSheet sheet = wb.getSheetAt(0);
+				HSSFRow row = sheet.getRow(cellReference.getRow());
+				HSSFCell cell = row.getCell((int) cellReference.getCol());
+				// The cached workbook is shared: the formula is evaluated
+				// without being replaced by its value
+				HSSFFormulaEvaluator evaluator = new HSSFFormulaEvaluator(wb);
+				CellValue cellValue = evaluator.evaluate(cell);
+				if (cellValue.getCellType() == HSSFCell.CELL_TYPE_NUMERIC) {
+					summationResult = cellValue.getNumberValue();
+				}
 			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -109,6 +115,9 @@ public final class ExcelHelper {
 			wb.write(fileOut);
 			fileOut.flush();
 			fileOut.close();
+			// Written again within the time resolution of the file system,
+			// the file could keep its length and last modified time
+			ParsedFileCache.getDefault().invalidate(new File(tempFile));
 			return true;
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -130,17 +139,17 @@ public final class ExcelHelper {
 	public static Double getNumericDataFromCell(final String excelName,
 			final String cellLocation) {
 
-		InputStream inputStream;
 		HSSFWorkbook wb;
 		double value = 0;
 		try {
-			inputStream = new FileInputStream(excelName);
-			wb = new HSSFWorkbook(inputStream);
-			CellReference cellReference = new CellReference(cellLocation);
-			HSSFSheet sheet = wb.getSheetAt(0);
-			HSSFRow row = sheet.getRow(cellReference.getRow());
-			HSSFCell cell = row.getCell((int) cellReference.getCol());
-			value = cell.getNumericCellValue();
+			wb = readWorkbook(excelName);
+			synchronized (wb) {
+				CellReference cellReference = new CellReference(cellLocation);
+				HSSFSheet sheet = wb.getSheetAt(0);
+				HSSFRow row = sheet.getRow(cellReference.getRow());
+				HSSFCell cell = row.getCell((int) cellReference.getCol());
+				value = cell.getNumericCellValue();
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
@@ -161,17 +170,17 @@ public final class ExcelHelper {
 	public static String checkCellFormat(final String excelName,
 			final String cellLocation) {
 
-		InputStream inputStream;
 		HSSFWorkbook wb;
 		try {
-			inputStream = new FileInputStream(excelName);
-			wb = new HSSFWorkbook(inputStream);
-			CellReference cellReference = new CellReference(cellLocation);
-			HSSFSheet sheet = wb.getSheetAt(0);
-			HSSFRow row = sheet.getRow(cellReference.getRow());
-			HSSFCell cell = row.getCell((int) cellReference.getCol());
-			if (cell.getCellType() == HSSFCell.CELL_TYPE_NUMERIC) {
-				return "NUMERIC";
+			wb = readWorkbook(excelName);
+			synchronized (wb) {
+				CellReference cellReference = new CellReference(cellLocation);
+				HSSFSheet sheet = wb.getSheetAt(0);
+				HSSFRow row = sheet.getRow(cellReference.getRow());
+				HSSFCell cell = row.getCell((int) cellReference.getCol());
+				if (cell.getCellType() == HSSFCell.CELL_TYPE_NUMERIC) {
+					return "NUMERIC";
+				}
 			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -218,17 +227,17 @@ public final class ExcelHelper {
 	 */
 	public static String getLastRowNumberFromExcel(final String excelName) {
 
-		InputStream inputStream;
 		HSSFWorkbook wb;
 		String value = "";
 		try {
-			inputStream = new FileInputStream(excelName);
-			wb = new HSSFWorkbook(inputStream);
-			HSSFSheet sheet = wb.getSheetAt(0);
-			// Apache POI counts Row starting from 0. So the result has been
-			// added with 1.
-			int lastRowNumber = sheet.getLastRowNum() + 1;
-			value = lastRowNumber + "";
+			wb = readWorkbook(excelName);
+			synchronized (wb) {
+				HSSFSheet sheet = wb.getSheetAt(0);
+				// Apache POI counts Row starting from 0. So the result has
+				// been added with 1.
+				int lastRowNumber = sheet.getLastRowNum() + 1;
+				value = lastRowNumber + "";
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
@@ -236,4 +245,50 @@ public final class ExcelHelper {
 		}
 		return value;
 	}
+
+	/**
+	 * Reads the given excel file, from the cache if it has not changed since
+	 * it was last read. The workbook is shared: it is only read, and under its
+	 * lock.
+	 * 
+	 * @param excelName
+	 *            Path of Excel file
+	 * @return the workbook
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static HSSFWorkbook readWorkbook(final String excelName)
+			throws IOException {
+		return ParsedFileCache.getDefault().get(new File(excelName),
+				WORKBOOK_PARSER);
+	}
+
+	/**
+	 * Reads the excel files kept in the cache. A workbook is weighed at eight
+	 * times the size of its file, about what the POI model takes.
+	 */
+	private static final class WorkbookParser implements
+			ParsedFileCache.Parser<HSSFWorkbook> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public HSSFWorkbook parse(final File file) throws IOException {
+			InputStream inputStream = new FileInputStream(file);
+			try {
+				return new HSSFWorkbook(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long weigh(final HSSFWorkbook value, final long fileLength) {
+			return 8 * fileLength;
+		}
+	}
 }
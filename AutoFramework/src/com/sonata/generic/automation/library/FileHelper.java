@@ -17,7 +17,9 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +30,7 @@ import org.apache.commons.io.FileUtils;
  */
 public final class FileHelper
 {
+   private static final LinesParser LINES_PARSER = new LinesParser();
 
    /**
     * The constructor was made private so it can never be instantiated.
@@ -611,39 +614,32 @@ public final class FileHelper
    /**
     * Wait for a file generated under a given directory and return the file name.
     * 
+    * The wait is driven by {@link DownloadTracker}: the directory is watched
+    * rather than polled, and browser temporary files (<code>.tmp</code>,
+    * <code>.crdownload</code>) are skipped until the report is complete. Any
+    * report of the directory is returned, as there is no snapshot of it before
+    * the export: the directory is to be cleaned before. Prefer
+    * {@link DownloadTracker#snapshot(String)}.
+    * 
     * @param fileDir
     *           dir path where to wait for a file to be generated
     *    
     * @param timeout
     *           The amount of time to wait before giving up.
     * @param interval
-    *           The frequency which to poll to check if file exists.
+    *           No longer used, kept for compatibility; the directory is
+    *           watched instead of polled.
  
     * @return <li><code>the generated file name</code></li>
     *            
+    * @throws IOException
+    *            if the directory cannot be watched or read
     */ 
-   public static String waitForRpt(final String fileDir, final int timeout, final int interval)
+   public static String waitForRpt(final String fileDir, final int timeout, final int interval) throws IOException
    {
-      File dirToVerify = new File(fileDir);
-      for (int index = 0; index < timeout; index += interval)
-      {
-         if(dirToVerify.list().length>0)
-         {
-            File[] listOfFiles = dirToVerify.listFiles();
-            if (listOfFiles[0].exists())
-            {
-               //For Chrome, a temp file like 90F1.tmp will be generated first
-               //Later when the file totally generated, it's changed to the name like CrystalReportViewerSage300.pdf
-               //so need enhance to wait until the real file is generated
-               if ((listOfFiles[0].length() > 0) && ( (listOfFiles[0].getName().endsWith(".pdf"))
-                    || (listOfFiles[0].getName().endsWith(".csv")) || (listOfFiles[0].getName().endsWith(".xml"))))
-                  
-                  return listOfFiles[0].getName();
-            }
-         }
-         TimeDelay.doPause(interval);
-      }
-      return null;
+      File report = DownloadTracker.getInstance().waitForDownload(DownloadTracker.Snapshot.empty(fileDir),
+            DownloadTracker.REPORT_EXTENSIONS, timeout);
+      return (report == null) ? null : report.getName();
    }
 
    /**
@@ -1046,24 +1042,18 @@ public final class FileHelper
    private static ArrayList<String> getAllLinesWithType(File file, String type)
    {
       ArrayList<String> types = new ArrayList<String>();
-      String line;
 
       try
       {
-         FileReader fileReader = new FileReader(file);
-         BufferedReader reader = new BufferedReader(fileReader);
-
-         while ((line = reader.readLine()) != null)
+         // The lines are cached until the log file changes, as several keys
+         // are usually read from the same one
+         for (String line : ParsedFileCache.getDefault().get(file, LINES_PARSER))
          {
             if (line.startsWith(type))
             {
                types.add(line);
             }
          }
-
-         // Close file
-         reader.close();
-
       }
       catch (Exception e)
       {
@@ -1146,4 +1136,43 @@ public final class FileHelper
          return null;
       }
    }
+
+   /**
+    * Reads the lines of the log files kept in the cache.
+    */
+   private static final class LinesParser implements ParsedFileCache.Parser<List<String>>
+   {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public List<String> parse(final File file) throws IOException
+      {
+         List<String> lines = new ArrayList<String>();
+         BufferedReader reader = new BufferedReader(new FileReader(file));
+         try
+         {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+               lines.add(line);
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+         return Collections.unmodifiableList(lines);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long weigh(final List<String> value, final long fileLength)
+      {
+         // Two bytes per character, and about 56 bytes of String per line
+         return 2 * fileLength + 56L * value.size();
+      }
+   }
 }
@@ -1,11 +1,13 @@
 package com.sonata.generic.automation.library;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * NumberCreator class.
  * 
- * Creates random integer and double numbers.
+ * Creates random integer and double numbers. Each thread has its own random
+ * generator, so tests running in parallel do not contend for one. The numbers
+ * are not unique: use {@link UniqueIdGenerator} for IDs.
  * 
  * @author Rodolfo
  *
@@ -17,11 +19,6 @@ public final class NumberCreator {
 	private NumberCreator() {
 	}
 	
-	/**
-	 * Random generator.
-	 */	
-	private static Random random = new Random();
-	
 	/**
 	 * Gets the next random integer as string.
 	 * 
@@ -32,7 +29,7 @@ public final class NumberCreator {
 	 */
 	public static String nextIntegerAsString(final Integer maximum) {
 
-		int aRandom = random.nextInt(maximum) + 1;
+		int aRandom = ThreadLocalRandom.current().nextInt(maximum) + 1;
 
 		return String.valueOf(aRandom);
 	}
@@ -47,7 +44,7 @@ public final class NumberCreator {
 	 */
 	public static String nextDoubleAsString(final Double maximum) {
 
-		double aRandom = random.nextDouble() * maximum + 0.1;
+		double aRandom = ThreadLocalRandom.current().nextDouble() * maximum + 0.1;
 
 		return String.valueOf(aRandom);
 	}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Bounded cache of parsed files, so the report files checked by several
+ * verifications in a row (CSV, XML and Excel exports, logs) are only parsed
+ * once. An entry is keyed by the canonical path of the file and the parser
+ * used, and is only used while the file keeps the same length and last
+ * modified time: a file exported again is parsed again. A file written again
+ * within the time resolution of the file system may keep both: the code
+ * writing it calls {@link #invalidate(File)}.
+ * </p>
+ *
+ * <p>
+ * The entries are weighed by the approximate number of bytes they retain; when
+ * the total goes over the maximum, the least recently used entries are
+ * dropped. A parsed value heavier than the maximum is not cached. The default
+ * cache holds 64 MB, set by the
+ * <code>com.sage.swt.automation.library.filecache.bytes</code> system
+ * property; 0 turns the cache off. Hits, misses and evictions are counted, see
+ * {@link #getStatistics()}.
+ * </p>
+ *
+ * <p>
+ * A cached value is shared by all the callers: it must not be changed, or be
+ * used under a lock if reading it is not thread-safe.
+ * </p>
+ */
+public final class ParsedFileCache
+{
+   /** System property giving the maximum weight of the default cache */
+   public static final String MAX_BYTES_PROPERTY = "com.sage.swt.automation.library.filecache.bytes";
+
+   /** Default maximum weight, in bytes */
+   public static final long   DEFAULT_MAX_BYTES  = 64L * 1024 * 1024;
+
+   /**
+    * Parses a file into a value which can be cached.
+    *
+    * @param <T>
+    *           The type of the parsed value.
+    */
+   public interface Parser<T>
+   {
+      /**
+       * @param file
+       *           The file.
+       *
+       * @return The parsed value, never changed afterwards.
+       *
+       * @throws IOException
+       *            The file could not be read or parsed.
+       */
+      T parse(File file) throws IOException;
+
+      /**
+       * @param value
+       *           A value returned by {@link #parse(File)}.
+       * @param fileLength
+       *           The length of the file parsed.
+       *
+       * @return The approximate number of bytes the value retains.
+       */
+      long weigh(T value, long fileLength);
+   }
+
+   private final long               maxBytes;
+   private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+   private long                     weight;
+   private long                     hits;
+   private long                     misses;
+   private long                     evictions;
+
+   /**
+    * Constructs a cache.
+    *
+    * @param maxBytes
+    *           The maximum weight of the entries, 0 to cache nothing.
+    */
+   public ParsedFileCache(final long maxBytes)
+   {
+      if (maxBytes < 0)
+         throw new IllegalArgumentException("The maximum weight cannot be negative: " + maxBytes);
+      this.maxBytes = maxBytes;
+   }
+
+   /**
+    * @return The cache shared by the helpers of this package.
+    */
+   public static ParsedFileCache getDefault()
+   {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * Gets the parsed value of a file, parsing it if it is not cached or the
+    * file has changed since.
+    *
+    * @param <T>
+    *           The type of the parsed value.
+    * @param file
+    *           The file.
+    * @param parser
+    *           The parser; the values of different parser classes are cached
+    *           apart.
+    *
+    * @return The parsed value, shared with the other callers.
+    *
+    * @throws IOException
+    *            The file could not be read or parsed.
+    */
+   @SuppressWarnings("unchecked")
+   public <T> T get(final File file, final Parser<T> parser) throws IOException
+   {
+      final String key = file.getCanonicalPath() + "#" + parser.getClass().getName();
+      final long lastModified = file.lastModified();
+      final long length = file.length();
+
+      synchronized (this)
+      {
+         Entry entry = entries.get(key);
+         if ((null != entry) && (entry.lastModified == lastModified) && (entry.length == length))
+         {
+            hits++;
+            return (T)entry.value;
+         }
+         if (null != entry)
+            remove(key);
+         misses++;
+      }
+
+      // Parse outside of the lock, a caller waiting for another file is not
+      // held up by a large one
+      final T value = parser.parse(file);
+      final long valueWeight = parser.weigh(value, length);
+
+      // A file changed while it was parsed is parsed again by the next caller
+      if ((0 == maxBytes) || (valueWeight > maxBytes) || (file.lastModified() != lastModified)
+            || (file.length() != length))
+         return value;
+
+      synchronized (this)
+      {
+         if (null != entries.get(key))
+            remove(key);
+         entries.put(key, new Entry(lastModified, length, value, valueWeight));
+         weight += valueWeight;
+         Iterator<Entry> eldest = entries.values().iterator();
+         while (weight > maxBytes)
+         {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+         }
+      }
+      return value;
+   }
+
+   /**
+    * Drops the parsed values of a file.
+    *
+    * @param file
+    *           The file.
+    *
+    * @throws IOException
+    *            The canonical path of the file cannot be found.
+    */
+   public synchronized void invalidate(final File file) throws IOException
+   {
+      final String prefix = file.getCanonicalPath() + "#";
+      Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext())
+      {
+         Map.Entry<String, Entry> entry = iterator.next();
+         if (entry.getKey().startsWith(prefix))
+         {
+            weight -= entry.getValue().weight;
+            iterator.remove();
+         }
+      }
+   }
+
+   /**
+    * Drops all the parsed values; the statistics are kept.
+    */
+   public synchronized void clear()
+   {
+      entries.clear();
+      weight = 0;
+   }
+
+   /**
+    * @return The maximum weight of the entries.
+    */
+   public long getMaxBytes()
+   {
+      return maxBytes;
+   }
+
+   /**
+    * @return The approximate number of bytes retained by the entries.
+    */
+   public synchronized long getWeight()
+   {
+      return weight;
+   }
+
+   /**
+    * @return The number of cached values.
+    */
+   public synchronized int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * @return The number of values found in the cache.
+    */
+   public synchronized long getHitCount()
+   {
+      return hits;
+   }
+
+   /**
+    * @return The number of files parsed, as they were not cached or had
+    *         changed.
+    */
+   public synchronized long getMissCount()
+   {
+      return misses;
+   }
+
+   /**
+    * @return The number of values dropped to make room for others.
+    */
+   public synchronized long getEvictionCount()
+   {
+      return evictions;
+   }
+
+   /**
+    * @return A one-line summary of the counters, such as
+    *         <code>12 hit(s), 3 miss(es), 0 eviction(s), 3 entries, 1048576 of 67108864 bytes</code>
+    *         .
+    */
+   public synchronized String getStatistics()
+   {
+      return hits + " hit(s), " + misses + " miss(es), " + evictions + " eviction(s), " + entries.size()
+            + " entries, " + weight + " of " + maxBytes + " bytes";
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return getStatistics();
+   }
+
+   /**
+    * Removes an entry, which exists.
+    *
+    * @param key
+    *           The key of the entry.
+    */
+   private void remove(final String key)
+   {
+      weight -= entries.remove(key).weight;
+   }
+
+   /**
+    * A cached value, with the version of the file it was parsed from.
+    */
+   private static final class Entry
+   {
+      private final long   lastModified;
+      private final long   length;
+      private final Object value;
+      private final long   weight;
+
+      /**
+       * Constructs an entry.
+       *
+       * @param lastModified
+       *           The last modified time of the file.
+       * @param length
+       *           The length of the file.
+       * @param value
+       *           The parsed value.
+       * @param weight
+       *           The approximate number of bytes the value retains.
+       */
+      Entry(final long lastModified, final long length, final Object value, final long weight)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.value = value;
+         this.weight = weight;
+      }
+   }
+
+   /**
+    * Holds the default cache, created on first use.
+    */
+   private static final class DefaultHolder
+   {
+      private static final ParsedFileCache INSTANCE = new ParsedFileCache(Math.max(0L,
+                                                          Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES)));
+   }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Generates unique IDs (document numbers, batch descriptions...) of a given
+ * length and alphabet, for tests running in parallel.
+ * </p>
+ *
+ * <p>
+ * An ID encodes a sequence number and the worker ID. The sequence number
+ * starts at the number of seconds since 2015 and is increased atomically for
+ * each ID, without locking, and never falls behind the clock. It takes
+ * {@value #SEQUENCE_BITS} bits of the ID, enough until the 2150s: a worker
+ * never generates the same ID twice, within a run or across runs. Two workers
+ * with different IDs never generate the same ID. IDs too short to hold the
+ * sequence numbers of all the workers are refused: a single worker needs 8
+ * hexadecimal characters, 7 digits and letters, or 10 digits.
+ * </p>
+ *
+ * <p>
+ * Without a worker ID, the bits left after the sequence number are random,
+ * drawn for each ID, and at least {@value #MIN_RANDOM_BITS} of them are
+ * needed: 13 hexadecimal characters, 11 digits and letters, or 16 digits.
+ * Processes generating IDs at the same time then only generate the same ID
+ * when they draw the same random bits for the same sequence number: at most
+ * one chance in a million for each such pair of IDs, less with longer IDs.
+ * Configure the worker IDs for a guarantee across processes and machines. The
+ * IDs of the default generator are configured with system properties:
+ * </p>
+ * <ul>
+ * <li>{@link #WORKER_PROPERTY} and {@link #WORKERS_PROPERTY}: the ID of the
+ * worker (from 0) and the number of workers generating IDs at the same time,
+ * on the same machine or not. By default, without {@link #WORKERS_PROPERTY},
+ * the IDs end with random bits.</li>
+ * <li>{@link #HIGH_WATER_MARK_PROPERTY}: a file where the highest sequence
+ * number reserved is kept, so the next run of the worker does not reuse the
+ * sequence numbers of a run which ran ahead of the clock. The sequence numbers
+ * are reserved {@value #RESERVED_BLOCK} at a time, only then is the file
+ * written.</li>
+ * </ul>
+ */
+public final class UniqueIdGenerator
+{
+   /** System property with the ID of the worker, from 0 */
+   public static final String WORKER_PROPERTY          = "com.sage.swt.automation.library.uniqueid.worker";
+   /** System property with the number of workers */
+   public static final String WORKERS_PROPERTY         = "com.sage.swt.automation.library.uniqueid.workers";
+   /** System property with the path of the high-water mark file */
+   public static final String HIGH_WATER_MARK_PROPERTY = "com.sage.swt.automation.library.uniqueid.file";
+
+   /** Number of sequence numbers reserved with each write of the file */
+   static final int           RESERVED_BLOCK           = 1000;
+
+   /** Number of bits of an ID holding the sequence number */
+   static final int           SEQUENCE_BITS            = 32;
+
+   /** Minimum number of random bits of an ID without a worker ID */
+   static final int           MIN_RANDOM_BITS          = 20;
+
+   /** 2015-01-01T00:00:00Z, in milliseconds */
+   private static final long  EPOCH                    = 1420070400000L;
+
+   /**
+    * The characters an ID can be made of.
+    */
+   public enum Alphabet
+   {
+      /** 0 to 9 */
+      DIGITS("0123456789"),
+      /** 0 to 9 and a to f */
+      HEX("0123456789abcdef"),
+      /** 0 to 9 and a to z */
+      LOWERCASE("0123456789abcdefghijklmnopqrstuvwxyz"),
+      /** 0 to 9 and A to Z */
+      UPPERCASE("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+
+      private final String characters;
+
+      /**
+       * @param characters
+       *           The characters, in the order of their value.
+       */
+      private Alphabet(final String characters)
+      {
+         this.characters = characters;
+      }
+   }
+
+   private final int        worker;
+   private final int        workers;
+   private final boolean    randomTail;
+   private final File       highWaterMarkFile;
+   private final AtomicLong sequence;
+   private volatile long    reserved;
+
+   /**
+    * Constructs a generator.
+    *
+    * @param worker
+    *           The ID of the worker, from 0.
+    * @param workers
+    *           The number of workers.
+    * @param highWaterMarkFile
+    *           The file of the high-water mark, or null to rely on the clock
+    *           only.
+    *
+    * @throws IllegalArgumentException
+    *            The worker ID is not between 0 and the number of workers.
+    */
+   public UniqueIdGenerator(final int worker, final int workers, final File highWaterMarkFile)
+   {
+      this(checkWorker(worker, workers), workers, false, highWaterMarkFile);
+   }
+
+   /**
+    * Constructs a generator without a worker ID, whose IDs end with random
+    * bits.
+    *
+    * @param highWaterMarkFile
+    *           The file of the high-water mark, or null to rely on the clock
+    *           only.
+    */
+   public UniqueIdGenerator(final File highWaterMarkFile)
+   {
+      this(0, 1, true, highWaterMarkFile);
+   }
+
+   /**
+    * Constructs a generator.
+    *
+    * @param worker
+    *           The ID of the worker, from 0.
+    * @param workers
+    *           The number of workers.
+    * @param randomTail
+    *           Whether the IDs end with random bits instead of the worker ID.
+    * @param highWaterMarkFile
+    *           The file of the high-water mark, or null.
+    */
+   private UniqueIdGenerator(final int worker, final int workers, final boolean randomTail,
+         final File highWaterMarkFile)
+   {
+      this.worker = worker;
+      this.workers = workers;
+      this.randomTail = randomTail;
+      this.highWaterMarkFile = highWaterMarkFile;
+      long start = getClock();
+      if (null != highWaterMarkFile)
+      {
+         start = Math.max(start, readHighWaterMark(highWaterMarkFile) + 1);
+         reserved = start - 1;
+      }
+      this.sequence = new AtomicLong(start - 1);
+   }
+
+   /**
+    * @return The generator configured by the system properties.
+    */
+   public static UniqueIdGenerator getDefault()
+   {
+      return DefaultHolder.INSTANCE;
+   }
+
+   /**
+    * Generates an ID.
+    *
+    * @param length
+    *           The number of characters of the ID.
+    * @param alphabet
+    *           The characters of the ID.
+    *
+    * @return The ID, padded with the first character of the alphabet.
+    *
+    * @throws IllegalArgumentException
+    *            The length is not positive, or too short to hold the sequence
+    *            numbers of all the workers, or the random bits.
+    */
+   public String next(final int length, final Alphabet alphabet)
+   {
+      if (length < 1)
+         throw new IllegalArgumentException("The length must be positive.");
+
+      // The values of an ID of that length left for each sequence number
+      long perSequence = getCapacity(length, alphabet.characters.length()) >> SEQUENCE_BITS;
+      long value;
+      if (randomTail)
+      {
+         if (perSequence < (1L << MIN_RANDOM_BITS))
+            throw new IllegalArgumentException("IDs of " + length
+                  + " characters are too short to be unique without a worker ID.");
+         value = (nextSequence() * perSequence) + ThreadLocalRandom.current().nextLong(perSequence);
+      }
+      else
+      {
+         if (perSequence < workers)
+            throw new IllegalArgumentException("IDs of " + length + " characters are too short for " + workers
+                  + " workers.");
+         value = (nextSequence() * workers) + worker;
+      }
+      char[] id = new char[length];
+      int base = alphabet.characters.length();
+      for (int i = length - 1; i >= 0; i--)
+      {
+         id[i] = alphabet.characters.charAt((int)(value % base));
+         value /= base;
+      }
+      return new String(id);
+   }
+
+   /**
+    * @return The next sequence number, at least the current clock, of up to
+    *         {@value #SEQUENCE_BITS} bits.
+    */
+   long nextSequence()
+   {
+      long clock = getClock();
+      long next;
+      while (true)
+      {
+         long current = sequence.get();
+         next = Math.max(current + 1, clock);
+         if (sequence.compareAndSet(current, next))
+            break;
+      }
+      if ((null != highWaterMarkFile) && (next > reserved))
+         reserve(next);
+      return next & ((1L << SEQUENCE_BITS) - 1);
+   }
+
+   /**
+    * Reserves a block of sequence numbers in the high-water mark file. Only
+    * one thread writes at a time, the others go on with their numbers.
+    *
+    * @param next
+    *           A sequence number beyond the reserved ones.
+    */
+   private synchronized void reserve(final long next)
+   {
+      if (next <= reserved)
+         return;
+
+      long mark = next + RESERVED_BLOCK;
+      try
+      {
+         Writer out = new OutputStreamWriter(new FileOutputStream(highWaterMarkFile), "UTF-8");
+         try
+         {
+            out.write(String.valueOf(mark));
+         }
+         finally
+         {
+            out.close();
+         }
+      }
+      catch (IOException e)
+      {
+         System.out.println("Unable to write the unique ID high-water mark '" + highWaterMarkFile + "': "
+               + e.getMessage());
+      }
+      reserved = mark;
+   }
+
+   /**
+    * @param file
+    *           The high-water mark file.
+    *
+    * @return The high-water mark, 0 if the file does not exist or is invalid.
+    */
+   private static long readHighWaterMark(final File file)
+   {
+      if (!file.isFile())
+         return 0;
+
+      try
+      {
+         Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+         try
+         {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[64];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer))
+               text.append(buffer, 0, read);
+            return Long.parseLong(text.toString().trim());
+         }
+         finally
+         {
+            in.close();
+         }
+      }
+      catch (IOException e)
+      {
+         return 0;
+      }
+      catch (NumberFormatException e)
+      {
+         return 0;
+      }
+   }
+
+   /**
+    * @return The number of seconds since 2015.
+    */
+   private static long getClock()
+   {
+      return (System.currentTimeMillis() - EPOCH) / 1000;
+   }
+
+   /**
+    * @param length
+    *           The number of characters.
+    * @param base
+    *           The number of characters of the alphabet.
+    *
+    * @return The number of IDs of that length, capped to keep the arithmetic
+    *         in a long.
+    */
+   private static long getCapacity(final int length, final int base)
+   {
+      long capacity = 1;
+      for (int i = 0; (i < length) && (capacity <= (Long.MAX_VALUE / base) / base); i++)
+         capacity *= base;
+      return capacity;
+   }
+
+   /**
+    * @param worker
+    *           The ID of the worker, from 0.
+    * @param workers
+    *           The number of workers.
+    *
+    * @return The ID of the worker.
+    *
+    * @throws IllegalArgumentException
+    *            The worker ID is not between 0 and the number of workers.
+    */
+   private static int checkWorker(final int worker, final int workers)
+   {
+      if ((workers < 1) || (worker < 0) || (worker >= workers))
+         throw new IllegalArgumentException("The worker ID (" + worker + ") must be between 0 and the number of workers ("
+               + workers + ") excluded.");
+      return worker;
+   }
+
+   /**
+    * Holds the default generator, created on first use.
+    */
+   private static final class DefaultHolder
+   {
+      private static final UniqueIdGenerator INSTANCE = create();
+
+      /**
+       * @return The generator configured by the system properties.
+       */
+      private static UniqueIdGenerator create()
+      {
+         File file = (null == System.getProperty(HIGH_WATER_MARK_PROPERTY)) ? null : new File(
+               System.getProperty(HIGH_WATER_MARK_PROPERTY));
+         if (null == System.getProperty(WORKERS_PROPERTY))
+            return new UniqueIdGenerator(file);
+         return new UniqueIdGenerator(Integer.getInteger(WORKER_PROPERTY, 0), Integer.getInteger(WORKERS_PROPERTY, 1),
+               file);
+      }
+   }
+}
@@ -4,6 +4,7 @@
 
 package com.sonata.generic.automation.library;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
@@ -12,6 +13,9 @@ import java.util.List;
 import org.custommonkey.xmlunit.DetailedDiff;
 import org.custommonkey.xmlunit.Diff;
 import org.custommonkey.xmlunit.Difference;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -21,6 +25,8 @@ import org.xml.sax.SAXException;
  */
 public final class XmlCompare
 {
+   private static final DocumentParser DOCUMENT_PARSER = new DocumentParser();
+
    /**
     * The constructor was made private so it can never be instantiated.
     */
@@ -43,23 +49,29 @@ public final class XmlCompare
     */
    public static boolean compareTwoXMLFile(final String expectedFile, final String actualFile)
    {
-      FileReader fr1 = null;
-      FileReader fr2 = null;
-
+      Document expected;
+      Document actual;
       try
       {
-         fr1 = new FileReader(expectedFile);
-         fr2 = new FileReader(actualFile);
+         expected = ParsedFileCache.getDefault().get(new File(expectedFile), DOCUMENT_PARSER);
+         actual = ParsedFileCache.getDefault().get(new File(actualFile), DOCUMENT_PARSER);
       }
       catch (FileNotFoundException e)
       {
          e.printStackTrace();
          return false;
       }
+      catch (IOException e)
+      {
+         e.printStackTrace();
+         return false;
+      }
 
-      try
+      // The cached documents are shared, and a DOM tree is not safe to read
+      // from several threads
+      synchronized (DOCUMENT_PARSER)
       {
-         Diff diff = new Diff(fr1, fr2);
+         Diff diff = new Diff(expected, actual);
          DetailedDiff detailDiff = new DetailedDiff(diff);
          //System.out.println("Similar? " + detailDiff.similar());
          //System.out.println("Identical? " + detailDiff.identical());
@@ -71,17 +83,44 @@ public final class XmlCompare
          }
          return detailDiff.identical();
       }
-      catch (SAXException e)
+
+   }
+
+   /**
+    * Parses the XML files kept in the cache. A document is weighed at ten
+    * times the size of its file, about what a DOM tree takes.
+    */
+   private static final class DocumentParser implements ParsedFileCache.Parser<Document>
+   {
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public Document parse(final File file) throws IOException
       {
-         e.printStackTrace();
-         return false;
+         FileReader reader = new FileReader(file);
+         try
+         {
+            return XMLUnit.buildControlDocument(new InputSource(reader));
+         }
+         catch (SAXException e)
+         {
+            throw new IOException("Unable to parse " + file, e);
+         }
+         finally
+         {
+            reader.close();
+         }
       }
-      catch (IOException e)
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public long weigh(final Document value, final long fileLength)
       {
-         e.printStackTrace();
-         return false;
+         return 10 * fileLength;
       }
-
    }
 
 }
@@ -4,11 +4,13 @@
 
 package com.sonata.generic.automation.uibase;
 
+import java.io.File;
 import java.io.IOException;
 
 import com.sonata.generic.automation.browser.Browser;
 import com.sonata.generic.automation.browser.StopTestException;
 import com.sonata.generic.automation.library.CSVHelper;
+import com.sonata.generic.automation.library.DownloadTracker;
 import com.sonata.generic.automation.library.FileHelper;
 import com.sonata.generic.automation.library.PdfCompare;
 import com.sonata.generic.automation.library.TimeDelay;
@@ -31,8 +33,6 @@ public abstract class UI extends WebPage
    private static final String    EXPORT_WINDOW_TITLE_LOCATOR              = "//span[.='Export']";
    private static final String    EXPORT_WINDOW_EXPORT_BUTTON_LOCATOR      = "//a[.='Export']";
    
-   //EXPORT_TEMP_LOCATION: a temporary location where the exported file is saved automatically  
-   private static final String    EXPORT_TEMP_LOCATION      = "C:\\dev\\tmpReport";
    //PDF_DIFF_UTILITY_LOCATION: where the diff-pdf tool is located, used for Fitness RT
    //private static final String    PDF_DIFF_UTILITY_LOCATION ="C:\\AccpacFitnesseCNA2\\FitNesseExtras\\Utilities";
    
@@ -222,10 +222,25 @@ public abstract class UI extends WebPage
       
       actualPath = path + "\\" + caseName + "\\Actual";
       expectedPath = path + "\\" + caseName + "\\Expected";
+      
+      // The exported file is saved to the download directory of this browser
+      // session, which no other test uses, so it is safe to clean
+      String exportLocation = getCrystalReport(false).getExportDirectory();
             
-      FileHelper.cleanDir(EXPORT_TEMP_LOCATION);
+      FileHelper.cleanDir(exportLocation);
       FileHelper.createDir(actualPath);
       FileHelper.createDir(expectedPath);
+      
+      // Only a file created or changed by the export is the report
+      final DownloadTracker.Snapshot beforeExport;
+      try
+      {
+         beforeExport = DownloadTracker.getInstance().snapshot(exportLocation);
+      }
+      catch (IOException e)
+      {
+         throw new StopTestException("Cannot read the export directory " + exportLocation + ": " + e.getMessage());
+      }
             
       // Handle the export dialog
       if (!this.getBrowser().waitForElement(EXPORT_WINDOW_TITLE_LOCATOR))
@@ -238,11 +253,21 @@ public abstract class UI extends WebPage
          throw new StopTestException("Cannot click the export button with the XPATH: " + EXPORT_WINDOW_TITLE_LOCATOR);
       }
       
-      rptFileName = FileHelper.waitForRpt(EXPORT_TEMP_LOCATION, TimeDelay.getTimeoutMassive(), TimeDelay.getDefaultInterval());
+      File report;
+      try
+      {
+         report = DownloadTracker.getInstance().waitForDownload(beforeExport, DownloadTracker.REPORT_EXTENSIONS,
+               TimeDelay.getTimeoutMassive());
+      }
+      catch (IOException e)
+      {
+         throw new StopTestException("Cannot watch the export directory " + exportLocation + ": " + e.getMessage());
+      }
       
-      if( rptFileName!= null)
+      if( report != null)
       {
-         String srcFile = EXPORT_TEMP_LOCATION + "\\" + rptFileName;
+         rptFileName = report.getName();
+         String srcFile = report.getPath();
          actualRpt = actualPath + "\\" + rptFileName;
          
          try
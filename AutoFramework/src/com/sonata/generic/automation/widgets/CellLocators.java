@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+/**
+ * The <code>CellLocators</code> class builds the XPath locators of the cells
+ * of a {@link Table} or {@link OnePageTable}, and holds the inner elements
+ * tried by their accessors, so the accessors called in loops no longer build
+ * the list of helpers nor concatenate the whole locator on each call.
+ * <p>
+ * The locator of the body is formatted once into a buffer; each cell locator
+ * only appends the row, column and helper to it.
+ * <p>
+ * Instances are not thread-safe, like the tables which own them.
+ */
+final class CellLocators
+{
+   /** Inner elements of a cell holding a comboBox */
+   static final String[]  COMBOBOX_HELPERS = {"/span/select"};
+
+   /** Inner elements of a cell holding a finder button */
+   static final String[]  FINDER_HELPERS   = {
+         // e.g.: Journal Entry -> Grid -> SourceType
+         "/input[2]",
+         // e.g.: Journal Entry -> Grid -> Rate
+         "/input",
+         // e.g.: Optional Field table -> Optional Field
+         "/div/div[2]/input"};
+
+   /** Inner elements of a cell holding a text box, tried in this order */
+   static final String[]  TEXTBOX_HELPERS  = {
+         // For a numberTextBox like "GL Jounal Entry-> Grid -> Source Debit"
+         "/span/span/input[2]",
+         // For a dateTextBox like "GL Jounal Entry-> Grid -> Date"
+         "/span/span/input",
+         // For a normal textBox like "GL Jounal Entry-> Grid -> Account Number"
+         "/input",
+         // For column OptionalField in "Optional Field" table, its sturcture is special
+         "/div/div/input",
+         // Suppose the cell is not editable, the xPath is just the td[]
+         // Used to get the text from a cell although it's not editable
+         ""};
+
+   /** Inner element of a cell holding a pencil button */
+   static final String    PENCIL_HELPER    = "/div/span[2]/input";
+
+   private final StringBuilder buffer      = new StringBuilder(160);
+   private String         body;
+   private int            rowsLength;
+
+   /**
+    * Constructs an instance of the {@link CellLocators} class.
+    *
+    * @param body
+    *           the locator of the tbody element of the table
+    */
+   CellLocators(final String body)
+   {
+      setBody(body);
+   }
+
+   /**
+    * Changes the locator of the body, when the table turns out to have the
+    * other structure.
+    *
+    * @param newBody
+    *           the locator of the tbody element of the table
+    */
+   void setBody(final String newBody)
+   {
+      if (newBody.equals(body))
+      {
+         return;
+      }
+      body = newBody;
+      buffer.setLength(0);
+      buffer.append(body).append("/tr[");
+      rowsLength = buffer.length();
+   }
+
+   /**
+    * Builds the locator of a cell, or of an element inside it.
+    *
+    * @param row
+    *           the row index, starting at 1
+    * @param column
+    *           the column index, starting at 1
+    * @param helper
+    *           the path of the element inside the cell, empty for the cell
+    * @return the locator
+    */
+   String cell(final int row, final int column, final String helper)
+   {
+      buffer.setLength(rowsLength);
+      buffer.append(row).append("]/td[").append(column).append(']').append(helper);
+      return buffer.toString();
+   }
+
+   /**
+    * Builds the locator of a cell found by its column id, or of an element
+    * inside it.
+    *
+    * @param row
+    *           the row index, starting at 1
+    * @param columnId
+    *           the column id (date-field of the cell)
+    * @param helper
+    *           the path of the element inside the cell, empty for the cell
+    * @return the locator
+    */
+   String cellById(final int row, final String columnId, final String helper)
+   {
+      buffer.setLength(rowsLength);
+      buffer.append(row).append("]/td[@date-field='").append(columnId).append("']").append(helper);
+      return buffer.toString();
+   }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>ColumnHeaders</code> class holds the header row of a grid: the
+ * text, the id (data-field attribute) and the hidden flag of every column,
+ * read with a single JavaScript call.
+ * <p>
+ * The headers are kept in a registry shared by all the {@link Table} and
+ * {@link OnePageTable} instances of a browser, keyed by the grid locator, so
+ * the widgets created for the same screen (e.g. one per fixture call) reuse
+ * them. Each lookup sends the fingerprint of the cached header row along with
+ * the script, which only returns the headers again when the fingerprint of the
+ * row in the page differs, i.e. when the columns were changed, reordered,
+ * shown or hidden, or the screen was replaced.
+ * <p>
+ * Column indexes start at 1, the same as the XPath locators.
+ */
+public final class ColumnHeaders
+{
+   /** Name given to a visible column with an empty header, which holds the delete buttons */
+   static final String                                          DELETE_ROW_COLUMN = "deleteRowColumn";
+
+   /**
+    * Returns the fingerprint of the header row of the grid whose id is
+    * arguments[0], and the headers unless the fingerprint equals arguments[1].
+    */
+   private static final String                                  HEADER_SCRIPT     = TableSnapshot.LOCATE_SCRIPT
+       + "if (!headRow) return null;"
+       + "var html = headRow.innerHTML, hash = 0;"
+       + "for (var i = 0; i < html.length; i++) hash = (hash * 31 + html.charCodeAt(i)) | 0;"
+       + "var ths = kids(headRow, tag('th'));"
+       + "var headerFingerprint = ths.length + ':' + html.length + ':' + hash;"
+       + "if (headerFingerprint == arguments[1]) return {fingerprint: headerFingerprint};"
+       + "var texts = [], ids = [], hidden = [];"
+       + "for (var h = 0; h < ths.length; h++) {"
+       + "  var isHidden = /display:\\s*none/i.test(ths[h].getAttribute('style') || '');"
+       + "  var text = ths[h].innerText != null ? ths[h].innerText : ths[h].textContent;"
+       + "  texts.push(isHidden ? '' : String(text).replace(/^\\s+|\\s+$/g, ''));"
+       + "  ids.push(ths[h].getAttribute('data-field'));"
+       + "  hidden.push(isHidden);"
+       + "}"
+       + "return {fingerprint: headerFingerprint, texts: texts, ids: ids, hidden: hidden};";
+
+   /** The headers of each grid, per browser */
+   private static final Map<Browser, Map<String, ColumnHeaders>> REGISTRY          = new WeakHashMap<Browser, Map<String, ColumnHeaders>>();
+
+   private final String                                         fingerprint;
+   private final String[]                                       texts;
+   private final String[]                                       ids;
+   private final boolean[]                                      hidden;
+
+   /**
+    * Constructs the headers from the value returned by the header script.
+    *
+    * @param raw
+    *           the map returned by the header script
+    */
+   private ColumnHeaders(final Map<?, ?> raw)
+   {
+      this.fingerprint = String.valueOf(raw.get("fingerprint"));
+      final List<?> rawTexts = list(raw.get("texts"));
+      final List<?> rawIds = list(raw.get("ids"));
+      final List<?> rawHidden = list(raw.get("hidden"));
+      this.texts = new String[rawTexts.size()];
+      this.ids = new String[rawTexts.size()];
+      this.hidden = new boolean[rawTexts.size()];
+      for (int i = 0; i < texts.length; i++)
+      {
+         texts[i] = (String)rawTexts.get(i);
+         ids[i] = (String)rawIds.get(i);
+         hidden[i] = Boolean.TRUE.equals(rawHidden.get(i));
+      }
+   }
+
+   /**
+    * Gets the headers of a grid, from the registry if the header row did not
+    * change since they were read, otherwise from the page.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    * @return the headers, or null if the grid or its header row is not in the
+    *         DOM
+    */
+   public static ColumnHeaders get(final Browser browser, final String gridId)
+   {
+      final ColumnHeaders cached;
+      synchronized (REGISTRY)
+      {
+         final Map<String, ColumnHeaders> grids = REGISTRY.get(browser);
+         cached = grids == null ? null : grids.get(gridId);
+      }
+
+      final Object raw = browser.executeJavaScriptReturnObject(HEADER_SCRIPT, gridId,
+            cached == null ? null : cached.fingerprint);
+      if (!(raw instanceof Map))
+      {
+         invalidate(browser, gridId);
+         return null;
+      }
+      final Map<?, ?> result = (Map<?, ?>)raw;
+      if (cached != null && !result.containsKey("texts"))
+      {
+         return cached;
+      }
+
+      final ColumnHeaders headers = new ColumnHeaders(result);
+      synchronized (REGISTRY)
+      {
+         Map<String, ColumnHeaders> grids = REGISTRY.get(browser);
+         if (grids == null)
+         {
+            grids = new HashMap<String, ColumnHeaders>();
+            REGISTRY.put(browser, grids);
+         }
+         grids.put(gridId, headers);
+      }
+      return headers;
+   }
+
+   /**
+    * Gets the indexes of some columns of a grid, each named by its header or,
+    * failing that, by its id.
+    *
+    * @param grid
+    *           the {@link Table} or {@link OnePageTable}
+    * @param columnNames
+    *           the headers or ids of the columns
+    * @return the column indexes, starting at 1, in the order of the names
+    * @throws IllegalArgumentException
+    *            if the grid has no column with one of the names
+    */
+   public static int[] indexesOf(final Widget grid, final String[] columnNames)
+   {
+      final ColumnHeaders headers = get(grid.getBrowser(), grid.getLocator());
+      final int[] columnIdxs = new int[columnNames.length];
+      for (int i = 0; i < columnNames.length; i++)
+      {
+         final String columnName = columnNames[i].trim();
+         if (headers != null)
+         {
+            columnIdxs[i] = headers.indexOfText(columnName);
+            if (columnIdxs[i] == 0)
+            {
+               columnIdxs[i] = headers.indexOfId(columnName);
+            }
+         }
+         if (columnIdxs[i] == 0)
+         {
+            throw new IllegalArgumentException("The table " + grid.getLocator() + " has no column " + columnNames[i]);
+         }
+      }
+      return columnIdxs;
+   }
+
+   /**
+    * Drops the headers of a grid from the registry, so the next lookup reads
+    * them again.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    */
+   public static void invalidate(final Browser browser, final String gridId)
+   {
+      synchronized (REGISTRY)
+      {
+         final Map<String, ColumnHeaders> grids = REGISTRY.get(browser);
+         if (grids != null)
+         {
+            grids.remove(gridId);
+         }
+      }
+   }
+
+   /**
+    * Converts a JavaScript array returned by the driver to a list.
+    *
+    * @param value
+    *           the value returned by the driver
+    * @return the list, empty if the value is not a list
+    */
+   private static List<?> list(final Object value)
+   {
+      return (value instanceof List) ? (List<?>)value : Collections.emptyList();
+   }
+
+   /**
+    * @return the number of header cells
+    */
+   public int getCount()
+   {
+      return texts.length;
+   }
+
+   /**
+    * Gets the text of a header, as shown: empty for a hidden column.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return the text, or null if there is no such header
+    */
+   public String getText(final int columnIndex)
+   {
+      return exists(columnIndex) ? texts[columnIndex - 1] : null;
+   }
+
+   /**
+    * Gets the id (data-field attribute) of a column.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return the id, or null if there is no such header or it has no id
+    */
+   public String getId(final int columnIndex)
+   {
+      return exists(columnIndex) ? ids[columnIndex - 1] : null;
+   }
+
+   /**
+    * Checks whether a column is hidden (display: none on its header).
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the column is hidden.</li> <li>
+    *         <code>false</code> if it is shown or there is no such header.</li>
+    */
+   public boolean isHidden(final int columnIndex)
+   {
+      return exists(columnIndex) && hidden[columnIndex - 1];
+   }
+
+   /**
+    * Checks whether a header exists.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return whether there is such a header
+    */
+   public boolean exists(final int columnIndex)
+   {
+      return columnIndex >= 1 && columnIndex <= texts.length;
+   }
+
+   /**
+    * Gets the index of the first visible column with a given header, ignoring
+    * case. A visible column with an empty header is named
+    * <code>deleteRowColumn</code>.
+    *
+    * @param columnName
+    *           the header text
+    * @return the column index, starting at 1, or 0 if there is no such column
+    */
+   public int indexOfText(final String columnName)
+   {
+      for (int i = 0; i < texts.length; i++)
+      {
+         if (hidden[i])
+         {
+            continue;
+         }
+         final String text = (texts[i].equals("") || texts[i].equals("&nbsp;")) ? DELETE_ROW_COLUMN : texts[i];
+         if (columnName.equalsIgnoreCase(text))
+         {
+            return i + 1;
+         }
+      }
+      return 0;
+   }
+
+   /**
+    * Gets the index of the first column with a given id.
+    *
+    * @param columnId
+    *           the id (data-field attribute) of the column
+    * @return the column index, starting at 1, or 0 if there is no such column
+    */
+   public int indexOfId(final String columnId)
+   {
+      for (int i = 0; i < ids.length; i++)
+      {
+         if (columnId.equals(ids[i]))
+         {
+            return i + 1;
+         }
+      }
+      return 0;
+   }
+}
@@ -49,6 +49,18 @@ public class CrystalReport extends Widget
    }
 
 
+   /**
+    * Gets the directory the exported report is saved to. It is the download
+    * directory of the browser session showing the report, so reports exported
+    * from parallel sessions never mix.
+    * 
+    * @return the absolute path of the export directory
+    */
+   public String getExportDirectory()
+   {
+      return this.getBrowser().getDownloadDirectory();
+   }
+
    /**
     * Gets the export button.
     * 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+/**
+ * The <code>GridPageState</code> class holds the paging state of a grid, as
+ * reported by its Kendo dataSource. Instances are immutable.
+ */
+public final class GridPageState
+{
+   private final int     page;
+   private final int     pageSize;
+   private final int     totalPages;
+   private final int     total;
+   private final int     itemsOnPage;
+   private final boolean serverPaging;
+
+   /**
+    * Constructs an instance of the {@link GridPageState} class.
+    *
+    * @param page
+    *           the current page, starting at 1
+    * @param pageSize
+    *           the number of rows per page, 0 if the grid is not paged
+    * @param totalPages
+    *           the number of pages, at least 1
+    * @param total
+    *           the number of rows of all the pages
+    * @param itemsOnPage
+    *           the number of rows on the current page
+    * @param serverPaging
+    *           whether the pages are read from the server one at a time
+    */
+   GridPageState(final int page, final int pageSize, final int totalPages, final int total, final int itemsOnPage,
+         final boolean serverPaging)
+   {
+      this.page = page;
+      this.pageSize = pageSize;
+      this.totalPages = totalPages;
+      this.total = total;
+      this.itemsOnPage = itemsOnPage;
+      this.serverPaging = serverPaging;
+   }
+
+   /**
+    * @return the current page, starting at 1
+    */
+   public int getPage()
+   {
+      return page;
+   }
+
+   /**
+    * @return the number of rows per page, 0 if the grid is not paged
+    */
+   public int getPageSize()
+   {
+      return pageSize;
+   }
+
+   /**
+    * @return the number of pages, at least 1
+    */
+   public int getTotalPages()
+   {
+      return totalPages;
+   }
+
+   /**
+    * @return the number of rows of all the pages
+    */
+   public int getTotal()
+   {
+      return total;
+   }
+
+   /**
+    * @return the number of rows on the current page
+    */
+   public int getItemsOnPage()
+   {
+      return itemsOnPage;
+   }
+
+   /**
+    * @return <li><code>true</code> if the pages are read from the server one at
+    *         a time, so showing another page needs a request.</li> <li>
+    *         <code>false</code> if all the rows are in the browser.</li>
+    */
+   public boolean isServerPaging()
+   {
+      return serverPaging;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "page " + page + " of " + totalPages + ", " + itemsOnPage + " of " + total + " items";
+   }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The <code>GridRow</code> class holds one row of a grid: its position and its
+ * values by field. Instances are immutable.
+ * <p>
+ * Rows read from a Kendo dataSource hold typed values: String, Long, Double,
+ * Boolean, java.util.Date or null. Rows read from the DOM hold the cell texts,
+ * keyed by column id (data-field), or by the column index ("1", "2"...) for a
+ * column without id.
+ */
+public final class GridRow
+{
+   private final int                 page;
+   private final int                 index;
+   private final Map<String, Object> values;
+
+   /**
+    * Constructs an instance of the {@link GridRow} class.
+    *
+    * @param page
+    *           the page the row is on, starting at 1
+    * @param index
+    *           the index of the row on its page, starting at 1
+    * @param values
+    *           the values by field, copied
+    */
+   public GridRow(final int page, final int index, final Map<String, ?> values)
+   {
+      this.page = page;
+      this.index = index;
+      this.values = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(values));
+   }
+
+   /**
+    * @return the page the row is on, starting at 1
+    */
+   public int getPage()
+   {
+      return page;
+   }
+
+   /**
+    * @return the index of the row on its page, starting at 1
+    */
+   public int getIndex()
+   {
+      return index;
+   }
+
+   /**
+    * @return the fields of the row, in the order they were read
+    */
+   public Set<String> getFields()
+   {
+      return values.keySet();
+   }
+
+   /**
+    * @return the values by field, unmodifiable
+    */
+   public Map<String, Object> getValues()
+   {
+      return values;
+   }
+
+   /**
+    * Gets the value of a field.
+    *
+    * @param field
+    *           the field
+    * @return the value, or null if the row has no such field
+    */
+   public Object get(final String field)
+   {
+      return values.get(field);
+   }
+
+   /**
+    * Gets the value of a field as text.
+    *
+    * @param field
+    *           the field
+    * @return the value as text, or null if the value is null or missing
+    */
+   public String getString(final String field)
+   {
+      final Object value = values.get(field);
+      return value == null ? null : value.toString();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "page " + page + ", row " + index + " " + values;
+   }
+}
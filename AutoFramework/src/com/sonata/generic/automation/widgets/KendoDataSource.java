@@ -0,0 +1,348 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sonata.generic.automation.browser.Browser;
+import com.sonata.generic.automation.library.TimeDelay;
+
+/**
+ * The <code>KendoDataSource</code> class reads the data of a Kendo grid from
+ * its dataSource (<code>view()</code>, <code>total()</code>,
+ * <code>page()</code>...) rather than from the cells and the pager label.
+ * <p>
+ * Each method is a single JavaScript call. When all the rows are in the
+ * browser, another page is read without changing the page shown; when the
+ * pages are read from the server, the dataSource is asked for the page, which
+ * makes the grid show it, without clicking through the {@link TableNavigation}.
+ * <p>
+ * Every method returns null when the element is not a Kendo grid, so callers
+ * can fall back to reading the DOM.
+ */
+public final class KendoDataSource
+{
+   /**
+    * Finds the dataSource of the grid whose id is arguments[0] and declares the
+    * helpers shared by the scripts. Group rows are flattened to their items;
+    * dates are sent as {$date: time} since the driver cannot convert them.
+    */
+   private static final String PREFIX        =
+         "var el = document.getElementById(arguments[0]);"
+       + "var grid = el && window.jQuery ? jQuery(el).data('kendoGrid') : null;"
+       + "if (!grid || !grid.dataSource) return null;"
+       + "var ds = grid.dataSource;"
+       + "function items(list) {"
+       + "  var r = [];"
+       + "  for (var i = 0; i < list.length; i++) {"
+       + "    if (list[i].hasSubgroups !== undefined && list[i].items) r = r.concat(items(list[i].items));"
+       + "    else r.push(list[i]);"
+       + "  }"
+       + "  return r;"
+       + "}"
+       + "function plain(v) {"
+       + "  if (v instanceof Date) return {'$date': v.getTime()};"
+       + "  return (v == null || typeof v != 'object') ? v : String(v);"
+       + "}"
+       + "function rows(list) {"
+       + "  var out = [];"
+       + "  for (var i = 0; i < list.length; i++) {"
+       + "    var o = list[i].toJSON ? list[i].toJSON() : list[i], r = {};"
+       + "    for (var k in o) if (o.hasOwnProperty(k) && typeof o[k] != 'function') r[k] = plain(o[k]);"
+       + "    out.push(r);"
+       + "  }"
+       + "  return out;"
+       + "}"
+       + "function state() {"
+       + "  var size = ds.pageSize() || 0, total = ds.total() || 0;"
+       + "  return {page: ds.page() || 1, pageSize: size, totalPages: size ? Math.max(1, Math.ceil(total / size)) : 1,"
+       + "    total: total, count: items(ds.view()).length, serverPaging: !!ds.options.serverPaging};"
+       + "}";
+
+   /** Returns the paging state */
+   private static final String STATE_SCRIPT  = PREFIX + "return state();";
+
+   /** Returns the paging state and the rows of the current page */
+   private static final String VIEW_SCRIPT   = PREFIX + "return {state: state(), rows: rows(items(ds.view()))};";
+
+   /**
+    * Returns the rows of page arguments[1] when they are all in the browser,
+    * sorted and filtered as the grid shows them; rows is null when the page
+    * has to be requested.
+    */
+   private static final String PAGE_SCRIPT   = PREFIX
+       + "var size = ds.pageSize(), page = arguments[1];"
+       + "if (!size) return {rows: page == 1 ? rows(items(ds.view())) : []};"
+       + "if (ds.options.serverPaging || ds.options.serverSorting || ds.options.serverFiltering"
+       + "    || (ds.group() && ds.group().length) || !window.kendo) return {rows: null};"
+       + "var all = kendo.data.Query.process(ds.data(), {sort: ds.sort(), filter: ds.filter()}).data;"
+       + "return {rows: rows(all.slice((page - 1) * size, page * size))};";
+
+   /** Asks the dataSource for page arguments[1] */
+   private static final String GO_TO_SCRIPT  = PREFIX + "ds.page(arguments[1]); return true;";
+
+   /**
+    * Starts turning the grid to page arguments[1] through the public
+    * <code>query()</code> of the dataSource, with its current sort, filter and
+    * grouping, and returns at once. The request goes through the dataSource as
+    * any page change of the application does (parameterMap, requestStart and
+    * requestEnd handlers...). The promise returned by <code>query()</code>
+    * tells when the page is read; a Kendo version whose <code>query()</code>
+    * returns no promise (before 2013) makes the prefetch fail. Returns false
+    * when the dataSource does not page on the server.
+    */
+   private static final String PREFETCH_SCRIPT = PREFIX
+       + "var page = arguments[1], size = ds.pageSize();"
+       + "if (!ds.options.serverPaging || !size || !ds.query) return false;"
+       + "var buffer = grid.__swtPrefetch = {page: page, done: false, failed: false};"
+       + "var promise = ds.query({page: page, pageSize: size, sort: ds.sort(), filter: ds.filter(), group: ds.group(),"
+       + "  aggregate: ds.aggregate()});"
+       + "if (promise && promise.then) {"
+       + "  promise.then(function() { buffer.done = true; }, function() { buffer.failed = buffer.done = true; });"
+       + "} else {"
+       + "  buffer.failed = buffer.done = true;"
+       + "}"
+       + "return true;";
+
+   /**
+    * Takes the page arguments[1] read by the prefetch: status is none when
+    * there is no such prefetch, pending while it runs, otherwise ready with the
+    * rows of the page, or failed when the read failed or the grid was turned to
+    * another page since.
+    */
+   private static final String TAKE_SCRIPT   = PREFIX
+       + "var buffer = grid.__swtPrefetch;"
+       + "if (!buffer || buffer.page != arguments[1]) return {status: 'none'};"
+       + "if (!buffer.done) return {status: 'pending'};"
+       + "grid.__swtPrefetch = null;"
+       + "if (buffer.failed || ds.page() != buffer.page) return {status: 'failed'};"
+       + "return {status: 'ready', rows: rows(items(ds.view()))};";
+
+   private final Browser       browser;
+   private final String        gridId;
+
+   /**
+    * Constructs an instance of the {@link KendoDataSource} class.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    */
+   public KendoDataSource(final Browser browser, final String gridId)
+   {
+      this.browser = browser;
+      this.gridId = gridId;
+   }
+
+   /**
+    * Gets the paging state of the grid.
+    *
+    * @return the state, or null if the element is not a Kendo grid
+    */
+   public GridPageState getPageState()
+   {
+      final Object raw = browser.executeJavaScriptReturnObject(STATE_SCRIPT, gridId);
+      return (raw instanceof Map) ? toState((Map<?, ?>)raw) : null;
+   }
+
+   /**
+    * Gets the rows of the page shown.
+    *
+    * @return the rows, or null if the element is not a Kendo grid
+    */
+   public List<GridRow> getRows()
+   {
+      final Object raw = browser.executeJavaScriptReturnObject(VIEW_SCRIPT, gridId);
+      if (!(raw instanceof Map))
+      {
+         return null;
+      }
+      final GridPageState state = toState((Map<?, ?>)((Map<?, ?>)raw).get("state"));
+      return toRows(state.getPage(), ((Map<?, ?>)raw).get("rows"));
+   }
+
+   /**
+    * Gets the rows of a page. When all the rows are in the browser the page
+    * shown does not change; otherwise the grid is turned to the page.
+    *
+    * @param page
+    *           the page, starting at 1
+    * @return the rows, empty past the last page, or null if the element is not
+    *         a Kendo grid or the page could not be loaded
+    */
+   public List<GridRow> getRows(final int page)
+   {
+      final Object raw = browser.executeJavaScriptReturnObject(PAGE_SCRIPT, gridId, page);
+      if (!(raw instanceof Map))
+      {
+         return null;
+      }
+      final Object rows = ((Map<?, ?>)raw).get("rows");
+      if (rows != null)
+      {
+         return toRows(page, rows);
+      }
+      return goToPage(page) ? getRows() : null;
+   }
+
+   /**
+    * Turns the grid to a page through the dataSource and waits until it is
+    * shown.
+    *
+    * @param page
+    *           the page, starting at 1
+    * @return <li><code>true</code> if the page is shown.</li> <li>
+    *         <code>false</code> if the element is not a Kendo grid or the page
+    *         was not shown in time.</li>
+    */
+   public boolean goToPage(final int page)
+   {
+      if (browser.executeJavaScriptReturnObject(GO_TO_SCRIPT, gridId, page) == null)
+      {
+         return false;
+      }
+      browser.waitForNoRequests();
+      for (int waitingTime = 0; waitingTime < TimeDelay.getTimeoutMaximum(); waitingTime += TimeDelay
+            .getTimeoutSmall())
+      {
+         final GridPageState state = getPageState();
+         if (state == null)
+         {
+            return false;
+         }
+         if (state.getPage() == page)
+         {
+            return true;
+         }
+         TimeDelay.doPause(TimeDelay.getTimeoutSmall());
+      }
+      return false;
+   }
+
+   /**
+    * Starts turning the grid to a page without waiting for it, so the page is
+    * read from the server by the time {@link #takePrefetched(int)} asks for it.
+    * Only done for grids paging on the server; the grid shows the page as soon
+    * as it is read.
+    *
+    * @param page
+    *           the page, starting at 1
+    * @return <li><code>true</code> if the read was started.</li> <li>
+    *         <code>false</code> if the grid does not page on the server or is
+    *         not a Kendo grid.</li>
+    */
+   public boolean prefetch(final int page)
+   {
+      return Boolean.TRUE.equals(browser.executeJavaScriptReturnObject(PREFETCH_SCRIPT, gridId, page));
+   }
+
+   /**
+    * Gets the rows of a page started by {@link #prefetch(int)}, waiting for the
+    * read to end if it is still running.
+    *
+    * @param page
+    *           the page, starting at 1
+    * @return the rows, or null if the page was not prefetched or the read
+    *         failed or did not end in time
+    */
+   public List<GridRow> takePrefetched(final int page)
+   {
+      for (int waitingTime = 0; waitingTime < TimeDelay.getTimeoutMaximum(); waitingTime += TimeDelay
+            .getTimeoutSmall())
+      {
+         final Object raw = browser.executeJavaScriptReturnObject(TAKE_SCRIPT, gridId, page);
+         if (!(raw instanceof Map))
+         {
+            return null;
+         }
+         final Object status = ((Map<?, ?>)raw).get("status");
+         if ("ready".equals(status))
+         {
+            return toRows(page, ((Map<?, ?>)raw).get("rows"));
+         }
+         if (!"pending".equals(status))
+         {
+            return null;
+         }
+         TimeDelay.doPause(TimeDelay.getTimeoutSmall());
+      }
+      return null;
+   }
+
+   /**
+    * Converts the state returned by the scripts.
+    *
+    * @param raw
+    *           the state map
+    * @return the state
+    */
+   private static GridPageState toState(final Map<?, ?> raw)
+   {
+      return new GridPageState(intOf(raw.get("page")), intOf(raw.get("pageSize")), intOf(raw.get("totalPages")),
+            intOf(raw.get("total")), intOf(raw.get("count")), Boolean.TRUE.equals(raw.get("serverPaging")));
+   }
+
+   /**
+    * Converts the rows returned by the scripts.
+    *
+    * @param page
+    *           the page of the rows
+    * @param raw
+    *           the list of row maps
+    * @return the rows
+    */
+   private static List<GridRow> toRows(final int page, final Object raw)
+   {
+      if (!(raw instanceof List))
+      {
+         return Collections.emptyList();
+      }
+      final List<?> rawRows = (List<?>)raw;
+      final List<GridRow> rows = new ArrayList<GridRow>(rawRows.size());
+      for (int i = 0; i < rawRows.size(); i++)
+      {
+         final Map<String, Object> values = new LinkedHashMap<String, Object>();
+         for (Map.Entry<?, ?> entry : ((Map<?, ?>)rawRows.get(i)).entrySet())
+         {
+            values.put(String.valueOf(entry.getKey()), toValue(entry.getValue()));
+         }
+         rows.add(new GridRow(page, i + 1, values));
+      }
+      return rows;
+   }
+
+   /**
+    * Converts a value returned by the scripts, turning the encoded dates back
+    * into dates.
+    *
+    * @param value
+    *           the value
+    * @return the typed value
+    */
+   private static Object toValue(final Object value)
+   {
+      if (value instanceof Map && ((Map<?, ?>)value).get("$date") instanceof Number)
+      {
+         return new Date(((Number)((Map<?, ?>)value).get("$date")).longValue());
+      }
+      return value;
+   }
+
+   /**
+    * @param value
+    *           a number returned by the driver
+    * @return the value as an int, 0 if it is not a number
+    */
+   private static int intOf(final Object value)
+   {
+      return (value instanceof Number) ? ((Number)value).intValue() : 0;
+   }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.Locale;
+
+/**
+ * The <code>MatchMode</code> enumerates the ways the text of a table cell can
+ * be matched against a searched value.
+ */
+public enum MatchMode
+{
+   /** The cell text equals the value */
+   EXACT,
+
+   /** The cell text starts with the value */
+   PREFIX,
+
+   /** The cell text contains the value */
+   CONTAINS;
+
+   /**
+    * Checks whether a cell text matches a searched value.
+    *
+    * @param text
+    *           the text of the cell, may be null for a missing cell
+    * @param value
+    *           the searched value
+    * @return <li><code>true</code> if the text matches the value.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean matches(final String text, final String value)
+   {
+      if (text == null || value == null)
+      {
+         return false;
+      }
+      switch (this)
+      {
+         case PREFIX:
+            return text.startsWith(value);
+         case CONTAINS:
+            return text.contains(value);
+         default:
+            return text.equals(value);
+      }
+   }
+
+   /**
+    * Returns the match mode with a given name, ignoring case. A null or empty
+    * name means {@link #EXACT}.
+    *
+    * @param name
+    *           the name of the match mode
+    * @return the match mode
+    * @throws IllegalArgumentException
+    *            if the name is not a match mode
+    */
+   public static MatchMode fromName(final String name)
+   {
+      if (name == null || name.trim().isEmpty())
+      {
+         return EXACT;
+      }
+      try
+      {
+         return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+      }
+      catch (IllegalArgumentException e)
+      {
+         throw new IllegalArgumentException("The match mode must be one of exact, prefix or contains, not " + name);
+      }
+   }
+}
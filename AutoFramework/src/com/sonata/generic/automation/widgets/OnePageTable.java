@@ -18,19 +18,12 @@ import com.sonata.generic.automation.browser.SpecialKey;
 public class OnePageTable extends Widget
 {
 
-   /**
-    * The list of column headers for the instantiated Table, used to know
-    * which column index to set based on the name of the column header. Would be
-    * nice to initialize this when old table is created, but cannot due to the
-    * fact that the column headers get populated at test runtime, as we can not
-    * anticipate what columns and their column indexes are.
-    */
-   private List<String> columnHeaders;
-   private List<String> idOfColumnHeaders;
-   private final String DELETE_ROW_COLUMN_IDENTIFIER = "deleteRowColumn";
+   private final String DELETE_ROW_COLUMN_IDENTIFIER = ColumnHeaders.DELETE_ROW_COLUMN;
    private TableNavigation tablenavigator;
    private String headerRowLocator;
    private String dataBodyLocator;
+   private boolean layoutChecked;
+   private final CellLocators cells;
    
    /**
     * constructs an instance of the {@link Table} class.
@@ -45,6 +38,7 @@ public class OnePageTable extends Widget
       super(locator, browser);
       headerRowLocator = "//div[@id='" + locator + "']/div[@class='k-grid-header']/div/table/thead/tr";
       dataBodyLocator = "//div[@id='" + locator + "']/div[@class='k-grid-content']/table/tbody";      
+      cells = new CellLocators(dataBodyLocator);
    }
 
    /**
@@ -160,7 +154,7 @@ public class OnePageTable extends Widget
             
       if (isValidRowIndex(rowIndex))
       {
-         cellLocator = dataBodyLocator + "/tr[" + rowIndex + "]/td[@date-field='" + columnId + "']"; 
+         cellLocator = cells.cellById(rowIndex, columnId, ""); 
          System.out.println("cellLocator: " + cellLocator);
 
          if (this.getBrowser().exists(cellLocator))
@@ -211,7 +205,6 @@ public class OnePageTable extends Widget
     */
    public WidgetInterface getComboBoxField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -222,14 +215,12 @@ public class OnePageTable extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
          
-         ArrayList<String> helpersList = new ArrayList<String>();
-         helpersList.add("/span/select");
-         for(String helper:helpersList)
+         for (String helper : CellLocators.COMBOBOX_HELPERS)
          {
-            if (this.getBrowser().exists(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().exists(locator))
             {
-               type = WidgetType.COMBOBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.COMBOBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -272,7 +263,6 @@ public class OnePageTable extends Widget
     */
    public WidgetInterface getFinderButtonField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -283,21 +273,12 @@ public class OnePageTable extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
          
-         ArrayList<String> helpersList = new ArrayList<String>();
-         
-         // e.g.: Journal Entry -> Grid -> SourceType
-         helpersList.add("/input[2]");
-         // e.g.: Journal Entry -> Grid -> Rate
-         helpersList.add("/input");
-         // e.g.: Optional Field table -> Optional Field
-         helpersList.add("/div/div[2]/input");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.FINDER_HELPERS)
          {
-            if (this.getBrowser().exists(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().exists(locator))
             {
-               type = WidgetType.BUTTON;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.BUTTON.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -320,7 +301,6 @@ public class OnePageTable extends Widget
     */
    public WidgetInterface getPencilButtonField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -330,12 +310,11 @@ public class OnePageTable extends Widget
       if (isValidColumnIndex("", columnIndex) && (isValidRowIndex(row)))
       {
          baseLocator = getLocatorFor(row, columnIndex);
-         String pencilButtonLocator = baseLocator + "/div/span[2]/input";
+         String pencilButtonLocator = baseLocator + CellLocators.PENCIL_HELPER;
          
          if (this.getBrowser().exists(pencilButtonLocator))
             {
-               type = WidgetType.BUTTON;
-               return type.createWidget(pencilButtonLocator, this.getBrowser());
+               return WidgetType.BUTTON.createWidget(pencilButtonLocator, this.getBrowser());
             }   
          }
 
@@ -377,7 +356,6 @@ public class OnePageTable extends Widget
     */
    public WidgetInterface getTextBoxField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -388,26 +366,12 @@ public class OnePageTable extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
                   
-         ArrayList<String> helpersList = new ArrayList<String>();
-
-         // For a numberTextBox like "GL Jounal Entry-> Grid -> Source Debit" 
-         helpersList.add("/span/span/input[2]");
-         // For a dateTextBox like "GL Jounal Entry-> Grid -> Date" 
-         helpersList.add("/span/span/input");
-         // For a normal textBox like "GL Jounal Entry-> Grid -> Account Number"
-         helpersList.add("/input");
-         // For column OptionalField in "Optional Field" table, its sturcture is special
-         helpersList.add("/div/div/input");
-         // Suppose the cell is not editable, the xPath is just the td[]
-         // Used to get the text from a cell although it's not editable
-         helpersList.add("");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.TEXTBOX_HELPERS)
          {
-            if (this.getBrowser().existsNoWait(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().existsNoWait(locator))
             {
-               type = WidgetType.TEXTBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.TEXTBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -430,35 +394,20 @@ public class OnePageTable extends Widget
     */
    public WidgetInterface getTextBoxFieldByColumnId(final String columnId, final int rowIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
             
       if (isValidRowIndex(rowIndex))
       {
-         baseLocator = dataBodyLocator + "/tr[" + rowIndex + "]/td[@date-field='" + columnId + "']";
-         
-         ArrayList<String> helpersList = new ArrayList<String>();
+         baseLocator = cells.cellById(rowIndex, columnId, "");
          
-         // For a numberTextBox like "GL Jounal Entry-> Grid -> Source Debit" 
-         helpersList.add("/span/span/input[2]");
-         // For a dateTextBox like "GL Jounal Entry-> Grid -> Date" 
-         helpersList.add("/span/span/input");
-         // For a normal textBox like "GL Jounal Entry-> Grid -> Account Number"
-         helpersList.add("/input");
-         // For column OptionalField in "Optional Field" table, its sturcture is special
-         helpersList.add("/div/div/input");
-         // Suppose the cell is not editable, the xPath is just the td[]
-         // Used to get the text from a cell although it's not editable
-         helpersList.add("");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.TEXTBOX_HELPERS)
          {
-            if (this.getBrowser().existsNoWait(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().existsNoWait(locator))
             {
-               type = WidgetType.TEXTBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.TEXTBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -498,20 +447,9 @@ public class OnePageTable extends Widget
     */
    public String getColumnNameByIndex(final int columnIndex)
    {
-      locatorCheckAndAdjust();
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      try
-      {
-         String currentColumnHeadingText = this.getBrowser().getText(
-               headerRowLocator + "/th[" + columnIndex + "]");
-
-         return currentColumnHeadingText;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return null;
-      }
+      return (headers == null) ? null : headers.getText(columnIndex);
    }
 
    /**
@@ -606,100 +544,24 @@ public class OnePageTable extends Widget
    
 
    /**
-    * Iterate through the Table columns header row to populate a list
-    * containing these column headings. Would be nice to initialize this when
-    * Table is created, but cannot due to the fact that the column headers
-    * get populated at test runtime, as we can not anticipate what columns and
-    * their column indexes are.
+    * Gets the index of the column with a given heading, ignoring case. Hidden
+    * columns never match, and a visible column with an empty heading is the
+    * column holding the delete buttons, named deleteRowColumn.
     * 
-    * August 2011, refactor this method as it was inefficient to get all the
-    * columns in IE it would take 60 seconds to do so for adhoc oldtable. So
-    * change the approach to fetch the column until it reaches what is desired.
-    * Subsequent calls will first iterate through the list, if not found, then
-    * go through more columns of the OldTable. IF the end is reached then the
-    * code will enter the catch and then the finally block to just return 0
+    * The header row is read with one script call and shared with the other
+    * tables of the screen through {@link ColumnHeaders}; it is only read again
+    * when it changes.
     * 
     * @param columnInUse
     *           column heading of the column to utilize
-    * @return a List<String> that is the column headings list.
+    * @return the index of the column, starting at 1, or 0 if there is no such
+    *         column
     */
    public int getIndexOfColumn(String columnInUse)
    {      
-      int columnIndex = 0;
-      boolean isColumnFound = false;
-
-      locatorCheckAndAdjust();      
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      if (columnHeaders == null)
-      {
-         columnHeaders = new ArrayList<String>();
-      }
-
-      for (String column : columnHeaders)
-      {
-         ++columnIndex;
-
-         isColumnFound = (columnInUse.equalsIgnoreCase(column));
-
-         if (isColumnFound)
-            return columnIndex;
-      }
-
-      try
-      {         
-         // if the code reaches here then it is not in the current List so we need to fetch more columns 
-         // until we reach the end. 
-         // when the end is reached the code should throw an exception         
-         while (!isColumnFound)
-         {
-            ++columnIndex;
-
-            String columnHeaderLocator = headerRowLocator + "/th[" + columnIndex + "]";            
-            
-            // if the locator does not exist then either we've reached the end of the header row or they may be a change to the structure of the html of the table element
-            if (!(this.getBrowser().exists(columnHeaderLocator)))
-            {
-               throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
-            }            
-                        
-            // handle if a hidden column is there, such as the first column (id) column
-            String attributeStyle = this.getBrowser().getAttribute(columnHeaderLocator, "style");            
-            if ((attributeStyle.startsWith("display") && attributeStyle.contains("none")))
-            {
-               columnHeaders.add("hiddenAtColumn" + columnIndex);
-            }
-            else
-            {
-               String currentColumnHeadingText = this.getBrowser().getText(columnHeaderLocator);
-   
-               // if there is text in the header then add the header text to the list
-               // else since this element does exist that must mean an empty column
-               // which contains the Delete button in our implementation
-               if (currentColumnHeadingText.equals("")||currentColumnHeadingText.equals("&nbsp;"))
-               {
-                  currentColumnHeadingText = DELETE_ROW_COLUMN_IDENTIFIER;
-               }
-               
-               columnHeaders.add(currentColumnHeadingText);
-               
-               // If we've reached the column that we need just stop adding to the list and add more when needed
-               // This is in hopes to quicken this step as it takes 60 seconds using IE to get the entire 
-               // details Table (35 columns).
-               isColumnFound = (columnInUse.equalsIgnoreCase(currentColumnHeadingText));
-            }
-         }
-
-         return columnIndex;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return 0;
-      }
-      catch (NoSuchElementException e)
-      {
-         return 0;
-      }
+      return (headers == null) ? 0 : headers.indexOfText(columnInUse);
    }   
    
    /**
@@ -707,60 +569,14 @@ public class OnePageTable extends Widget
     * 
     * @param columnId
     *           The Id of the column(date-field attribute for column header)  
-    * @return a List<String> that is the column headings list.
+    * @return the index of the column, starting at 1, or 0 if there is no such
+    *         column
     */
    public int getIndexOfColumnById(String columnId)
    {      
-      int columnIndex = 0;
-      boolean isColumnFound = false;
-
-      locatorCheckAndAdjust();      
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      if (idOfColumnHeaders == null)
-      {
-         idOfColumnHeaders = new ArrayList<String>();
-      }
-
-      for (String column : idOfColumnHeaders)
-      {
-         ++columnIndex;
-         isColumnFound = (columnId.equalsIgnoreCase(column));
-         if (isColumnFound)
-            return columnIndex;
-      }
-
-      try
-      {         
-         // if the code reaches here then it is not in the current List so we need to fetch more columns 
-         // until we reach the end. When the end is reached the code should throw an exception         
-         while (!isColumnFound)
-         {
-            ++columnIndex;
-            String columnHeaderLocator = headerRowLocator + "/th[" + columnIndex + "]";
-            
-            // if the locator does not exist then either we've reached the end of the header row or they may be a change to the structure of the html of the table element
-            if (!(this.getBrowser().exists(columnHeaderLocator)))
-            {
-               throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
-            }            
-            String currentColumnHeaderId = this.getBrowser().getAttribute(columnHeaderLocator, "data-field");
-            idOfColumnHeaders.add(currentColumnHeaderId);            
-   
-            // If the data-field of the column header matches the expected columnId
-            // Then add the Id of the column header to the list
-            isColumnFound = (columnId.equals(currentColumnHeaderId));
-         }
-         return columnIndex;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return 0;
-      }
-      catch (NoSuchElementException e)
-      {
-         return 0;
-      }
+      return (headers == null) ? 0 : headers.indexOfId(columnId);
    }  
    
    /**
@@ -774,7 +590,7 @@ public class OnePageTable extends Widget
     */
    private String getLocatorFor(int row, int column)
    {
-      return dataBodyLocator + "/tr[" + row + "]/td[" + column + "]";
+      return cells.cell(row, column, "");
    }
 
    /**
@@ -870,14 +686,12 @@ public class OnePageTable extends Widget
     */
    public boolean isColumnHidden(int columnIdx)
    {
-      locatorCheckAndAdjust();      
-      String columnHeaderLocator = headerRowLocator + "/th[" + columnIdx + "]";
-      if (!(this.getBrowser().exists(columnHeaderLocator)))
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
+      if (headers == null || !headers.exists(columnIdx))
       {
          throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
       }            
-      String style = this.getBrowser().getAttribute(columnHeaderLocator, "style");      
-      return style.contains("display: none");
+      return headers.isHidden(columnIdx);
    }
    
    /**
@@ -887,10 +701,20 @@ public class OnePageTable extends Widget
     */
    private void locatorCheckAndAdjust()
    {
-      if (headerRowLocator.equals("//div[@id='" + this.getLocator() + "']/div[@class='k-grid-header']/div/table/thead/tr") && !this.getBrowser().existsNoWait(headerRowLocator) )
+      // The structure of the grid does not change once it is rendered, so it is only checked until found
+      if (layoutChecked)
+      {
+         return;
+      }
+      if (this.getBrowser().existsNoWait(headerRowLocator))
+      {
+         layoutChecked = true;
+      }
+      else if (headerRowLocator.equals("//div[@id='" + this.getLocator() + "']/div[@class='k-grid-header']/div/table/thead/tr"))
       {
          headerRowLocator = "//div[@id='" + this.getLocator() + "']/table/thead/tr"; 
          dataBodyLocator = "//div[@id='" + this.getLocator() + "']/table/tbody"; 
+         cells.setBody(dataBodyLocator);
       }
    }   
    
@@ -923,9 +747,91 @@ public class OnePageTable extends Widget
     */
    public void resetColumnHeadings()
    {
-      columnHeaders = null;
+      ColumnHeaders.invalidate(this.getBrowser(), this.getLocator());
    }   
    
+   /**
+    * Reads the text of some columns on all the rows of the Table, as a dataset
+    * to compare with an expected one. A Table with virtual scrolling is
+    * scrolled through, see {@link #readRows(int[], int[])}; the others are read
+    * with one {@link TableSnapshot}.
+    * 
+    * @param columnIdxs
+    *           the indexes (starting at 1) of the columns to read
+    * @return one array of texts per row
+    * @throws NoSuchElementException
+    *            if the Table is not in the page
+    */
+   public List<String[]> readRows(final int[] columnIdxs)
+   {
+      return readRows(columnIdxs, null);
+   }
+   
+   /**
+    * Reads the text of some columns on all the rows of the Table. When the
+    * Table scrolls virtually, only the rows around the viewport are in the
+    * DOM: the content is then scrolled by script one viewport at a time, each
+    * step being read with one {@link TableSnapshot}, until the end is reached.
+    * 
+    * @param columnIdxs
+    *           the indexes (starting at 1) of the columns to read
+    * @param keyColumnIdxs
+    *           the indexes (starting at 1) of the columns telling the rows
+    *           apart across the steps; null or empty to use the dataSource
+    *           items of the rows
+    * @return one array of texts per row, each row once
+    * @throws NoSuchElementException
+    *            if the Table is not in the page
+    */
+   public List<String[]> readRows(final int[] columnIdxs, final int[] keyColumnIdxs)
+   {
+      return new VirtualScrollReader(this.getBrowser(), this.getLocator()).read(columnIdxs, keyColumnIdxs);
+   }
+   
+   /**
+    * Checks whether the Table scrolls virtually, keeping only the rows around
+    * the viewport in the DOM.
+    * 
+    * @return <li><code>true</code> if the Table scrolls virtually.</li> <li>
+    *         <code>false</code> if all its rows are in the DOM.</li>
+    */
+   public boolean isVirtual()
+   {
+      return new VirtualScrollReader(this.getBrowser(), this.getLocator()).isVirtual();
+   }
+   
+   /**
+    * Returns the bridge to the Kendo dataSource of the Table, which reads the
+    * rows, counts and page state without going through the cells and the
+    * pager.
+    * 
+    * @return the dataSource bridge; its methods return null if the Table is
+    *         not a Kendo grid
+    */
+   public KendoDataSource getDataSource()
+   {
+      return new KendoDataSource(this.getBrowser(), this.getLocator());
+   }
+   
+   /**
+    * Gets the paging state from the Kendo dataSource of the Table.
+    * 
+    * @return the state, or null if the Table is not a Kendo grid or the state
+    *         cannot be read
+    */
+   private GridPageState getPageState()
+   {
+      try
+      {
+         return this.getDataSource().getPageState();
+      }
+      catch (RuntimeException e)
+      {
+         System.out.println(e.getMessage());
+         return null;
+      }
+   }
+   
    /**
     * Waits until the Table loads successfully.
     * 
@@ -942,91 +848,53 @@ public class OnePageTable extends Widget
    }
    
    /**
-    * If given lines(by checkbox) can be successfully selected for delete.
+    * If given lines(by checkbox) can be successfully selected for delete. The
+    * checkboxes are clicked in one script call, which fires their click and
+    * change events.
     * 
      * @param selectedLines
-    *           The lines to be selected for delete, use format like "3,4,7,10" or "3"
+    *           The lines to be selected for delete, use format like "3,4,7,10",
+    *           "3-7" or "3"
     *           
-    * @return Whether or not the given lines are selected successfully.
+    * @return Whether or not the given lines are selected successfully; false
+    *         if a line is not on the current page.
     *
     */
    public boolean selectLinesForDelete(final String selectedLines)
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      if(selectedLines.contains(","))
-      {
-         String[] lines = selectedLines.split(",");
-         for(int i=0; i< lines.length ; i++)
-         {
-            int line = Integer.parseInt(lines[i]);
-            if (line >=1 && line <=10 )
-            {
-               checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-               this.getBrowser().selectCheckBox(checkboxLocator);
-               if(! this.getBrowser().isSelected(checkboxLocator))
-                  return false;
-            }
-         }
-         return true;
-      }else //a given line number, should not greater than 10
-      {
-         int line = Integer.parseInt(selectedLines);
-         if (line >=1 && line <=10 )
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-            this.getBrowser().selectCheckBox(checkboxLocator);
-            return (this.getBrowser().isSelected(checkboxLocator)) ? true:false;
-         }else
-            return false;
-      }
+      return RowCheckBoxes.set(this.getBrowser(), this.getLocator(), RowCheckBoxes.parseLines(selectedLines), true);
    } 
    
    /**
-    * If given lines(by checkbox) can be successfully unselected for delete.
+    * If given lines(by checkbox) can be successfully unselected for delete. The
+    * checkboxes are clicked in one script call, which fires their click and
+    * change events.
     * 
      * @param unselectedLines
-    *           The lines to be unselected for delete, use format like "3,4,7,10" or "3"
+    *           The lines to be unselected for delete, use format like
+    *           "3,4,7,10", "3-7" or "3"
     *           
-    * @return Whether or not the given lines are unselected successfully.
+    * @return Whether or not the given lines are unselected successfully; false
+    *         if a line is not on the current page.
     *
     */
    public boolean unselectLinesForDelete(final String unselectedLines)
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      if(unselectedLines.contains(","))
-      {
-         String[] lines = unselectedLines.split(",");
-         for(int i=0; i< lines.length ; i++)
-         {
-            int line = Integer.parseInt(lines[i]);
-            if (line >=1 && line <=10 )
-            {
-               checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";   
-               if (this.getBrowser().isSelected(checkboxLocator))
-                  this.getBrowser().click(checkboxLocator);
-               if(this.getBrowser().isSelected(checkboxLocator))
-                  return false;               
-            }
-         }
-         return true;
-      }else //a given line number, should not greater than 10
-      {
-         int line = Integer.parseInt(unselectedLines);
-         if (line >=1 && line <=10 )
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-            if (this.getBrowser().isSelected(checkboxLocator))
-               this.getBrowser().click(checkboxLocator);
-            return (this.getBrowser().isSelected(checkboxLocator)) ? false:true;
-         }else
-            return false;
-      }
+      return RowCheckBoxes.set(this.getBrowser(), this.getLocator(), RowCheckBoxes.parseLines(unselectedLines), false);
    } 
    
+   /**
+    * Reads the checkboxes of all the lines shown in current page in one call.
+    * 
+    * @return one state per line, null for a line without checkbox; empty if
+    *         the Table is not in the page.
+    */
+   public List<Boolean> getCheckedStates()
+   {
+      List<Boolean> states = RowCheckBoxes.read(this.getBrowser(), this.getLocator());
+      return states == null ? new ArrayList<Boolean>() : states;
+   }
+   
    /**
     * Check if all the lines shown in current page is checked for delete.
     * 
@@ -1034,26 +902,7 @@ public class OnePageTable extends Widget
     */
    public boolean isAllChecked()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      int itemsOnCurrentPage = getItemsOnCurrentPage();
-      
-      if(itemsOnCurrentPage > 0)
-      {   
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if(! this.getBrowser().isSelected(checkboxLocator))
-            {
-               return false;
-            }
-         }
-         return true;
-      }else //No items to display;
-      {
-         return true;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), false) == 0;
    } 
    
    
@@ -1064,25 +913,7 @@ public class OnePageTable extends Widget
     */
    public boolean isAllUnChecked()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      int itemsOnCurrentPage = getItemsOnCurrentPage();
-      if(itemsOnCurrentPage > 0)
-      {   
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if(this.getBrowser().isSelected(checkboxLocator))
-            {
-               return false;
-            }
-         }
-         return true;
-      }else //No items to display;
-      {
-         return true;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), true) == 0;
    } 
    
    /**
@@ -1090,20 +921,21 @@ public class OnePageTable extends Widget
     */
    public int getItemsOnCurrentPage()
    {      
+      GridPageState state = this.getPageState();
+      if (state != null)
+      {
+         return state.getItemsOnPage();
+      }
+      
+      // Not a Kendo grid, parse the pager label
       String itemsOutput = getTableNavigation().getPageItems().getText().trim();
-
       if(itemsOutput.contains("-"))//like "31 - 31 of 31 items"
       {
          String[] items = itemsOutput.split("\\-");
          String[] items2 = items[1].trim().split("of");
-         String itemsTillCurrentPage = items2[0].trim();         
-         int itemsOnCurrentPage = Integer.parseInt(itemsTillCurrentPage) % 10;
-        
-         if(itemsOnCurrentPage ==0)
-         {
-            itemsOnCurrentPage = 10;
-         }
-         return itemsOnCurrentPage;
+         int firstItem = Integer.parseInt(items[0].trim());
+         int lastItem = Integer.parseInt(items2[0].trim());
+         return lastItem - firstItem + 1;
       }else //No items to display
       {
          return 0;
@@ -1115,7 +947,13 @@ public class OnePageTable extends Widget
     */
    public int getTotalItems()
    {
+      GridPageState state = this.getPageState();
+      if (state != null)
+      {
+         return state.getTotal();
+      }
       
+      // Not a Kendo grid, parse the pager label
       String itemsOutput = getTableNavigation().getPageItems().getText().trim();
       if (itemsOutput.contains("-")) //format like "1 - 10 of 31 items"
       {
@@ -1134,37 +972,7 @@ public class OnePageTable extends Widget
     */
    public int getCheckedItemsToDelete()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      int checkedNum =0;
-      
-      String itemsOutput = getTableNavigation().getPageItems().getText().trim();
-   
-      if(itemsOutput.contains("-"))//like "31 - 31 of 31 items"
-      {
-         String[] items = itemsOutput.split("\\-");
-         String[] items2 = items[1].trim().split("of");
-         String itemsTillCurrentPage = items2[0].trim();
-         
-         int itemsOnCurrentPage = Integer.parseInt(itemsTillCurrentPage) % 10;
-         
-         if((Integer.parseInt(itemsTillCurrentPage) >0 ) && ( itemsOnCurrentPage ==0))
-         {
-            itemsOnCurrentPage = 10;
-         }            
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if( this.getBrowser().isSelected(checkboxLocator))
-            {
-               checkedNum = checkedNum +1;
-            }
-         }
-         return checkedNum;
-      }else //No items to display
-      {
-         return 0;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), true);
    } 
    
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>RowCheckBoxes</code> class reads and sets the checkboxes which
+ * select the rows of a grid for delete (the checkbox in the first cell of each
+ * row), for all the rows of the page in one JavaScript call.
+ * <p>
+ * The checkboxes are changed by clicking them in the page, so the grid gets
+ * the same click and change events as when the user clicks them.
+ */
+final class RowCheckBoxes
+{
+   /**
+    * Finds the checkbox of a row and reads the states of all the rows: true or
+    * false, or null for a row without checkbox.
+    */
+   private static final String PREFIX       = TableSnapshot.LOCATE_SCRIPT
+       + "function box(tr) {"
+       + "  var input = first(first(first(tr, tag('td')), tag('span')), tag('input'));"
+       + "  return input && input.type == 'checkbox' ? input : null;"
+       + "}"
+       + "function states() {"
+       + "  var r = [];"
+       + "  for (var i = 0; i < trs.length; i++) { var b = box(trs[i]); r.push(b ? b.checked : null); }"
+       + "  return r;"
+       + "}";
+
+   /** Returns the states of the rows */
+   private static final String READ_SCRIPT  = PREFIX + "return states();";
+
+   /**
+    * Clicks the checkboxes of the rows arguments[1] (starting at 1) which are
+    * not in the state arguments[2], then returns the states of the rows.
+    */
+   private static final String SET_SCRIPT   = PREFIX
+       + "var lines = arguments[1], checked = arguments[2];"
+       + "for (var i = 0; i < lines.length; i++) {"
+       + "  var tr = trs[lines[i] - 1], b = tr ? box(tr) : null;"
+       + "  if (b && !b.disabled && b.checked != checked) b.click();"
+       + "}"
+       + "return states();";
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private RowCheckBoxes()
+   {
+   }
+
+   /**
+    * Reads the checkboxes of all the rows of the page.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    * @return one state per row, null for a row without checkbox; null if the
+    *         grid is not in the DOM
+    */
+   static List<Boolean> read(final Browser browser, final String gridId)
+   {
+      return toStates(browser.executeJavaScriptReturnObject(READ_SCRIPT, gridId));
+   }
+
+   /**
+    * Checks or unchecks the checkboxes of some rows of the page.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    * @param lines
+    *           the rows, starting at 1
+    * @param checked
+    *           the state to set
+    * @return <li><code>true</code> if all the rows are in the page and their
+    *         checkbox is in the state.</li> <li><code>false</code> otherwise.
+    *         </li>
+    */
+   static boolean set(final Browser browser, final String gridId, final List<Integer> lines, final boolean checked)
+   {
+      final List<Boolean> states = toStates(browser.executeJavaScriptReturnObject(SET_SCRIPT, gridId, lines,
+            checked));
+      if (states == null)
+      {
+         return false;
+      }
+      for (Integer line : lines)
+      {
+         if (line < 1 || line > states.size() || !Boolean.valueOf(checked).equals(states.get(line - 1)))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Counts the rows in a state.
+    *
+    * @param states
+    *           the states of the rows, as read by {@link #read(Browser, String)}
+    * @param checked
+    *           the state to count
+    * @return the number of rows with a checkbox in the state
+    */
+   static int count(final List<Boolean> states, final boolean checked)
+   {
+      int count = 0;
+      for (Boolean state : states)
+      {
+         if (state != null && state.booleanValue() == checked)
+         {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Parses a list of rows like "3,4,7", a range like "3-7", or a mix of both
+    * like "1,3-5".
+    *
+    * @param lines
+    *           the rows, starting at 1
+    * @return the rows in the order given
+    * @throws NumberFormatException
+    *            if a row is not a number
+    */
+   static List<Integer> parseLines(final String lines)
+   {
+      final List<Integer> result = new ArrayList<Integer>();
+      for (String part : lines.split(","))
+      {
+         final String[] range = part.trim().split("-");
+         if (range.length == 2)
+         {
+            final int from = Integer.parseInt(range[0].trim());
+            final int to = Integer.parseInt(range[1].trim());
+            for (int line = from; line <= to; line++)
+            {
+               result.add(line);
+            }
+         }
+         else
+         {
+            result.add(Integer.parseInt(part.trim()));
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Converts the states returned by the scripts.
+    *
+    * @param raw
+    *           the list returned by the driver
+    * @return the states, or null if the grid is not in the DOM
+    */
+   private static List<Boolean> toStates(final Object raw)
+   {
+      if (!(raw instanceof List))
+      {
+         return null;
+      }
+      final List<Boolean> states = new ArrayList<Boolean>();
+      for (Object state : (List<?>)raw)
+      {
+         states.add(state instanceof Boolean ? (Boolean)state : null);
+      }
+      return Collections.unmodifiableList(states);
+   }
+}
@@ -5,6 +5,7 @@
 package com.sonata.generic.automation.widgets;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -20,19 +21,44 @@ import com.sonata.generic.automation.browser.SpecialKey;
 public class Table extends Widget
 {
 
-   /**
-    * The list of column headers for the instantiated Table, used to know
-    * which column index to set based on the name of the column header. Would be
-    * nice to initialize this when old table is created, but cannot due to the
-    * fact that the column headers get populated at test runtime, as we can not
-    * anticipate what columns and their column indexes are.
-    */
-   private List<String> columnHeaders;
-   private List<String> idOfColumnHeaders;
-   private final String DELETE_ROW_COLUMN_IDENTIFIER = "deleteRowColumn";
+   private final String DELETE_ROW_COLUMN_IDENTIFIER = ColumnHeaders.DELETE_ROW_COLUMN;
    private TableNavigation tablenavigator;
    private String headerRowLocator;
    private String dataBodyLocator;
+   private boolean layoutChecked;
+   private final CellLocators cells;
+   private TableSnapshot snapshot;
+   private TableIndex index;
+   
+   /**
+    * Finds the rows matching a search in the Kendo dataSource of the grid whose
+    * id is arguments[0], applying the sort and filter of the grid to the whole
+    * data so the positions are the ones shown page by page. arguments[1] holds
+    * the fields, arguments[2] the values and arguments[3] the match mode. Returns
+    * null when the pages are not all on the client (server paging, grouping) or
+    * there is no Kendo grid, otherwise the [page, row] of the first match or an
+    * empty array.
+    */
+   private static final String DATASOURCE_SEARCH_SCRIPT =
+         "var grid = window.jQuery ? jQuery(document.getElementById(arguments[0])).data('kendoGrid') : null;"
+       + "if (!grid || !grid.dataSource || !window.kendo) return null;"
+       + "var ds = grid.dataSource;"
+       + "if (ds.options.serverPaging || ds.options.serverFiltering || ds.options.serverSorting) return null;"
+       + "if (ds.group() && ds.group().length) return null;"
+       + "var items = kendo.data.Query.process(ds.data(), {sort: ds.sort(), filter: ds.filter()}).data;"
+       + "var size = ds.pageSize() || items.length;"
+       + "var fields = arguments[1], values = arguments[2], mode = arguments[3];"
+       + "for (var i = 0; i < items.length; i++) {"
+       + "  var match = true;"
+       + "  for (var f = 0; f < fields.length && match; f++) {"
+       + "    var v = items[i][fields[f]];"
+       + "    v = v == null ? '' : String(v).replace(/^\\s+|\\s+$/g, '');"
+       + "    match = mode == 'PREFIX' ? v.indexOf(values[f]) == 0"
+       + "      : mode == 'CONTAINS' ? v.indexOf(values[f]) >= 0 : v == values[f];"
+       + "  }"
+       + "  if (match) return [Math.floor(i / size) + 1, i % size + 1];"
+       + "}"
+       + "return [];";
    
    /**
     * constructs an instance of the {@link Table} class.
@@ -47,6 +73,7 @@ public class Table extends Widget
       super(locator, browser);
       headerRowLocator = "//div[@id='" + locator + "']/div[@class='k-grid-header']/div/table/thead/tr";
       dataBodyLocator = "//div[@id='" + locator + "']/div[@class='k-grid-content']/table/tbody";      
+      cells = new CellLocators(dataBodyLocator);
    }
 
    /**
@@ -63,12 +90,15 @@ public class Table extends Widget
       // assumes the locator is already an XPATH      
       String deleteButtonLocator = getLocatorFor(rowIndex, this.getIndexOfColumn(DELETE_ROW_COLUMN_IDENTIFIER)) + "/a";
       
+      invalidateSnapshot();
+      invalidateIndex();
       return this.getBrowser().click(deleteButtonLocator);
 
    }
    
    /**
-    * Returns the row index of a cell with a given value
+    * Returns the row index of a cell with a given value, turning the table to
+    * the page holding it.
     * 
     * @param columnIdx
     *           the the column Index
@@ -79,23 +109,229 @@ public class Table extends Widget
     */
    public int getCellRowIdxByValue(final int columnIdx, final String value)
    {
-      int pages = Integer.parseInt(this.getTotalPages());
+      return findRow(new int[] {columnIdx}, new String[] {value}, MatchMode.EXACT).getRow();
+   }
+   
+   /**
+    * Finds the first row, in page order, whose key columns match the given
+    * values, and turns the table to the page holding it.
+    * 
+    * The position is looked up, in this order, in the Kendo dataSource of the
+    * grid when all the data is on the client, then in the index of the pages
+    * read by the previous searches, and finally by reading the pages one by
+    * one, adding them to the index. A position from the dataSource or the
+    * index is checked against the page shown before being returned; if the
+    * check fails the index is dropped. A row not in the index is trusted to be
+    * missing from the indexed pages as long as the numbers of pages and rows
+    * (for a Kendo grid) are those of when the index was started, otherwise the
+    * index is started again. The page shown, which may have just been changed,
+    * is read again, and only the pages not indexed yet are turned. Editing a
+    * cell through the fixture drops the index ({@link #invalidateIndex()}).
+    * 
+    * @param columnIdxs
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return the page and row found, and where the position came from
+    */
+   public TableSearchResult findRow(final int[] columnIdxs, final String[] values, final MatchMode mode)
+   {
+      if (columnIdxs.length == 0 || columnIdxs.length != values.length)
+      {
+         throw new IllegalArgumentException("One value must be given for each key column");
+      }
       
-      for ( int i=1; i <= pages; i++)
+      GridPageState state = this.getPageState();
+      int pages = state != null ? state.getTotalPages() : this.getTotalPageCount();
+      int rows = state != null ? state.getTotal() : -1;
+      if (index == null || index.getTotalPages() != pages || index.getTotalRows() != rows)
       {
-         if (i != 1)
-            this.goToPage(Integer.toString(i));
-         
-         int itemsOnCurrentPage = this.getItemsOnCurrentPage();
-         for (int j=1; j<= itemsOnCurrentPage; j++)
+         index = new TableIndex(pages, rows);
+      }
+      
+      int[] position = this.findInDataSource(columnIdxs, values, mode);
+      if (position != null && this.isRowAt(position, columnIdxs, values, mode))
+      {
+         return new TableSearchResult(position[0], position[1], TableSearchResult.Source.DATASOURCE);
+      }
+      
+      position = index.find(columnIdxs, values, mode);
+      if (position != null)
+      {
+         if (this.isRowAt(position, columnIdxs, values, mode))
+         {
+            return new TableSearchResult(position[0], position[1], TableSearchResult.Source.INDEX);
+         }
+         // the content changed since the pages were indexed
+         index = new TableIndex(pages, rows);
+      }
+      
+      // The page shown may have changed since it was indexed: read it again,
+      // which costs one call when it did not
+      int shownPage = state != null ? state.getPage() : this.getCurrentPageNumber();
+      if (shownPage <= index.getIndexedPages())
+      {
+         TableSnapshot shownSnapshot = this.getSnapshot();
+         if (shownSnapshot != null)
          {
-            if(this.getField(j, columnIdx).getText().equals(value))
+            index.refreshPage(shownPage, shownSnapshot);
+            int row = TableIndex.findRow(shownSnapshot, columnIdxs, values, mode);
+            if (row > 0)
             {
-               return j;
+               return new TableSearchResult(shownPage, row, TableSearchResult.Source.LIVE_SCAN);
             }
-         }    
+         }
+      }
+      
+      // The other indexed pages do not hold the row: only read the others
+      TableSearchResult.Source source = TableSearchResult.Source.INDEX;
+      for (int page = index.getIndexedPages() + 1; page <= pages; page++)
+      {
+         source = TableSearchResult.Source.LIVE_SCAN;
+         TableSnapshot pageSnapshot = this.showPage(page);
+         if (pageSnapshot == null)
+         {
+            break;
+         }
+         index.addPage(pageSnapshot);
+         int row = TableIndex.findRow(pageSnapshot, columnIdxs, values, mode);
+         if (row > 0)
+         {
+            return new TableSearchResult(page, row, TableSearchResult.Source.LIVE_SCAN);
+         }
+      }
+      return new TableSearchResult(-1, -1, source);
+   }
+   
+   /**
+    * Looks a search up in the Kendo dataSource of the grid.
+    * 
+    * @param columnIdxs
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return the page and row of the first match, or null if not found or the
+    *         dataSource cannot answer
+    */
+   private int[] findInDataSource(final int[] columnIdxs, final String[] values, final MatchMode mode)
+   {
+      TableSnapshot current = this.getSnapshot();
+      if (current == null)
+      {
+         return null;
+      }
+      List<String> fields = new ArrayList<String>();
+      for (int columnIdx : columnIdxs)
+      {
+         String field = current.getColumnId(columnIdx);
+         if (field == null || field.isEmpty())
+         {
+            return null;
+         }
+         fields.add(field);
+      }
+      
+      try
+      {
+         Object result = this.getBrowser().executeJavaScriptReturnObject(DATASOURCE_SEARCH_SCRIPT,
+               this.getLocator(), fields, Arrays.asList(values), mode.name());
+         if (result instanceof List && ((List<?>)result).size() == 2)
+         {
+            List<?> position = (List<?>)result;
+            return new int[] {((Number)position.get(0)).intValue(), ((Number)position.get(1)).intValue()};
+         }
+      }
+      catch (RuntimeException e)
+      {
+         // No usable dataSource, the pages are read instead
+         System.out.println(e.getMessage());
+      }
+      return null;
+   }
+   
+   /**
+    * Turns the table to a page and checks that the row there matches the
+    * search. The index is refreshed with the page read.
+    * 
+    * @param position
+    *           the page and row, starting at 1
+    * @param columnIdxs
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return <code>true</code> if the row matches <code>false</code> otherwise
+    */
+   private boolean isRowAt(final int[] position, final int[] columnIdxs, final String[] values, final MatchMode mode)
+   {
+      TableSnapshot pageSnapshot = this.showPage(position[0]);
+      if (pageSnapshot == null)
+      {
+         return false;
+      }
+      index.refreshPage(position[0], pageSnapshot);
+      return TableIndex.matches(pageSnapshot, position[1], columnIdxs, values, mode);
+   }
+   
+   /**
+    * Turns the table to a page, unless it is already shown, and reads it.
+    * 
+    * @param page
+    *           the page, starting at 1
+    * @return the snapshot of the page, or null if the page cannot be shown
+    */
+   private TableSnapshot showPage(final int page)
+   {
+      if (!Integer.toString(page).equals(this.getCurrentPage()) && !this.goToPage(Integer.toString(page)))
+      {
+         return null;
+      }
+      return this.getSnapshot();
+   }
+   
+   /**
+    * Returns the page shown as a number; a table without pager shows page 1.
+    * 
+    * @return the page shown, starting at 1
+    */
+   private int getCurrentPageNumber()
+   {
+      try
+      {
+         return Math.max(1, Integer.parseInt(this.getCurrentPage().trim()));
+      }
+      catch (RuntimeException e)
+      {
+         return 1;
+      }
+   }
+   
+   /**
+    * Returns the total pages as a number; a table without pager or items has
+    * one page.
+    * 
+    * @return the total pages, at least 1
+    */
+   private int getTotalPageCount()
+   {
+      GridPageState state = this.getPageState();
+      if (state != null)
+      {
+         return state.getTotalPages();
+      }
+      try
+      {
+         return Math.max(1, Integer.parseInt(this.getTotalPages()));
+      }
+      catch (RuntimeException e)
+      {
+         return 1;
       }
-      return -1;
    }
    
    /**
@@ -135,7 +371,6 @@ public class Table extends Widget
    {
       locatorCheckAndAdjust();
       
-      WidgetType type = null;
       String baseLocator = "";
       
       int row = rowIndex;
@@ -150,8 +385,7 @@ public class Table extends Widget
          }
          else
          {
-            type = WidgetType.LABEL;
-            return type.createWidget(baseLocator, this.getBrowser());
+            return WidgetType.LABEL.createWidget(baseLocator, this.getBrowser());
          }
       }
       else
@@ -178,7 +412,7 @@ public class Table extends Widget
             
       if (isValidRowIndex(rowIndex))
       {
-         cellLocator = dataBodyLocator + "/tr[" + rowIndex + "]/td[@date-field='" + columnId + "']"; 
+         cellLocator = cells.cellById(rowIndex, columnId, ""); 
 
          if (this.getBrowser().exists(cellLocator))
          {
@@ -228,7 +462,6 @@ public class Table extends Widget
     */
    public WidgetInterface getComboBoxField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -239,14 +472,12 @@ public class Table extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
          
-         ArrayList<String> helpersList = new ArrayList<String>();
-         helpersList.add("/span/select");
-         for(String helper:helpersList)
+         for (String helper : CellLocators.COMBOBOX_HELPERS)
          {
-            if (this.getBrowser().exists(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().exists(locator))
             {
-               type = WidgetType.COMBOBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.COMBOBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -289,7 +520,6 @@ public class Table extends Widget
     */
    public WidgetInterface getFinderButtonField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -300,20 +530,12 @@ public class Table extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
          
-         ArrayList<String> helpersList = new ArrayList<String>();
-         // e.g.: Journal Entry -> Grid -> SourceType
-         helpersList.add("/input[2]");
-         // e.g.: Journal Entry -> Grid -> Rate
-         helpersList.add("/input");
-         // e.g.: Optional Field table -> Optional Field
-         helpersList.add("/div/div[2]/input");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.FINDER_HELPERS)
          {
-            if (this.getBrowser().existsNoWait(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().existsNoWait(locator))
             {
-               type = WidgetType.BUTTON;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.BUTTON.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -336,7 +558,6 @@ public class Table extends Widget
     */
    public WidgetInterface getPencilButtonField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -346,12 +567,11 @@ public class Table extends Widget
       if (isValidColumnIndex("", columnIndex) && (isValidRowIndex(row)))
       {
          baseLocator = getLocatorFor(row, columnIndex);
-         String pencilButtonLocator = baseLocator + "/div/span[2]/input";
+         String pencilButtonLocator = baseLocator + CellLocators.PENCIL_HELPER;
          
          if (this.getBrowser().exists(pencilButtonLocator))
             {
-               type = WidgetType.BUTTON;
-               return type.createWidget(pencilButtonLocator, this.getBrowser());
+               return WidgetType.BUTTON.createWidget(pencilButtonLocator, this.getBrowser());
             }   
          }
 
@@ -393,7 +613,6 @@ public class Table extends Widget
     */
    public WidgetInterface getTextBoxField(final int rowIndex, final int columnIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
@@ -404,26 +623,12 @@ public class Table extends Widget
       {
          baseLocator = getLocatorFor(row, columnIndex);
                   
-         ArrayList<String> helpersList = new ArrayList<String>();
-
-         // For a numberTextBox like "GL Jounal Entry-> Grid -> Source Debit" 
-         helpersList.add("/span/span/input[2]");
-         // For a dateTextBox like "GL Jounal Entry-> Grid -> Date" 
-         helpersList.add("/span/span/input");
-         // For a normal textBox like "GL Jounal Entry-> Grid -> Account Number"
-         helpersList.add("/input");
-         // For column OptionalField in "Optional Field" table, its sturcture is special
-         helpersList.add("/div/div/input");
-         // Suppose the cell is not editable, the xPath is just the td[]
-         // Used to get the text from a cell although it's not editable
-         helpersList.add("");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.TEXTBOX_HELPERS)
          {
-            if (this.getBrowser().existsNoWait(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().existsNoWait(locator))
             {
-               type = WidgetType.TEXTBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.TEXTBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -446,35 +651,20 @@ public class Table extends Widget
     */
    public WidgetInterface getTextBoxFieldByColumnId(final String columnId, final int rowIndex)
    {
-      WidgetType type = null;
       String baseLocator = "";
       
       locatorCheckAndAdjust();      
             
       if (isValidRowIndex(rowIndex))
       {
-         baseLocator = dataBodyLocator + "/tr[" + rowIndex + "]/td[@date-field='" + columnId + "']";
+         baseLocator = cells.cellById(rowIndex, columnId, "");
          
-         ArrayList<String> helpersList = new ArrayList<String>();
-         
-         // For a numberTextBox like "GL Jounal Entry-> Grid -> Source Debit" 
-         helpersList.add("/span/span/input[2]");
-         // For a dateTextBox like "GL Jounal Entry-> Grid -> Date" 
-         helpersList.add("/span/span/input");
-         // For a normal textBox like "GL Jounal Entry-> Grid -> Account Number"
-         helpersList.add("/input");
-         // For column OptionalField in "Optional Field" table, its sturcture is special
-         helpersList.add("/div/div/input");
-         // Suppose the cell is not editable, the xPath is just the td[]
-         // Used to get the text from a cell although it's not editable
-         helpersList.add("");
-         
-         for(String helper:helpersList)
+         for (String helper : CellLocators.TEXTBOX_HELPERS)
          {
-            if (this.getBrowser().existsNoWait(baseLocator + helper))
+            String locator = baseLocator + helper;
+            if (this.getBrowser().existsNoWait(locator))
             {
-               type = WidgetType.TEXTBOX;
-               return type.createWidget(baseLocator + helper, this.getBrowser());
+               return WidgetType.TEXTBOX.createWidget(locator, this.getBrowser());
             }
          }
       }
@@ -514,20 +704,9 @@ public class Table extends Widget
     */
    public String getColumnNameByIndex(final int columnIndex)
    {
-      locatorCheckAndAdjust();
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      try
-      {
-         String currentColumnHeadingText = this.getBrowser().getText(
-               headerRowLocator + "/th[" + columnIndex + "]");
-
-         return currentColumnHeadingText;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return null;
-      }
+      return (headers == null) ? null : headers.getText(columnIndex);
    }
 
    /**
@@ -562,6 +741,7 @@ public class Table extends Widget
     */
    public boolean goToPage(final String page)
    {
+      invalidateSnapshot();
       getTableNavigation().getCurrentPageTextBox().click();
 
       if (!getTableNavigation().getCurrentPageTextBox().typeWithoutWaitForClicable(page))
@@ -622,100 +802,24 @@ public class Table extends Widget
    
 
    /**
-    * Iterate through the Table columns header row to populate a list
-    * containing these column headings. Would be nice to initialize this when
-    * Table is created, but cannot due to the fact that the column headers
-    * get populated at test runtime, as we can not anticipate what columns and
-    * their column indexes are.
+    * Gets the index of the column with a given heading, ignoring case. Hidden
+    * columns never match, and a visible column with an empty heading is the
+    * column holding the delete buttons, named deleteRowColumn.
     * 
-    * August 2011, refactor this method as it was inefficient to get all the
-    * columns in IE it would take 60 seconds to do so for adhoc oldtable. So
-    * change the approach to fetch the column until it reaches what is desired.
-    * Subsequent calls will first iterate through the list, if not found, then
-    * go through more columns of the OldTable. IF the end is reached then the
-    * code will enter the catch and then the finally block to just return 0
+    * The header row is read with one script call and shared with the other
+    * tables of the screen through {@link ColumnHeaders}; it is only read again
+    * when it changes.
     * 
     * @param columnInUse
     *           column heading of the column to utilize
-    * @return a List<String> that is the column headings list.
+    * @return the index of the column, starting at 1, or 0 if there is no such
+    *         column
     */
    public int getIndexOfColumn(String columnInUse)
    {      
-      int columnIndex = 0;
-      boolean isColumnFound = false;
-
-      locatorCheckAndAdjust();      
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      if (columnHeaders == null)
-      {
-         columnHeaders = new ArrayList<String>();
-      }
-
-      for (String column : columnHeaders)
-      {
-         ++columnIndex;
-
-         isColumnFound = (columnInUse.equalsIgnoreCase(column));
-
-         if (isColumnFound)
-            return columnIndex;
-      }
-
-      try
-      {         
-         // if the code reaches here then it is not in the current List so we need to fetch more columns 
-         // until we reach the end. 
-         // when the end is reached the code should throw an exception         
-         while (!isColumnFound)
-         {
-            ++columnIndex;
-
-            String columnHeaderLocator = headerRowLocator + "/th[" + columnIndex + "]";            
-            
-            // if the locator does not exist then either we've reached the end of the header row or they may be a change to the structure of the html of the table element
-            if (!(this.getBrowser().exists(columnHeaderLocator)))
-            {
-               throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
-            }            
-                        
-            // handle if a hidden column is there, such as the first column (id) column
-            String attributeStyle = this.getBrowser().getAttribute(columnHeaderLocator, "style");            
-            if ((attributeStyle.startsWith("display") && attributeStyle.contains("none")))
-            {
-               columnHeaders.add("hiddenAtColumn" + columnIndex);
-            }
-            else
-            {
-               String currentColumnHeadingText = this.getBrowser().getText(columnHeaderLocator);
-   
-               // if there is text in the header then add the header text to the list
-               // else since this element does exist that must mean an empty column
-               // which contains the Delete button in our implementation
-               if (currentColumnHeadingText.equals("")||currentColumnHeadingText.equals("&nbsp;"))
-               {
-                  currentColumnHeadingText = DELETE_ROW_COLUMN_IDENTIFIER;
-               }
-               
-               columnHeaders.add(currentColumnHeadingText);
-               
-               // If we've reached the column that we need just stop adding to the list and add more when needed
-               // This is in hopes to quicken this step as it takes 60 seconds using IE to get the entire 
-               // details Table (35 columns).
-               isColumnFound = (columnInUse.equalsIgnoreCase(currentColumnHeadingText));
-            }
-         }
-
-         return columnIndex;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return 0;
-      }
-      catch (NoSuchElementException e)
-      {
-         return 0;
-      }
+      return (headers == null) ? 0 : headers.indexOfText(columnInUse);
    }   
    
    /**
@@ -723,60 +827,14 @@ public class Table extends Widget
     * 
     * @param columnId
     *           The Id of the column(date-field attribute for column header)  
-    * @return a List<String> that is the column headings list.
+    * @return the index of the column, starting at 1, or 0 if there is no such
+    *         column
     */
    public int getIndexOfColumnById(String columnId)
    {      
-      int columnIndex = 0;
-      boolean isColumnFound = false;
-
-      locatorCheckAndAdjust();      
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
       
-      if (idOfColumnHeaders == null)
-      {
-         idOfColumnHeaders = new ArrayList<String>();
-      }
-
-      for (String column : idOfColumnHeaders)
-      {
-         ++columnIndex;
-         isColumnFound = (columnId.equalsIgnoreCase(column));
-         if (isColumnFound)
-            return columnIndex;
-      }
-
-      try
-      {         
-         // if the code reaches here then it is not in the current List so we need to fetch more columns 
-         // until we reach the end. When the end is reached the code should throw an exception         
-         while (!isColumnFound)
-         {
-            ++columnIndex;
-            String columnHeaderLocator = headerRowLocator + "/th[" + columnIndex + "]";
-            
-            // if the locator does not exist then either we've reached the end of the header row or they may be a change to the structure of the html of the table element
-            if (!(this.getBrowser().exists(columnHeaderLocator)))
-            {
-               throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
-            }            
-            String currentColumnHeaderId = this.getBrowser().getAttribute(columnHeaderLocator, "data-field");
-            idOfColumnHeaders.add(currentColumnHeaderId);            
-   
-            // If the data-field of the column header matches the expected columnId
-            // Then add the Id of the column header to the list
-            isColumnFound = (columnId.equals(currentColumnHeaderId));
-         }
-         return columnIndex;
-      }
-      catch (NullPointerException e)
-      {
-         // Instead of previous implementation to check if exists then check getText, meaning 2 separate XPATH calls which is expensive in terms of time, just do the one call and handle the exception
-         return 0;
-      }
-      catch (NoSuchElementException e)
-      {
-         return 0;
-      }
+      return (headers == null) ? 0 : headers.indexOfId(columnId);
    }  
    
    /**
@@ -790,7 +848,7 @@ public class Table extends Widget
     */
    private String getLocatorFor(int row, int column)
    {
-      return dataBodyLocator + "/tr[" + row + "]/td[" + column + "]";
+      return cells.cell(row, column, "");
    }
 
    /**
@@ -886,14 +944,12 @@ public class Table extends Widget
     */
    public boolean isColumnHidden(int columnIdx)
    {
-      locatorCheckAndAdjust();      
-      String columnHeaderLocator = headerRowLocator + "/th[" + columnIdx + "]";
-      if (!(this.getBrowser().exists(columnHeaderLocator)))
+      ColumnHeaders headers = ColumnHeaders.get(this.getBrowser(), this.getLocator());
+      if (headers == null || !headers.exists(columnIdx))
       {
          throw new NoSuchElementException("Either we've reached the end of the header row or they may be a change to the structure of the html of the table element");
       }            
-      String style = this.getBrowser().getAttribute(columnHeaderLocator, "style");      
-      return style.contains("display: none");
+      return headers.isHidden(columnIdx);
    }
    
    /**
@@ -903,10 +959,20 @@ public class Table extends Widget
     */
    private void locatorCheckAndAdjust()
    {
-      if (headerRowLocator.equals("//div[@id='" + this.getLocator() + "']/div[@class='k-grid-header']/div/table/thead/tr") && !this.getBrowser().existsNoWait(headerRowLocator) )
+      // The structure of the grid does not change once it is rendered, so it is only checked until found
+      if (layoutChecked)
+      {
+         return;
+      }
+      if (this.getBrowser().existsNoWait(headerRowLocator))
+      {
+         layoutChecked = true;
+      }
+      else if (headerRowLocator.equals("//div[@id='" + this.getLocator() + "']/div[@class='k-grid-header']/div/table/thead/tr"))
       {
          headerRowLocator = "//div[@id='" + this.getLocator() + "']/table/thead/tr"; 
          dataBodyLocator = "//div[@id='" + this.getLocator() + "']/table/tbody"; 
+         cells.setBody(dataBodyLocator);
       }
    }   
    
@@ -929,6 +995,7 @@ public class Table extends Widget
       if (buttonToClick == null)
          return false;
       
+      invalidateSnapshot();
       return buttonToClick.click();
    }   
    
@@ -939,9 +1006,159 @@ public class Table extends Widget
     */
    public void resetColumnHeadings()
    {
-      columnHeaders = null;
+      ColumnHeaders.invalidate(this.getBrowser(), this.getLocator());
    }   
    
+   /**
+    * Returns a {@link TableSnapshot} of the current page of the Table.
+    * 
+    * The snapshot read last is reused as long as it was not invalidated by an
+    * action on this Table and the grid did not change in the DOM since, which
+    * costs one script call instead of a new read.
+    * 
+    * @return the snapshot of the current page, or null if the Table is not in
+    *         the DOM
+    */
+   public TableSnapshot getSnapshot()
+   {
+      if (snapshot == null || !snapshot.isCurrent())
+      {
+         snapshot = TableSnapshot.read(this.getBrowser(), this.getLocator());
+      }
+      return snapshot;
+   }
+   
+   /**
+    * Discards the snapshot of the current page, so the next
+    * {@link #getSnapshot()} reads the grid again. To be called by any action
+    * which may change the content of the Table.
+    */
+   public void invalidateSnapshot()
+   {
+      snapshot = null;
+   }
+   
+   /**
+    * Discards the index of the pages read by the cross-page searches. To be
+    * called by any action which may change the values of the Table.
+    */
+   public void invalidateIndex()
+   {
+      index = null;
+   }
+   
+   /**
+    * Returns an iterator over the rows of all the pages of the Table, which
+    * reads one page at a time, only when the rows of the previous page are
+    * consumed. Stopping the iteration early leaves the remaining pages unread.
+    * 
+    * @return an iterator of immutable rows
+    */
+   public TableRowIterator rows()
+   {
+      return new TableRowIterator(this, false);
+   }
+   
+   /**
+    * Returns an iterator over the rows of all the pages of the Table, see
+    * {@link #rows()}.
+    * 
+    * @param prefetch
+    *           whether to load the next page in the browser while the rows of
+    *           the current one are processed, which turns the grid to the next
+    *           page before they are all returned: not for callers acting on the
+    *           rows shown. Only has an effect on Kendo grids paging on the
+    *           server
+    * @return an iterator of immutable rows
+    */
+   public TableRowIterator rows(final boolean prefetch)
+   {
+      return new TableRowIterator(this, prefetch);
+   }
+   
+   /**
+    * Reads the text of some columns on all the pages of the Table, one
+    * {@link TableSnapshot} per page, as a dataset to compare with an expected
+    * one. The Table is left on the last page read.
+    * 
+    * @param columnIdxs
+    *           the indexes (starting at 1) of the columns to read
+    * @return one array of texts per row, in the order of the pages and rows
+    * @throws NoSuchElementException
+    *            if a page cannot be shown
+    */
+   public List<String[]> readRows(final int[] columnIdxs)
+   {
+      final List<String[]> rows = new ArrayList<String[]>();
+      final int totalPages = this.getTotalPageCount();
+      for (int page = 1; page <= totalPages; page++)
+      {
+         final TableSnapshot pageSnapshot = this.showPage(page);
+         if (pageSnapshot == null)
+         {
+            throw new NoSuchElementException("Unable to read the page " + page + " of the table " + this.getLocator());
+         }
+         rows.addAll(readRows(pageSnapshot, columnIdxs));
+      }
+      return rows;
+   }
+   
+   /**
+    * Reads the text of some columns of the rows of a snapshot.
+    * 
+    * @param tableSnapshot
+    *           the snapshot of a page
+    * @param columnIdxs
+    *           the indexes (starting at 1) of the columns to read
+    * @return one array of texts per row
+    */
+   static List<String[]> readRows(final TableSnapshot tableSnapshot, final int[] columnIdxs)
+   {
+      final List<String[]> rows = new ArrayList<String[]>(tableSnapshot.getRowCount());
+      for (int row = 1; row <= tableSnapshot.getRowCount(); row++)
+      {
+         final String[] values = new String[columnIdxs.length];
+         for (int i = 0; i < columnIdxs.length; i++)
+         {
+            values[i] = tableSnapshot.getText(row, columnIdxs[i]);
+         }
+         rows.add(values);
+      }
+      return rows;
+   }
+   
+   /**
+    * Returns the bridge to the Kendo dataSource of the Table, which reads the
+    * rows, counts and page state without going through the cells and the
+    * pager.
+    * 
+    * @return the dataSource bridge; its methods return null if the Table is
+    *         not a Kendo grid
+    */
+   public KendoDataSource getDataSource()
+   {
+      return new KendoDataSource(this.getBrowser(), this.getLocator());
+   }
+   
+   /**
+    * Gets the paging state from the Kendo dataSource of the Table.
+    * 
+    * @return the state, or null if the Table is not a Kendo grid or the state
+    *         cannot be read
+    */
+   private GridPageState getPageState()
+   {
+      try
+      {
+         return this.getDataSource().getPageState();
+      }
+      catch (RuntimeException e)
+      {
+         System.out.println(e.getMessage());
+         return null;
+      }
+   }
+   
    /**
     * Waits until the Table loads successfully.
     * 
@@ -958,91 +1175,55 @@ public class Table extends Widget
    }
    
    /**
-    * If given lines(by checkbox) can be successfully selected for delete.
+    * If given lines(by checkbox) can be successfully selected for delete. The
+    * checkboxes are clicked in one script call, which fires their click and
+    * change events.
     * 
      * @param selectedLines
-    *           The lines to be selected for delete, use format like "3,4,7,10" or "3"
+    *           The lines to be selected for delete, use format like "3,4,7,10",
+    *           "3-7" or "3"
     *           
-    * @return Whether or not the given lines are selected successfully.
+    * @return Whether or not the given lines are selected successfully; false
+    *         if a line is not on the current page.
     *
     */
    public boolean selectLinesForDelete(final String selectedLines)
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      if(selectedLines.contains(","))
-      {
-         String[] lines = selectedLines.split(",");
-         for(int i=0; i< lines.length ; i++)
-         {
-            int line = Integer.parseInt(lines[i]);
-            if (line >=1 && line <=10 )
-            {
-               checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-               this.getBrowser().selectCheckBox(checkboxLocator);
-               if(! this.getBrowser().isSelected(checkboxLocator))
-                  return false;
-            }
-         }
-         return true;
-      }else //a given line number, should not greater than 10
-      {
-         int line = Integer.parseInt(selectedLines);
-         if (line >=1 && line <=10 )
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-            this.getBrowser().selectCheckBox(checkboxLocator);
-            return (this.getBrowser().isSelected(checkboxLocator)) ? true:false;
-         }else
-            return false;
-      }
+      invalidateSnapshot();
+      return RowCheckBoxes.set(this.getBrowser(), this.getLocator(), RowCheckBoxes.parseLines(selectedLines), true);
    } 
    
    /**
-    * If given lines(by checkbox) can be successfully unselected for delete.
+    * If given lines(by checkbox) can be successfully unselected for delete. The
+    * checkboxes are clicked in one script call, which fires their click and
+    * change events.
     * 
      * @param unselectedLines
-    *           The lines to be unselected for delete, use format like "3,4,7,10" or "3"
+    *           The lines to be unselected for delete, use format like
+    *           "3,4,7,10", "3-7" or "3"
     *           
-    * @return Whether or not the given lines are unselected successfully.
+    * @return Whether or not the given lines are unselected successfully; false
+    *         if a line is not on the current page.
     *
     */
    public boolean unselectLinesForDelete(final String unselectedLines)
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      if(unselectedLines.contains(","))
-      {
-         String[] lines = unselectedLines.split(",");
-         for(int i=0; i< lines.length ; i++)
-         {
-            int line = Integer.parseInt(lines[i]);
-            if (line >=1 && line <=10 )
-            {
-               checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";   
-               if (this.getBrowser().isSelected(checkboxLocator))
-                  this.getBrowser().click(checkboxLocator);
-               if(this.getBrowser().isSelected(checkboxLocator))
-                  return false;               
-            }
-         }
-         return true;
-      }else //a given line number, should not greater than 10
-      {
-         int line = Integer.parseInt(unselectedLines);
-         if (line >=1 && line <=10 )
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + line + "]/td[1]/span/input";
-            if (this.getBrowser().isSelected(checkboxLocator))
-               this.getBrowser().click(checkboxLocator);
-            return (this.getBrowser().isSelected(checkboxLocator)) ? false:true;
-         }else
-            return false;
-      }
+      invalidateSnapshot();
+      return RowCheckBoxes.set(this.getBrowser(), this.getLocator(), RowCheckBoxes.parseLines(unselectedLines), false);
    } 
    
+   /**
+    * Reads the checkboxes of all the lines shown in current page in one call.
+    * 
+    * @return one state per line, null for a line without checkbox; empty if
+    *         the Table is not in the page.
+    */
+   public List<Boolean> getCheckedStates()
+   {
+      List<Boolean> states = RowCheckBoxes.read(this.getBrowser(), this.getLocator());
+      return states == null ? new ArrayList<Boolean>() : states;
+   }
+   
    /**
     * Check if all the lines shown in current page is checked for delete.
     * 
@@ -1050,26 +1231,7 @@ public class Table extends Widget
     */
    public boolean isAllChecked()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      int itemsOnCurrentPage = getItemsOnCurrentPage();
-      
-      if(itemsOnCurrentPage > 0)
-      {   
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if(! this.getBrowser().isSelected(checkboxLocator))
-            {
-               return false;
-            }
-         }
-         return true;
-      }else //No items to display;
-      {
-         return true;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), false) == 0;
    } 
    
    
@@ -1080,25 +1242,7 @@ public class Table extends Widget
     */
    public boolean isAllUnChecked()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      
-      int itemsOnCurrentPage = getItemsOnCurrentPage();
-      if(itemsOnCurrentPage > 0)
-      {   
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if(this.getBrowser().isSelected(checkboxLocator))
-            {
-               return false;
-            }
-         }
-         return true;
-      }else //No items to display;
-      {
-         return true;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), true) == 0;
    } 
    
    /**
@@ -1106,25 +1250,21 @@ public class Table extends Widget
     */
    public int getItemsOnCurrentPage()
    {      
+      GridPageState state = this.getPageState();
+      if (state != null)
+      {
+         return state.getItemsOnPage();
+      }
+      
+      // Not a Kendo grid, parse the pager label
       String itemsOutput = getTableNavigation().getPageItems().getText().trim();
-      // For tables in a normal screens other than a finder page, the rows number of the table is 10.
-      int itemsPerPage = 10;
-      // For tables in a finder page, the row number is 5.
-      if (this.getLocator().contains("div_finder_grid"))
-         itemsPerPage = 5;
-
       if(itemsOutput.contains("-"))//like "31 - 31 of 31 items"
       {
          String[] items = itemsOutput.split("\\-");
          String[] items2 = items[1].trim().split("of");
-         String itemsTillCurrentPage = items2[0].trim();   
-
-         int itemsOnCurrentPage = Integer.parseInt(itemsTillCurrentPage) % itemsPerPage;
-         if(itemsOnCurrentPage ==0)
-         {
-            itemsOnCurrentPage = itemsPerPage;
-         }
-         return itemsOnCurrentPage;
+         int firstItem = Integer.parseInt(items[0].trim());
+         int lastItem = Integer.parseInt(items2[0].trim());
+         return lastItem - firstItem + 1;
       }else //No items to display
       {
          return 0;
@@ -1136,7 +1276,13 @@ public class Table extends Widget
     */
    public int getTotalItems()
    {
+      GridPageState state = this.getPageState();
+      if (state != null)
+      {
+         return state.getTotal();
+      }
       
+      // Not a Kendo grid, parse the pager label
       String itemsOutput = getTableNavigation().getPageItems().getText().trim();
       if (itemsOutput.contains("-")) //format like "1 - 10 of 31 items"
       {
@@ -1155,37 +1301,7 @@ public class Table extends Widget
     */
    public int getCheckedItemsToDelete()
    {
-      locatorCheckAndAdjust();
-      String checkboxLocator;
-      int checkedNum =0;
-      
-      String itemsOutput = getTableNavigation().getPageItems().getText().trim();
-   
-      if(itemsOutput.contains("-"))//like "31 - 31 of 31 items"
-      {
-         String[] items = itemsOutput.split("\\-");
-         String[] items2 = items[1].trim().split("of");
-         String itemsTillCurrentPage = items2[0].trim();
-         
-         int itemsOnCurrentPage = Integer.parseInt(itemsTillCurrentPage) % 10;
-         
-         if((Integer.parseInt(itemsTillCurrentPage) >0 ) && ( itemsOnCurrentPage ==0))
-         {
-            itemsOnCurrentPage = 10;
-         }            
-         for (int i=1; i<itemsOnCurrentPage+1; i++)
-         {
-            checkboxLocator =  dataBodyLocator + "/tr[" + i + "]/td[1]/span/input";
-            if( this.getBrowser().isSelected(checkboxLocator))
-            {
-               checkedNum = checkedNum +1;
-            }
-         }
-         return checkedNum;
-      }else //No items to display
-      {
-         return 0;
-      }
+      return RowCheckBoxes.count(getCheckedStates(), true);
    } 
    
 
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <code>TableIndex</code> class remembers the pages of a {@link Table}
+ * read by the cross-page searches, so a later search goes straight to the page
+ * holding the row, and a row not found is only looked for in the pages not
+ * indexed yet. The index is started again when the numbers of pages or rows of
+ * the table change.
+ * <p>
+ * Pages are added in order, starting at page 1, as a search scans them, and
+ * replaced when they are read again. Exact searches go through a hash from the
+ * key (the texts of the key columns) to the first page and row holding it,
+ * built the first time a set of key columns is searched and kept up to date as
+ * pages are added. Prefix and contains searches scan the stored snapshots,
+ * which needs no browser call either.
+ */
+final class TableIndex
+{
+   /** Separates the column texts of a multi-column key */
+   private static final char                    KEY_SEPARATOR = '\u0000';
+
+   private final int                            totalPages;
+   private final int                            totalRows;
+   private final List<TableSnapshot>            pages         = new ArrayList<TableSnapshot>();
+   private final Map<String, Map<String, int[]>> hashes       = new HashMap<String, Map<String, int[]>>();
+
+   /**
+    * Constructs an empty index.
+    *
+    * @param totalPages
+    *           the number of pages of the table when the index is started
+    * @param totalRows
+    *           the number of rows of the table when the index is started, -1
+    *           if unknown
+    */
+   TableIndex(final int totalPages, final int totalRows)
+   {
+      this.totalPages = totalPages;
+      this.totalRows = totalRows;
+   }
+
+   /**
+    * @return the number of pages of the table when the index was started
+    */
+   int getTotalPages()
+   {
+      return totalPages;
+   }
+
+   /**
+    * @return the number of rows of the table when the index was started, -1 if
+    *         unknown
+    */
+   int getTotalRows()
+   {
+      return totalRows;
+   }
+
+   /**
+    * @return the number of pages added, the next page to add is this plus 1
+    */
+   int getIndexedPages()
+   {
+      return pages.size();
+   }
+
+   /**
+    * @return whether all the pages of the table were added
+    */
+   boolean isComplete()
+   {
+      return pages.size() >= totalPages;
+   }
+
+   /**
+    * Adds the next page to the index.
+    *
+    * @param snapshot
+    *           the snapshot of page {@link #getIndexedPages()} + 1
+    */
+   void addPage(final TableSnapshot snapshot)
+   {
+      pages.add(snapshot);
+      final int page = pages.size();
+      for (Map.Entry<String, Map<String, int[]>> hash : hashes.entrySet())
+      {
+         addToHash(hash.getValue(), parseColumns(hash.getKey()), page, snapshot);
+      }
+   }
+
+   /**
+    * Replaces the snapshot of an indexed page with a newer one, whose rows may
+    * have changed since. The exact hashes are dropped, and built again from
+    * the snapshots when next searched, unless the snapshot is the same.
+    *
+    * @param page
+    *           the page, starting at 1
+    * @param snapshot
+    *           the newer snapshot
+    */
+   void refreshPage(final int page, final TableSnapshot snapshot)
+   {
+      if (page >= 1 && page <= pages.size() && pages.get(page - 1) != snapshot)
+      {
+         pages.set(page - 1, snapshot);
+         hashes.clear();
+      }
+   }
+
+   /**
+    * Finds the first row of the indexed pages matching the values.
+    *
+    * @param columns
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return the page and row, starting at 1, or null if not found
+    */
+   int[] find(final int[] columns, final String[] values, final MatchMode mode)
+   {
+      if (mode == MatchMode.EXACT)
+      {
+         return getHash(columns).get(key(values));
+      }
+      for (int page = 1; page <= pages.size(); page++)
+      {
+         final int row = findRow(pages.get(page - 1), columns, values, mode);
+         if (row > 0)
+         {
+            return new int[] {page, row};
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Finds the first row of a page matching the values.
+    *
+    * @param snapshot
+    *           the snapshot of the page
+    * @param columns
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return the row, starting at 1, or -1 if not found
+    */
+   static int findRow(final TableSnapshot snapshot, final int[] columns, final String[] values, final MatchMode mode)
+   {
+      for (int row = 1; row <= snapshot.getRowCount(); row++)
+      {
+         if (matches(snapshot, row, columns, values, mode))
+         {
+            return row;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Checks whether a row matches the values.
+    *
+    * @param snapshot
+    *           the snapshot of the page
+    * @param row
+    *           the row, starting at 1
+    * @param columns
+    *           the indexes of the key columns, starting at 1
+    * @param values
+    *           the searched values, one per key column
+    * @param mode
+    *           how the cell texts are matched against the values
+    * @return whether every key column matches its value
+    */
+   static boolean matches(final TableSnapshot snapshot, final int row, final int[] columns, final String[] values,
+         final MatchMode mode)
+   {
+      for (int i = 0; i < columns.length; i++)
+      {
+         if (!mode.matches(snapshot.getText(row, columns[i]), values[i]))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Gets the exact hash of a set of key columns, building it from the indexed
+    * pages the first time.
+    *
+    * @param columns
+    *           the indexes of the key columns
+    * @return the hash from key to page and row
+    */
+   private Map<String, int[]> getHash(final int[] columns)
+   {
+      final String name = columnsName(columns);
+      Map<String, int[]> hash = hashes.get(name);
+      if (hash == null)
+      {
+         hash = new HashMap<String, int[]>();
+         for (int page = 1; page <= pages.size(); page++)
+         {
+            addToHash(hash, columns, page, pages.get(page - 1));
+         }
+         hashes.put(name, hash);
+      }
+      return hash;
+   }
+
+   /**
+    * Adds the rows of a page to a hash, keeping the first position of each
+    * key.
+    *
+    * @param hash
+    *           the hash
+    * @param columns
+    *           the indexes of the key columns
+    * @param page
+    *           the page, starting at 1
+    * @param snapshot
+    *           the snapshot of the page
+    */
+   private static void addToHash(final Map<String, int[]> hash, final int[] columns, final int page,
+         final TableSnapshot snapshot)
+   {
+      final String[] values = new String[columns.length];
+      for (int row = 1; row <= snapshot.getRowCount(); row++)
+      {
+         for (int i = 0; i < columns.length; i++)
+         {
+            values[i] = snapshot.getText(row, columns[i]);
+         }
+         final String key = key(values);
+         if (key != null && !hash.containsKey(key))
+         {
+            hash.put(key, new int[] {page, row});
+         }
+      }
+   }
+
+   /**
+    * Builds the hash key of a row.
+    *
+    * @param values
+    *           the texts of the key columns
+    * @return the key, or null if a cell is missing
+    */
+   private static String key(final String[] values)
+   {
+      final StringBuilder key = new StringBuilder();
+      for (String value : values)
+      {
+         if (value == null)
+         {
+            return null;
+         }
+         key.append(value).append(KEY_SEPARATOR);
+      }
+      return key.toString();
+   }
+
+   /**
+    * @param columns
+    *           the indexes of the key columns
+    * @return the name of the hash of these key columns, e.g. "2,5"
+    */
+   private static String columnsName(final int[] columns)
+   {
+      final StringBuilder name = new StringBuilder();
+      for (int column : columns)
+      {
+         if (name.length() > 0)
+         {
+            name.append(',');
+         }
+         name.append(column);
+      }
+      return name.toString();
+   }
+
+   /**
+    * @param name
+    *           the name of a hash, as built by {@link #columnsName(int[])}
+    * @return the indexes of the key columns
+    */
+   private static int[] parseColumns(final String name)
+   {
+      final String[] parts = name.split(",");
+      final int[] columns = new int[parts.length];
+      for (int i = 0; i < parts.length; i++)
+      {
+         columns[i] = Integer.parseInt(parts[i]);
+      }
+      return columns;
+   }
+}
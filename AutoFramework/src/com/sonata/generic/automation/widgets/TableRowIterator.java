@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The <code>TableRowIterator</code> class iterates over the rows of all the
+ * pages of a {@link Table}, reading one page at a time and only when the rows
+ * of the previous page are consumed. A caller that stops iterating never
+ * causes the remaining pages to be read.
+ * <p>
+ * Kendo grids are read through their {@link KendoDataSource}: when all the
+ * rows are in the browser no page is turned at all; when the pages come from
+ * the server, the next page can be prefetched in the browser while the caller
+ * processes the current one, the grid then showing the next page early. Other tables are turned page by page and read
+ * with a {@link TableSnapshot}, the row values being keyed by column id, or by
+ * column index for a column without id.
+ */
+public final class TableRowIterator implements Iterator<GridRow>
+{
+   private final Table           table;
+   private final boolean         prefetch;
+   private final KendoDataSource dataSource;
+   private boolean               started;
+   private boolean               kendo;
+   private int                   totalPages;
+   private int                   page;
+   private List<GridRow>         rows = Collections.emptyList();
+   private int                   position;
+
+   /**
+    * Constructs an iterator over the rows of a table. Nothing is read until
+    * the first call to {@link #hasNext()} or {@link #next()}.
+    *
+    * @param table
+    *           the table
+    * @param prefetch
+    *           whether to prefetch the next page of a grid paging on the
+    *           server
+    */
+   TableRowIterator(final Table table, final boolean prefetch)
+   {
+      this.table = table;
+      this.prefetch = prefetch;
+      this.dataSource = table.getDataSource();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean hasNext()
+   {
+      if (!started)
+      {
+         start();
+      }
+      while (position >= rows.size() && page < totalPages)
+      {
+         page++;
+         rows = readPage(page);
+         position = 0;
+      }
+      return position < rows.size();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public GridRow next()
+   {
+      if (!hasNext())
+      {
+         throw new NoSuchElementException("There are no more rows in the table " + table.getLocator());
+      }
+      return rows.get(position++);
+   }
+
+   /**
+    * Rows cannot be removed through the iterator.
+    */
+   @Override
+   public void remove()
+   {
+      throw new UnsupportedOperationException("The rows of a table cannot be removed through its iterator");
+   }
+
+   /**
+    * @return the page of the last row returned, 0 before the first one
+    */
+   public int getPage()
+   {
+      return page;
+   }
+
+   /**
+    * Finds out whether the table is a Kendo grid and how many pages it has.
+    */
+   private void start()
+   {
+      started = true;
+      GridPageState state = null;
+      try
+      {
+         state = dataSource.getPageState();
+      }
+      catch (RuntimeException e)
+      {
+         System.out.println(e.getMessage());
+      }
+      kendo = state != null;
+      if (kendo)
+      {
+         totalPages = state.getTotalPages();
+      }
+      else
+      {
+         try
+         {
+            totalPages = Math.max(1, Integer.parseInt(table.getTotalPages()));
+         }
+         catch (RuntimeException e)
+         {
+            // No pager, a single page
+            totalPages = 1;
+         }
+      }
+   }
+
+   /**
+    * Reads a page, then starts prefetching the following one if asked to.
+    *
+    * @param pageToRead
+    *           the page, starting at 1
+    * @return the rows of the page, empty if it cannot be read
+    */
+   private List<GridRow> readPage(final int pageToRead)
+   {
+      if (!kendo)
+      {
+         return readPageFromDom(pageToRead);
+      }
+
+      List<GridRow> pageRows = prefetch ? dataSource.takePrefetched(pageToRead) : null;
+      if (pageRows == null)
+      {
+         pageRows = dataSource.getRows(pageToRead);
+      }
+      if (prefetch && pageToRead < totalPages)
+      {
+         dataSource.prefetch(pageToRead + 1);
+      }
+      return pageRows == null ? Collections.<GridRow> emptyList() : pageRows;
+   }
+
+   /**
+    * Turns the table to a page and reads it from the DOM.
+    *
+    * @param pageToRead
+    *           the page, starting at 1
+    * @return the rows of the page, empty if it cannot be read
+    */
+   private List<GridRow> readPageFromDom(final int pageToRead)
+   {
+      if (totalPages > 1 && !Integer.toString(pageToRead).equals(table.getCurrentPage())
+            && !table.goToPage(Integer.toString(pageToRead)))
+      {
+         return Collections.emptyList();
+      }
+      final TableSnapshot snapshot = table.getSnapshot();
+      if (snapshot == null)
+      {
+         return Collections.emptyList();
+      }
+
+      final List<GridRow> pageRows = new ArrayList<GridRow>(snapshot.getRowCount());
+      for (int row = 1; row <= snapshot.getRowCount(); row++)
+      {
+         final Map<String, String> values = new LinkedHashMap<String, String>();
+         for (int column = 1; column <= snapshot.getColumnCount(); column++)
+         {
+            final String id = snapshot.getColumnId(column);
+            values.put(id == null || id.isEmpty() ? Integer.toString(column) : id, snapshot.getText(row, column));
+         }
+         pageRows.add(new GridRow(pageToRead, row, values));
+      }
+      return pageRows;
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+/**
+ * The <code>TableSearchResult</code> class holds where a row searched across
+ * the pages of a {@link Table} was found, and how. Instances are immutable.
+ */
+public final class TableSearchResult
+{
+   /**
+    * The <code>Source</code> enumerates where the position of a result came
+    * from.
+    */
+   public static enum Source
+   {
+      /** The Kendo dataSource of the grid, without turning any page */
+      DATASOURCE,
+
+      /** The value index built from the pages read by earlier searches */
+      INDEX,
+
+      /** The pages read by this search */
+      LIVE_SCAN
+   }
+
+   private final int    page;
+   private final int    row;
+   private final Source source;
+
+   /**
+    * Constructs an instance of the {@link TableSearchResult} class.
+    *
+    * @param page
+    *           the page the row is on, starting at 1, or -1 if not found
+    * @param row
+    *           the row index on the page, starting at 1, or -1 if not found
+    * @param source
+    *           where the position came from
+    */
+   TableSearchResult(final int page, final int row, final Source source)
+   {
+      this.page = page;
+      this.row = row;
+      this.source = source;
+   }
+
+   /**
+    * @return <li><code>true</code> if a row was found.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean isFound()
+   {
+      return row > 0;
+   }
+
+   /**
+    * @return the page the row is on, starting at 1, or -1 if not found
+    */
+   public int getPage()
+   {
+      return page;
+   }
+
+   /**
+    * @return the row index on the page, starting at 1, or -1 if not found
+    */
+   public int getRow()
+   {
+      return row;
+   }
+
+   /**
+    * @return where the position came from; for a row which was not found,
+    *         whether the answer came from a complete index or a scan
+    */
+   public Source getSource()
+   {
+      return source;
+   }
+
+   @Override
+   public String toString()
+   {
+      return isFound() ? "page " + page + ", row " + row + " (" + source + ")" : "not found (" + source + ")";
+   }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TableSnapshot</code> class holds the content of the current page of
+ * a Kendo grid, read with a single JavaScript call instead of a lookup, a
+ * spinner wait and several attribute fetches per cell.
+ * <p>
+ * The headers (text, data-field and hidden flag) and, for every cell, the text,
+ * the editable flag and the checkbox state are stored column-wise. Row and
+ * column indexes start at 1, the same as the {@link Table} XPath locators.
+ * <p>
+ * A snapshot is immutable. While reading it, the grid is tagged with a token
+ * which is cleared by a MutationObserver as soon as the grid content changes,
+ * so {@link #isCurrent()} can tell with one cheap call whether the snapshot
+ * still reflects the screen. Browsers without MutationObserver fall back to
+ * comparing a fingerprint of the grid body.
+ */
+public final class TableSnapshot
+{
+   /** Checkbox state of a cell which has no checkbox */
+   private static final byte NO_CHECKBOX = -1;
+
+   /**
+    * Locates the header row and the body of the grid whose id is arguments[0],
+    * following the same two structures as {@link Table}: a Kendo grid with
+    * separate header and content divs, or a plain table directly in the div.
+    * With virtual scrolling, the content table is in a wrapper div.
+    */
+   static final String       LOCATE_SCRIPT =
+         "function kids(el, test) {"
+       + "  var r = []; if (!el) return r;"
+       + "  for (var n = el.firstChild; n; n = n.nextSibling) if (n.nodeType == 1 && test(n)) r.push(n);"
+       + "  return r;"
+       + "}"
+       + "function tag(name) { return function(n) { return n.tagName.toLowerCase() == name; }; }"
+       + "function div(cls) { return function(n) { return n.tagName.toLowerCase() == 'div' && n.className == cls; }; }"
+       + "function first(el, test) { return kids(el, test)[0]; }"
+       + "var grid = document.getElementById(arguments[0]);"
+       + "if (!grid) return null;"
+       + "var header = first(grid, div('k-grid-header')), content = first(grid, div('k-grid-content'));"
+       + "var headTable = header ? first(first(header, tag('div')), tag('table')) : first(grid, tag('table'));"
+       + "var bodyTable = content ? first(content, tag('table'))"
+       + "  || first(first(content, div('k-virtual-scrollable-wrap')), tag('table')) : first(grid, tag('table'));"
+       + "var headRow = first(first(headTable, tag('thead')), tag('tr'));"
+       + "var tbody = first(bodyTable, tag('tbody'));"
+       + "var trs = kids(tbody, tag('tr'));"
+       + "var fingerprint = tbody ? trs.length + ':' + tbody.innerHTML.length : '';";
+
+   /** Reads the whole page; see the class comment for the layout */
+   private static final String READ_SCRIPT = LOCATE_SCRIPT
+       + "function trim(s) { return s == null ? '' : String(s).replace(/^\\s+|\\s+$/g, ''); }"
+       + "function textOf(el) { return trim(el.innerText != null ? el.innerText : el.textContent); }"
+       + "function editor(td) {"
+       + "  var spans = kids(first(td, tag('span')), tag('span'));"
+       + "  var inputs = spans.length ? kids(spans[0], tag('input')) : [];"
+       + "  if (inputs.length) return inputs[inputs.length > 1 ? 1 : 0];"
+       + "  inputs = kids(td, tag('input'));"
+       + "  if (inputs.length && inputs[0].type != 'checkbox') return inputs[0];"
+       + "  inputs = kids(first(first(td, tag('div')), tag('div')), tag('input'));"
+       + "  return inputs[0];"
+       + "}"
+       + "var kendoGrid = window.jQuery ? jQuery(grid).data('kendoGrid') : null;"
+       + "var headers = [], ids = [], hidden = [];"
+       + "var ths = kids(headRow, tag('th'));"
+       + "for (var h = 0; h < ths.length; h++) {"
+       + "  headers.push(textOf(ths[h]));"
+       + "  ids.push(ths[h].getAttribute('data-field'));"
+       + "  hidden.push(/display:\\s*none/i.test(ths[h].getAttribute('style') || ''));"
+       + "}"
+       + "var texts = [], editable = [], checks = [], uids = [];"
+       + "for (var r = 0; r < trs.length; r++) {"
+       + "  var tds = kids(trs[r], tag('td'));"
+       + "  uids.push(trs[r].getAttribute('data-uid'));"
+       + "  var item = null;"
+       + "  try { item = kendoGrid ? kendoGrid.dataItem(trs[r]) : null; } catch (e) {}"
+       + "  for (var c = 0; c < tds.length; c++) {"
+       + "    if (!texts[c]) { texts[c] = []; editable[c] = []; checks[c] = []; }"
+       + "    var td = tds[c], inEdit = td.className.indexOf('k-edit-cell') >= 0;"
+       + "    var input = inEdit ? editor(td) : null;"
+       + "    texts[c][r] = input ? trim(input.value) : textOf(td).replace(/\\nselect$/, '');"
+       + "    var field = ids[c];"
+       + "    editable[c][r] = inEdit || (item && field && item.editable ? !!item.editable(field) : false);"
+       + "    var boxes = td.getElementsByTagName('input'), box = null;"
+       + "    for (var b = 0; b < boxes.length && !box; b++) if (boxes[b].type == 'checkbox') box = boxes[b];"
+       + "    checks[c][r] = box ? (box.checked ? 1 : 0) : -1;"
+       + "  }"
+       + "}"
+       + "var token = new Date().getTime() + '-' + Math.random();"
+       + "grid.__swtSnapshotToken = token;"
+       + "var observed = false;"
+       + "if (window.MutationObserver) {"
+       + "  if (grid.__swtSnapshotObserver) grid.__swtSnapshotObserver.disconnect();"
+       + "  grid.__swtSnapshotObserver = new MutationObserver(function() { grid.__swtSnapshotToken = null; });"
+       + "  grid.__swtSnapshotObserver.observe(content || grid,"
+       + "    {childList: true, subtree: true, characterData: true, attributes: true});"
+       + "  observed = true;"
+       + "}"
+       + "return {headers: headers, ids: ids, hidden: hidden, rows: trs.length, texts: texts,"
+       + "  editable: editable, checks: checks, uids: uids, token: token, observed: observed,"
+       + "  fingerprint: fingerprint};";
+
+   /** Checks that the grid did not change since the snapshot with token arguments[1] was read */
+   private static final String CURRENT_SCRIPT = LOCATE_SCRIPT
+       + "if (grid.__swtSnapshotToken != arguments[1]) return false;"
+       + "return grid.__swtSnapshotObserver ? true : fingerprint == arguments[2];";
+
+   private final Browser       browser;
+   private final String        gridId;
+   private final String        token;
+   private final String        fingerprint;
+   private final String[]      headers;
+   private final String[]      columnIds;
+   private final boolean[]     hidden;
+   private final int           rowCount;
+   private final String[]      uids;
+   private final String[][]    texts;
+   private final boolean[][]   editable;
+   private final byte[][]      checks;
+
+   /**
+    * Constructs a snapshot from the value returned by the read script.
+    *
+    * @param browser
+    *           the browser the grid was read from
+    * @param gridId
+    *           the id of the grid div
+    * @param raw
+    *           the map returned by the read script
+    */
+   private TableSnapshot(final Browser browser, final String gridId, final Map<?, ?> raw)
+   {
+      this.browser = browser;
+      this.gridId = gridId;
+      this.token = String.valueOf(raw.get("token"));
+      this.fingerprint = String.valueOf(raw.get("fingerprint"));
+      this.rowCount = ((Number)raw.get("rows")).intValue();
+
+      final List<?> rawUids = list(raw.get("uids"));
+      this.uids = new String[rowCount];
+      for (int r = 0; r < rowCount && r < rawUids.size(); r++)
+      {
+         uids[r] = (String)rawUids.get(r);
+      }
+
+      final List<?> rawHeaders = list(raw.get("headers"));
+      final List<?> rawIds = list(raw.get("ids"));
+      final List<?> rawHidden = list(raw.get("hidden"));
+      this.headers = new String[rawHeaders.size()];
+      this.columnIds = new String[rawHeaders.size()];
+      this.hidden = new boolean[rawHeaders.size()];
+      for (int i = 0; i < headers.length; i++)
+      {
+         headers[i] = (String)rawHeaders.get(i);
+         columnIds[i] = (String)rawIds.get(i);
+         hidden[i] = Boolean.TRUE.equals(rawHidden.get(i));
+      }
+
+      final List<?> rawTexts = list(raw.get("texts"));
+      final List<?> rawEditable = list(raw.get("editable"));
+      final List<?> rawChecks = list(raw.get("checks"));
+      this.texts = new String[rawTexts.size()][];
+      this.editable = new boolean[rawTexts.size()][];
+      this.checks = new byte[rawTexts.size()][];
+      for (int c = 0; c < texts.length; c++)
+      {
+         // A column is shorter than rowCount when some rows have fewer cells
+         // (e.g. a "No items to display" row); the missing cells are null
+         final List<?> columnTexts = list(rawTexts.get(c));
+         final List<?> columnEditable = list(rawEditable.get(c));
+         final List<?> columnChecks = list(rawChecks.get(c));
+         texts[c] = new String[rowCount];
+         editable[c] = new boolean[rowCount];
+         checks[c] = new byte[rowCount];
+         for (int r = 0; r < rowCount; r++)
+         {
+            final boolean present = r < columnTexts.size() && columnTexts.get(r) != null;
+            texts[c][r] = present ? (String)columnTexts.get(r) : null;
+            editable[c][r] = present && Boolean.TRUE.equals(columnEditable.get(r));
+            checks[c][r] = present ? ((Number)columnChecks.get(r)).byteValue() : NO_CHECKBOX;
+         }
+      }
+   }
+
+   /**
+    * Reads the current page of a grid in one JavaScript call.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid (the {@link Table} locator)
+    * @return the snapshot, or null if the grid is not in the DOM
+    */
+   public static TableSnapshot read(final Browser browser, final String gridId)
+   {
+      final Object raw = browser.executeJavaScriptReturnObject(READ_SCRIPT, gridId);
+      if (!(raw instanceof Map))
+      {
+         return null;
+      }
+      return new TableSnapshot(browser, gridId, (Map<?, ?>)raw);
+   }
+
+   /**
+    * Converts a JavaScript array returned by the driver to a list.
+    *
+    * @param value
+    *           the value returned by the driver
+    * @return the list, empty if the value is not a list
+    */
+   private static List<?> list(final Object value)
+   {
+      return (value instanceof List) ? (List<?>)value : Collections.emptyList();
+   }
+
+   /**
+    * Checks with one JavaScript call whether the grid changed since this
+    * snapshot was read.
+    *
+    * @return <li><code>true</code> if the snapshot still reflects the grid.</li>
+    *         <li><code>false</code> if the grid changed or is gone.</li>
+    */
+   public boolean isCurrent()
+   {
+      try
+      {
+         return Boolean.TRUE.equals(browser.executeJavaScriptReturnObject(CURRENT_SCRIPT, gridId, token, fingerprint));
+      }
+      catch (RuntimeException e)
+      {
+         return false;
+      }
+   }
+
+   /**
+    * @return the id of the div holding the grid
+    */
+   public String getGridId()
+   {
+      return gridId;
+   }
+
+   /**
+    * @return the number of rows on the page
+    */
+   public int getRowCount()
+   {
+      return rowCount;
+   }
+
+   /**
+    * @return the number of data columns, the largest number of cells in a row
+    */
+   public int getColumnCount()
+   {
+      return texts.length;
+   }
+
+   /**
+    * @return the number of header cells
+    */
+   public int getHeaderCount()
+   {
+      return headers.length;
+   }
+
+   /**
+    * Gets the header text of a column.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return the header text, or null if there is no such header
+    */
+   public String getHeader(final int columnIndex)
+   {
+      return isHeader(columnIndex) ? headers[columnIndex - 1] : null;
+   }
+
+   /**
+    * Gets the id (data-field attribute) of a column.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return the column id, or null if there is no such header or it has no id
+    */
+   public String getColumnId(final int columnIndex)
+   {
+      return isHeader(columnIndex) ? columnIds[columnIndex - 1] : null;
+   }
+
+   /**
+    * Checks whether a column is hidden (display: none on its header).
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the column is hidden.</li> <li>
+    *         <code>false</code> if it is shown or there is no such header.</li>
+    */
+   public boolean isColumnHidden(final int columnIndex)
+   {
+      return isHeader(columnIndex) && hidden[columnIndex - 1];
+   }
+
+   /**
+    * Checks whether a cell exists in the snapshot.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the cell exists.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean hasCell(final int rowIndex, final int columnIndex)
+   {
+      return rowIndex >= 1 && rowIndex <= rowCount && columnIndex >= 1 && columnIndex <= texts.length
+            && texts[columnIndex - 1][rowIndex - 1] != null;
+   }
+
+   /**
+    * Gets the text of a cell, as {@link Table#getField(int, int)} and getText
+    * would return it: the editor value for a cell being edited, otherwise the
+    * trimmed text of the cell.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return the text, or null if there is no such cell
+    */
+   public String getText(final int rowIndex, final int columnIndex)
+   {
+      return hasCell(rowIndex, columnIndex) ? texts[columnIndex - 1][rowIndex - 1] : null;
+   }
+
+   /**
+    * Checks whether a cell is editable, according to the Kendo data model when
+    * it is available, otherwise whether the cell is currently being edited.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the cell is editable.</li> <li>
+    *         <code>false</code> otherwise or if there is no such cell.</li>
+    */
+   public boolean isEditable(final int rowIndex, final int columnIndex)
+   {
+      return hasCell(rowIndex, columnIndex) && editable[columnIndex - 1][rowIndex - 1];
+   }
+
+   /**
+    * Checks whether a cell holds a checkbox.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the cell holds a checkbox.</li> <li>
+    *         <code>false</code> otherwise.</li>
+    */
+   public boolean hasCheckBox(final int rowIndex, final int columnIndex)
+   {
+      return hasCell(rowIndex, columnIndex) && checks[columnIndex - 1][rowIndex - 1] != NO_CHECKBOX;
+   }
+
+   /**
+    * Checks whether the checkbox of a cell is checked.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return <li><code>true</code> if the cell holds a checked checkbox.</li>
+    *         <li><code>false</code> otherwise.</li>
+    */
+   public boolean isChecked(final int rowIndex, final int columnIndex)
+   {
+      return hasCell(rowIndex, columnIndex) && checks[columnIndex - 1][rowIndex - 1] == 1;
+   }
+
+   /**
+    * Gets the texts of a column.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return a copy of the column texts, indexed from 0; missing cells are null
+    */
+   public String[] getColumn(final int columnIndex)
+   {
+      if (columnIndex < 1 || columnIndex > texts.length)
+      {
+         return new String[rowCount];
+      }
+      return texts[columnIndex - 1].clone();
+   }
+
+   /**
+    * Gets the uid the Kendo dataSource gave to the item of a row, which tells
+    * the rows apart even when their texts are the same.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @return the uid, or null if the row has none
+    */
+   public String getRowUid(final int rowIndex)
+   {
+      return (rowIndex >= 1 && rowIndex <= rowCount) ? uids[rowIndex - 1] : null;
+   }
+
+   /**
+    * Gets the texts of a row.
+    *
+    * @param rowIndex
+    *           the row index, starting at 1
+    * @return the row texts, indexed from 0; missing cells are null
+    */
+   public String[] getRow(final int rowIndex)
+   {
+      final String[] row = new String[texts.length];
+      if (rowIndex >= 1 && rowIndex <= rowCount)
+      {
+         for (int c = 0; c < texts.length; c++)
+         {
+            row[c] = texts[c][rowIndex - 1];
+         }
+      }
+      return row;
+   }
+
+   /**
+    * Checks whether a header index is valid.
+    *
+    * @param columnIndex
+    *           the column index, starting at 1
+    * @return whether there is such a header
+    */
+   private boolean isHeader(final int columnIndex)
+   {
+      return columnIndex >= 1 && columnIndex <= headers.length;
+   }
+}
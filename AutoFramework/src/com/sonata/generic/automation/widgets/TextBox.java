@@ -239,6 +239,22 @@ public class TextBox extends Widget
       return this.getBrowser().typeIntoCell(this.getLocator(), value, tab);
    }
    
+   /**
+    * Type a string value in the text box of a cell and tab out of it, without
+    * reading the cell back. This function will clear the text box first before
+    * typing in the new value.
+    * 
+    * @param value
+    *           The string to be typed in the field.
+    * 
+    * @return <li><code>true</code> if the field was typed in.</li> <li>
+    *         <code>false</code> if the field could not be typed in.</li>
+    */
+   public boolean enterIntoCell(final String value)
+   {
+      return this.getBrowser().enterIntoCell(this.getLocator(), value);
+   }
+   
    /**
     * Type a string value in a text box. This function will clear the text box
     * first before typing in the new value.
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.sonata.generic.automation.browser.Browser;
+import com.sonata.generic.automation.library.TimeDelay;
+
+/**
+ * The <code>VirtualScrollReader</code> class reads all the rows of a grid with
+ * virtual scrolling, which only keeps the rows around the viewport in the DOM.
+ * <p>
+ * The content is scrolled by script, one viewport (less one row, so the steps
+ * overlap) at a time, and each step is read with a {@link TableSnapshot}. The
+ * rows seen in several steps are kept once, told apart by their key columns, or
+ * else by the uid of their dataSource item. The reading stops when the end of
+ * the content is reached or a step brings no row.
+ * <p>
+ * A grid without virtual scrolling has all its rows in the DOM and is read with
+ * one snapshot.
+ */
+final class VirtualScrollReader
+{
+   /** Never scroll more than this many steps, whatever the grid reports */
+   private static final int    MAX_STEPS     = 10000;
+
+   /**
+    * Scrolls the grid whose id is arguments[0]: to the top if arguments[1] is
+    * 'top', one step down if it is 'next', not at all otherwise. Returns the
+    * scroll state, or null if the grid is not in the DOM. Kendo virtual grids
+    * scroll through a separate scrollbar div, the others through the content
+    * div.
+    */
+   private static final String SCROLL_SCRIPT = TableSnapshot.LOCATE_SCRIPT
+       + "var scroller = null, divs = grid.getElementsByTagName('div');"
+       + "for (var i = 0; i < divs.length && !scroller; i++)"
+       + "  if (/(^|\\s)k-scrollbar-vertical(\\s|$)/.test(divs[i].className)) scroller = divs[i];"
+       + "var virtual = !!scroller;"
+       + "if (!scroller) scroller = content;"
+       + "if (!scroller) return {virtual: false, top: 0, atEnd: true};"
+       + "var view = content || scroller;"
+       + "var step = Math.max(1, view.clientHeight - (trs.length ? trs[0].offsetHeight : 0));"
+       + "if (arguments[1] == 'top') scroller.scrollTop = 0;"
+       + "else if (arguments[1] == 'next') scroller.scrollTop = scroller.scrollTop + step;"
+       + "if (arguments[1] && window.jQuery) jQuery(scroller).trigger('scroll');"
+       + "return {virtual: virtual, top: scroller.scrollTop,"
+       + "  atEnd: scroller.scrollTop + scroller.clientHeight >= scroller.scrollHeight - 1};";
+
+   private final Browser       browser;
+   private final String        gridId;
+
+   /**
+    * Constructs an instance of the {@link VirtualScrollReader} class.
+    *
+    * @param browser
+    *           the browser showing the grid
+    * @param gridId
+    *           the id of the div holding the grid
+    */
+   VirtualScrollReader(final Browser browser, final String gridId)
+   {
+      this.browser = browser;
+      this.gridId = gridId;
+   }
+
+   /**
+    * @return <li><code>true</code> if the grid scrolls virtually.</li> <li>
+    *         <code>false</code> if all its rows are in the DOM.</li>
+    * @throws NoSuchElementException
+    *            if the grid is not in the page
+    */
+   boolean isVirtual()
+   {
+      return Boolean.TRUE.equals(scroll("").get("virtual"));
+   }
+
+   /**
+    * Reads the text of some columns of all the rows of the grid, scrolling
+    * through it if it is virtual. The grid is left scrolled to the end.
+    *
+    * @param columnIdxs
+    *           the indexes (starting at 1) of the columns to read
+    * @param keyColumnIdxs
+    *           the indexes (starting at 1) of the columns telling the rows
+    *           apart; null or empty to use the uid of the items, or the whole
+    *           row read when there is no uid
+    * @return one array of texts per row, in the order of the grid
+    * @throws NoSuchElementException
+    *            if the grid is not in the page
+    */
+   List<String[]> read(final int[] columnIdxs, final int[] keyColumnIdxs)
+   {
+      Map<?, ?> state = scroll("");
+      final boolean virtual = Boolean.TRUE.equals(state.get("virtual"));
+      if (virtual)
+      {
+         state = scroll("top");
+         browser.waitForNoRequests();
+      }
+
+      final List<String[]> rows = new ArrayList<String[]>();
+      final Set<String> seen = new HashSet<String>();
+      add(snapshot(), columnIdxs, keyColumnIdxs, rows, seen);
+      if (!virtual)
+      {
+         return rows;
+      }
+
+      Object lastTop = state.get("top");
+      for (int step = 0; step < MAX_STEPS && !Boolean.TRUE.equals(state.get("atEnd")); step++)
+      {
+         state = scroll("next");
+         if (lastTop != null && lastTop.equals(state.get("top")))
+         {
+            // The scrollbar did not move, nothing more to show
+            break;
+         }
+         lastTop = state.get("top");
+         browser.waitForNoRequests();
+         if (!readStep(columnIdxs, keyColumnIdxs, rows, seen))
+         {
+            break;
+         }
+      }
+      return rows;
+   }
+
+   /**
+    * Reads the rows shown after a scroll step, reading again while the grid
+    * has not rendered new rows yet.
+    *
+    * @param columnIdxs
+    *           the indexes of the columns to read
+    * @param keyColumnIdxs
+    *           the indexes of the key columns
+    * @param rows
+    *           the rows read so far
+    * @param seen
+    *           the keys of the rows read so far
+    * @return <li><code>true</code> if the step brought new rows.</li> <li>
+    *         <code>false</code> if it brought none in time.</li>
+    */
+   private boolean readStep(final int[] columnIdxs, final int[] keyColumnIdxs, final List<String[]> rows,
+         final Set<String> seen)
+   {
+      for (int waitingTime = 0; waitingTime < TimeDelay.getTimeoutMaximum(); waitingTime += TimeDelay
+            .getTimeoutSmall())
+      {
+         if (add(snapshot(), columnIdxs, keyColumnIdxs, rows, seen) > 0)
+         {
+            return true;
+         }
+         TimeDelay.doPause(TimeDelay.getTimeoutSmall());
+      }
+      return false;
+   }
+
+   /**
+    * Adds the rows of a snapshot which were not seen yet.
+    *
+    * @param snapshot
+    *           the snapshot of the rows shown
+    * @param columnIdxs
+    *           the indexes of the columns to read
+    * @param keyColumnIdxs
+    *           the indexes of the key columns
+    * @param rows
+    *           the rows read so far
+    * @param seen
+    *           the keys of the rows read so far
+    * @return the number of rows added
+    */
+   static int add(final TableSnapshot snapshot, final int[] columnIdxs, final int[] keyColumnIdxs,
+         final List<String[]> rows, final Set<String> seen)
+   {
+      int added = 0;
+      final List<String[]> values = Table.readRows(snapshot, columnIdxs);
+      for (int r = 0; r < values.size(); r++)
+      {
+         if (seen.add(key(snapshot, r + 1, values.get(r), keyColumnIdxs)))
+         {
+            rows.add(values.get(r));
+            added++;
+         }
+      }
+      return added;
+   }
+
+   /**
+    * @param snapshot
+    *           the snapshot holding the row
+    * @param rowIndex
+    *           the row index in the snapshot, starting at 1
+    * @param values
+    *           the values read from the row
+    * @param keyColumnIdxs
+    *           the indexes of the key columns, null or empty for none
+    * @return the key telling the row apart from the others
+    */
+   private static String key(final TableSnapshot snapshot, final int rowIndex, final String[] values,
+         final int[] keyColumnIdxs)
+   {
+      final StringBuilder key = new StringBuilder();
+      if (keyColumnIdxs != null && keyColumnIdxs.length > 0)
+      {
+         for (int column : keyColumnIdxs)
+         {
+            key.append(snapshot.getText(rowIndex, column)).append('\u0000');
+         }
+      }
+      else if (snapshot.getRowUid(rowIndex) != null)
+      {
+         key.append(snapshot.getRowUid(rowIndex));
+      }
+      else
+      {
+         for (String value : values)
+         {
+            key.append(value).append('\u0000');
+         }
+      }
+      return key.toString();
+   }
+
+   /**
+    * Runs the scroll script.
+    *
+    * @param command
+    *           top, next, or empty to only read the state
+    * @return the scroll state
+    * @throws NoSuchElementException
+    *            if the grid is not in the page
+    */
+   private Map<?, ?> scroll(final String command)
+   {
+      final Object raw = browser.executeJavaScriptReturnObject(SCROLL_SCRIPT, gridId, command);
+      if (!(raw instanceof Map))
+      {
+         throw new NoSuchElementException("Unable to find the table " + gridId);
+      }
+      return (Map<?, ?>)raw;
+   }
+
+   /**
+    * @return a snapshot of the rows shown
+    * @throws NoSuchElementException
+    *            if the grid is not in the page
+    */
+   private TableSnapshot snapshot()
+   {
+      final TableSnapshot snapshot = TableSnapshot.read(browser, gridId);
+      if (snapshot == null)
+      {
+         throw new NoSuchElementException("Unable to read the table " + gridId);
+      }
+      return snapshot;
+   }
+}
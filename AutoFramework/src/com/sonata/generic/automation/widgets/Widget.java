@@ -386,6 +386,15 @@ public class Widget implements WidgetInterface
       throw new IllegalArgumentException(buildActionExceptionMessage("typeIntoCell"));
    }
    
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean enterIntoCell(final String value)
+   {
+      throw new IllegalArgumentException(buildActionExceptionMessage("enterIntoCell"));
+   }
+   
    /**
     * {@inheritDoc}
     */
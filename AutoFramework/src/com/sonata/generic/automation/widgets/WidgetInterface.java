@@ -406,6 +406,21 @@ public interface WidgetInterface
     *            This widget does not support this action.
     */
    boolean typeIntoCell(final String value, final boolean tab);
+
+   /**
+    * Types the specified value into a cell in a table and does a tab, without
+    * reading the cell back. This action will clear any existing value from
+    * this widget before typing in the new value.
+    * 
+    * @param value
+    *           The value to type into this widget.
+    * 
+    * @return Whether or not the value could be typed into this widget.
+    * 
+    * @throws IllegalArgumentException
+    *            This widget does not support this action.
+    */
+   boolean enterIntoCell(final String value);
    
    /**
     * Types the specified value into this widget. This action will clear any
@@ -13,7 +13,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({TestAbstractBrowser.class, TestBrowser.class, TestBrowserSettings.class,
-      TestBrowserSpecParser.class, TestBrowserType.class, TestDefautBrowserSettings.class, TestSpecialKey.class, TestTestMode.class})
+      TestBrowserSpecParser.class, TestBrowserType.class, TestDefautBrowserSettings.class, TestSpecialKey.class, TestTestMode.class, TestConsoleSeverity.class, TestConsoleHarvester.class})
 public class BrowserPackageTestsSuite
 {
 
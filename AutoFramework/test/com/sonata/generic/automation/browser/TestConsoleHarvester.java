@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * The <code>TestConsoleHarvester</code> class provides the JUnit tests on the
+ * {@link ConsoleHarvester} class, with a mock driver.
+ */
+public class TestConsoleHarvester
+{
+   /** The messages collected in the page are drained once each */
+   @Test
+   public void pageBufferIsDrainedAndDeduped()
+   {
+      ScriptingDriver driver = createDriver(null);
+      EasyMock.expect(driver.executeScript(EasyMock.anyObject(String.class))).andReturn(
+            Arrays.asList(message("error", "boom"), message("debug", "trace"), message("error", "boom")));
+      EasyMock.replay(driver);
+
+      List<ConsoleEntry> entries = new ConsoleHarvester(driver).drain();
+      assertEquals(2, entries.size());
+      assertEquals(ConsoleSeverity.SEVERE, entries.get(0).getSeverity());
+      assertEquals(ConsoleEntry.SOURCE_CONSOLE, entries.get(0).getSource());
+      assertEquals("boom (repeated 2 times)", entries.get(0).getMessage());
+      assertEquals(ConsoleSeverity.DEBUG, entries.get(1).getSeverity());
+      EasyMock.verify(driver);
+   }
+
+   /** With the browser log, nothing is injected into the page */
+   @Test
+   public void browserLogIsReadInsteadOfThePage()
+   {
+      ScriptingDriver driver = createDriver(entries(new LogEntry(Level.WARNING, 1L, "deprecated")));
+      EasyMock.replay(driver);
+
+      ConsoleHarvester harvester = new ConsoleHarvester(driver);
+      harvester.install();
+      List<ConsoleEntry> entries = harvester.drain();
+      assertEquals(1, entries.size());
+      assertEquals(ConsoleSeverity.WARNING, entries.get(0).getSeverity());
+      assertEquals(ConsoleEntry.SOURCE_WEBDRIVER, entries.get(0).getSource());
+      EasyMock.verify(driver);
+   }
+
+   /** A missing resource only fails fast when network errors are asked for */
+   @Test
+   public void networkErrorsDoNotFailFastByDefault()
+   {
+      LogEntry missing = new LogEntry(Level.SEVERE, 1L,
+            "http://server/logo.png - Failed to load resource: the server responded with a status of 404 (Not Found)");
+      ScriptingDriver driver = createDriver(entries(missing));
+      EasyMock.replay(driver);
+      ConsoleHarvester harvester = new ConsoleHarvester(driver);
+      harvester.setFailFastSeverity(ConsoleSeverity.SEVERE);
+      assertNull(harvester.poll());
+
+      driver = createDriver(entries(missing));
+      EasyMock.replay(driver);
+      harvester = new ConsoleHarvester(driver);
+      harvester.setFailFastSeverity(ConsoleSeverity.SEVERE);
+      harvester.setFailFastOnNetwork(true);
+      assertEquals(ConsoleEntry.SOURCE_NETWORK, harvester.poll().getSource());
+   }
+
+   /** A script error at or above the severity fails fast */
+   @Test
+   public void scriptErrorFailsFast()
+   {
+      ScriptingDriver driver = createDriver(entries(new LogEntry(Level.INFO, 1L, "loaded"), new LogEntry(
+            Level.SEVERE, 2L, "Uncaught TypeError: x is undefined")));
+      EasyMock.replay(driver);
+      ConsoleHarvester harvester = new ConsoleHarvester(driver);
+      harvester.setFailFastSeverity(ConsoleSeverity.WARNING);
+
+      ConsoleEntry failure = harvester.poll();
+      assertEquals("Uncaught TypeError: x is undefined", failure.getMessage());
+      assertSame(ConsoleSeverity.SEVERE, failure.getSeverity());
+   }
+
+   /** A setting which is not a severity leaves fail fast off */
+   @Test
+   public void invalidFailFastSettingIsIgnored()
+   {
+      ScriptingDriver driver = createDriver(entries(new LogEntry(Level.SEVERE, 1L, "broken")));
+      EasyMock.replay(driver);
+      System.setProperty(ConsoleHarvester.FAIL_FAST_PROPERTY, "LOUD");
+      try
+      {
+         assertNull(new ConsoleHarvester(driver).poll());
+      }
+      finally
+      {
+         System.clearProperty(ConsoleHarvester.FAIL_FAST_PROPERTY);
+      }
+   }
+
+   /**
+    * Creates a mock driver, to be replayed by the caller.
+    *
+    * @param browserLog
+    *           the browser log, or null if the driver does not give it
+    * @return the driver
+    */
+   private static ScriptingDriver createDriver(final LogEntries browserLog)
+   {
+      Logs logs = EasyMock.createMock(Logs.class);
+      if (browserLog == null)
+      {
+         EasyMock.expect(logs.getAvailableLogTypes()).andReturn(Collections.<String> emptySet());
+      }
+      else
+      {
+         EasyMock.expect(logs.getAvailableLogTypes()).andReturn(Collections.singleton(LogType.BROWSER));
+         EasyMock.expect(logs.get(LogType.BROWSER)).andReturn(browserLog);
+      }
+      WebDriver.Options options = EasyMock.createMock(WebDriver.Options.class);
+      EasyMock.expect(options.logs()).andReturn(logs).anyTimes();
+      EasyMock.replay(logs, options);
+
+      ScriptingDriver driver = EasyMock.createMock(ScriptingDriver.class);
+      EasyMock.expect(driver.manage()).andReturn(options).anyTimes();
+      return driver;
+   }
+
+   /**
+    * @param entries
+    *           the entries of a browser log
+    * @return the browser log
+    */
+   private static LogEntries entries(final LogEntry... entries)
+   {
+      return new LogEntries(Arrays.asList(entries));
+   }
+
+   /**
+    * @param level
+    *           the console method or "onerror"
+    * @param text
+    *           the message
+    * @return a message as returned by the collector injected in the page
+    */
+   private static Map<String, Object> message(final String level, final String text)
+   {
+      Map<String, Object> message = new HashMap<String, Object>();
+      message.put("l", level);
+      message.put("m", text);
+      message.put("t", 1L);
+      return message;
+   }
+
+   /**
+    * A driver which can run scripts, like the drivers of the real browsers.
+    */
+   private interface ScriptingDriver extends WebDriver, JavascriptExecutor
+   {
+   }
+}
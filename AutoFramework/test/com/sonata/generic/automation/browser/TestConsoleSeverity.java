@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.browser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestConsoleSeverity</code> class provides JUnit testing of the
+ * {@link ConsoleSeverity} enumeration.
+ */
+public class TestConsoleSeverity
+{
+   /** Console method names and java.util.logging names map to the same scale */
+   @Test
+   public void consoleAndLoggingNamesAreMapped()
+   {
+      assertEquals(ConsoleSeverity.SEVERE, ConsoleSeverity.fromName("error"));
+      assertEquals(ConsoleSeverity.SEVERE, ConsoleSeverity.fromName("SEVERE"));
+      assertEquals(ConsoleSeverity.SEVERE, ConsoleSeverity.fromName("onerror"));
+      assertEquals(ConsoleSeverity.WARNING, ConsoleSeverity.fromName("warn"));
+      assertEquals(ConsoleSeverity.WARNING, ConsoleSeverity.fromName("WARNING"));
+      assertEquals(ConsoleSeverity.DEBUG, ConsoleSeverity.fromName("FINE"));
+      assertEquals(ConsoleSeverity.INFO, ConsoleSeverity.fromName("log"));
+      assertEquals(ConsoleSeverity.INFO, ConsoleSeverity.fromName(null));
+   }
+
+   /** A threshold matches itself and everything above it */
+   @Test
+   public void thresholdIsInclusive()
+   {
+      assertTrue(ConsoleSeverity.SEVERE.isAtLeast(ConsoleSeverity.WARNING));
+      assertTrue(ConsoleSeverity.WARNING.isAtLeast(ConsoleSeverity.WARNING));
+      assertFalse(ConsoleSeverity.INFO.isAtLeast(ConsoleSeverity.WARNING));
+      assertFalse(ConsoleSeverity.SEVERE.isAtLeast(null));
+   }
+
+   /** OFF or no setting disables fail fast */
+   @Test
+   public void settingCanBeOff()
+   {
+      assertNull(ConsoleSeverity.parseSetting(null));
+      assertNull(ConsoleSeverity.parseSetting(" off "));
+      assertEquals(ConsoleSeverity.SEVERE, ConsoleSeverity.parseSetting("severe"));
+   }
+}
@@ -12,7 +12,9 @@ import org.junit.runners.Suite;
  * package.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses( {DefaultConfigurationParserTest.class, DefaultFixturePropertiesTest.class})
+@Suite.SuiteClasses( {DefaultConfigurationParserTest.class, DefaultFixturePropertiesTest.class,
+      LayoutMapCacheTest.class, LayoutMapCompilerTest.class, LayoutMapTest.class, LayoutMapWatcherTest.class,
+      LazyFixtureWidgetsTest.class})
 public class ConfigurationPackageTestSuite
 {
 
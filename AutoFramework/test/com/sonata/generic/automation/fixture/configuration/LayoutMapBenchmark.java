@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * The <code>LayoutMapBenchmark</code> class measures the time to compile a
+ * layout map through a DOM document and with the streaming reader. It is not
+ * part of the test suites; run its main method with the paths of the layout
+ * maps to measure, or without arguments to measure a generated map of
+ * {@link #FORMS} forms of {@link #WIDGETS} widgets.
+ */
+public final class LayoutMapBenchmark
+{
+   private static final int FORMS      = 20;
+   private static final int WIDGETS    = 300;
+   private static final int ROUNDS     = 3;
+   private static final int ITERATIONS = 50;
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private LayoutMapBenchmark()
+   {
+   }
+
+   /**
+    * Runs the benchmark. The first rounds warm the JIT up, the last one is the
+    * one to read.
+    * 
+    * @param args
+    *           the paths of the layout maps to measure
+    */
+   public static void main(final String[] args) throws Exception
+   {
+      if (args.length == 0)
+      {
+         measure("generated", generate());
+      }
+      for (String path : args)
+      {
+         measure(path, load(new File(path)));
+      }
+   }
+
+   /**
+    * Measures one layout map.
+    * 
+    * @param name
+    *           the name printed
+    * @param xml
+    *           the content of the layout map
+    */
+   private static void measure(final String name, final byte[] xml) throws Exception
+   {
+      final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+      long sink = 0;
+      for (int round = 1; round <= ROUNDS; round++)
+      {
+         long start = System.nanoTime();
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            builder.reset();
+            sink += LayoutMap.compile(builder.parse(new ByteArrayInputStream(xml))).getForms().size();
+         }
+         final long dom = System.nanoTime() - start;
+
+         start = System.nanoTime();
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            sink += LayoutMap.read(new ByteArrayInputStream(xml)).getForms().size();
+         }
+         final long stax = System.nanoTime() - start;
+
+         System.out.println(name + " (" + xml.length / 1024 + " KB) round " + round + ": DOM "
+               + dom / ITERATIONS / 1000 + " us, StAX " + stax / ITERATIONS / 1000 + " us");
+      }
+      System.out.println("(" + sink + ")");
+   }
+
+   /**
+    * @return a layout map with {@link #FORMS} forms of {@link #WIDGETS}
+    *         widgets, half of them with a child widget
+    */
+   private static byte[] generate() throws IOException
+   {
+      final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      xml.append("<ui application=\"GL\" name=\"Generated\" menuName=\"Generated\" category=\"Setup\">\n");
+      for (int f = 0; f < FORMS; f++)
+      {
+         xml.append("  <form definitionID=\"form").append(f).append("\" existenceValidationWidget=\"w0\" name=\"popup")
+               .append(f).append("\" type=\"").append(f == 0 ? "main" : "popup").append("\">\n");
+         for (int w = 0; w < WIDGETS; w++)
+         {
+            xml.append("    <widget description=\"Widget ").append(w).append("\" id=\"id").append(f).append('_')
+                  .append(w).append("\" name=\"w").append(w).append("\" type=\"genericTextBox\"");
+            if (w % 2 == 0)
+            {
+               xml.append(">\n      <widget id=\"child").append(w).append("\" name=\"c").append(w)
+                     .append("\" type=\"genericButton\" />\n    </widget>\n");
+            }
+            else
+            {
+               xml.append(" />\n");
+            }
+         }
+         xml.append("  </form>\n");
+      }
+      xml.append("</ui>\n");
+      return xml.toString().getBytes("UTF-8");
+   }
+
+   /**
+    * @param file
+    *           a layout map file
+    * @return its content
+    */
+   private static byte[] load(final File file) throws IOException
+   {
+      final byte[] content = new byte[(int)file.length()];
+      final InputStream in = new FileInputStream(file);
+      try
+      {
+         int read = 0;
+         while (read < content.length)
+         {
+            read += in.read(content, read, content.length - read);
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return content;
+   }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Unit tests for {@link LayoutMapCache} and {@link LayoutMap}.
+ */
+public class LayoutMapCacheTest
+{
+   private File layoutMapFile;
+   private File persistDirectory;
+
+   /**
+    * Writes a valid layout map file before each test.
+    */
+   @Before
+   public void setUp() throws Exception
+   {
+      LayoutMapCache.clear();
+      layoutMapFile = File.createTempFile("layoutmap", ".xml");
+      write(DefaultConfigurationParserMockDOMs.createDOMMainPopup1Popup2(), layoutMapFile);
+      persistDirectory = new File(layoutMapFile.getPath() + ".cache");
+   }
+
+   /**
+    * Removes the files written by the test.
+    */
+   @After
+   public void tearDown()
+   {
+      System.clearProperty(LayoutMapCache.DIRECTORY_PROPERTY);
+      LayoutMapCache.clear();
+      File[] persisted = persistDirectory.listFiles();
+      if (null != persisted)
+      {
+         for (File file : persisted)
+            file.delete();
+      }
+      persistDirectory.delete();
+      layoutMapFile.delete();
+   }
+
+   /**
+    * Tests that the compiled map holds the forms and widgets of the file.
+    */
+   @Test
+   public void testCompilesFormsAndWidgets()
+   {
+      LayoutMap layoutMap = LayoutMapCache.get(layoutMapFile);
+      assertEquals(3, layoutMap.getForms().size());
+      assertEquals("", layoutMap.getForms().get(0).getName());
+      assertEquals(DefaultConfigurationParserMockConstants.MOCK_UI_NAME, layoutMap.getUIName());
+      assertEquals(1, layoutMap.getForms().get(0).getWidgets().size());
+   }
+
+   /**
+    * Tests that an unchanged file is compiled once.
+    */
+   @Test
+   public void testUnchangedFileIsCompiledOnce()
+   {
+      assertSame(LayoutMapCache.get(layoutMapFile), LayoutMapCache.get(new File(layoutMapFile.getPath())));
+   }
+
+   /**
+    * Tests that a changed file is compiled again.
+    */
+   @Test
+   public void testChangedFileIsCompiledAgain()
+   {
+      LayoutMap first = LayoutMapCache.get(layoutMapFile);
+      assertTrue(layoutMapFile.setLastModified(layoutMapFile.lastModified() - 10000));
+      assertNotSame(first, LayoutMapCache.get(layoutMapFile));
+   }
+
+   /**
+    * Tests that a persisted map is read back once the memory cache is cleared.
+    */
+   @Test
+   public void testPersistedMapIsReadBack() throws IOException
+   {
+      System.setProperty(LayoutMapCache.DIRECTORY_PROPERTY, persistDirectory.getPath());
+      LayoutMap first = LayoutMapCache.get(layoutMapFile);
+      assertTrue(LayoutMapCache.getPersistedFile(layoutMapFile.getCanonicalPath()).isFile());
+
+      LayoutMapCache.clear();
+      LayoutMap second = LayoutMapCache.get(layoutMapFile);
+      assertNotSame(first, second);
+      assertEquals(first.getUIName(), second.getUIName());
+      assertEquals(first.getForms().size(), second.getForms().size());
+      assertEquals(first.getForms().get(2).getExistenceValidationWidgetName(), second.getForms().get(2)
+            .getExistenceValidationWidgetName());
+   }
+
+   /**
+    * Tests that a damaged persisted map is ignored.
+    */
+   @Test
+   public void testDamagedPersistedMapIsIgnored() throws Exception
+   {
+      System.setProperty(LayoutMapCache.DIRECTORY_PROPERTY, persistDirectory.getPath());
+      LayoutMapCache.get(layoutMapFile);
+      File persisted = LayoutMapCache.getPersistedFile(layoutMapFile.getCanonicalPath());
+      write(DefaultConfigurationParserMockDOMs.createDOMMainPopup1Popup2(), persisted);
+
+      LayoutMapCache.clear();
+      assertEquals(3, LayoutMapCache.get(layoutMapFile).getForms().size());
+   }
+
+   /**
+    * Writes a DOM document to a file.
+    * 
+    * @param doc
+    *           The document.
+    * @param file
+    *           The file.
+    */
+   private static void write(final Document doc, final File file) throws Exception
+   {
+      TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(file));
+   }
+}
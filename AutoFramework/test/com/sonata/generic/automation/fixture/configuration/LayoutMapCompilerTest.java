@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LayoutMapCompiler}.
+ */
+public class LayoutMapCompilerTest
+{
+   private static final String VALID_MAP = "<ui application=\"app\" applicationfullname=\"\" category=\"\""
+                                               + " menuName=\"\" name=\"valid\">"
+                                               + "<form definitionID=\"frm\" existenceValidationWidget=\"save\""
+                                               + " name=\"frm\" type=\"main\">"
+                                               + "<widget id=\"pnl\" name=\"panel\" type=\"genericLabel\">"
+                                               + "<widget id=\"btnSave\" name=\"save\" type=\"genericButton\"/>"
+                                               + "</widget></form></ui>";
+
+   private File                layoutMapDirectory;
+   private File                outputDirectory;
+
+   /**
+    * Creates the directories before each test.
+    */
+   @Before
+   public void setUp() throws Exception
+   {
+      layoutMapDirectory = File.createTempFile("layoutmaps", "");
+      layoutMapDirectory.delete();
+      layoutMapDirectory.mkdirs();
+      outputDirectory = new File(layoutMapDirectory, "out");
+   }
+
+   /**
+    * Removes the files written by the test.
+    */
+   @After
+   public void tearDown()
+   {
+      delete(layoutMapDirectory);
+   }
+
+   /**
+    * Tests that a valid layout map is persisted and indexed.
+    */
+   @Test
+   public void testValidMapIsPersistedAndIndexed() throws Exception
+   {
+      File layoutMapFile = write("valid.xml", VALID_MAP);
+      write("other.xml", "<project><name>not a layout map</name></project>");
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(outputDirectory);
+      assertEquals(new ArrayList<String>(), compiler.compile(layoutMapDirectory));
+      assertEquals(1, compiler.getCompiledCount());
+
+      System.setProperty(LayoutMapCache.DIRECTORY_PROPERTY, outputDirectory.getPath());
+      try
+      {
+         assertTrue(LayoutMapCache.getPersistedFile(layoutMapFile.getCanonicalPath()).isFile());
+      }
+      finally
+      {
+         System.clearProperty(LayoutMapCache.DIRECTORY_PROPERTY);
+      }
+
+      List<String> index = read(new File(outputDirectory, LayoutMapCompiler.INDEX_FILE_NAME));
+      assertEquals(3, index.size());
+      assertEquals("layoutMap,form,widget,id,type,parent", index.get(0));
+      assertEquals(layoutMapFile.getPath() + ",,panel,pnl,genericLabel,", index.get(1));
+      assertEquals(layoutMapFile.getPath() + ",,save,btnSave,genericButton,panel", index.get(2));
+   }
+
+   /**
+    * Tests that an unsupported widget type is reported.
+    */
+   @Test
+   public void testUnsupportedTypeIsReported() throws Exception
+   {
+      write("bad.xml", VALID_MAP.replace("genericLabel", "genericPanel"));
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(outputDirectory);
+      List<String> errors = compiler.compile(layoutMapDirectory);
+      assertEquals(1, errors.size());
+      assertTrue(errors.get(0), errors.get(0).contains("'genericPanel'"));
+      assertEquals(0, compiler.getCompiledCount());
+   }
+
+   /**
+    * Tests that a missing existence validation widget is reported.
+    */
+   @Test
+   public void testMissingExistenceValidationWidgetIsReported() throws Exception
+   {
+      write("bad.xml", VALID_MAP.replace("existenceValidationWidget=\"save\"", "existenceValidationWidget=\"cancel\""));
+
+      List<String> errors = new LayoutMapCompiler(outputDirectory).compile(layoutMapDirectory);
+      assertEquals(1, errors.size());
+      assertTrue(errors.get(0), errors.get(0).contains("'cancel'"));
+   }
+
+   /**
+    * Tests that two widgets with the same name in a form are reported, even
+    * when one is nested.
+    */
+   @Test
+   public void testDuplicateWidgetNameIsReported() throws Exception
+   {
+      write("bad.xml", VALID_MAP.replace("name=\"panel\"", "name=\"save\""));
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(outputDirectory);
+      List<String> errors = compiler.compile(layoutMapDirectory);
+      assertEquals(1, errors.size());
+      assertTrue(errors.get(0), errors.get(0).contains("more than one widget is named 'save'"));
+      assertEquals(0, compiler.getCompiledCount());
+   }
+
+   /**
+    * Tests that XML files which are not layout maps are skipped, even when
+    * they cannot be read.
+    */
+   @Test
+   public void testOtherXmlFilesAreSkipped() throws Exception
+   {
+      write("notes.xml", "not XML at all");
+      write("valid.xml", VALID_MAP);
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(outputDirectory);
+      assertEquals(new ArrayList<String>(), compiler.compile(layoutMapDirectory));
+      assertEquals(1, compiler.getCompiledCount());
+   }
+
+   /**
+    * Tests that invalid layout maps are reported, and that the other ones are
+    * still compiled.
+    */
+   @Test
+   public void testInvalidMapsAreReported() throws Exception
+   {
+      write("a.xml", "<ui name=\"broken\">");
+      write("b.xml", "<ui name=\"\"/>");
+      write("c.xml", VALID_MAP);
+
+      LayoutMapCompiler compiler = new LayoutMapCompiler(outputDirectory);
+      assertEquals(2, compiler.compile(layoutMapDirectory).size());
+      assertEquals(1, compiler.getCompiledCount());
+   }
+
+   /**
+    * Writes a file in the layout map directory.
+    *
+    * @param name
+    *           The name of the file.
+    * @param content
+    *           The content of the file.
+    *
+    * @return The file.
+    */
+   private File write(final String name, final String content) throws Exception
+   {
+      File file = new File(layoutMapDirectory, name);
+      Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      try
+      {
+         out.write(content);
+      }
+      finally
+      {
+         out.close();
+      }
+      return file;
+   }
+
+   /**
+    * Reads the lines of a file.
+    *
+    * @param file
+    *           The file.
+    *
+    * @return The lines.
+    */
+   private static List<String> read(final File file) throws Exception
+   {
+      List<String> lines = new ArrayList<String>();
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try
+      {
+         for (String line = in.readLine(); null != line; line = in.readLine())
+            lines.add(line);
+      }
+      finally
+      {
+         in.close();
+      }
+      return lines;
+   }
+
+   /**
+    * Deletes a file or a directory with its content.
+    *
+    * @param file
+    *           The file or directory.
+    */
+   private static void delete(final File file)
+   {
+      File[] files = file.listFiles();
+      if (null != files)
+      {
+         for (File child : files)
+            delete(child);
+      }
+      file.delete();
+   }
+}
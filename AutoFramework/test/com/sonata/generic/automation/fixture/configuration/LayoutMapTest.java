@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Unit tests for {@link LayoutMap}.
+ */
+public class LayoutMapTest
+{
+   /**
+    * Tests that the streaming reader gives the same layout map as the DOM
+    * compiler, and fails on the same documents, for all the mock DOMs.
+    */
+   @Test
+   public void testStreamingReaderMatchesDOMCompiler() throws Exception
+   {
+      int count = 0;
+      for (Method method : DefaultConfigurationParserMockDOMs.class.getMethods())
+      {
+         if (!Modifier.isStatic(method.getModifiers()) || (method.getReturnType() != Document.class))
+            continue;
+
+         Document doc = (Document)method.invoke(null);
+         assertEquals(method.getName(), compiled(doc), read(doc));
+         count++;
+      }
+      assertTrue(count > 30);
+   }
+
+   /**
+    * Tests that the widget trees are read.
+    */
+   @Test
+   public void testReadsWidgetTrees() throws Exception
+   {
+      String layoutMap = read(DefaultConfigurationParserMockDOMs.createDOMParentChildrenWidgetsValidTypes());
+      assertTrue(layoutMap, layoutMap.contains("(" + DefaultConfigurationParserMockConstants.MOCK_WIDGET_NAME1));
+   }
+
+   /**
+    * @param doc
+    *           A DOM document.
+    * @return The description of its layout map compiled from the DOM, or
+    *         "invalid".
+    */
+   private static String compiled(final Document doc)
+   {
+      try
+      {
+         return describe(LayoutMap.compile(doc));
+      }
+      catch (IllegalArgumentException e)
+      {
+         return "invalid";
+      }
+   }
+
+   /**
+    * @param doc
+    *           A DOM document.
+    * @return The description of its layout map read from its XML text, or
+    *         "invalid".
+    */
+   private static String read(final Document doc) throws Exception
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(out));
+      try
+      {
+         return describe(LayoutMap.read(new ByteArrayInputStream(out.toByteArray())));
+      }
+      catch (IllegalArgumentException e)
+      {
+         return "invalid";
+      }
+      catch (XMLStreamException e)
+      {
+         return "invalid";
+      }
+   }
+
+   /**
+    * @param layoutMap
+    *           A layout map.
+    * @return The description of all its content.
+    */
+   private static String describe(final LayoutMap layoutMap)
+   {
+      StringBuilder description = new StringBuilder();
+      description.append(layoutMap.getUIName()).append('|').append(layoutMap.getUiMenuName()).append('|')
+            .append(layoutMap.getCategory()).append('|').append(layoutMap.getApplication()).append('|')
+            .append(layoutMap.getApplicationfullname());
+      for (LayoutMap.Form form : layoutMap.getForms())
+      {
+         description.append(" form ").append(form.getName()).append('|').append(form.getDefinitionID())
+               .append('|').append(form.getExistenceValidationWidgetName());
+         describe(form.getWidgets(), description);
+      }
+      return description.toString();
+   }
+
+   /**
+    * @param widgets
+    *           Widgets.
+    * @param description
+    *           The description of their content.
+    */
+   private static void describe(final List<LayoutMap.Widget> widgets, final StringBuilder description)
+   {
+      for (LayoutMap.Widget widget : widgets)
+      {
+         description.append(" (").append(widget.getName()).append('|').append(widget.getID()).append('|')
+               .append(widget.getType());
+         describe(widget.getChildren(), description);
+         description.append(')');
+      }
+   }
+}
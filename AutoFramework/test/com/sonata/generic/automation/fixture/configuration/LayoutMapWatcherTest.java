@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LayoutMapWatcher}.
+ */
+public class LayoutMapWatcherTest
+{
+   private static final String MAP     = "<ui application=\"app\" applicationfullname=\"\" category=\"\""
+                                             + " menuName=\"\" name=\"%s\">"
+                                             + "<form definitionID=\"frm\" existenceValidationWidget=\"save\""
+                                             + " name=\"frm\" type=\"main\">"
+                                             + "<widget id=\"btnSave\" name=\"save\" type=\"genericButton\"/>"
+                                             + "</form></ui>";
+   private static final long   TIMEOUT = 30000;
+
+   private File                layoutMapFile;
+
+   /**
+    * Enables the watcher and writes a layout map before each test.
+    */
+   @Before
+   public void setUp() throws Exception
+   {
+      System.setProperty(LayoutMapWatcher.WATCH_PROPERTY, "true");
+      LayoutMapCache.clear();
+      layoutMapFile = File.createTempFile("layoutmap", ".xml");
+      write(String.format(MAP, "first"));
+   }
+
+   /**
+    * Stops the watcher and removes the file written by the test.
+    */
+   @After
+   public void tearDown()
+   {
+      LayoutMapWatcher.stop();
+      System.clearProperty(LayoutMapWatcher.WATCH_PROPERTY);
+      LayoutMapCache.clear();
+      layoutMapFile.delete();
+   }
+
+   /**
+    * Tests that a change is reloaded even when the file keeps its last
+    * modified time and length.
+    */
+   @Test
+   public void testChangedMapIsReloaded() throws Exception
+   {
+      assertEquals("first", LayoutMapCache.get(layoutMapFile).getUIName());
+
+      long lastModified = layoutMapFile.lastModified();
+      long reloadCount = LayoutMapWatcher.getReloadCount();
+      write(String.format(MAP, "other"));
+      assertTrue(layoutMapFile.setLastModified(lastModified));
+
+      long end = System.currentTimeMillis() + TIMEOUT;
+      while ((LayoutMapWatcher.getReloadCount() == reloadCount) && (System.currentTimeMillis() < end))
+      {
+         Thread.sleep(50);
+      }
+      assertTrue(LayoutMapWatcher.getReloadCount() > reloadCount);
+      assertEquals("other", LayoutMapCache.get(layoutMapFile).getUIName());
+   }
+
+   /**
+    * Tests that the watcher does nothing unless enabled.
+    */
+   @Test
+   public void testDisabledByDefault()
+   {
+      System.clearProperty(LayoutMapWatcher.WATCH_PROPERTY);
+      assertTrue(!LayoutMapWatcher.isEnabled());
+   }
+
+   /**
+    * Replaces the content of the layout map file.
+    *
+    * @param content
+    *           The new content.
+    */
+   private void write(final String content) throws Exception
+   {
+      Writer out = new OutputStreamWriter(new FileOutputStream(layoutMapFile), "UTF-8");
+      try
+      {
+         out.write(content);
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+import com.sonata.generic.automation.fixture.widget.FixtureLabel;
+import com.sonata.generic.automation.fixture.widget.FixtureWidget;
+import com.sonata.generic.automation.fixture.widget.FixtureWidgetFactory;
+import com.sonata.generic.automation.fixture.widget.ModifiableFixtureWidget;
+
+/**
+ * Unit tests for {@link LazyFixtureWidgets}.
+ */
+public class LazyFixtureWidgetsTest
+{
+   private static final String SUPPORTED   = "label";
+   private static final String UNSUPPORTED = "unsupported";
+
+   /**
+    * Tests that only the widget tree looked up is created, once.
+    */
+   @Test
+   public void testCreatesOnlyTheTreeLookedUp()
+   {
+      CountingFactory factory = new CountingFactory();
+      LazyFixtureWidgets widgets = new LazyFixtureWidgets(factory, "form_", Arrays.asList(
+            widget("a", SUPPORTED, widget("a1", SUPPORTED)), widget("b", SUPPORTED), widget("c", SUPPORTED)));
+      assertEquals(0, factory.created.size());
+
+      FixtureWidget child = widgets.get("a1");
+      assertNotNull(child);
+      assertEquals(Arrays.asList("a", "a1"), factory.created);
+      assertSame(widgets.get("a"), child.getParent());
+      assertSame(child, widgets.get("a").getChildren().get("a1"));
+
+      assertSame(child, widgets.get("a1"));
+      assertNull(widgets.get("missing"));
+      assertEquals(2, factory.created.size());
+   }
+
+   /**
+    * Tests that the children of a widget of an unsupported type get its
+    * parent.
+    */
+   @Test
+   public void testChildrenOfUnsupportedWidgetsGetTheirParent()
+   {
+      LazyFixtureWidgets widgets = new LazyFixtureWidgets(new CountingFactory(), "form_", Arrays.asList(widget("a",
+            SUPPORTED, widget("x", UNSUPPORTED, widget("x1", SUPPORTED))), widget("y", UNSUPPORTED, widget("y1",
+            SUPPORTED))));
+      assertNull(widgets.get("x"));
+      assertSame(widgets.get("a"), widgets.get("x1").getParent());
+      assertNull(widgets.get("y1").getParent());
+   }
+
+   /**
+    * Tests that iterating the map creates all the widgets.
+    */
+   @Test
+   public void testEntrySetCreatesAllWidgets()
+   {
+      CountingFactory factory = new CountingFactory();
+      LazyFixtureWidgets widgets = new LazyFixtureWidgets(factory, "form_", Arrays.asList(widget("a", SUPPORTED),
+            widget("b", UNSUPPORTED), widget("c", SUPPORTED)));
+      widgets.get("a");
+      assertEquals(1, widgets.getCreatedCount());
+      assertEquals(2, widgets.size());
+      assertEquals(3, factory.created.size());
+   }
+
+   /**
+    * Tests that two widgets with the same name are refused up front.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void testSameNameFails()
+   {
+      new LazyFixtureWidgets(new CountingFactory(), "form_", Arrays.asList(widget("a", SUPPORTED, widget("b",
+            SUPPORTED)), widget("b", UNSUPPORTED)));
+   }
+
+   /**
+    * @param name
+    *           The name of the widget.
+    * @param type
+    *           The type of the widget.
+    * @param children
+    *           The child widgets.
+    * @return A compiled widget.
+    */
+   private static LayoutMap.Widget widget(final String name, final String type, final LayoutMap.Widget... children)
+   {
+      return new LayoutMap.Widget(name, name + "ID", type, new ArrayList<LayoutMap.Widget>(Arrays.asList(children)));
+   }
+
+   /**
+    * A factory creating labels for the supported type, and recording the
+    * widgets it is asked to create.
+    */
+   private static final class CountingFactory implements FixtureWidgetFactory
+   {
+      private final Browser      browser = EasyMock.createNiceMock(Browser.class);
+      private final List<String> created = new ArrayList<String>();
+
+      @Override
+      public Browser getBrowser()
+      {
+         return browser;
+      }
+
+      @Override
+      public ModifiableFixtureWidget createFixtureWidget(final String widgetName, final String widgetID,
+            final String widgetType, final String idBase)
+      {
+         created.add(widgetName);
+         if (!SUPPORTED.equals(widgetType))
+            return null;
+         return FixtureLabel.getFixtureWidgetCreator().createFixtureWidget(widgetName, widgetID, idBase, browser);
+      }
+   }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link DataDrivenRunner} and {@link DataRow}.
+ */
+public class DataDrivenRunnerTest
+{
+   /**
+    * Sessions which count their creations and closings.
+    */
+   private static final class CountingSessions implements DataDrivenRunner.SessionFactory<Integer>
+   {
+      private final AtomicInteger created = new AtomicInteger();
+      private final Set<Integer>  closed  = Collections.synchronizedSet(new HashSet<Integer>());
+
+      @Override
+      public Integer create()
+      {
+         return created.incrementAndGet();
+      }
+
+      @Override
+      public void close(final Integer session)
+      {
+         assertTrue("closed twice", closed.add(session));
+      }
+   }
+
+   /**
+    * Tests that the rows run in parallel, one session per row at a time, and
+    * that all the sessions are closed.
+    */
+   @Test
+   public void testRowsRunInParallel() throws Exception
+   {
+      CountingSessions sessions = new CountingSessions();
+      final Set<Integer> busy = Collections.synchronizedSet(new HashSet<Integer>());
+      DataDrivenResult result = new DataDrivenRunner<Integer>(sessions, 4).run(
+            new DataDrivenRunner.RowTest<Integer>()
+            {
+               @Override
+               public void run(final Integer session, final DataRow row) throws Exception
+               {
+                  assertTrue("session shared", busy.add(session));
+                  Thread.sleep(100);
+                  busy.remove(session);
+               }
+            }, createRows(8));
+
+      assertTrue(result.toString(), result.isSuccessful());
+      assertEquals(8, result.getRowResults().size());
+      assertEquals("row 0", result.getRowResults().get(0).getRow().getName());
+      assertEquals(4, sessions.created.get());
+      assertEquals(4, sessions.closed.size());
+      // Twice the time of the two rows each session ran leaves a wide margin
+      assertTrue(result.toString(), result.getElapsedMillis() < 400);
+   }
+
+   /**
+    * Tests that a failed row is reported and its session replaced.
+    */
+   @Test
+   public void testFailedRowGetsNewSession() throws Exception
+   {
+      CountingSessions sessions = new CountingSessions();
+      final List<Integer> used = Collections.synchronizedList(new ArrayList<Integer>());
+      DataDrivenResult result = new DataDrivenRunner<Integer>(sessions, 1).run(
+            new DataDrivenRunner.RowTest<Integer>()
+            {
+               @Override
+               public void run(final Integer session, final DataRow row)
+               {
+                  used.add(session);
+                  assertFalse("failed", "row 1".equals(row.getName()));
+               }
+            }, createRows(3));
+
+      assertFalse(result.isSuccessful());
+      assertEquals(1, result.getFailedCount());
+      assertFalse(result.getRowResults().get(1).isPassed());
+      assertTrue(result.getRowResults().get(1).getFailure() instanceof AssertionError);
+      assertEquals("[1, 1, 2]", used.toString());
+      assertEquals(2, sessions.closed.size());
+   }
+
+   /**
+    * Tests the rows of a CSV file.
+    */
+   @Test
+   public void testRowsFromCSV() throws Exception
+   {
+      File file = File.createTempFile("rows", ".csv");
+      try
+      {
+         write(file, "Account,Name\n1000,\"Smith, J\"\n2000\n");
+         List<DataRow> rows = DataRow.fromCSV(file.getPath());
+         assertEquals(2, rows.size());
+         assertEquals("Smith, J", rows.get(0).get("Name"));
+         assertEquals("", rows.get(1).get("Name"));
+         assertEquals("row 2", rows.get(1).getName());
+      }
+      finally
+      {
+         file.delete();
+      }
+   }
+
+   /**
+    * Tests the rows of the test data of an XML file.
+    */
+   @Test
+   public void testRowsFromTestData() throws Exception
+   {
+      String xml = "<Data><TestData index=\"2\"><Account>2000</Account><Phone>1</Phone><Phone>2</Phone></TestData>"
+            + "<TestData index=\"1\"><Account>1000</Account></TestData></Data>";
+      List<DataRow> rows = DataRow.fromTestData(TestDataIndex.read(new ByteArrayInputStream(xml.getBytes("UTF-8"))));
+      assertEquals(2, rows.size());
+      assertEquals("2", rows.get(0).getName());
+      assertEquals("2000", rows.get(0).get("Account"));
+      assertFalse(rows.get(0).getValues().containsKey("Phone"));
+      assertEquals("1000", rows.get(1).get("Account"));
+   }
+
+   /**
+    * Tests that a missing element is reported.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void testMissingElement()
+   {
+      createRows(1).get(0).get("Missing");
+   }
+
+   /**
+    * @param count
+    *           The number of rows.
+    *
+    * @return Rows named "row 0", "row 1"...
+    */
+   private static List<DataRow> createRows(final int count)
+   {
+      List<DataRow> rows = new ArrayList<DataRow>();
+      for (int i = 0; i < count; i++)
+      {
+         rows.add(new DataRow("row " + i, Collections.singletonMap("Account", String.valueOf(i))));
+      }
+      return rows;
+   }
+
+   /**
+    * Writes a file.
+    *
+    * @param file
+    *           The file.
+    * @param content
+    *           The content.
+    */
+   private static void write(final File file, final String content) throws Exception
+   {
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(content.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+}
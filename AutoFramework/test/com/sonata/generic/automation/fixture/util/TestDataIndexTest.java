@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TestDataIndex} and the test data lookups of
+ * {@link XMLDocumentBuilder}.
+ */
+public class TestDataIndexTest
+{
+   private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                         + "<Data>"
+                                         + "<TestData index=\"1\"><Account>1000</Account>"
+                                         + "<Address><Street>Main</Street> <City>Paris</City></Address>"
+                                         + "<Phone>1</Phone><Phone>2</Phone><Note><![CDATA[a < b]]></Note></TestData>"
+                                         + "<Group><TestData index=\"2\"><Account>2000</Account></TestData></Group>"
+                                         + "<TestData index=\"1\"><Account>ignored</Account></TestData>"
+                                         + "<TestData><Account>no index</Account></TestData>"
+                                         + "</Data>";
+
+   /**
+    * Tests that the values are the text content of the elements, at any depth.
+    */
+   @Test
+   public void testReadsTextContent() throws Exception
+   {
+      TestDataIndex index = TestDataIndex.read(new ByteArrayInputStream(XML.getBytes("UTF-8")));
+      assertEquals("1000", index.get("Account", 1));
+      assertEquals("Main Paris", index.get("Address", 1));
+      assertEquals("Paris", index.get("City", 1));
+      assertEquals("a < b", index.get("Note", 1));
+      assertEquals("2000", index.get("Account", 2));
+   }
+
+   /**
+    * Tests that missing and duplicated elements have no value, and that the
+    * first test data with an index wins.
+    */
+   @Test
+   public void testMissingAndDuplicatedElementsAreEmpty() throws Exception
+   {
+      TestDataIndex index = TestDataIndex.read(new ByteArrayInputStream(XML.getBytes("UTF-8")));
+      assertEquals("", index.get("Phone", 1));
+      assertEquals("", index.get("Missing", 1));
+      assertEquals("", index.get("Account", 3));
+      assertTrue(index.contains(2));
+      assertFalse(index.contains(3));
+   }
+
+   /**
+    * Tests that the document builder reads the same values as the DOM did,
+    * and keeps them up to date when they are set.
+    */
+   @Test
+   public void testDocumentBuilderGetsAndSetsData() throws Exception
+   {
+      File file = File.createTempFile("testdata", ".xml", new File("").getAbsoluteFile());
+      try
+      {
+         OutputStream out = new FileOutputStream(file);
+         out.write(XML.getBytes("UTF-8"));
+         out.close();
+
+         XMLDocumentBuilder builder = new XMLDocumentBuilder(file.getName());
+         assertEquals("1000", builder.getData("Account", 1));
+         assertEquals("", builder.getData("Phone", 1));
+
+         assertTrue(builder.setData("Account", 1, "1001"));
+         assertTrue(builder.setData("Currency", 2, "EUR"));
+         assertFalse(builder.setData("Phone", 1, "3"));
+         assertFalse(builder.setData("Account", 3, "3000"));
+         assertEquals("1001", builder.getData("Account", 1));
+         assertEquals("EUR", builder.getData("Currency", 2));
+
+         builder.updateXml(file.getName());
+         XMLDocumentBuilder reread = new XMLDocumentBuilder(file.getName());
+         assertEquals("1001", reread.getData("Account", 1));
+         assertEquals("EUR", reread.getData("Currency", 2));
+      }
+      finally
+      {
+         file.delete();
+      }
+   }
+}
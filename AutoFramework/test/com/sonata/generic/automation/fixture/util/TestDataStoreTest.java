@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFCellStyle;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TestDataStore}, {@link XlsxSheetReader} and the test
+ * data lookups of {@link ExcelFileBuilder}.
+ */
+public class TestDataStoreTest
+{
+   private static final String[][] EXPECTED = { {"Element", "Case1", "Case2"}, {"Account", "1000", "2000"},
+         {"Amount", "12.5", ""}, {"OnHold", "true", "false"}, {"Date", "03/15/2015", ""},
+         {"Account", "dup", "dup"}          };
+
+   private File                    xlsFile;
+   private File                    xlsxFile;
+
+   /**
+    * Writes the same sheet as an .xls and an .xlsx file before each test.
+    */
+   @Before
+   public void setUp() throws Exception
+   {
+      TestDataStore.clear();
+      xlsFile = File.createTempFile("testdata", ".xls");
+      writeXls(xlsFile);
+      xlsxFile = File.createTempFile("testdata", ".xlsx");
+      writeXlsx(xlsxFile);
+   }
+
+   /**
+    * Removes the files written by the test.
+    */
+   @After
+   public void tearDown()
+   {
+      TestDataStore.clear();
+      xlsFile.delete();
+      xlsxFile.delete();
+   }
+
+   /**
+    * Tests that the .xls and .xlsx files give the same values.
+    */
+   @Test
+   public void testXlsAndXlsxValues() throws Exception
+   {
+      assertArrayEquals(EXPECTED, new ExcelFileBuilder(xlsFile, 0).getAllData());
+      assertArrayEquals(EXPECTED, new ExcelFileBuilder(xlsxFile, 0).getAllData());
+   }
+
+   /**
+    * Tests that the first row of an element wins.
+    */
+   @Test
+   public void testFirstRowOfElementWins() throws Exception
+   {
+      ExcelFileBuilder builder = new ExcelFileBuilder(xlsxFile, 0);
+      assertEquals("2000", builder.getData("Account", 2));
+      assertEquals(1, TestDataStore.get(xlsxFile, 0).getRowIndex("Account"));
+      assertEquals(-1, TestDataStore.get(xlsxFile, 0).getRowIndex("Missing"));
+   }
+
+   /**
+    * Tests that an unknown element is reported.
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnknownElement()
+   {
+      new ExcelFileBuilder(xlsFile, 0).getData("Missing", 1);
+   }
+
+   /**
+    * Tests that an unchanged file is read once, and a changed one again.
+    */
+   @Test
+   public void testSheetIsCachedUntilFileChanges() throws Exception
+   {
+      TestDataStore.Sheet first = TestDataStore.get(xlsFile, 0);
+      assertSame(first, TestDataStore.get(new File(xlsFile.getPath()), 0));
+
+      assertTrue(xlsFile.setLastModified(xlsFile.lastModified() - 10000));
+      assertNotSame(first, TestDataStore.get(xlsFile, 0));
+   }
+
+   /**
+    * Tests that the values set by a builder are not seen by the others.
+    */
+   @Test
+   public void testSetDataIsLocalToBuilder()
+   {
+      ExcelFileBuilder first = new ExcelFileBuilder(xlsFile, 0);
+      ExcelFileBuilder second = new ExcelFileBuilder(xlsFile, 0);
+      first.setData("Account", 1, "3000");
+
+      assertEquals("3000", first.getData("Account", 1));
+      assertEquals("3000", first.getAllData()[1][1]);
+      assertEquals("1000", second.getData("Account", 1));
+      assertEquals("1000", new ExcelFileBuilder(xlsFile, 0).getData("Account", 1));
+   }
+
+   /**
+    * Tests the column index of cell references.
+    */
+   @Test
+   public void testColumnIndex()
+   {
+      assertEquals(0, XlsxSheetReader.getColumnIndex("A1"));
+      assertEquals(25, XlsxSheetReader.getColumnIndex("Z9"));
+      assertEquals(27, XlsxSheetReader.getColumnIndex("AB12"));
+   }
+
+   /**
+    * Writes the sheet as an .xls file.
+    *
+    * @param file
+    *           The file.
+    */
+   private static void writeXls(final File file) throws Exception
+   {
+      HSSFWorkbook workbook = new HSSFWorkbook();
+      HSSFSheet sheet = workbook.createSheet();
+      HSSFCellStyle dateStyle = workbook.createCellStyle();
+      dateStyle.setDataFormat((short)14);
+      Calendar date = Calendar.getInstance();
+      date.clear();
+      date.set(2015, Calendar.MARCH, 15);
+
+      HSSFRow row = sheet.createRow(0);
+      row.createCell(0).setCellValue("Element");
+      row.createCell(1).setCellValue("Case1");
+      row.createCell(2).setCellValue("Case2");
+      row = sheet.createRow(1);
+      row.createCell(0).setCellValue("Account");
+      row.createCell(1).setCellValue("1000");
+      row.createCell(2).setCellValue("2000");
+      row = sheet.createRow(2);
+      row.createCell(0).setCellValue("Amount");
+      row.createCell(1).setCellFormula("10+2.5");
+      row = sheet.createRow(3);
+      row.createCell(0).setCellValue("OnHold");
+      row.createCell(1).setCellValue(true);
+      row.createCell(2).setCellValue(false);
+      row = sheet.createRow(4);
+      row.createCell(0).setCellValue("Date");
+      row.createCell(1).setCellValue(date);
+      row.getCell(1).setCellStyle(dateStyle);
+      row = sheet.createRow(5);
+      row.createCell(0).setCellValue("Account");
+      row.createCell(1).setCellValue("dup");
+      row.createCell(2).setCellValue("dup");
+
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         workbook.write(out);
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   /**
+    * Writes the sheet as an .xlsx file, with shared and inline strings, a
+    * formula and a date.
+    *
+    * @param file
+    *           The file.
+    */
+   private static void writeXlsx(final File file) throws Exception
+   {
+      ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+      try
+      {
+         put(zip, "xl/workbook.xml", "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+               + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+               + "<workbookPr/><sheets><sheet name=\"Data\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+         put(zip, "xl/_rels/workbook.xml.rels",
+               "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                     + "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\""
+                     + " Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\"/>"
+                     + "</Relationships>");
+         put(zip, "xl/sharedStrings.xml", "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+               + "<si><t>Element</t></si><si><r><t>Case</t></r><r><t>1</t></r><rPh><t>x</t></rPh></si>"
+               + "<si><t>Account</t></si><si><t>dup</t></si></sst>");
+         put(zip, "xl/styles.xml", "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+               + "<cellXfs count=\"2\"><xf numFmtId=\"0\"/><xf numFmtId=\"14\"/></cellXfs></styleSheet>");
+         put(zip, "xl/worksheets/sheet1.xml",
+               "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                     + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>"
+                     + "<c r=\"C1\" t=\"inlineStr\"><is><t>Case2</t></is></c></row>"
+                     + "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>2</v></c><c r=\"B2\" t=\"str\"><v>1000</v></c>"
+                     + "<c r=\"C2\" t=\"inlineStr\"><is><t>2000</t></is></c></row>"
+                     + "<row r=\"3\"><c r=\"A3\" t=\"inlineStr\"><is><t>Amount</t></is></c>"
+                     + "<c r=\"B3\"><f>10+2.5</f><v>12.5</v></c></row>"
+                     + "<row r=\"4\"><c r=\"A4\" t=\"inlineStr\"><is><t>OnHold</t></is></c>"
+                     + "<c r=\"B4\" t=\"b\"><v>1</v></c><c r=\"C4\" t=\"b\"><v>0</v></c></row>"
+                     + "<row r=\"5\"><c r=\"A5\" t=\"inlineStr\"><is><t>Date</t></is></c>"
+                     + "<c r=\"B5\" s=\"1\"><v>42078</v></c></row>"
+                     + "<row r=\"6\"><c r=\"A6\" t=\"s\"><v>2</v></c><c r=\"B6\" t=\"s\"><v>3</v></c>"
+                     + "<c r=\"C6\" t=\"s\"><v>3</v></c></row>" + "</sheetData></worksheet>");
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Writes a part of an .xlsx file.
+    *
+    * @param zip
+    *           The file.
+    * @param name
+    *           The path of the part.
+    * @param content
+    *           The content of the part.
+    */
+   private static void put(final ZipOutputStream zip, final String name, final String content) throws Exception
+   {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.write(content.getBytes("UTF-8"));
+      zip.closeEntry();
+   }
+}
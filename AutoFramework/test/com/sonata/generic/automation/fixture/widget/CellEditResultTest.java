@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.fixture.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests of how {@link CellEditResult} classifies the edits of a batch.
+ */
+public class CellEditResultTest
+{
+   private static final CellEdit EDIT = CellEdit.type(2, 3, "100");
+
+   @Test
+   public void valueShownIsAccepted()
+   {
+      CellEditResult result = CellEditResult.of(EDIT, "", " 100 ", null);
+      assertTrue(result.isAccepted());
+      assertEquals(CellEditResult.Status.ACCEPTED, result.getStatus());
+   }
+
+   @Test
+   public void otherNewValueIsRewritten()
+   {
+      CellEditResult result = CellEditResult.of(EDIT, "", "100.00", null);
+      assertEquals(CellEditResult.Status.REWRITTEN, result.getStatus());
+      assertEquals("TYPE '100' at (2, 3) rewritten, shows '100.00'", result.toString());
+   }
+
+   @Test
+   public void previousValueIsRejected()
+   {
+      assertEquals(CellEditResult.Status.REJECTED, CellEditResult.of(EDIT, "50", "50", null).getStatus());
+   }
+
+   @Test
+   public void editNotAppliedIsRejected()
+   {
+      CellEditResult result = CellEditResult.of(EDIT, "50", "50", "the cell could not be typed in");
+      assertEquals(CellEditResult.Status.REJECTED, result.getStatus());
+      assertEquals("TYPE '100' at (2, 3) rejected, shows '50' (the cell could not be typed in)", result.toString());
+   }
+
+   @Test
+   public void maskedValueIsRewritten()
+   {
+      CellEdit edit = CellEdit.type(1, 1, "1000");
+      assertEquals(CellEditResult.Status.REWRITTEN, CellEditResult.of(edit, "0", "1,000", null).getStatus());
+   }
+
+   @Test
+   public void unreadCellIsRejected()
+   {
+      assertEquals(CellEditResult.Status.REJECTED, CellEditResult.of(EDIT, null, null, null).getStatus());
+   }
+}
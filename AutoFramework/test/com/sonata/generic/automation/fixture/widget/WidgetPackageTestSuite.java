@@ -12,7 +12,7 @@ import org.junit.runners.Suite;
  * package.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses( {DefaultFixtureWidgetFactoryTest.class, FixtureWidgetTest.class})
+@Suite.SuiteClasses( {DefaultFixtureWidgetFactoryTest.class, FixtureWidgetTest.class, CellEditResultTest.class})
 public class WidgetPackageTestSuite
 {
 
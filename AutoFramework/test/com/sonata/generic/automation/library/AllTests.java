@@ -12,7 +12,9 @@ import org.junit.runners.Suite;
  * the unit tests in the module.
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({TestStringConverter.class})
+@Suite.SuiteClasses({TestStringConverter.class, TestDownloadTracker.class, TestDatasetCompare.class,
+      TestUniqueIdGenerator.class, TestCSVReader.class,
+      TestCSVCompare.class, TestCSVQuery.class, TestParsedFileCache.class})
 public class AllTests
 {
 
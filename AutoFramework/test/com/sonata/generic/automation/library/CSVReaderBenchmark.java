@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * The <code>CSVReaderBenchmark</code> class measures the time to go through a
+ * report export by splitting its lines, as <code>CSVHelper</code> used to, and
+ * with the {@link CSVReader}. It is not part of the test suites; run its main
+ * method with the path of the export to measure, or without arguments to
+ * measure a generated export of {@link #GENERATED_MEGABYTES} MB.
+ */
+public final class CSVReaderBenchmark
+{
+   private static final int GENERATED_MEGABYTES = 100;
+   private static final int ROUNDS              = 3;
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private CSVReaderBenchmark()
+   {
+   }
+
+   /**
+    * Runs the benchmark. The first rounds warm the JIT and the file cache up,
+    * the last one is the one to read.
+    *
+    * @param args
+    *           the path of the export to measure
+    */
+   public static void main(final String[] args) throws Exception
+   {
+      final File file = (args.length == 0) ? generate() : new File(args[0]);
+      try
+      {
+         for (int round = 1; round <= ROUNDS; round++)
+         {
+            long start = System.nanoTime();
+            final long split = readBySplit(file);
+            final long splitMillis = (System.nanoTime() - start) / 1000000;
+
+            start = System.nanoTime();
+            final long reader = readByReader(file);
+            final long readerMillis = (System.nanoTime() - start) / 1000000;
+
+            System.out.println("Round " + round + ": split " + splitMillis + " ms, reader " + readerMillis + " ms ("
+                  + split + "/" + reader + " matches)");
+         }
+      }
+      finally
+      {
+         if (args.length == 0)
+         {
+            file.delete();
+         }
+      }
+   }
+
+   /**
+    * Counts the values of the export which are "Cash", splitting the lines as
+    * <code>CSVHelper</code> used to.
+    *
+    * @param file
+    *           the export
+    * @return the count
+    */
+   private static long readBySplit(final File file) throws IOException
+   {
+      long matches = 0;
+      final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try
+      {
+         String line;
+         while ((line = in.readLine()) != null)
+         {
+            for (String value : line.split(","))
+            {
+               if (value.equals("Cash") || value.equals("\"Cash\""))
+               {
+                  matches++;
+               }
+            }
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return matches;
+   }
+
+   /**
+    * Counts the values of the export which are "Cash" with the reader.
+    *
+    * @param file
+    *           the export
+    * @return the count
+    */
+   private static long readByReader(final File file) throws IOException
+   {
+      long matches = 0;
+      final CSVReader in = CSVReader.open(file.getPath());
+      try
+      {
+         while (in.next())
+         {
+            for (int i = 0; i < in.getFieldCount(); i++)
+            {
+               if (in.fieldEquals(i, "Cash"))
+               {
+                  matches++;
+               }
+            }
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return matches;
+   }
+
+   /**
+    * Generates an export of account lines, some values quoted.
+    *
+    * @return the temporary file
+    */
+   private static File generate() throws IOException
+   {
+      final File file = File.createTempFile("benchmark", ".csv");
+      final long size = GENERATED_MEGABYTES * 1024L * 1024L;
+      final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try
+      {
+         out.write("Date,Account,Description,Reference,Debit,Credit,Balance\r\n");
+         long written = 0;
+         for (int i = 0; written < size; i++)
+         {
+            final String line = "2015-01-" + (10 + (i % 20)) + "," + (1000 + (i % 500)) + ","
+                  + (((i % 3) == 0) ? "\"Cash, petty\"" : "Cash") + ",INV" + i + "," + (i % 997) + ".50,0.00,\""
+                  + (i % 100000) + ",000.00\"\r\n";
+            out.write(line);
+            written += line.length();
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+      return file;
+   }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The <code>TestCSVCompare</code> class provides JUnit tests on the
+ * {@link CSVCompare} class.
+ */
+public class TestCSVCompare
+{
+   private final List<File> files = new ArrayList<File>();
+
+   @After
+   public void deleteFiles()
+   {
+      for (File file : files)
+      {
+         file.delete();
+      }
+   }
+
+   @Test
+   public void positionalComparesChunksInOrder() throws Exception
+   {
+      StringBuilder expected = new StringBuilder("Account,Balance\n");
+      StringBuilder actual = new StringBuilder("Account,Balance\n");
+      for (int i = 1; i <= 1000; i++)
+      {
+         expected.append(i).append(',').append(i * 10).append('\n');
+         actual.append(i).append(',').append((i % 250 == 0) ? 0 : i * 10).append('\n');
+      }
+      actual.append("1001,0\n");
+
+      CSVCompare compare = new CSVCompare();
+      compare.setChunkRows(7);
+      compare.setThreads(3);
+      CSVDiff diff = compare.compare(write(expected.toString()), write(actual.toString()));
+      assertEquals(1000, diff.getComparedRows());
+      assertEquals(4, diff.getChangedRows());
+      assertEquals(1, diff.getAddedRows());
+      assertEquals(5, diff.getDifferenceCount());
+      assertEquals(Arrays.asList("row 250 [Balance] expected '2500' but was '0'",
+            "row 500 [Balance] expected '5000' but was '0'", "row 750 [Balance] expected '7500' but was '0'",
+            "row 1000 [Balance] expected '10000' but was '0'", "row 1001 unexpected [1001, 0]"),
+            toStrings(diff.getDifferences()));
+   }
+
+   @Test
+   public void maskedColumnsAndCaseAreIgnored() throws Exception
+   {
+      String expected = write("Account,Printed On,Name\n1000,01/02/2015,Cash\n");
+      String actual = write("Account,Printed On,Name\n1000,03/04/2015,CASH\n");
+
+      CSVCompare compare = new CSVCompare();
+      assertEquals(2, compare.compare(expected, actual).getDifferenceCount());
+      compare.setIgnoredColumns("Printed On");
+      compare.setIgnoreCase(true);
+      assertTrue(compare.compare(expected, actual).isMatch());
+   }
+
+   @Test
+   public void keyedIgnoresOrder() throws Exception
+   {
+      String expected = write("Account,Name,Balance\n1000,Cash,10\n2000,Bank,20\n3000,Sales,30\n");
+      String actual = write("Account,Name,Balance\n3000,Sales,30\n4000,Tax,40\n1000,\"Petty, Cash\",10\n");
+
+      CSVCompare compare = new CSVCompare();
+      compare.setKeyColumns("Account");
+      CSVDiff diff = compare.compare(expected, actual);
+      assertFalse(diff.isMatch());
+      assertEquals(Arrays.asList("key [1000] [Name] expected 'Cash' but was 'Petty, Cash'", "missing key [2000]",
+            "unexpected key [4000]"), toStrings(diff.getDifferences()));
+      assertEquals(2, diff.getDifferences().get(1).getRow());
+      assertEquals(2, diff.getDifferences().get(2).getRow());
+   }
+
+   @Test
+   public void repeatedKeysArePairedInOrder() throws Exception
+   {
+      String expected = write("Acct,Amt\nA,1\nA,2\nB,3\nC,4\n");
+      String actual = write("Acct,Amt\nB,3\nA,1\nC,4\nA,5\nC,6\n");
+
+      CSVCompare compare = new CSVCompare();
+      compare.setKeyColumns("Acct");
+      assertTrue(compare.compare(expected, expected).isMatch());
+      CSVDiff diff = compare.compare(expected, actual);
+      assertEquals(Arrays.asList("key [A] [Amt] expected '2' but was '5'", "unexpected key [C]"),
+            toStrings(diff.getDifferences()));
+      assertEquals(5, diff.getDifferences().get(1).getRow());
+
+      compare.setMemoryLimit(1);
+      assertTrue(compare.compare(expected, expected).isMatch());
+      List<String> spilled = toStrings(compare.compare(expected, actual).getDifferences());
+      Collections.sort(spilled);
+      assertEquals(Arrays.asList("key [A] [Amt] expected '2' but was '5'", "unexpected key [C]"), spilled);
+   }
+
+   @Test
+   public void spilledKeyedFindsTheSameDifferences() throws Exception
+   {
+      StringBuilder expected = new StringBuilder("Account,Name,Balance\n");
+      StringBuilder actual = new StringBuilder("Account,Name,Balance\n");
+      for (int i = 0; i < 2000; i++)
+      {
+         expected.append(i).append(",\"Account ").append(i).append("\",").append(i).append('\n');
+         int j = 1999 - i;
+         if (j != 1234)
+         {
+            actual.append(j).append(",\"Account ").append(j).append("\",").append((j == 42) ? 0 : j).append('\n');
+         }
+      }
+      actual.append("1000,\"Account 1000\",1000\n");
+      String expectedFile = write(expected.toString());
+      String actualFile = write(actual.toString());
+
+      CSVCompare compare = new CSVCompare();
+      compare.setKeyColumns("Account");
+      CSVDiff inMemory = compare.compare(expectedFile, actualFile);
+      compare.setMemoryLimit(10000);
+      compare.setThreads(4);
+      CSVDiff spilled = compare.compare(expectedFile, actualFile);
+
+      assertEquals(3, inMemory.getDifferenceCount());
+      assertEquals(1, spilled.getChangedRows());
+      assertEquals(1, spilled.getRemovedRows());
+      assertEquals(1, spilled.getAddedRows());
+      List<String> sorted = toStrings(spilled.getDifferences());
+      Collections.sort(sorted);
+      assertEquals(Arrays.asList("key [42] [Balance] expected '42' but was '0'", "missing key [1234]",
+            "unexpected key [1000]"), sorted);
+   }
+
+   @Test
+   public void differencesAreCountedBeyondThoseKept() throws Exception
+   {
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 100; i++)
+      {
+         expected.append(i).append('\n');
+      }
+      CSVCompare compare = new CSVCompare();
+      compare.setHeader(false);
+      compare.setMaxKept(10);
+      CSVDiff diff = compare.compare(write(expected.toString()), write("x\n"));
+      assertEquals(100, diff.getDifferenceCount());
+      assertEquals(10, diff.getDifferences().size());
+      assertTrue(diff.getReport(), diff.getReport().endsWith("; and 90 more"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void unknownKeyColumnIsReported() throws Exception
+   {
+      CSVCompare compare = new CSVCompare();
+      compare.setKeyColumns("Missing");
+      compare.compare(write("Account\n1\n"), write("Account\n1\n"));
+   }
+
+   /**
+    * @param differences
+    *           differences
+    * @return their descriptions
+    */
+   private static List<String> toStrings(final List<CSVDiff.Difference> differences)
+   {
+      List<String> strings = new ArrayList<String>();
+      for (CSVDiff.Difference difference : differences)
+      {
+         strings.add(difference.toString());
+      }
+      return strings;
+   }
+
+   /**
+    * Writes a temporary CSV file, deleted after the test.
+    *
+    * @param content
+    *           The content.
+    *
+    * @return The path of the file.
+    */
+   private String write(final String content) throws Exception
+   {
+      File file = File.createTempFile("compare", ".csv");
+      files.add(file);
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(content.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+      return file.getPath();
+   }
+}
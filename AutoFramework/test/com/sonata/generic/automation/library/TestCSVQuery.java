@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The <code>TestCSVQuery</code> class provides JUnit tests on the
+ * {@link CSVQuery} class.
+ */
+public class TestCSVQuery
+{
+   private static final String CONTENT = "Date,Type,Amount,Region\n" + "2015-01-05,Invoice,\"1,000.50\",East\n"
+                                             + "2015-01-20,Credit,(200),East\n" + "2015-02-03,Invoice,300,West\n"
+                                             + "Count,3,3,3\n" + "Sum,,\"1,100.50\",\n";
+
+   private File                file;
+
+   @Before
+   public void writeFile() throws Exception
+   {
+      file = File.createTempFile("query", ".csv");
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(CONTENT.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   @After
+   public void deleteFile()
+   {
+      file.delete();
+   }
+
+   @Test
+   public void checksRunInOnePass() throws Exception
+   {
+      CSVQuery query = new CSVQuery();
+      CSVQuery.Check invoices = query.is("Type", "Invoice").where("Region", "West");
+      CSVQuery.Aggregate sum = query.sum("Amount").where("Region", "East").expect("800.50");
+      CSVQuery.Aggregate max = query.max("Amount").where("Type", "Invoice");
+      CSVQuery.Aggregate count = query.count("Type").after("Type", "Credit");
+      CSVQuery.Check total = query.summary("Sum", "Amount", "1,100.50");
+      query.summaryValues("Count");
+
+      assertTrue(query.getReport(), query.run(file.getPath()));
+      assertEquals(1, invoices.getRowCount());
+      assertEquals(0, new BigDecimal("800.50").compareTo(sum.getValue()));
+      assertEquals(0, new BigDecimal("1000.50").compareTo(max.getValue()));
+      assertEquals(BigDecimal.valueOf(3), count.getValue());
+      assertTrue(total.isPassed());
+   }
+
+   @Test
+   public void failuresGiveTheirRows() throws Exception
+   {
+      CSVQuery query = new CSVQuery();
+      CSVQuery.Check type = query.is("Type", "Invoice");
+      CSVQuery.Aggregate avg = query.avg("Type");
+      CSVQuery.Check missing = query.is("Currency", "USD");
+      CSVQuery.Check avgRow = query.summaryExists("Avg");
+      CSVQuery.Check sumValues = query.summaryValues("Sum");
+
+      assertFalse(query.run(file.getPath()));
+      assertEquals(3, type.getFailureCount());
+      assertEquals(2, type.getFailures().get(0).getRow());
+      assertEquals("Credit", type.getFailures().get(0).getValue());
+      assertEquals(3, avg.getFailureCount());
+      assertEquals(0, BigDecimal.valueOf(3).compareTo(avg.getValue()));
+      assertEquals("The file has no column Currency", missing.getFailures().get(0).getMessage());
+      assertEquals("Avg does not exist", avgRow.getFailures().get(0).getMessage());
+      assertEquals(3, sumValues.getFailureCount());
+   }
+
+   @Test
+   public void datesAreCompared() throws Exception
+   {
+      SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+      Date first = format.parse("2015-01-01");
+      Date last = format.parse("2015-01-31");
+
+      CSVQuery query = new CSVQuery();
+      CSVQuery.Check january = query.between("Date", first, last).where("Region", "East");
+      CSVQuery.Check all = query.between("Date", first, last).where("Type", "Invoice");
+      CSVQuery.Check day = query.is("Date", format.parse("2015-01-05")).where("Type", "Invoice");
+      query.run(file.getPath());
+      assertTrue(january.isPassed());
+      assertEquals(1, all.getFailureCount());
+      assertEquals(1, day.getFailureCount());
+   }
+
+   @Test
+   public void helperDateChecksUseTheResult() throws Exception
+   {
+      SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+      File dates = File.createTempFile("dates", ".csv");
+      OutputStream out = new FileOutputStream(dates);
+      try
+      {
+         out.write("Date\n2015-01-05\n2015-03-01\n".getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+      try
+      {
+         assertFalse(CSVHelper.checkIsValuesInCSV(dates.getPath(), "Date", format.parse("2015-01-05")));
+         assertFalse(CSVHelper.checkBetweenValuesInCSV(dates.getPath(), "Date", format.parse("2015-01-01"),
+               format.parse("2015-01-31")));
+         assertTrue(CSVHelper.checkBetweenValuesInCSV(dates.getPath(), "Date", format.parse("2015-01-05"),
+               format.parse("2015-03-01")));
+      }
+      finally
+      {
+         dates.delete();
+      }
+   }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestCSVReader</code> class provides JUnit tests on the
+ * {@link CSVReader} class and the checks of {@link CSVHelper} built on it.
+ */
+public class TestCSVReader
+{
+   @Test
+   public void quotedValuesHoldCommasQuotesAndLineBreaks() throws Exception
+   {
+      CSVReader reader = new CSVReader(new StringReader("\uFEFFa,\"b, c\",\"say \"\"hi\"\"\"\r\n"
+            + "\"two\r\nlines\",,\"\"\n\n3\r4"));
+      assertTrue(reader.next());
+      assertArrayEquals(new String[] {"a", "b, c", "say \"hi\""}, reader.getRecord());
+      assertFalse(reader.isQuoted(0));
+      assertTrue(reader.isQuoted(1));
+      assertTrue(reader.next());
+      assertArrayEquals(new String[] {"two\r\nlines", "", ""}, reader.getRecord());
+      assertTrue(reader.next());
+      assertArrayEquals(new String[] {"3"}, reader.getRecord());
+      assertTrue(reader.next());
+      assertArrayEquals(new String[] {"4"}, reader.getRecord());
+      assertEquals(4, reader.getRecordNumber());
+      assertFalse(reader.next());
+      reader.close();
+   }
+
+   @Test
+   public void headerGivesColumnIndexes() throws Exception
+   {
+      CSVReader reader = new CSVReader(new StringReader("Account,\"Name\",Account\n1000,Cash,x"));
+      assertArrayEquals(new String[] {"Account", "Name", "Account"}, reader.readHeader());
+      assertEquals(0, reader.getColumnIndex("Account"));
+      assertEquals(1, reader.getColumnIndex("Name"));
+      assertEquals(-1, reader.getColumnIndex("Balance"));
+      reader.close();
+   }
+
+   @Test
+   public void fieldsCompareInPlace() throws Exception
+   {
+      CSVReader reader = new CSVReader(new StringReader("Cash,Petty Cash\nBank,BANK"));
+      assertTrue(reader.next());
+      CharSequence view = reader.field(1);
+      assertTrue(reader.fieldEquals(0, "Cash"));
+      assertFalse(reader.fieldEquals(0, "Cas"));
+      assertTrue(reader.fieldContains(1, "y C"));
+      assertFalse(reader.fieldContains(1, "Bank"));
+      assertEquals("Petty Cash", view.toString());
+      assertTrue(reader.next());
+      assertEquals("BANK", view.toString());
+      assertTrue(reader.fieldEqualsIgnoreCase(0, view));
+      assertFalse(reader.fieldEquals(0, view));
+      reader.close();
+   }
+
+   @Test(expected = IndexOutOfBoundsException.class)
+   public void missingFieldIsReported() throws Exception
+   {
+      CSVReader reader = new CSVReader(new StringReader("a,b"));
+      reader.next();
+      reader.get(2);
+   }
+
+   @Test
+   public void longRecordsGrowTheBuffers() throws Exception
+   {
+      StringBuilder line = new StringBuilder();
+      for (int i = 0; i < 1000; i++)
+      {
+         line.append(i).append(",\"").append(i).append(i).append("\",");
+      }
+      CSVReader reader = new CSVReader(new StringReader(line.toString()));
+      assertTrue(reader.next());
+      assertEquals(2001, reader.getFieldCount());
+      assertEquals("999999", reader.get(1999));
+      assertEquals("", reader.get(2000));
+      reader.close();
+   }
+
+   @Test
+   public void helperChecksQuotedValues() throws Exception
+   {
+      File file = write("Account,Name,Date\n1000,\"Smith, J\",2015-01-02\n2000,\"Smith, J\",2015-01-02\n");
+      try
+      {
+         assertTrue(CSVHelper.checkIsValuesInCSV(file.getPath(), "Name", "Smith, J"));
+         assertFalse(CSVHelper.checkIsValuesInCSV(file.getPath(), "Account", "1000"));
+      }
+      finally
+      {
+         file.delete();
+      }
+   }
+
+   @Test
+   public void helperChecksCountSumAndAvg() throws Exception
+   {
+      File valid = write("Name,Amount,Tax\nCount,2,2\nSum,\"1,000.00\",10\nAvg,500,5\n");
+      File quoted = write("Name,Amount,Tax\nCount,2,\"2\"\nSum,1,1\nAvg,1,1\n");
+      File empty = write("Name,Amount,Tax\nCount,2,\nSum,1,1\nAvg,1,1\n");
+      try
+      {
+         assertTrue(CSVHelper.checkCountExistInCSV(valid.getPath()));
+         assertFalse(CSVHelper.checkCountExistInCSV(quoted.getPath()));
+         assertFalse(CSVHelper.checkCountExistInCSV(empty.getPath()));
+         assertTrue(CSVHelper.checkSummaryValuesInCSV(valid.getPath(), new String[] {"Sum", "Avg"}, new String[] {
+               "Amount", "1,000.00", "500"}, null));
+         assertFalse(CSVHelper.checkSummaryValuesInCSV(valid.getPath(), new String[] {"Sum"}, new String[] {"Tax",
+               "11"}, null));
+      }
+      finally
+      {
+         valid.delete();
+         quoted.delete();
+         empty.delete();
+      }
+   }
+
+   @Test
+   public void helperComparesFiles() throws Exception
+   {
+      File expected = write("01/02/2015,Report\nCash,\"1,000.00\",10:30\n");
+      File same = write("03/04/2015,report\nCash,\"1,000.00\",11:45\n");
+      File different = write("03/04/2015,Report\nCash,\"1,000.01\",10:30\n");
+      try
+      {
+         assertTrue(CSVHelper.compareTwoCSVFile(expected.getPath(), same.getPath()));
+         assertFalse(CSVHelper.compareTwoCSVFile(expected.getPath(), different.getPath()));
+      }
+      finally
+      {
+         expected.delete();
+         same.delete();
+         different.delete();
+      }
+   }
+
+   @Test
+   public void filesAreReadInTheirCharset() throws Exception
+   {
+      String content = "Soci\u00e9t\u00e9,\u00a35\n";
+      // A platform charset such as ASCII cannot hold the content: the file is
+      // then written and read in Cp1252
+      Charset charset = Charset.defaultCharset().newEncoder().canEncode(content) ? Charset.defaultCharset()
+            : Charset.forName("windows-1252");
+      File platform = write(content, charset.name());
+      File windows = write(content, "windows-1252");
+      File bom = write("\uFEFF" + content, "UTF-8");
+      try
+      {
+         CSVReader platformReader = charset.equals(Charset.defaultCharset()) ? CSVReader.open(platform.getPath())
+               : CSVReader.open(platform.getPath(), charset.name());
+         for (CSVReader reader : new CSVReader[] {platformReader,
+               CSVReader.open(windows.getPath(), "windows-1252"), CSVReader.open(bom.getPath()),
+               CSVReader.openCached(bom.getPath())})
+         {
+            try
+            {
+               assertTrue(reader.next());
+               assertEquals(Arrays.asList("Soci\u00e9t\u00e9", "\u00a35"), Arrays.asList(reader.getRecord()));
+            }
+            finally
+            {
+               reader.close();
+            }
+         }
+      }
+      finally
+      {
+         platform.delete();
+         windows.delete();
+         bom.delete();
+      }
+   }
+
+   /**
+    * Writes a temporary CSV file in UTF-8.
+    *
+    * @param content
+    *           The content.
+    *
+    * @return The file, to be deleted.
+    */
+   private static File write(final String content) throws Exception
+   {
+      return write(content, "UTF-8");
+   }
+
+   /**
+    * Writes a temporary CSV file.
+    *
+    * @param content
+    *           The content.
+    * @param charsetName
+    *           The charset of the file.
+    *
+    * @return The file, to be deleted.
+    */
+   private static File write(final String content, final String charsetName) throws Exception
+   {
+      File file = File.createTempFile("csv", ".csv");
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(content.getBytes(charsetName));
+      }
+      finally
+      {
+         out.close();
+      }
+      return file;
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestDatasetCompare</code> class provides JUnit tests on the
+ * {@link DatasetCompare} class.
+ */
+public class TestDatasetCompare
+{
+   private static final String[] COLUMNS = {"Account", "Description", "Balance"};
+   private static final int[]    KEY     = {0};
+
+   @Test
+   public void sameRowsMatchInOrder()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10", "2000,Bank,20"),
+            rows("1000,Cash ,10", "2000,Bank,20"), null, DatasetCompare.Mode.ORDERED);
+      assertTrue(diff.isMatch());
+      assertEquals("OK", diff.getReport());
+      assertEquals(2, diff.getComparedRows());
+   }
+
+   @Test
+   public void orderedReportsCellAndExtraRows()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10"),
+            rows("1000,Cash,12", "2000,Bank,20"), null, DatasetCompare.Mode.ORDERED);
+      assertEquals(Arrays.asList("row 1 [Balance] expected '10' but was '12'", "row 2 unexpected [2000, Bank, 20]"),
+            diff.getDifferences());
+   }
+
+   @Test
+   public void keyedIgnoresOrder()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10", "2000,Bank,20"),
+            rows("2000,Bank,20", "1000,Cash,10"), KEY, DatasetCompare.Mode.KEYED);
+      assertTrue(diff.isMatch());
+   }
+
+   @Test
+   public void keyedReportsMissingUnexpectedAndChanged()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10", "2000,Bank,20"),
+            rows("3000,Sales,30", "1000,Petty Cash,10"), KEY, DatasetCompare.Mode.KEYED);
+      assertEquals(Arrays.asList("key [1000] [Description] expected 'Cash' but was 'Petty Cash'",
+            "missing key [2000]", "unexpected key [3000]"), diff.getDifferences());
+   }
+
+   @Test
+   public void keyedPairsRepeatedKeysInOrder()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10"), rows("1000,Cash,10", "1000,Cash,10"),
+            KEY, DatasetCompare.Mode.KEYED);
+      assertEquals(Arrays.asList("unexpected key [1000]"), diff.getDifferences());
+
+      diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10", "1000,Cash,11", "2000,Bank,20"),
+            rows("1000,Cash,10", "2000,Bank,20", "1000,Cash,12"), KEY, DatasetCompare.Mode.KEYED);
+      assertEquals(Arrays.asList("key [1000] [Balance] expected '11' but was '12'"), diff.getDifferences());
+   }
+
+   @Test
+   public void unorderedCountsDuplicates()
+   {
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, rows("1000,Cash,10", "1000,Cash,10"),
+            rows("1000,Cash,10", "2000,Bank,20"), null, DatasetCompare.Mode.UNORDERED);
+      assertEquals(Arrays.asList("missing [1000, Cash, 10]", "unexpected [2000, Bank, 20]"), diff.getDifferences());
+   }
+
+   @Test
+   public void reportListsTheFirstDifferences()
+   {
+      List<String[]> expected = new ArrayList<String[]>();
+      List<String[]> actual = new ArrayList<String[]>();
+      for (int i = 0; i < 25; i++)
+      {
+         expected.add(new String[] {Integer.toString(i), "a", "1"});
+         actual.add(new String[] {Integer.toString(i), "b", "1"});
+      }
+      DatasetDiff diff = DatasetCompare.compare(COLUMNS, expected, actual, KEY, DatasetCompare.Mode.KEYED);
+      assertFalse(diff.isMatch());
+      assertTrue(diff.getReport().startsWith("25 difference(s) in 25 row(s): "));
+      assertTrue(diff.getReport().endsWith("; and 5 more"));
+   }
+
+   @Test
+   public void modeDefaultsOnKeys()
+   {
+      assertEquals(DatasetCompare.Mode.KEYED, DatasetCompare.Mode.fromName("", true));
+      assertEquals(DatasetCompare.Mode.ORDERED, DatasetCompare.Mode.fromName(null, false));
+      assertEquals(DatasetCompare.Mode.UNORDERED, DatasetCompare.Mode.fromName("Unordered", true));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void keyedNeedsKeys()
+   {
+      DatasetCompare.compare(COLUMNS, rows("1000,Cash,10"), rows("1000,Cash,10"), new int[0],
+            DatasetCompare.Mode.KEYED);
+   }
+
+   @Test
+   public void csvLineKeepsQuotedCommas()
+   {
+      assertArrayEquals(new String[] {"1000", "Cash, petty", "say \"hi\"", ""},
+            CSVHelper.parseLine("1000,\"Cash, petty\",\"say \"\"hi\"\"\","));
+   }
+
+   // Private methods to help the test
+
+   /**
+    * @param lines
+    *           the rows, values separated by commas
+    * @return the dataset
+    */
+   private static List<String[]> rows(final String... lines)
+   {
+      List<String[]> rows = new ArrayList<String[]>();
+      for (String line : lines)
+      {
+         rows.add(line.split(","));
+      }
+      return rows;
+   }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestDownloadTracker</code> class provides JUnit tests on the
+ * {@link DownloadTracker} class.
+ */
+public class TestDownloadTracker
+{
+   /** A temporary download renamed to its final name is returned */
+   @Test
+   public void returnsRenamedDownload() throws Exception
+   {
+      final Path dir = Files.createTempDirectory("download");
+      DownloadTracker.Snapshot before = DownloadTracker.getInstance().snapshot(dir.toString());
+      writeLater(dir, "CrystalReportViewerSage300.csv.crdownload", "CrystalReportViewerSage300.csv");
+
+      File report = DownloadTracker.getInstance().waitForDownload(before, DownloadTracker.REPORT_EXTENSIONS, 10000);
+
+      assertNotNull(report);
+      assertEquals("CrystalReportViewerSage300.csv", report.getName());
+   }
+
+   /** Temporary files are never returned, even when complete */
+   @Test
+   public void ignoresTemporaryFiles() throws Exception
+   {
+      final Path dir = Files.createTempDirectory("download");
+      DownloadTracker.Snapshot before = DownloadTracker.getInstance().snapshot(dir.toString());
+      Files.write(dir.resolve("90F1.tmp"), "partial".getBytes("UTF-8"));
+
+      assertNull(DownloadTracker.getInstance().waitForDownload(before, DownloadTracker.REPORT_EXTENSIONS, 1000));
+   }
+
+   /** A report already in the directory is only returned once downloaded again */
+   @Test
+   public void ignoresFilesFromBeforeTheSnapshot() throws Exception
+   {
+      final Path dir = Files.createTempDirectory("download");
+      Path previous = Files.write(dir.resolve("previous.csv"), "a,b,c".getBytes("UTF-8"));
+      DownloadTracker.Snapshot before = DownloadTracker.getInstance().snapshot(dir.toString());
+
+      assertNull(DownloadTracker.getInstance().waitForDownload(before, DownloadTracker.REPORT_EXTENSIONS, 1000));
+      assertEquals("previous.csv",
+            DownloadTracker.getInstance().waitForDownload(DownloadTracker.Snapshot.empty(dir.toString()),
+                  DownloadTracker.REPORT_EXTENSIONS, 10000).getName());
+
+      Files.write(previous, "a,b,c,d".getBytes("UTF-8"));
+      assertEquals("previous.csv",
+            DownloadTracker.getInstance().waitForDownload(before, DownloadTracker.REPORT_EXTENSIONS, 10000).getName());
+   }
+
+   /**
+    * Writes a temporary file in the background, then renames it.
+    * 
+    * @param dir
+    *           the download directory
+    * @param temporaryName
+    *           the name used while the download is in progress
+    * @param finalName
+    *           the name once the download is complete
+    */
+   private static void writeLater(final Path dir, final String temporaryName, final String finalName)
+   {
+      new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               Thread.sleep(200);
+               Path temporary = Files.write(dir.resolve(temporaryName), "a,b,c".getBytes("UTF-8"));
+               Thread.sleep(200);
+               Files.move(temporary, dir.resolve(finalName));
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            catch (IOException e)
+            {
+               e.printStackTrace();
+            }
+         }
+      }).start();
+   }
+}
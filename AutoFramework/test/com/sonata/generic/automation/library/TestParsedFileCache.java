@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The <code>TestParsedFileCache</code> class provides JUnit tests on the
+ * {@link ParsedFileCache} class.
+ */
+public class TestParsedFileCache
+{
+   private final List<File> files  = new ArrayList<File>();
+   private final TextParser parser = new TextParser();
+
+   @After
+   public void deleteFiles()
+   {
+      for (File file : files)
+      {
+         file.delete();
+      }
+   }
+
+   @Test
+   public void unchangedFileIsParsedOnce() throws Exception
+   {
+      File file = write("one");
+      ParsedFileCache cache = new ParsedFileCache(1000);
+      String first = cache.get(file, parser);
+      assertSame(first, cache.get(file, parser));
+      assertSame(first, cache.get(new File(file.getParentFile(), "./" + file.getName()), parser));
+      assertEquals(1, parser.parsed);
+      assertEquals(2, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+      assertEquals("2 hit(s), 1 miss(es), 0 eviction(s), 1 entries, 3 of 1000 bytes", cache.getStatistics());
+   }
+
+   @Test
+   public void changedFileIsParsedAgain() throws Exception
+   {
+      File file = write("one");
+      ParsedFileCache cache = new ParsedFileCache(1000);
+      assertEquals("one", cache.get(file, parser));
+
+      rewrite(file, "three");
+      assertEquals("three", cache.get(file, parser));
+      assertEquals(2, parser.parsed);
+      assertEquals(1, cache.size());
+      assertEquals(5, cache.getWeight());
+
+      cache.invalidate(file);
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getWeight());
+      assertEquals("three", cache.get(file, parser));
+      assertEquals(3, parser.parsed);
+   }
+
+   @Test
+   public void leastRecentlyUsedAreEvicted() throws Exception
+   {
+      File a = write("aaaa");
+      File b = write("bbbb");
+      File c = write("cccc");
+      ParsedFileCache cache = new ParsedFileCache(10);
+      String parsedA = cache.get(a, parser);
+      cache.get(b, parser);
+      cache.get(a, parser);
+      cache.get(c, parser);
+
+      assertEquals(1, cache.getEvictionCount());
+      assertEquals(8, cache.getWeight());
+      assertSame(parsedA, cache.get(a, parser));
+      assertEquals(3, parser.parsed);
+      cache.get(b, parser);
+      assertEquals(4, parser.parsed);
+   }
+
+   @Test
+   public void heavyValuesAreNotCached() throws Exception
+   {
+      File file = write("too large");
+      ParsedFileCache cache = new ParsedFileCache(5);
+      assertNotSame(cache.get(file, parser), cache.get(file, parser));
+      assertEquals(0, cache.size());
+
+      ParsedFileCache off = new ParsedFileCache(0);
+      File empty = write("");
+      off.get(empty, parser);
+      off.get(empty, parser);
+      assertEquals(0, off.size());
+      assertEquals(2, off.getMissCount());
+   }
+
+   @Test
+   public void cachedCSVIsReadLikeTheFile() throws Exception
+   {
+      File file = write("\uFEFFName,Note\r\n\r\n\"Smith, J\",\"said \"\"hi\"\"\"\nDoe,\n");
+      for (int i = 0; i < 2; i++)
+      {
+         CSVReader reader = CSVReader.openCached(file.getPath());
+         try
+         {
+            assertEquals(Arrays.asList("Name", "Note"), Arrays.asList(reader.readHeader()));
+            assertEquals(1, reader.getColumnIndex("Note"));
+            reader.next();
+            assertEquals(Arrays.asList("Smith, J", "said \"hi\""), Arrays.asList(reader.getRecord()));
+            assertTrue(reader.isQuoted(0));
+            assertTrue(reader.fieldEquals(1, "said \"hi\""));
+            reader.next();
+            assertEquals(2, reader.getFieldCount());
+            assertEquals("", reader.get(1));
+            assertEquals(3, reader.getRecordNumber());
+            assertFalse(reader.next());
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+   }
+
+   /**
+    * Writes a temporary file, deleted after the test.
+    *
+    * @param content
+    *           The content.
+    *
+    * @return The file.
+    */
+   private File write(final String content) throws IOException
+   {
+      File file = File.createTempFile("cache", ".txt");
+      files.add(file);
+      rewrite(file, content);
+      return file;
+   }
+
+   /**
+    * @param file
+    *           A file.
+    * @param content
+    *           Its new content.
+    */
+   private static void rewrite(final File file, final String content) throws IOException
+   {
+      OutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(content.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   /**
+    * Reads a file as text, weighed at one byte per character.
+    */
+   private static final class TextParser implements ParsedFileCache.Parser<String>
+   {
+      private int parsed;
+
+      @Override
+      public String parse(final File file) throws IOException
+      {
+         parsed++;
+         return FileUtils.readFileToString(file, "UTF-8");
+      }
+
+      @Override
+      public long weigh(final String value, final long fileLength)
+      {
+         return value.length();
+      }
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestUniqueIdGenerator</code> class provides JUnit tests on the
+ * {@link UniqueIdGenerator} class.
+ */
+public class TestUniqueIdGenerator
+{
+   @Test
+   public void idsHaveLengthAndAlphabet()
+   {
+      UniqueIdGenerator generator = new UniqueIdGenerator(0, 1, null);
+      assertTrue(generator.next(10, UniqueIdGenerator.Alphabet.DIGITS).matches("[0-9]{10}"));
+      assertTrue(generator.next(8, UniqueIdGenerator.Alphabet.HEX).matches("[0-9a-f]{8}"));
+      assertTrue(generator.next(8, UniqueIdGenerator.Alphabet.LOWERCASE).matches("[0-9a-z]{8}"));
+      assertTrue(generator.next(8, UniqueIdGenerator.Alphabet.UPPERCASE).matches("[0-9A-Z]{8}"));
+      assertEquals(30, generator.next(30, UniqueIdGenerator.Alphabet.HEX).length());
+   }
+
+   @Test
+   public void threadsNeverShareAnId() throws Exception
+   {
+      final UniqueIdGenerator generator = new UniqueIdGenerator(0, 1, null);
+      final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+      Thread[] threads = new Thread[8];
+      for (int i = 0; i < threads.length; i++)
+      {
+         threads[i] = new Thread(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               for (int j = 0; j < 10000; j++)
+               {
+                  ids.add(generator.next(7, UniqueIdGenerator.Alphabet.UPPERCASE));
+               }
+            }
+         });
+         threads[i].start();
+      }
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+      assertEquals(80000, ids.size());
+   }
+
+   @Test
+   public void workersNeverShareAnId()
+   {
+      UniqueIdGenerator first = new UniqueIdGenerator(0, 3, null);
+      UniqueIdGenerator second = new UniqueIdGenerator(1, 3, null);
+      Set<String> ids = new HashSet<String>();
+      for (int i = 0; i < 1000; i++)
+      {
+         ids.add(first.next(11, UniqueIdGenerator.Alphabet.DIGITS));
+         ids.add(second.next(11, UniqueIdGenerator.Alphabet.DIGITS));
+      }
+      assertEquals(2000, ids.size());
+   }
+
+   @Test
+   public void generatorsWithoutWorkerStartingTogetherDoNotShareAnId()
+   {
+      // Generators started in the same second use the same sequence numbers
+      UniqueIdGenerator first = new UniqueIdGenerator(null);
+      UniqueIdGenerator second = new UniqueIdGenerator(null);
+      UniqueIdGenerator third = new UniqueIdGenerator(null);
+      Set<String> ids = new HashSet<String>();
+      for (int i = 0; i < 1000; i++)
+      {
+         ids.add(first.next(22, UniqueIdGenerator.Alphabet.HEX));
+         ids.add(second.next(22, UniqueIdGenerator.Alphabet.HEX));
+         ids.add(third.next(22, UniqueIdGenerator.Alphabet.HEX));
+      }
+      assertEquals(3000, ids.size());
+      assertTrue(first.next(11, UniqueIdGenerator.Alphabet.UPPERCASE).matches("[0-9A-Z]{11}"));
+   }
+
+   @Test
+   public void sequenceNumbersDoNotWrapAround()
+   {
+      // 8 hexadecimal characters hold the sequence numbers of one worker only
+      UniqueIdGenerator generator = new UniqueIdGenerator(0, 1, null);
+      long sequence = generator.nextSequence();
+      assertEquals(sequence + 1, Long.parseLong(generator.next(8, UniqueIdGenerator.Alphabet.HEX), 16));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void idsTooShortForTheSequenceNumbersAreRefused()
+   {
+      new UniqueIdGenerator(0, 1, null).next(6, UniqueIdGenerator.Alphabet.UPPERCASE);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void idsTooShortForRandomBitsAreRefused()
+   {
+      new UniqueIdGenerator(null).next(12, UniqueIdGenerator.Alphabet.HEX);
+   }
+
+   @Test
+   public void nextRunStartsAfterHighWaterMark() throws Exception
+   {
+      File file = File.createTempFile("uniqueid", ".hwm");
+      file.delete();
+      try
+      {
+         UniqueIdGenerator first = new UniqueIdGenerator(0, 1, file);
+         long last = 0;
+         for (int i = 0; i < 2500; i++)
+         {
+            last = first.nextSequence();
+         }
+         UniqueIdGenerator second = new UniqueIdGenerator(0, 1, file);
+         assertTrue(second.nextSequence() > last);
+      }
+      finally
+      {
+         file.delete();
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void workerMustBeBelowWorkers()
+   {
+      new UniqueIdGenerator(2, 2, null);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void lengthMustLeaveAnIdPerWorker()
+   {
+      new UniqueIdGenerator(0, 20, null).next(10, UniqueIdGenerator.Alphabet.DIGITS);
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import java.util.ArrayList;
+
+/**
+ * The <code>CellLocatorsBenchmark</code> class measures the cost of building
+ * the locators tried by a text box accessor of the tables, the way they were
+ * built before (a new list of helpers and a full concatenation per call) and
+ * with {@link CellLocators}. It is not part of the test suites; run its main
+ * method to print the results.
+ */
+public final class CellLocatorsBenchmark
+{
+   private static final String BODY       = "//div[@id='grid']/div[@class='k-grid-content']/table/tbody";
+   private static final int    ROWS       = 10;
+   private static final int    COLUMNS    = 20;
+   private static final int    ROUNDS     = 3;
+   private static final int    ITERATIONS = 1000000;
+
+   /**
+    * The constructor was made private so it can never be instantiated.
+    */
+   private CellLocatorsBenchmark()
+   {
+   }
+
+   /**
+    * Runs the benchmark. The first rounds warm the JIT up, the last one is the
+    * one to read.
+    *
+    * @param args
+    *           not used
+    */
+   public static void main(final String[] args)
+   {
+      final CellLocators cells = new CellLocators(BODY);
+      long sink = 0;
+      for (int round = 1; round <= ROUNDS; round++)
+      {
+         long start = System.nanoTime();
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            sink += concatenate(i);
+         }
+         final long concatenation = System.nanoTime() - start;
+
+         start = System.nanoTime();
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            sink += precompiled(cells, i);
+         }
+         final long precompiled = System.nanoTime() - start;
+
+         System.out.println("round " + round + ": concatenation " + concatenation / ITERATIONS
+               + " ns/cell, CellLocators " + precompiled / ITERATIONS + " ns/cell");
+      }
+      System.out.println("(" + sink + ")");
+   }
+
+   /**
+    * @param i
+    *           the iteration
+    * @return a value depending on the locators, so the work is not optimized
+    *         away
+    */
+   private static int concatenate(final int i)
+   {
+      final String baseLocator = BODY + "/tr[" + (i % ROWS + 1) + "]/td[" + (i % COLUMNS + 1) + "]";
+      final ArrayList<String> helpersList = new ArrayList<String>();
+      helpersList.add("/span/span/input[2]");
+      helpersList.add("/span/span/input");
+      helpersList.add("/input");
+      helpersList.add("/div/div/input");
+      helpersList.add("");
+      int length = 0;
+      for (String helper : helpersList)
+      {
+         length += (baseLocator + helper).length();
+      }
+      return length;
+   }
+
+   /**
+    * @param cells
+    *           the locators of the table
+    * @param i
+    *           the iteration
+    * @return a value depending on the locators, so the work is not optimized
+    *         away
+    */
+   private static int precompiled(final CellLocators cells, final int i)
+   {
+      final String baseLocator = cells.cell(i % ROWS + 1, i % COLUMNS + 1, "");
+      int length = 0;
+      for (String helper : CellLocators.TEXTBOX_HELPERS)
+      {
+         length += (baseLocator + helper).length();
+      }
+      return length;
+   }
+}
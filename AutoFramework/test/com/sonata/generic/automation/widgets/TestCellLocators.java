@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The <code>TestCellLocators</code> class provides the JUnit tests on the
+ * {@link CellLocators} class
+ */
+public class TestCellLocators
+{
+   private static final String BODY = "//div[@id='grid']/div[@class='k-grid-content']/table/tbody";
+
+   @Test
+   public void buildsTheSameLocatorsAsConcatenation()
+   {
+      CellLocators cells = new CellLocators(BODY);
+      assertEquals(BODY + "/tr[3]/td[12]", cells.cell(3, 12, ""));
+      assertEquals(BODY + "/tr[1]/td[2]/span/span/input", cells.cell(1, 2, "/span/span/input"));
+      assertEquals(BODY + "/tr[4]/td[@date-field='Account']", cells.cellById(4, "Account", ""));
+      // The buffer is reused, a shorter locator must not keep the tail of the longer one
+      assertEquals(BODY + "/tr[1]/td[1]", cells.cell(1, 1, ""));
+   }
+
+   @Test
+   public void changingTheBodyChangesTheLocators()
+   {
+      CellLocators cells = new CellLocators(BODY);
+      cells.setBody("//div[@id='grid']/table/tbody");
+      assertEquals("//div[@id='grid']/table/tbody/tr[2]/td[3]", cells.cell(2, 3, ""));
+      assertEquals("//div[@id='grid']/table/tbody/tr[2]/td[@date-field='Rate']/input", cells.cellById(2, "Rate",
+            "/input"));
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestColumnHeaders</code> class provides the JUnit tests on the
+ * {@link ColumnHeaders} class
+ */
+public class TestColumnHeaders
+{
+   /** Columns are found by heading and by id, hidden columns never match */
+   @Test
+   public void canFindColumns()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      expectHeaders(browser, null, "fp1");
+      EasyMock.replay(browser);
+
+      ColumnHeaders headers = ColumnHeaders.get(browser, "grid");
+      assertEquals(4, headers.getCount());
+      assertEquals(0, headers.indexOfText("id"));
+      assertEquals(2, headers.indexOfText("deleteRowColumn"));
+      assertEquals(3, headers.indexOfText("ACCOUNT"));
+      assertEquals(4, headers.indexOfId("desc"));
+      assertEquals(0, headers.indexOfId("missing"));
+      assertTrue(headers.isHidden(1));
+      assertFalse(headers.isHidden(5));
+      assertNull(headers.getText(5));
+      EasyMock.verify(browser);
+   }
+
+   /** An unchanged header row is served from the registry */
+   @Test
+   public void unchangedHeadersAreShared()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      expectHeaders(browser, null, "fp1");
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq("fp1"))).andReturn(Collections.singletonMap("fingerprint", "fp1"));
+      EasyMock.replay(browser);
+
+      ColumnHeaders first = ColumnHeaders.get(browser, "grid");
+      assertSame(first, ColumnHeaders.get(browser, "grid"));
+      EasyMock.verify(browser);
+   }
+
+   /** A changed or invalidated header row is read again */
+   @Test
+   public void changedHeadersAreReadAgain()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      expectHeaders(browser, null, "fp1");
+      expectHeaders(browser, "fp1", "fp2");
+      expectHeaders(browser, null, "fp2");
+      EasyMock.replay(browser);
+
+      ColumnHeaders first = ColumnHeaders.get(browser, "grid");
+      ColumnHeaders second = ColumnHeaders.get(browser, "grid");
+      assertFalse(first == second);
+      ColumnHeaders.invalidate(browser, "grid");
+      assertFalse(second == ColumnHeaders.get(browser, "grid"));
+      EasyMock.verify(browser);
+   }
+
+   // Private methods to help the test
+
+   /**
+    * Makes a mock browser expect a full read of the header row.
+    *
+    * @param browser
+    *           the mock browser
+    * @param cachedFingerprint
+    *           the fingerprint the lookup is expected to send
+    * @param fingerprint
+    *           the fingerprint of the header row in the page
+    */
+   private void expectHeaders(final Browser browser, final String cachedFingerprint, final String fingerprint)
+   {
+      Map<String, Object> raw = new HashMap<String, Object>();
+      raw.put("fingerprint", fingerprint);
+      raw.put("texts", Arrays.asList("", "", "Account", "Description"));
+      raw.put("ids", Arrays.asList("id", null, "acctid", "desc"));
+      raw.put("hidden", Arrays.asList(true, false, false, false));
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(cachedFingerprint))).andReturn(raw);
+   }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestKendoDataSource</code> class provides the JUnit tests on the
+ * {@link KendoDataSource} class
+ */
+public class TestKendoDataSource
+{
+   /** An element which is not a Kendo grid gives no state */
+   @Test
+   public void notKendoGivesNoState()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(null);
+      EasyMock.replay(browser);
+
+      assertNull(new KendoDataSource(browser, "grid").getPageState());
+      EasyMock.verify(browser);
+   }
+
+   /** The paging state is read as numbers */
+   @Test
+   public void canGetPageState()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(state());
+      EasyMock.replay(browser);
+
+      GridPageState state = new KendoDataSource(browser, "grid").getPageState();
+      assertEquals(4, state.getPage());
+      assertEquals(10, state.getPageSize());
+      assertEquals(4, state.getTotalPages());
+      assertEquals(31, state.getTotal());
+      assertEquals(1, state.getItemsOnPage());
+      assertFalse(state.isServerPaging());
+      EasyMock.verify(browser);
+   }
+
+   /** Rows keep the value types and get their dates back */
+   @Test
+   public void rowsAreTyped()
+   {
+      Map<String, Object> row = new LinkedHashMap<String, Object>();
+      row.put("acctid", "1000");
+      row.put("balance", Double.valueOf(12.5));
+      row.put("active", Boolean.TRUE);
+      row.put("created", Collections.singletonMap("$date", Long.valueOf(86400000L)));
+      Map<String, Object> raw = new HashMap<String, Object>();
+      raw.put("state", state());
+      raw.put("rows", Arrays.asList(row));
+
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(raw);
+      EasyMock.replay(browser);
+
+      List<GridRow> rows = new KendoDataSource(browser, "grid").getRows();
+      assertEquals(1, rows.size());
+      GridRow first = rows.get(0);
+      assertEquals(4, first.getPage());
+      assertEquals(1, first.getIndex());
+      assertEquals("1000", first.getString("acctid"));
+      assertEquals(Double.valueOf(12.5), first.get("balance"));
+      assertTrue((Boolean)first.get("active"));
+      assertEquals(new Date(86400000L), first.get("created"));
+      assertEquals(Arrays.asList("acctid", "balance", "active", "created"), Arrays.asList(first.getFields().toArray()));
+      EasyMock.verify(browser);
+   }
+
+   /** A prefetched page is taken once the dataSource has read it */
+   @Test
+   public void prefetchedPageIsTakenOnceRead()
+   {
+      Map<String, Object> pending = new HashMap<String, Object>();
+      pending.put("status", "pending");
+      Map<String, Object> ready = new HashMap<String, Object>();
+      ready.put("status", "ready");
+      ready.put("rows", Arrays.asList(Collections.singletonMap("acctid", "1010")));
+
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(2))).andReturn(pending).andReturn(ready);
+      EasyMock.replay(browser);
+
+      List<GridRow> rows = new KendoDataSource(browser, "grid").takePrefetched(2);
+      assertEquals(1, rows.size());
+      assertEquals(2, rows.get(0).getPage());
+      assertEquals("1010", rows.get(0).getString("acctid"));
+      EasyMock.verify(browser);
+   }
+
+   /** A failed prefetch gives no rows, so the page is read again */
+   @Test
+   public void failedPrefetchGivesNoRows()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(2))).andReturn(Collections.singletonMap("status", "failed"));
+      EasyMock.replay(browser);
+
+      assertNull(new KendoDataSource(browser, "grid").takePrefetched(2));
+      EasyMock.verify(browser);
+   }
+
+   // Private methods to help the test
+
+   /**
+    * @return the state map of the last page of a 31 rows grid
+    */
+   private Map<String, Object> state()
+   {
+      Map<String, Object> state = new HashMap<String, Object>();
+      state.put("page", Long.valueOf(4));
+      state.put("pageSize", Long.valueOf(10));
+      state.put("totalPages", Long.valueOf(4));
+      state.put("total", Long.valueOf(31));
+      state.put("count", Long.valueOf(1));
+      state.put("serverPaging", Boolean.FALSE);
+      return state;
+   }
+}
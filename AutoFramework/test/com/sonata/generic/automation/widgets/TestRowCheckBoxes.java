@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestRowCheckBoxes</code> class provides the JUnit tests on the
+ * {@link RowCheckBoxes} class and the row selection of the {@link Table} class
+ */
+public class TestRowCheckBoxes
+{
+   @Test
+   public void canParseListsAndRanges()
+   {
+      assertEquals(Arrays.asList(3), RowCheckBoxes.parseLines("3"));
+      assertEquals(Arrays.asList(3, 4, 7, 10), RowCheckBoxes.parseLines("3,4,7,10"));
+      assertEquals(Arrays.asList(1, 3, 4, 5), RowCheckBoxes.parseLines("1, 3-5"));
+   }
+
+   /** The lines are all set in one call */
+   @Test
+   public void selectsAllLinesInOneCall()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(Arrays.asList(2, 3)), EasyMock.eq(Boolean.TRUE))).andReturn(
+            Arrays.asList(Boolean.FALSE, Boolean.TRUE, Boolean.TRUE));
+      EasyMock.replay(browser);
+
+      assertTrue(new Table("grid", browser).selectLinesForDelete("2-3"));
+      EasyMock.verify(browser);
+   }
+
+   /** A line which is not on the page cannot be selected */
+   @Test
+   public void lineOffThePageIsNotSelected()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(Arrays.asList(1, 4)), EasyMock.eq(Boolean.FALSE))).andReturn(
+            Arrays.asList(Boolean.FALSE, Boolean.TRUE));
+      EasyMock.replay(browser);
+
+      assertFalse(new Table("grid", browser).unselectLinesForDelete("1,4"));
+      EasyMock.verify(browser);
+   }
+
+   /** The counts come from one read of the page */
+   @Test
+   public void countsCheckedLines()
+   {
+      List<Boolean> states = Arrays.asList(Boolean.TRUE, null, Boolean.FALSE, Boolean.TRUE);
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(states).times(3);
+      EasyMock.replay(browser);
+
+      Table table = new Table("grid", browser);
+      assertEquals(2, table.getCheckedItemsToDelete());
+      assertFalse(table.isAllChecked());
+      assertFalse(table.isAllUnChecked());
+      EasyMock.verify(browser);
+   }
+
+   /** Lines without checkbox are not counted */
+   @Test
+   public void allCheckedIgnoresLinesWithoutCheckBox()
+   {
+      assertEquals(0, RowCheckBoxes.count(Arrays.asList(Boolean.TRUE, null), false));
+   }
+}
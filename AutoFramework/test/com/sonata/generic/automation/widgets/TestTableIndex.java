@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestTableIndex</code> class provides the JUnit tests on the
+ * {@link TableIndex} class
+ */
+public class TestTableIndex
+{
+   /** Exact searches find the first page and row holding the key */
+   @Test
+   public void canFindExactKey()
+   {
+      TableIndex index = new TableIndex(2, -1);
+      index.addPage(page(new String[] {"1000", "Cash"}, new String[] {"1100", "Petty cash"}));
+      index.addPage(page(new String[] {"1200", "Bank"}, new String[] {"1000", "Cash"}));
+
+      assertTrue(index.isComplete());
+      assertArrayEquals(new int[] {2, 1}, index.find(new int[] {1}, new String[] {"1200"}, MatchMode.EXACT));
+      assertArrayEquals(new int[] {1, 1},
+            index.find(new int[] {1, 2}, new String[] {"1000", "Cash"}, MatchMode.EXACT));
+      assertNull(index.find(new int[] {1, 2}, new String[] {"1000", "Bank"}, MatchMode.EXACT));
+   }
+
+   /** Pages added after a hash was built are added to it */
+   @Test
+   public void hashFollowsAddedPages()
+   {
+      TableIndex index = new TableIndex(2, -1);
+      index.addPage(page(new String[] {"1000", "Cash"}));
+      assertNull(index.find(new int[] {2}, new String[] {"Bank"}, MatchMode.EXACT));
+      assertFalse(index.isComplete());
+
+      index.addPage(page(new String[] {"1200", "Bank"}));
+      assertArrayEquals(new int[] {2, 1}, index.find(new int[] {2}, new String[] {"Bank"}, MatchMode.EXACT));
+   }
+
+   /** A refreshed page replaces its rows in the exact hashes */
+   @Test
+   public void hashFollowsRefreshedPages()
+   {
+      TableIndex index = new TableIndex(2, -1);
+      index.addPage(page(new String[] {"1000", "Cash"}));
+      index.addPage(page(new String[] {"1200", "Bank"}));
+      assertArrayEquals(new int[] {2, 1}, index.find(new int[] {1}, new String[] {"1200"}, MatchMode.EXACT));
+
+      index.refreshPage(1, page(new String[] {"1300", "Tax"}, new String[] {"1200", "Bank"}));
+      assertNull(index.find(new int[] {1}, new String[] {"1000"}, MatchMode.EXACT));
+      assertArrayEquals(new int[] {1, 1}, index.find(new int[] {1}, new String[] {"1300"}, MatchMode.EXACT));
+      assertArrayEquals(new int[] {1, 2}, index.find(new int[] {1}, new String[] {"1200"}, MatchMode.EXACT));
+   }
+
+   /** Refreshing a page with the snapshot it holds keeps the hashes */
+   @Test
+   public void sameSnapshotKeepsTheIndex()
+   {
+      TableIndex index = new TableIndex(1, 2);
+      TableSnapshot snapshot = page(new String[] {"1000", "Cash"}, new String[] {"1100", "Petty cash"});
+      index.addPage(snapshot);
+      assertArrayEquals(new int[] {1, 2}, index.find(new int[] {1}, new String[] {"1100"}, MatchMode.EXACT));
+
+      index.refreshPage(1, snapshot);
+      assertEquals(2, index.getTotalRows());
+      assertNull(index.find(new int[] {1}, new String[] {"1200"}, MatchMode.EXACT));
+      assertArrayEquals(new int[] {1, 1}, index.find(new int[] {1}, new String[] {"1000"}, MatchMode.EXACT));
+   }
+
+   /** Prefix and contains searches scan the indexed pages */
+   @Test
+   public void canFindPrefixAndContains()
+   {
+      TableIndex index = new TableIndex(1, -1);
+      index.addPage(page(new String[] {"1000", "Cash"}, new String[] {"1100", "Petty cash"}));
+
+      assertArrayEquals(new int[] {1, 2}, index.find(new int[] {2}, new String[] {"Petty"}, MatchMode.PREFIX));
+      assertArrayEquals(new int[] {1, 2}, index.find(new int[] {2}, new String[] {"cash"}, MatchMode.CONTAINS));
+      assertNull(index.find(new int[] {2}, new String[] {"cash"}, MatchMode.PREFIX));
+   }
+
+   // Private methods to help the test
+
+   /**
+    * Reads the snapshot of a page from a mock browser.
+    *
+    * @param rows
+    *           the texts of the rows
+    * @return the snapshot
+    */
+   private TableSnapshot page(final String[]... rows)
+   {
+      int columnCount = rows[0].length;
+      List<List<?>> texts = new ArrayList<List<?>>();
+      List<List<?>> flags = new ArrayList<List<?>>();
+      List<List<?>> checks = new ArrayList<List<?>>();
+      List<String> headers = new ArrayList<String>();
+      for (int c = 0; c < columnCount; c++)
+      {
+         List<String> column = new ArrayList<String>();
+         List<Boolean> flag = new ArrayList<Boolean>();
+         List<Long> check = new ArrayList<Long>();
+         for (String[] row : rows)
+         {
+            column.add(row[c]);
+            flag.add(false);
+            check.add(-1L);
+         }
+         texts.add(column);
+         flags.add(flag);
+         checks.add(check);
+         headers.add("Column" + c);
+      }
+
+      Map<String, Object> raw = new HashMap<String, Object>();
+      raw.put("headers", headers);
+      raw.put("ids", headers);
+      raw.put("hidden", Arrays.asList(new Boolean[columnCount]));
+      raw.put("rows", Long.valueOf(rows.length));
+      raw.put("texts", texts);
+      raw.put("editable", flags);
+      raw.put("checks", checks);
+      raw.put("token", "token");
+      raw.put("fingerprint", "");
+
+      Browser browser = EasyMock.createNiceMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(raw);
+      EasyMock.replay(browser);
+      return TableSnapshot.read(browser, "grid");
+   }
+}
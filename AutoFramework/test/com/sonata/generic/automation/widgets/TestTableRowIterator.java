@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestTableRowIterator</code> class provides the JUnit tests on the
+ * {@link TableRowIterator} class
+ */
+public class TestTableRowIterator
+{
+   /** All the rows of all the pages are returned, in order */
+   @Test
+   public void canIterateAllPages()
+   {
+      Browser browser = getBrowserWithPages(3, 3);
+      EasyMock.replay(browser);
+
+      TableRowIterator rows = new Table("grid", browser).rows();
+      List<String> ids = new ArrayList<String>();
+      while (rows.hasNext())
+      {
+         GridRow row = rows.next();
+         ids.add(row.getPage() + "." + row.getString("id"));
+      }
+      assertEquals(7, ids.size());
+      assertEquals("1.1", ids.get(0));
+      assertEquals("3.7", ids.get(6));
+      EasyMock.verify(browser);
+   }
+
+   /** Stopping early does not read the remaining pages */
+   @Test
+   public void stoppingEarlyReadsNoMorePages()
+   {
+      Browser browser = getBrowserWithPages(3, 1);
+      EasyMock.replay(browser);
+
+      TableRowIterator rows = new Table("grid", browser).rows();
+      assertTrue(rows.hasNext());
+      assertEquals("1", rows.next().getString("id"));
+      assertEquals(1, rows.getPage());
+      EasyMock.verify(browser);
+   }
+
+   /** Nothing is read before the first row is asked for */
+   @Test
+   public void nothingIsReadUpFront()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.replay(browser);
+
+      new Table("grid", browser).rows();
+      EasyMock.verify(browser);
+   }
+
+   /** The iteration ends with the last row of the last page */
+   @Test
+   public void iterationEndsOnLastPage()
+   {
+      Browser browser = getBrowserWithPages(1, 1);
+      EasyMock.replay(browser);
+
+      TableRowIterator rows = new Table("grid", browser).rows();
+      assertTrue(rows.hasNext());
+      rows.next();
+      rows.next();
+      rows.next();
+      assertFalse(rows.hasNext());
+      EasyMock.verify(browser);
+   }
+
+   // Private methods to help the test
+
+   /**
+    * Returns a mock browser showing a Kendo grid whose rows are all in the
+    * browser, 3 per page, with 7 rows over 3 pages.
+    *
+    * @param totalPages
+    *           the number of pages the grid reports
+    * @param pagesRead
+    *           the number of pages expected to be read
+    * @return a {@link Browser} expecting the state and the pages to be read
+    */
+   private Browser getBrowserWithPages(final int totalPages, final int pagesRead)
+   {
+      Map<String, Object> state = new HashMap<String, Object>();
+      state.put("page", Long.valueOf(1));
+      state.put("pageSize", Long.valueOf(3));
+      state.put("totalPages", Long.valueOf(totalPages));
+      state.put("total", Long.valueOf(7));
+      state.put("count", Long.valueOf(3));
+
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(state);
+      for (int page = 1; page <= pagesRead; page++)
+      {
+         List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+         for (int id = (page - 1) * 3 + 1; id <= Math.min(7, page * 3); id++)
+         {
+            rows.add(Collections.<String, Object> singletonMap("id", Long.valueOf(id)));
+         }
+         EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+               EasyMock.eq(Integer.valueOf(page)))).andReturn(Collections.singletonMap("rows", rows));
+      }
+      return browser;
+   }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestTableSnapshot</code> class provides the JUnit tests on the
+ * {@link TableSnapshot} class
+ */
+public class TestTableSnapshot
+{
+   /** A grid which is not in the DOM gives no snapshot */
+   @Test
+   public void missingGridGivesNoSnapshot()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(null);
+      EasyMock.replay(browser);
+
+      assertNull(TableSnapshot.read(browser, "grid"));
+      EasyMock.verify(browser);
+   }
+
+   /** The cells are read column-wise and addressed with 1-based indexes */
+   @Test
+   public void canReadCells()
+   {
+      TableSnapshot snapshot = readMockGrid();
+
+      assertEquals(2, snapshot.getRowCount());
+      assertEquals(3, snapshot.getColumnCount());
+      assertEquals("Account", snapshot.getHeader(2));
+      assertEquals("acctid", snapshot.getColumnId(2));
+      assertTrue(snapshot.isColumnHidden(1));
+      assertEquals("1000", snapshot.getText(1, 2));
+      assertEquals("Cash", snapshot.getText(2, 3));
+      assertTrue(snapshot.isEditable(2, 3));
+      assertFalse(snapshot.isEditable(1, 3));
+      assertTrue(snapshot.isChecked(2, 1));
+      assertFalse(snapshot.isChecked(1, 1));
+      assertFalse(snapshot.hasCheckBox(1, 2));
+      assertEquals(Arrays.asList("2000", "Cash"), Arrays.asList(snapshot.getRow(2)).subList(1, 3));
+   }
+
+   /** Cells outside the page or missing from a short row do not exist */
+   @Test
+   public void missingCellsAreNull()
+   {
+      TableSnapshot snapshot = readMockGrid();
+
+      assertFalse(snapshot.hasCell(3, 1));
+      assertFalse(snapshot.hasCell(1, 4));
+      assertFalse(snapshot.hasCell(0, 1));
+      assertNull(snapshot.getText(1, 3));
+      assertNull(snapshot.getHeader(5));
+   }
+
+   // Private methods to help the test
+
+   /**
+    * Reads a snapshot from a mock browser returning a two rows grid, the
+    * first row of which only has two cells.
+    *
+    * @return the snapshot
+    */
+   private TableSnapshot readMockGrid()
+   {
+      Map<String, Object> raw = new HashMap<String, Object>();
+      raw.put("headers", Arrays.asList("", "Account", "Description"));
+      raw.put("ids", Arrays.asList(null, "acctid", "desc"));
+      raw.put("hidden", Arrays.asList(true, false, false));
+      raw.put("rows", Long.valueOf(2));
+      raw.put("texts", Arrays.<List<?>> asList(Arrays.asList("", ""), Arrays.asList("1000", "2000"),
+            Arrays.asList(null, "Cash")));
+      raw.put("editable", Arrays.<List<?>> asList(Arrays.asList(false, false), Arrays.asList(false, false),
+            Arrays.asList(null, true)));
+      raw.put("checks", Arrays.<List<?>> asList(Arrays.asList(0L, 1L), Arrays.asList(-1L, -1L),
+            Arrays.asList(null, -1L)));
+      raw.put("token", "token");
+      raw.put("observed", true);
+      raw.put("fingerprint", "2:100");
+
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(raw);
+      EasyMock.replay(browser);
+
+      TableSnapshot snapshot = TableSnapshot.read(browser, "grid");
+      EasyMock.verify(browser);
+      return snapshot;
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015 Sonata Software. All rights reserved. Software, Inc.  All rights reserved.
+ */
+
+package com.sonata.generic.automation.widgets;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sonata.generic.automation.browser.Browser;
+
+/**
+ * The <code>TestVirtualScrollReader</code> class provides the JUnit tests on
+ * the {@link VirtualScrollReader} class
+ */
+public class TestVirtualScrollReader
+{
+   private static final int[] FIRST_COLUMN = {1};
+
+   /** A grid without virtual scrolling is read once, without scrolling */
+   @Test
+   public void plainGridIsReadOnce()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      expectScroll(browser, "", false, 0, true);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(page(new String[] {"1", "2"}, null));
+      EasyMock.replay(browser);
+
+      List<String[]> rows = new VirtualScrollReader(browser, "grid").read(FIRST_COLUMN, null);
+      assertEquals(2, rows.size());
+      EasyMock.verify(browser);
+   }
+
+   /** The steps overlap, the rows seen twice are kept once */
+   @Test
+   public void virtualGridIsScrolledToTheEnd()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      expectScroll(browser, "", true, 120, false);
+      expectScroll(browser, "top", true, 0, false);
+      expectScroll(browser, "next", true, 60, true);
+      browser.waitForNoRequests();
+      EasyMock.expectLastCall().andReturn(true).times(2);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(page(new String[] {"1", "2", "3"}, new String[] {"a", "b", "c"}))
+            .andReturn(page(new String[] {"3", "4"}, new String[] {"c", "d"}));
+      EasyMock.replay(browser);
+
+      List<String[]> rows = new VirtualScrollReader(browser, "grid").read(FIRST_COLUMN, null);
+      assertEquals(4, rows.size());
+      assertEquals("4", rows.get(3)[0]);
+      EasyMock.verify(browser);
+   }
+
+   /** Without uid nor key columns, the rows are told apart by their texts */
+   @Test
+   public void rowsAreToldApartByKeys()
+   {
+      List<String[]> rows = new ArrayList<String[]>();
+      HashSet<String> seen = new HashSet<String>();
+      assertEquals(2, VirtualScrollReader.add(snapshot(page(new String[] {"1", "2"}, null)), FIRST_COLUMN,
+            FIRST_COLUMN, rows, seen));
+      assertEquals(1, VirtualScrollReader.add(snapshot(page(new String[] {"2", "3"}, null)), FIRST_COLUMN,
+            null, rows, seen));
+      assertEquals(3, rows.size());
+   }
+
+   /** A grid which is not in the page cannot be read */
+   @Test(expected = NoSuchElementException.class)
+   public void missingGridCannotBeRead()
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(""))).andReturn(null);
+      EasyMock.replay(browser);
+
+      new VirtualScrollReader(browser, "grid").read(FIRST_COLUMN, null);
+   }
+
+   // Private methods to help the test
+
+   /**
+    * Expects a call to the scroll script.
+    *
+    * @param browser
+    *           the mock browser
+    * @param command
+    *           the scroll command
+    * @param virtual
+    *           whether the grid scrolls virtually
+    * @param top
+    *           the scroll position returned
+    * @param atEnd
+    *           whether the end is reached
+    */
+   private static void expectScroll(final Browser browser, final String command, final boolean virtual,
+         final int top, final boolean atEnd)
+   {
+      Map<String, Object> state = new HashMap<String, Object>();
+      state.put("virtual", virtual);
+      state.put("top", Long.valueOf(top));
+      state.put("atEnd", atEnd);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid"),
+            EasyMock.eq(command))).andReturn(state);
+   }
+
+   /**
+    * Builds what the snapshot script returns for a one column grid.
+    *
+    * @param texts
+    *           the texts of the rows
+    * @param uids
+    *           the uids of the rows, or null for none
+    * @return the raw snapshot
+    */
+   private static Map<String, Object> page(final String[] texts, final String[] uids)
+   {
+      List<Object> none = new ArrayList<Object>();
+      List<Object> checks = new ArrayList<Object>();
+      for (int i = 0; i < texts.length; i++)
+      {
+         none.add(Boolean.FALSE);
+         checks.add(Long.valueOf(-1));
+      }
+      Map<String, Object> raw = new HashMap<String, Object>();
+      raw.put("headers", Arrays.asList("Id"));
+      raw.put("ids", Arrays.asList("id"));
+      raw.put("hidden", Arrays.asList(false));
+      raw.put("rows", Long.valueOf(texts.length));
+      raw.put("texts", Arrays.<List<?>> asList(Arrays.asList(texts)));
+      raw.put("editable", Arrays.<List<?>> asList(none));
+      raw.put("checks", Arrays.<List<?>> asList(checks));
+      if (uids != null)
+      {
+         raw.put("uids", Arrays.asList(uids));
+      }
+      raw.put("token", "token");
+      raw.put("fingerprint", "");
+      return raw;
+   }
+
+   /**
+    * @param raw
+    *           what the snapshot script returns
+    * @return the snapshot read from a mock browser
+    */
+   private static TableSnapshot snapshot(final Map<String, Object> raw)
+   {
+      Browser browser = EasyMock.createMock(Browser.class);
+      EasyMock.expect(browser.executeJavaScriptReturnObject(EasyMock.anyObject(String.class), EasyMock.eq("grid")))
+            .andReturn(raw);
+      EasyMock.replay(browser);
+      return TableSnapshot.read(browser, "grid");
+   }
+}
@@ -13,7 +13,11 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {TestButton.class, TestTextBox.class, TestCheckBox.class,
-      TestWidget.class, TestLabel.class, TestComboBox.class, TestRadioButton.class, TestTab.class})
+      TestWidget.class, TestLabel.class, TestComboBox.class, TestRadioButton.class, TestTab.class,
+      TestTableSnapshot.class, TestTableIndex.class,
+      TestColumnHeaders.class, TestKendoDataSource.class,
+      TestTableRowIterator.class, TestRowCheckBoxes.class,
+      TestVirtualScrollReader.class, TestCellLocators.class})
 public class WidgetPackageTestsSuite
 {
 